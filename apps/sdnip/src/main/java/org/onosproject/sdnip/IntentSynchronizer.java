@@ -29,8 +29,10 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
 
 import org.apache.commons.lang3.tuple.Pair;
+import org.onlab.metrics.MetricsService;
 import org.onlab.packet.Ip4Prefix;
 import org.onosproject.core.ApplicationId;
+import org.onosproject.core.MetricsHelper;
 import org.onosproject.net.flow.criteria.Criteria.IPCriterion;
 import org.onosproject.net.flow.criteria.Criterion;
 import org.onosproject.net.intent.Intent;
@@ -42,13 +44,14 @@ import org.onosproject.net.intent.PointToPointIntent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Counter;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * Synchronizes intents between the in-memory intent store and the
  * IntentService.
  */
-public class IntentSynchronizer {
+public class IntentSynchronizer implements MetricsHelper {
     private static final Logger log =
         LoggerFactory.getLogger(IntentSynchronizer.class);
 
@@ -65,6 +68,9 @@ public class IntentSynchronizer {
     private volatile boolean isElectedLeader = false;
     private volatile boolean isActivatedLeader = false;
 
+    private final MetricsService metricsService;
+    private final Counter routeIntentOperations;
+
     /**
      * Class constructor.
      *
@@ -72,8 +78,25 @@ public class IntentSynchronizer {
      * @param intentService the intent service
      */
     IntentSynchronizer(ApplicationId appId, IntentService intentService) {
+        this(appId, intentService, null);
+    }
+
+    /**
+     * Class constructor.
+     *
+     * @param appId the Application ID
+     * @param intentService the intent service
+     * @param metricsService the metrics service to report the route intent
+     * operations counter to, or null if none
+     */
+    IntentSynchronizer(ApplicationId appId, IntentService intentService,
+                       MetricsService metricsService) {
         this.appId = appId;
         this.intentService = intentService;
+        this.metricsService = metricsService;
+        Counter counter = createCounter("SdnIp", "IntentSynchronizer",
+                                        "RouteIntentOperations");
+        routeIntentOperations = counter != null ? counter : new Counter();
         peerIntents = new ConcurrentHashMap<>();
         routeIntents = new ConcurrentHashMap<>();
 
@@ -82,6 +105,21 @@ public class IntentSynchronizer {
                 .setNameFormat("sdnip-intents-synchronizer-%d").build());
     }
 
+    @Override
+    public MetricsService metricsService() {
+        return metricsService;
+    }
+
+    /**
+     * Gets the number of route intent submit and withdraw operations
+     * executed.
+     *
+     * @return the number of route intent operations
+     */
+    public long getRouteIntentOperations() {
+        return routeIntentOperations.getCount();
+    }
+
     /**
      * Starts the synchronizer.
      */
@@ -312,11 +350,15 @@ public class IntentSynchronizer {
                 if (!intentOperations.operations().isEmpty()) {
                     log.debug("SDN-IP Withdrawing intents executed");
                     intentService.execute(intentOperations);
+                    routeIntentOperations.inc(
+                        intentOperations.operations().size());
                 }
                 intentOperations = submitBuilder.build();
                 if (!intentOperations.operations().isEmpty()) {
                     log.debug("SDN-IP Submitting intents executed");
                     intentService.execute(intentOperations);
+                    routeIntentOperations.inc(
+                        intentOperations.operations().size());
                 }
             }
         }
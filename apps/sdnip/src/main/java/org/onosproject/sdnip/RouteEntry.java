@@ -60,27 +60,6 @@ public class RouteEntry {
         return nextHop;
     }
 
-    /**
-     * Creates the binary string representation of an IPv4 prefix.
-     * The string length is equal to the prefix length.
-     *
-     * @param ip4Prefix the IPv4 prefix to use
-     * @return the binary string representation
-     */
-    static String createBinaryString(Ip4Prefix ip4Prefix) {
-        if (ip4Prefix.prefixLength() == 0) {
-            return "";
-        }
-
-        StringBuilder result = new StringBuilder(ip4Prefix.prefixLength());
-        long value = ip4Prefix.address().toInt() & 0xffffffffL;
-        for (int i = 0; i < ip4Prefix.prefixLength(); i++) {
-            long mask = 1 << (Ip4Prefix.MAX_MASK_LENGTH - 1 - i);
-            result.append(((value & mask) == 0) ? "0" : "1");
-        }
-        return result.toString();
-    }
-
     @Override
     public boolean equals(Object other) {
         if (this == other) {
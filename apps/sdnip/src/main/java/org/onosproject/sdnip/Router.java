@@ -17,9 +17,8 @@ package org.onosproject.sdnip;
 
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
@@ -27,14 +26,18 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.tuple.Pair;
+import org.onlab.metrics.MetricsService;
 import org.onlab.packet.Ethernet;
 import org.onlab.packet.Ip4Address;
 import org.onlab.packet.Ip4Prefix;
 import org.onlab.packet.IpAddress;
 import org.onlab.packet.MacAddress;
+import org.onlab.util.IpPrefixTrie;
 import org.onosproject.core.ApplicationId;
+import org.onosproject.core.MetricsHelper;
 import org.onosproject.net.ConnectPoint;
 import org.onosproject.net.Host;
 import org.onosproject.net.flow.DefaultTrafficSelector;
@@ -51,20 +54,17 @@ import org.onosproject.sdnip.config.SdnIpConfigurationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Counter;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.SetMultimap;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
-import com.googlecode.concurrenttrees.common.KeyValuePair;
-import com.googlecode.concurrenttrees.radix.node.concrete.DefaultByteArrayNodeFactory;
-import com.googlecode.concurrenttrees.radixinverted.ConcurrentInvertedRadixTree;
-import com.googlecode.concurrenttrees.radixinverted.InvertedRadixTree;
 
 /**
  * This class processes BGP route update, translates each update into a intent
  * and submits the intent.
  */
-public class Router implements RouteListener {
+public class Router implements RouteListener, MetricsHelper {
 
     private static final Logger log = LoggerFactory.getLogger(Router.class);
     // For routes announced by local BGP daemon in SDN network,
@@ -72,9 +72,13 @@ public class Router implements RouteListener {
     private static final Ip4Address LOCAL_NEXT_HOP =
         Ip4Address.valueOf("0.0.0.0");
 
-    // Store all route updates in a radix tree.
-    // The key in this tree is the binary string of prefix of the route.
-    private InvertedRadixTree<RouteEntry> ribTable;
+    // Route updates are coalesced for up to this time, or until this
+    // many route updates were received, before they are processed.
+    static final long COALESCING_WINDOW_MS = 50;
+    static final int COALESCING_MAX_UPDATES = 10000;
+
+    // Store all route updates in a prefix trie keyed on the prefix bits.
+    private IpPrefixTrie<RouteEntry> ribTable;
 
     // Stores all incoming route updates in a queue.
     private final BlockingQueue<Collection<RouteUpdate>> routeUpdatesQueue;
@@ -93,6 +97,10 @@ public class Router implements RouteListener {
     private final ExecutorService bgpUpdatesExecutor;
     private final HostListener hostListener;
 
+    private final MetricsService metricsService;
+    private final Counter routeUpdatesReceived;
+    private final Counter routeUpdatesProcessed;
+
     /**
      * Class constructor.
      *
@@ -106,7 +114,28 @@ public class Router implements RouteListener {
                   SdnIpConfigurationService configService,
                   InterfaceService interfaceService,
                   HostService hostService) {
+        this(appId, intentSynchronizer, configService, interfaceService,
+             hostService, null);
+    }
+
+    /**
+     * Class constructor.
+     *
+     * @param appId             the application ID
+     * @param intentSynchronizer the intent synchronizer
+     * @param configService     the configuration service
+     * @param interfaceService  the interface service
+     * @param hostService       the host service
+     * @param metricsService    the metrics service to report the route
+     *                          update counters to, or null if none
+     */
+    public Router(ApplicationId appId, IntentSynchronizer intentSynchronizer,
+                  SdnIpConfigurationService configService,
+                  InterfaceService interfaceService,
+                  HostService hostService,
+                  MetricsService metricsService) {
         this.appId = appId;
+        this.metricsService = metricsService;
         this.intentSynchronizer = intentSynchronizer;
         this.configService = configService;
         this.interfaceService = interfaceService;
@@ -114,8 +143,7 @@ public class Router implements RouteListener {
 
         this.hostListener = new InternalHostListener();
 
-        ribTable = new ConcurrentInvertedRadixTree<>(
-                new DefaultByteArrayNodeFactory());
+        ribTable = new IpPrefixTrie<>();
         routeUpdatesQueue = new LinkedBlockingQueue<>();
         routesWaitingOnArp = Multimaps.synchronizedSetMultimap(
                 HashMultimap.<Ip4Address, RouteEntry>create());
@@ -124,6 +152,26 @@ public class Router implements RouteListener {
         bgpUpdatesExecutor = Executors.newSingleThreadExecutor(
                 new ThreadFactoryBuilder()
                 .setNameFormat("sdnip-bgp-updates-%d").build());
+
+        routeUpdatesReceived = counter("RouteUpdatesReceived");
+        routeUpdatesProcessed = counter("RouteUpdatesProcessed");
+    }
+
+    @Override
+    public MetricsService metricsService() {
+        return metricsService;
+    }
+
+    /**
+     * Creates a route update counter, which is kept locally if there is
+     * no metrics service.
+     *
+     * @param name the counter name
+     * @return the counter
+     */
+    private Counter counter(String name) {
+        Counter counter = createCounter("SdnIp", "Router", name);
+        return counter != null ? counter : new Counter();
     }
 
     /**
@@ -151,8 +199,7 @@ public class Router implements RouteListener {
 
         synchronized (this) {
             // Cleanup all local state
-            ribTable = new ConcurrentInvertedRadixTree<>(
-                new DefaultByteArrayNodeFactory());
+            ribTable = new IpPrefixTrie<>();
             routeUpdatesQueue.clear();
             routesWaitingOnArp.clear();
             ip2Mac.clear();
@@ -171,15 +218,35 @@ public class Router implements RouteListener {
 
     /**
      * Thread for handling route updates.
+     * <p>
+     * The route updates queued within the coalescing window are merged
+     * before they are processed, so that the intents for a prefix that
+     * changes repeatedly are updated only once.
+     * </p>
      */
     private void doUpdatesThread() {
         boolean interrupted = false;
         try {
             while (!interrupted) {
                 try {
-                    Collection<RouteUpdate> routeUpdates =
-                        routeUpdatesQueue.take();
-                    processRouteUpdates(routeUpdates);
+                    Map<Ip4Prefix, RouteUpdate> routeUpdates =
+                        new LinkedHashMap<>();
+                    int received = coalesceRouteUpdates(
+                        routeUpdates, routeUpdatesQueue.take());
+                    long deadline = System.nanoTime() +
+                        TimeUnit.MILLISECONDS.toNanos(COALESCING_WINDOW_MS);
+                    while (received < COALESCING_MAX_UPDATES) {
+                        Collection<RouteUpdate> moreRouteUpdates =
+                            routeUpdatesQueue.poll(
+                                deadline - System.nanoTime(),
+                                TimeUnit.NANOSECONDS);
+                        if (moreRouteUpdates == null) {
+                            break;
+                        }
+                        received += coalesceRouteUpdates(routeUpdates,
+                                                         moreRouteUpdates);
+                    }
+                    processRouteUpdates(routeUpdates.values());
                 } catch (InterruptedException e) {
                     log.debug("Interrupted while taking from updates queue", e);
                     interrupted = true;
@@ -194,12 +261,43 @@ public class Router implements RouteListener {
         }
     }
 
+    /**
+     * Merges route updates into the pending route updates by prefix.
+     * <p>
+     * A later route update for a prefix supersedes the pending one. A
+     * route that is added and then deleted is dropped altogether, unless
+     * the prefix was already in the RIB.
+     * </p>
+     *
+     * @param pendingRouteUpdates the pending route updates by prefix
+     * @param routeUpdates the route updates to merge
+     * @return the number of merged route updates
+     */
+    int coalesceRouteUpdates(Map<Ip4Prefix, RouteUpdate> pendingRouteUpdates,
+                             Collection<RouteUpdate> routeUpdates) {
+        for (RouteUpdate update : routeUpdates) {
+            Ip4Prefix prefix = update.routeEntry().prefix();
+            RouteUpdate pendingUpdate = pendingRouteUpdates.get(prefix);
+            if (update.type() == RouteUpdate.Type.DELETE &&
+                pendingUpdate != null &&
+                pendingUpdate.type() == RouteUpdate.Type.UPDATE &&
+                ribTable.get(prefix) == null) {
+                pendingRouteUpdates.remove(prefix);
+            } else {
+                pendingRouteUpdates.put(prefix, update);
+            }
+        }
+        routeUpdatesReceived.inc(routeUpdates.size());
+        return routeUpdates.size();
+    }
+
     /**
      * Processes route updates.
      *
      * @param routeUpdates the route updates to process
      */
     void processRouteUpdates(Collection<RouteUpdate> routeUpdates) {
+        routeUpdatesProcessed.inc(routeUpdates.size());
         synchronized (this) {
             Collection<Pair<Ip4Prefix, MultiPointToSinglePointIntent>>
                 submitIntents = new LinkedList<>();
@@ -233,7 +331,7 @@ public class Router implements RouteListener {
     /**
      * Processes adding a route entry.
      * <p>
-     * The route entry is added to the radix tree. If there was an existing
+     * The route entry is added to the prefix trie. If there was an existing
      * next hop for this prefix, but the next hop was different, then the
      * old route entry is deleted.
      * </p>
@@ -254,8 +352,7 @@ public class Router implements RouteListener {
 
         Ip4Prefix prefix = routeEntry.prefix();
         Ip4Address nextHop = null;
-        RouteEntry foundRouteEntry =
-            ribTable.put(RouteEntry.createBinaryString(prefix), routeEntry);
+        RouteEntry foundRouteEntry = ribTable.put(prefix, routeEntry);
         if (foundRouteEntry != null) {
             nextHop = foundRouteEntry.nextHop();
         }
@@ -379,7 +476,7 @@ public class Router implements RouteListener {
     /**
      * Processes the deletion of a route entry.
      * <p>
-     * The prefix for the routing entry is removed from radix tree.
+     * The prefix for the routing entry is removed from the prefix trie.
      * If the operation is successful, the prefix is added to the collection
      * of prefixes whose intents that will be withdrawn.
      * </p>
@@ -393,10 +490,10 @@ public class Router implements RouteListener {
         log.debug("Processing route delete: {}", routeEntry);
         Ip4Prefix prefix = routeEntry.prefix();
 
-        if (ribTable.remove(RouteEntry.createBinaryString(prefix))) {
+        if (ribTable.remove(prefix) != null) {
             //
             // Only withdraw intents if an entry was actually removed from the
-            // tree. If no entry was removed, the <prefix, nexthop> wasn't
+            // trie. If no entry was removed, the <prefix, nexthop> wasn't
             // there so it's probably already been removed and we don't
             // need to do anything.
             //
@@ -418,9 +515,9 @@ public class Router implements RouteListener {
     private void updateMac(Ip4Address ipAddress, MacAddress macAddress) {
         log.debug("Received updated MAC info: {} => {}", ipAddress, macAddress);
 
-        // We synchronize on this to prevent changes to the radix tree
-        // while we're pushing intents. If the tree changes, the
-        // tree and intents could get out of sync.
+        // We synchronize on this to prevent changes to the prefix trie
+        // while we're pushing intents. If the trie changes, the
+        // trie and intents could get out of sync.
         synchronized (this) {
             Collection<Pair<Ip4Prefix, MultiPointToSinglePointIntent>>
                 submitIntents = new LinkedList<>();
@@ -432,13 +529,11 @@ public class Router implements RouteListener {
             for (RouteEntry routeEntry : routesToPush) {
                 // These will always be adds
                 Ip4Prefix prefix = routeEntry.prefix();
-                String binaryString = RouteEntry.createBinaryString(prefix);
-                RouteEntry foundRouteEntry =
-                    ribTable.getValueForExactKey(binaryString);
+                RouteEntry foundRouteEntry = ribTable.get(prefix);
                 if (foundRouteEntry != null &&
                     foundRouteEntry.nextHop().equals(routeEntry.nextHop())) {
                     // We only push prefix flows if the prefix is still in the
-                    // radix tree and the next hop is the same as our
+                    // prefix trie and the next hop is the same as our
                     // update.
                     // The prefix could have been removed while we were waiting
                     // for the ARP, or the next hop could have changed.
@@ -469,17 +564,48 @@ public class Router implements RouteListener {
      * @return the SDN-IP routes
      */
     public Collection<RouteEntry> getRoutes() {
-        Iterator<KeyValuePair<RouteEntry>> it =
-            ribTable.getKeyValuePairsForKeysStartingWith("").iterator();
+        return ribTable.values();
+    }
 
-        List<RouteEntry> routes = new LinkedList<>();
+    /**
+     * Gets the number of route updates received.
+     *
+     * @return the number of route updates received
+     */
+    public long getRouteUpdatesReceived() {
+        return routeUpdatesReceived.getCount();
+    }
 
-        while (it.hasNext()) {
-            KeyValuePair<RouteEntry> entry = it.next();
-            routes.add(entry.getValue());
-        }
+    /**
+     * Gets the number of route updates processed after coalescing.
+     *
+     * @return the number of route updates processed
+     */
+    public long getRouteUpdatesProcessed() {
+        return routeUpdatesProcessed.getCount();
+    }
 
-        return routes;
+    /**
+     * Finds the route entry with the longest prefix matching an IPv4
+     * address.
+     *
+     * @param ip4Address the IPv4 address to look up
+     * @return the longest matching route entry, or null if no route
+     * matches the address
+     */
+    public RouteEntry getLongestMatchableRouteEntry(Ip4Address ip4Address) {
+        return ribTable.longestPrefixMatch(ip4Address);
+    }
+
+    /**
+     * Gets the route entries whose prefixes are contained in an IPv4
+     * prefix, including the entry of the prefix itself.
+     *
+     * @param prefix the IPv4 prefix
+     * @return the covered route entries
+     */
+    public Collection<RouteEntry> getRoutesCoveredBy(Ip4Prefix prefix) {
+        return ribTable.getValuesCoveredBy(prefix);
     }
 
     /**
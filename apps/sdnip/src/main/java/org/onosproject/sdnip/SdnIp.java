@@ -27,6 +27,7 @@ import org.apache.felix.scr.annotations.Modified;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsService;
 import org.onosproject.cluster.ClusterService;
 import org.onosproject.cluster.ControllerNode;
 import org.onosproject.cluster.LeadershipEvent;
@@ -68,8 +69,12 @@ public class SdnIp implements SdnIpService {
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected LeadershipService leadershipService;
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MetricsService metricsService;
+
     private static final int DEFAULT_BGP_PORT = 2000;
     private int bgpPort;
+    private int routeSelectionWorkers;
 
     private IntentSynchronizer intentSynchronizer;
     private SdnIpConfigurationReader config;
@@ -95,7 +100,8 @@ public class SdnIp implements SdnIpService {
         InterfaceService interfaceService =
             new HostToInterfaceAdaptor(hostService);
 
-        intentSynchronizer = new IntentSynchronizer(appId, intentService);
+        intentSynchronizer = new IntentSynchronizer(appId, intentService,
+                                                    metricsService);
         intentSynchronizer.start();
 
         peerConnectivity = new PeerConnectivityManager(appId,
@@ -105,7 +111,7 @@ public class SdnIp implements SdnIpService {
         peerConnectivity.start();
 
         router = new Router(appId, intentSynchronizer, config,
-                            interfaceService, hostService);
+                            interfaceService, hostService, metricsService);
         router.start();
 
         leadershipService.addListener(leadershipEventListener);
@@ -113,7 +119,9 @@ public class SdnIp implements SdnIpService {
 
         log.info("Starting BGP with port {}", bgpPort);
 
-        bgpSessionManager = new BgpSessionManager(router);
+        bgpSessionManager = new BgpSessionManager(router,
+                                                  routeSelectionWorkers,
+                                                  metricsService);
         bgpSessionManager.start(bgpPort);
     }
 
@@ -149,6 +157,25 @@ public class SdnIp implements SdnIpService {
             bgpPort = DEFAULT_BGP_PORT;
         }
         log.debug("BGP port is set to {}", bgpPort);
+
+        try {
+            String strWorkers = (String) properties.get("routeSelectionWorkers");
+            if (strWorkers != null) {
+                routeSelectionWorkers = Integer.parseInt(strWorkers);
+            } else {
+                routeSelectionWorkers =
+                    BgpSessionManager.DEFAULT_ROUTE_SELECTION_WORKERS;
+            }
+        } catch (Exception e) {
+            routeSelectionWorkers =
+                BgpSessionManager.DEFAULT_ROUTE_SELECTION_WORKERS;
+        }
+        if (routeSelectionWorkers <= 0) {
+            routeSelectionWorkers =
+                BgpSessionManager.DEFAULT_ROUTE_SELECTION_WORKERS;
+        }
+        log.debug("BGP route selection workers is set to {}",
+                  routeSelectionWorkers);
     }
 
     @Modified
@@ -19,7 +19,6 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -530,8 +529,7 @@ public class BgpSession extends SimpleChannelHandler {
         // Push the updates to the BGP Merged RIB
         BgpSessionManager.BgpRouteSelector bgpRouteSelector =
             bgpSessionManager.getBgpRouteSelector();
-        Collection<BgpRouteEntry> addedRoutes = Collections.emptyList();
-        bgpRouteSelector.routeUpdates(this, addedRoutes, deletedRoutes);
+        bgpRouteSelector.sessionReset(this, deletedRoutes);
 
         bgpSessionManager.peerDisconnected(this);
     }
@@ -15,17 +15,30 @@
  */
 package org.onosproject.sdnip.bgp;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static org.onlab.metrics.MetricsUtil.startTimer;
+import static org.onlab.metrics.MetricsUtil.stopTimer;
 import static org.onlab.util.Tools.namedThreads;
 
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import org.jboss.netty.bootstrap.ServerBootstrap;
 import org.jboss.netty.channel.Channel;
@@ -37,6 +50,8 @@ import org.jboss.netty.channel.Channels;
 import org.jboss.netty.channel.group.ChannelGroup;
 import org.jboss.netty.channel.group.DefaultChannelGroup;
 import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+import org.onlab.metrics.MetricsService;
+import org.onosproject.core.MetricsHelper;
 import org.onosproject.sdnip.RouteListener;
 import org.onosproject.sdnip.RouteUpdate;
 import org.onlab.packet.Ip4Address;
@@ -44,12 +59,25 @@ import org.onlab.packet.Ip4Prefix;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Timer;
+
 /**
  * BGP Session Manager class.
  */
-public class BgpSessionManager {
+public class BgpSessionManager implements MetricsHelper {
     private static final Logger log =
         LoggerFactory.getLogger(BgpSessionManager.class);
+
+    /**
+     * Default number of workers running the BGP decision process.
+     * <p>
+     * A single worker forwards the route updates of a BGP UPDATE message to
+     * the Route Listener in the order they were received. With more workers
+     * the updates of different prefixes may be forwarded in any order.
+     * </p>
+     */
+    public static final int DEFAULT_ROUTE_SELECTION_WORKERS = 1;
+
     boolean isShutdown = true;
     private Channel serverChannel;     // Listener for incoming BGP connections
     private ServerBootstrap serverBootstrap;
@@ -58,11 +86,14 @@ public class BgpSessionManager {
         new ConcurrentHashMap<>();
     private Ip4Address myBgpId;        // Same BGP ID for all peers
 
-    private BgpRouteSelector bgpRouteSelector = new BgpRouteSelector();
+    private final BgpRouteSelector bgpRouteSelector;
     private ConcurrentMap<Ip4Prefix, BgpRouteEntry> bgpRoutes =
         new ConcurrentHashMap<>();
 
     private final RouteListener routeListener;
+    private final int routeSelectionWorkers;
+    private final MetricsService metricsService;
+    private volatile ExecutorService routeSelectionExecutor;
 
     /**
      * Constructor for given route listener.
@@ -70,7 +101,33 @@ public class BgpSessionManager {
      * @param routeListener the route listener to use
      */
     public BgpSessionManager(RouteListener routeListener) {
+        this(routeListener, DEFAULT_ROUTE_SELECTION_WORKERS, null);
+    }
+
+    /**
+     * Constructor for given route listener, number of route selection
+     * workers and metrics service.
+     *
+     * @param routeListener the route listener to use
+     * @param routeSelectionWorkers the number of workers running the BGP
+     * decision process; the prefixes are sharded across the workers
+     * @param metricsService the metrics service to report the BGP decision
+     * process metrics to, or null if none
+     */
+    public BgpSessionManager(RouteListener routeListener,
+                             int routeSelectionWorkers,
+                             MetricsService metricsService) {
+        checkArgument(routeSelectionWorkers > 0,
+                      "Number of route selection workers must be positive");
         this.routeListener = checkNotNull(routeListener);
+        this.routeSelectionWorkers = routeSelectionWorkers;
+        this.metricsService = metricsService;
+        this.bgpRouteSelector = new BgpRouteSelector(routeSelectionWorkers);
+    }
+
+    @Override
+    public MetricsService metricsService() {
+        return metricsService;
     }
 
     /**
@@ -187,6 +244,11 @@ public class BgpSessionManager {
         log.debug("BGP Session Manager start.");
         isShutdown = false;
 
+        if (routeSelectionWorkers > 1) {
+            routeSelectionExecutor = Executors.newFixedThreadPool(
+                routeSelectionWorkers, namedThreads("BGP-SM-selector-%d"));
+        }
+
         ChannelFactory channelFactory =
             new NioServerSocketChannelFactory(Executors.newCachedThreadPool(namedThreads("BGP-SM-boss-%d")),
                                               Executors.newCachedThreadPool(namedThreads("BGP-SM-worker-%d")));
@@ -230,15 +292,166 @@ public class BgpSessionManager {
         isShutdown = true;
         allChannels.close().awaitUninterruptibly();
         serverBootstrap.releaseExternalResources();
+        if (routeSelectionExecutor != null) {
+            routeSelectionExecutor.shutdownNow();
+            routeSelectionExecutor = null;
+        }
     }
 
     /**
      * Class to receive and process the BGP routes from each BGP Session/Peer.
+     * <p>
+     * The prefixes are sharded across the route selection workers. Each
+     * shard keeps the candidate routes received on all BGP sessions for its
+     * prefixes, so the best route for a prefix is selected among those
+     * candidates only. The shards of a route update are processed in
+     * parallel, while the updates for a shard are processed one at a time.
+     * </p>
      */
     class BgpRouteSelector {
+        private final Shard[] shards;
+        private final Timer sessionResetTimer;
+
+        /**
+         * Constructor for given number of prefix shards.
+         *
+         * @param numShards the number of prefix shards
+         */
+        BgpRouteSelector(int numShards) {
+            shards = new Shard[numShards];
+            for (int i = 0; i < numShards; i++) {
+                shards[i] = new Shard();
+            }
+            sessionResetTimer = createTimer("SdnIp", "BgpRouteSelector",
+                                            "SessionResetConvergence");
+        }
+
         /**
          * Processes route entry updates: added/updated and deleted route
          * entries.
+         * <p>
+         * The method returns once the route entry updates of all shards
+         * were processed and forwarded to the Route Listener.
+         * </p>
+         *
+         * @param bgpSession the BGP session the route entry updates were
+         * received on
+         * @param addedBgpRouteEntries the added/updated route entries to
+         * process
+         * @param deletedBgpRouteEntries the deleted route entries to process
+         */
+        void routeUpdates(BgpSession bgpSession,
+                        Collection<BgpRouteEntry> addedBgpRouteEntries,
+                        Collection<BgpRouteEntry> deletedBgpRouteEntries) {
+            if (isShutdown) {
+                return;         // Ignore any leftover updates if shutdown
+            }
+
+            List<List<BgpRouteEntry>> addedByShard =
+                partition(addedBgpRouteEntries);
+            List<List<BgpRouteEntry>> deletedByShard =
+                partition(deletedBgpRouteEntries);
+            List<Runnable> tasks = new ArrayList<>();
+            for (int i = 0; i < shards.length; i++) {
+                Shard shard = shards[i];
+                List<BgpRouteEntry> added = addedByShard.get(i);
+                List<BgpRouteEntry> deleted = deletedByShard.get(i);
+                if (!added.isEmpty() || !deleted.isEmpty()) {
+                    tasks.add(() -> shard.routeUpdates(bgpSession, added,
+                                                       deleted));
+                }
+            }
+
+            ExecutorService executor = routeSelectionExecutor;
+            if (executor == null || tasks.size() == 1) {
+                tasks.forEach(Runnable::run);
+                return;
+            }
+            List<Future<?>> futures = new ArrayList<>(tasks.size());
+            try {
+                for (Runnable task : tasks) {
+                    futures.add(executor.submit(task));
+                }
+            } catch (RejectedExecutionException e) {
+                log.debug("BGP route selection stopped", e);
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    log.debug("Interrupted while waiting for BGP route " +
+                              "selection", e);
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    log.error("Exception during BGP route selection",
+                              e.getCause());
+                }
+            }
+        }
+
+        /**
+         * Processes the reset of a BGP session by withdrawing all route
+         * entries received on the session.
+         * <p>
+         * The time until the best routes of all affected prefixes are
+         * selected again is reported as the session reset convergence time.
+         * </p>
+         *
+         * @param bgpSession the BGP session that was reset
+         * @param deletedBgpRouteEntries the route entries received on the
+         * session
+         */
+        void sessionReset(BgpSession bgpSession,
+                          Collection<BgpRouteEntry> deletedBgpRouteEntries) {
+            long start = System.nanoTime();
+            Timer.Context timerContext = startTimer(sessionResetTimer);
+            try {
+                routeUpdates(bgpSession,
+                             Collections.<BgpRouteEntry>emptyList(),
+                             deletedBgpRouteEntries);
+            } finally {
+                stopTimer(timerContext);
+            }
+            log.debug("BGP routes converged in {} ms after reset of session " +
+                      "with {}: {} routes withdrawn",
+                      TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                      bgpSession.getRemoteAddress(),
+                      deletedBgpRouteEntries.size());
+        }
+
+        /**
+         * Partitions route entries by the shard of their prefix.
+         *
+         * @param bgpRouteEntries the route entries to partition
+         * @return the route entries of each shard, indexed by shard
+         */
+        private List<List<BgpRouteEntry>> partition(
+                        Collection<BgpRouteEntry> bgpRouteEntries) {
+            List<List<BgpRouteEntry>> partitions =
+                new ArrayList<>(shards.length);
+            for (int i = 0; i < shards.length; i++) {
+                partitions.add(new ArrayList<>());
+            }
+            for (BgpRouteEntry bgpRouteEntry : bgpRouteEntries) {
+                int shard = (bgpRouteEntry.prefix().hashCode() &
+                             Integer.MAX_VALUE) % shards.length;
+                partitions.get(shard).add(bgpRouteEntry);
+            }
+            return partitions;
+        }
+    }
+
+    /**
+     * A shard of the prefixes, keeping the candidate route entries received
+     * on each BGP session for its prefixes.
+     */
+    private final class Shard {
+        private final Map<Ip4Prefix, Map<BgpSession, BgpRouteEntry>>
+            candidates = new HashMap<>();
+
+        /**
+         * Processes the route entry updates for the prefixes of the shard.
          *
          * @param bgpSession the BGP session the route entry updates were
          * received on
@@ -270,7 +483,15 @@ public class BgpSessionManager {
                     routeUpdates.add(routeUpdate);
                 }
             }
-            routeListener.update(routeUpdates);
+
+            //
+            // NOTE: The route updates are forwarded while holding the lock
+            // of the shard, so the updates for each prefix reach the
+            // Route Listener in order.
+            //
+            if (!routeUpdates.isEmpty()) {
+                routeListener.update(routeUpdates);
+            }
         }
 
         /**
@@ -285,6 +506,14 @@ public class BgpSessionManager {
         private RouteUpdate processAddedRoute(BgpSession bgpSession,
                                               BgpRouteEntry bgpRouteEntry) {
             RouteUpdate routeUpdate;
+            Map<BgpSession, BgpRouteEntry> prefixCandidates =
+                candidates.get(bgpRouteEntry.prefix());
+            if (prefixCandidates == null) {
+                prefixCandidates = new HashMap<>();
+                candidates.put(bgpRouteEntry.prefix(), prefixCandidates);
+            }
+            prefixCandidates.put(bgpSession, bgpRouteEntry);
+
             BgpRouteEntry bestBgpRouteEntry =
                 bgpRoutes.get(bgpRouteEntry.prefix());
 
@@ -311,17 +540,7 @@ public class BgpSessionManager {
             }
 
             // Find the next best route
-            bestBgpRouteEntry = findBestBgpRoute(bgpRouteEntry.prefix());
-            if (bestBgpRouteEntry == null) {
-                //
-                // TODO: Shouldn't happen. Install the new route as a
-                // pre-caution.
-                //
-                log.debug("BGP next best route for prefix {} is missing. " +
-                          "Adding the route that is currently processed.",
-                          bgpRouteEntry.prefix());
-                bestBgpRouteEntry = bgpRouteEntry;
-            }
+            bestBgpRouteEntry = findBestBgpRoute(prefixCandidates);
             // Install the next best route
             bgpRoutes.put(bestBgpRouteEntry.prefix(), bestBgpRouteEntry);
             routeUpdate = new RouteUpdate(RouteUpdate.Type.UPDATE,
@@ -341,6 +560,17 @@ public class BgpSessionManager {
         private RouteUpdate processDeletedRoute(BgpSession bgpSession,
                                                 BgpRouteEntry bgpRouteEntry) {
             RouteUpdate routeUpdate;
+            Map<BgpSession, BgpRouteEntry> prefixCandidates =
+                candidates.get(bgpRouteEntry.prefix());
+            if (prefixCandidates != null &&
+                prefixCandidates.get(bgpSession) == bgpRouteEntry) {
+                prefixCandidates.remove(bgpSession);
+                if (prefixCandidates.isEmpty()) {
+                    candidates.remove(bgpRouteEntry.prefix());
+                    prefixCandidates = null;
+                }
+            }
+
             BgpRouteEntry bestBgpRouteEntry =
                 bgpRoutes.get(bgpRouteEntry.prefix());
 
@@ -358,8 +588,8 @@ public class BgpSessionManager {
             //
             // Find the next best route
             //
-            bestBgpRouteEntry = findBestBgpRoute(bgpRouteEntry.prefix());
-            if (bestBgpRouteEntry != null) {
+            if (prefixCandidates != null) {
+                bestBgpRouteEntry = findBestBgpRoute(prefixCandidates);
                 // Install the next best route
                 bgpRoutes.put(bestBgpRouteEntry.prefix(),
                               bestBgpRouteEntry);
@@ -378,20 +608,17 @@ public class BgpSessionManager {
         }
 
         /**
-         * Finds the best route entry among all BGP Sessions.
+         * Finds the best route entry among the candidate route entries
+         * of a prefix.
          *
-         * @param prefix the prefix of the route
-         * @return the best route if found, otherwise null
+         * @param prefixCandidates the non-empty candidate route entries
+         * @return the best route
          */
-        private BgpRouteEntry findBestBgpRoute(Ip4Prefix prefix) {
+        private BgpRouteEntry findBestBgpRoute(
+                        Map<BgpSession, BgpRouteEntry> prefixCandidates) {
             BgpRouteEntry bestRoute = null;
 
-            // Iterate across all BGP Sessions and select the best route
-            for (BgpSession bgpSession : bgpSessions.values()) {
-                BgpRouteEntry route = bgpSession.findBgpRouteEntry(prefix);
-                if (route == null) {
-                    continue;
-                }
+            for (BgpRouteEntry route : prefixCandidates.values()) {
                 if ((bestRoute == null) || route.isBetterThan(bestRoute)) {
                     bestRoute = route;
                 }
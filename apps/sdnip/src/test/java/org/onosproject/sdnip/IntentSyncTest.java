@@ -66,11 +66,9 @@ import org.onlab.packet.IpPrefix;
 import org.onlab.packet.Ip4Prefix;
 import org.onlab.packet.MacAddress;
 import org.onlab.packet.VlanId;
+import org.onlab.util.IpPrefixTrie;
 
 import com.google.common.collect.Sets;
-import com.googlecode.concurrenttrees.radix.node.concrete.DefaultByteArrayNodeFactory;
-import com.googlecode.concurrenttrees.radixinverted.ConcurrentInvertedRadixTree;
-import com.googlecode.concurrenttrees.radixinverted.InvertedRadixTree;
 
 /**
  * This class tests the intent synchronization function in the
@@ -293,21 +291,13 @@ public class IntentSyncTest extends AbstractIntentTest {
 
         // Set up the ribTable field in Router class and routeIntents fields
         // in IntentSynchronizer class
-        InvertedRadixTree<RouteEntry> ribTable =
-                new ConcurrentInvertedRadixTree<>(
-                new DefaultByteArrayNodeFactory());
-        ribTable.put(RouteEntry.createBinaryString(routeEntry1.prefix()),
-                     routeEntry1);
-        ribTable.put(RouteEntry.createBinaryString(routeEntry3.prefix()),
-                     routeEntry3);
-        ribTable.put(RouteEntry.createBinaryString(routeEntry4Update.prefix()),
-                     routeEntry4Update);
-        ribTable.put(RouteEntry.createBinaryString(routeEntry5.prefix()),
-                     routeEntry5);
-        ribTable.put(RouteEntry.createBinaryString(routeEntry6.prefix()),
-                     routeEntry6);
-        ribTable.put(RouteEntry.createBinaryString(routeEntry7.prefix()),
-                     routeEntry7);
+        IpPrefixTrie<RouteEntry> ribTable = new IpPrefixTrie<>();
+        ribTable.put(routeEntry1.prefix(), routeEntry1);
+        ribTable.put(routeEntry3.prefix(), routeEntry3);
+        ribTable.put(routeEntry4Update.prefix(), routeEntry4Update);
+        ribTable.put(routeEntry5.prefix(), routeEntry5);
+        ribTable.put(routeEntry6.prefix(), routeEntry6);
+        ribTable.put(routeEntry7.prefix(), routeEntry7);
         TestUtils.setField(router, "ribTable", ribTable);
 
         ConcurrentHashMap<Ip4Prefix, MultiPointToSinglePointIntent>
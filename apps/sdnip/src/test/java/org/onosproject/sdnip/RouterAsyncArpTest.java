@@ -68,11 +68,9 @@ import org.onlab.packet.IpPrefix;
 import org.onlab.packet.Ip4Prefix;
 import org.onlab.packet.MacAddress;
 import org.onlab.packet.VlanId;
+import org.onlab.util.IpPrefixTrie;
 
 import com.google.common.collect.Sets;
-import com.googlecode.concurrenttrees.radix.node.concrete.DefaultByteArrayNodeFactory;
-import com.googlecode.concurrenttrees.radixinverted.ConcurrentInvertedRadixTree;
-import com.googlecode.concurrenttrees.radixinverted.InvertedRadixTree;
 
 /**
  * This class tests adding a route, updating a route, deleting a route, and
@@ -419,11 +417,8 @@ public class RouterAsyncArpTest extends AbstractIntentTest {
     private void setRibTableField(RouteEntry routeEntry)
             throws TestUtilsException {
 
-        InvertedRadixTree<RouteEntry> ribTable =
-                new ConcurrentInvertedRadixTree<>(
-                new DefaultByteArrayNodeFactory());
-        ribTable.put(RouteEntry.createBinaryString(routeEntry.prefix()),
-                     routeEntry);
+        IpPrefixTrie<RouteEntry> ribTable = new IpPrefixTrie<>();
+        ribTable.put(routeEntry.prefix(), routeEntry);
         TestUtils.setField(router, "ribTable", ribTable);
     }
 
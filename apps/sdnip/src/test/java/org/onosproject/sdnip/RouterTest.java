@@ -23,11 +23,14 @@ import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.reset;
 import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
@@ -427,4 +430,83 @@ public class RouterTest extends AbstractIntentTest {
         assertEquals(intentSynchronizer.getRouteIntents().size(), 0);
         verify(intentService);
     }
+
+    /**
+     * This method tests the longest prefix match and covered prefix lookups
+     * on the routes.
+     */
+    @Test
+    public void testRouteLookups() {
+        RouteEntry routeEntry1 = new RouteEntry(
+                Ip4Prefix.valueOf("1.0.0.0/8"),
+                Ip4Address.valueOf("0.0.0.0"));
+        RouteEntry routeEntry2 = new RouteEntry(
+                Ip4Prefix.valueOf("1.1.0.0/16"),
+                Ip4Address.valueOf("0.0.0.0"));
+        RouteEntry routeEntry3 = new RouteEntry(
+                Ip4Prefix.valueOf("2.0.0.0/8"),
+                Ip4Address.valueOf("0.0.0.0"));
+        router.processRouteUpdates(Arrays.asList(
+                new RouteUpdate(RouteUpdate.Type.UPDATE, routeEntry1),
+                new RouteUpdate(RouteUpdate.Type.UPDATE, routeEntry2),
+                new RouteUpdate(RouteUpdate.Type.UPDATE, routeEntry3)));
+
+        assertEquals(routeEntry2,
+                     router.getLongestMatchableRouteEntry(
+                             Ip4Address.valueOf("1.1.2.3")));
+        assertEquals(routeEntry1,
+                     router.getLongestMatchableRouteEntry(
+                             Ip4Address.valueOf("1.2.2.3")));
+        assertNull(router.getLongestMatchableRouteEntry(
+                Ip4Address.valueOf("3.0.0.1")));
+        assertEquals(Sets.newHashSet(routeEntry1, routeEntry2),
+                     Sets.newHashSet(router.getRoutesCoveredBy(
+                             Ip4Prefix.valueOf("1.0.0.0/8"))));
+    }
+
+    /**
+     * This method tests coalescing route updates for the same prefix.
+     */
+    @Test
+    public void testCoalesceRouteUpdates() {
+        // Local route already in the RIB
+        RouteEntry routeEntryInRib = new RouteEntry(
+                Ip4Prefix.valueOf("3.0.0.0/8"),
+                Ip4Address.valueOf("0.0.0.0"));
+        router.processRouteUpdates(Collections.singletonList(
+                new RouteUpdate(RouteUpdate.Type.UPDATE, routeEntryInRib)));
+
+        RouteEntry routeEntry1 = new RouteEntry(
+                Ip4Prefix.valueOf("1.0.0.0/8"),
+                Ip4Address.valueOf("192.168.10.1"));
+        RouteEntry routeEntry1Update = new RouteEntry(
+                Ip4Prefix.valueOf("1.0.0.0/8"),
+                Ip4Address.valueOf("192.168.20.1"));
+        RouteEntry routeEntry2 = new RouteEntry(
+                Ip4Prefix.valueOf("2.0.0.0/8"),
+                Ip4Address.valueOf("192.168.10.1"));
+        RouteEntry routeEntry3 = new RouteEntry(
+                Ip4Prefix.valueOf("3.0.0.0/8"),
+                Ip4Address.valueOf("192.168.10.1"));
+
+        Map<Ip4Prefix, RouteUpdate> pending = new LinkedHashMap<>();
+        router.coalesceRouteUpdates(pending, Arrays.asList(
+                new RouteUpdate(RouteUpdate.Type.UPDATE, routeEntry1),
+                new RouteUpdate(RouteUpdate.Type.UPDATE, routeEntry2),
+                new RouteUpdate(RouteUpdate.Type.UPDATE, routeEntry3)));
+        router.coalesceRouteUpdates(pending, Arrays.asList(
+                new RouteUpdate(RouteUpdate.Type.UPDATE, routeEntry1Update),
+                new RouteUpdate(RouteUpdate.Type.DELETE, routeEntry2),
+                new RouteUpdate(RouteUpdate.Type.DELETE, routeEntry3)));
+
+        // The last update wins, and the route added and deleted is dropped
+        // unless its prefix was already in the RIB
+        assertEquals(2, pending.size());
+        assertEquals(new RouteUpdate(RouteUpdate.Type.UPDATE,
+                                     routeEntry1Update),
+                     pending.get(routeEntry1.prefix()));
+        assertEquals(new RouteUpdate(RouteUpdate.Type.DELETE, routeEntry3),
+                     pending.get(routeEntry3.prefix()));
+        assertEquals(6, router.getRouteUpdatesReceived());
+    }
 }
@@ -185,6 +185,11 @@ public class TestHostService implements HostService {
         return null;
     }
 
+    @Override
+    public Set<PortAddresses> getAddressBindingsForSubnet(IpAddress ip) {
+        return null;
+    }
+
     @Override
     public void addListener(HostListener listener) {
 
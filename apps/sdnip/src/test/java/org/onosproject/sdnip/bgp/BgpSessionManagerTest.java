@@ -44,11 +44,14 @@ import org.junit.Before;
 import org.junit.Test;
 import org.onlab.junit.TestUtils;
 import org.onlab.junit.TestUtils.TestUtilsException;
+import org.onlab.metrics.MetricsManager;
 import org.onosproject.sdnip.RouteListener;
 import org.onosproject.sdnip.RouteUpdate;
 import org.onlab.packet.Ip4Address;
 import org.onlab.packet.Ip4Prefix;
 
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.Timer;
 import com.google.common.net.InetAddresses;
 
 /**
@@ -242,19 +245,7 @@ public class BgpSessionManagerTest {
         // Setup the BGP Session Manager to test, and start listening for BGP
         // connections.
         //
-        bgpSessionManager = new BgpSessionManager(dummyRouteListener);
-        // NOTE: We use port 0 to bind on any available port
-        bgpSessionManager.start(0);
-
-        // Get the port number the BGP Session Manager is listening on
-        Channel serverChannel = TestUtils.getField(bgpSessionManager,
-                                                   "serverChannel");
-        SocketAddress socketAddress = serverChannel.getLocalAddress();
-        InetSocketAddress inetSocketAddress =
-            (InetSocketAddress) socketAddress;
-        InetAddress connectToAddress = InetAddresses.forString("127.0.0.1");
-        connectToSocket = new InetSocketAddress(connectToAddress,
-                                                inetSocketAddress.getPort());
+        startBgpSessionManager(new BgpSessionManager(dummyRouteListener));
 
         //
         // Setup the AS Paths
@@ -282,6 +273,30 @@ public class BgpSessionManagerTest {
         asPathLong = new BgpRouteEntry.AsPath(pathSegments);
     }
 
+    /**
+     * Starts the BGP Session Manager to test, listening for BGP connections
+     * on any available port.
+     *
+     * @param manager the BGP Session Manager to start
+     * @throws TestUtilsException TestUtils error
+     */
+    private void startBgpSessionManager(BgpSessionManager manager)
+        throws TestUtilsException {
+        bgpSessionManager = manager;
+        // NOTE: We use port 0 to bind on any available port
+        bgpSessionManager.start(0);
+
+        // Get the port number the BGP Session Manager is listening on
+        Channel serverChannel = TestUtils.getField(bgpSessionManager,
+                                                   "serverChannel");
+        SocketAddress socketAddress = serverChannel.getLocalAddress();
+        InetSocketAddress inetSocketAddress =
+            (InetSocketAddress) socketAddress;
+        InetAddress connectToAddress = InetAddresses.forString("127.0.0.1");
+        connectToSocket = new InetSocketAddress(connectToAddress,
+                                                inetSocketAddress.getPort());
+    }
+
     @After
     public void tearDown() throws Exception {
         bgpSessionManager.stop();
@@ -343,6 +358,65 @@ public class BgpSessionManagerTest {
         return bgpRoutes;
     }
 
+    /**
+     * Gets BGP RIB-IN routes by waiting until a specific route entry is
+     * received.
+     * <p/>
+     * NOTE: We keep checking once every 10ms whether the route entry was
+     * received, up to 5 seconds.
+     *
+     * @param bgpSession the BGP session that is expected to receive the
+     * route entry
+     * @param expectedRoute the expected route entry
+     * @return the BGP RIB-IN routes as received within the expected
+     * time interval
+     */
+    private Collection<BgpRouteEntry> waitForBgpRibIn(BgpSession bgpSession,
+                                                      BgpRouteEntry expectedRoute)
+        throws InterruptedException {
+        Collection<BgpRouteEntry> bgpRibIn = bgpSession.bgpRibIn().values();
+
+        final int maxChecks = 500;              // Max wait of 5 seconds
+        for (int i = 0; i < maxChecks; i++) {
+            if (hasBgpRouteEntry(expectedRoute).matches(bgpRibIn)) {
+                break;
+            }
+            Thread.sleep(10);
+            bgpRibIn = bgpSession.bgpRibIn().values();
+        }
+
+        return bgpRibIn;
+    }
+
+    /**
+     * Gets BGP merged routes by waiting until a specific route entry is
+     * selected.
+     * <p/>
+     * NOTE: We keep checking once every 10ms whether the route entry was
+     * selected, up to 5 seconds. The route entries of other prefixes
+     * received in the same update may still be in the process of being
+     * selected.
+     *
+     * @param expectedRoute the expected route entry
+     * @return the BGP Session Manager routes as received within the expected
+     * time interval
+     */
+    private Collection<BgpRouteEntry> waitForBgpRoutes(BgpRouteEntry expectedRoute)
+        throws InterruptedException {
+        Collection<BgpRouteEntry> bgpRoutes = bgpSessionManager.getBgpRoutes();
+
+        final int maxChecks = 500;              // Max wait of 5 seconds
+        for (int i = 0; i < maxChecks; i++) {
+            if (hasBgpRouteEntry(expectedRoute).matches(bgpRoutes)) {
+                break;
+            }
+            Thread.sleep(10);
+            bgpRoutes = bgpSessionManager.getBgpRoutes();
+        }
+
+        return bgpRoutes;
+    }
+
     /**
      * Tests that the BGP OPEN messages have been exchanged, followed by
      * KEEPALIVE.
@@ -623,11 +697,6 @@ public class BgpSessionManagerTest {
         //
         // Check that the routes have been received, processed and stored
         //
-        bgpRibIn2 = waitForBgpRibIn(bgpSession2, 1);
-        assertThat(bgpRibIn2, hasSize(1));
-        bgpRoutes = waitForBgpRoutes(2);
-        assertThat(bgpRoutes, hasSize(2));
-        //
         bgpRouteEntry =
             new BgpRouteEntry(bgpSession2,
                               Ip4Prefix.valueOf("20.0.0.0/8"),
@@ -636,6 +705,10 @@ public class BgpSessionManagerTest {
                               asPathLong,
                               BETTER_LOCAL_PREF);
         bgpRouteEntry.setMultiExitDisc(DEFAULT_MULTI_EXIT_DISC);
+        bgpRibIn2 = waitForBgpRibIn(bgpSession2, bgpRouteEntry);
+        assertThat(bgpRibIn2, hasSize(1));
+        bgpRoutes = waitForBgpRoutes(bgpRouteEntry);
+        assertThat(bgpRoutes, hasSize(2));
         assertThat(bgpRibIn2, hasBgpRouteEntry(bgpRouteEntry));
         assertThat(bgpRoutes, hasBgpRouteEntry(bgpRouteEntry));
 
@@ -657,11 +730,6 @@ public class BgpSessionManagerTest {
         //
         // Check that the routes have been received, processed and stored
         //
-        bgpRibIn3 = waitForBgpRibIn(bgpSession3, 1);
-        assertThat(bgpRibIn3, hasSize(1));
-        bgpRoutes = waitForBgpRoutes(2);
-        assertThat(bgpRoutes, hasSize(2));
-        //
         bgpRouteEntry =
             new BgpRouteEntry(bgpSession3,
                               Ip4Prefix.valueOf("20.0.0.0/8"),
@@ -670,6 +738,10 @@ public class BgpSessionManagerTest {
                               asPathShort,
                               BETTER_LOCAL_PREF);
         bgpRouteEntry.setMultiExitDisc(DEFAULT_MULTI_EXIT_DISC);
+        bgpRibIn3 = waitForBgpRibIn(bgpSession3, bgpRouteEntry);
+        assertThat(bgpRibIn3, hasSize(1));
+        bgpRoutes = waitForBgpRoutes(bgpRouteEntry);
+        assertThat(bgpRoutes, hasSize(2));
         assertThat(bgpRibIn3, hasBgpRouteEntry(bgpRouteEntry));
         assertThat(bgpRoutes, hasBgpRouteEntry(bgpRouteEntry));
 
@@ -713,11 +785,6 @@ public class BgpSessionManagerTest {
         //
         // Check that the routes have been received, processed and stored
         //
-        bgpRibIn2 = waitForBgpRibIn(bgpSession2, 1);
-        assertThat(bgpRibIn2, hasSize(1));
-        bgpRoutes = waitForBgpRoutes(2);
-        assertThat(bgpRoutes, hasSize(2));
-        //
         bgpRouteEntry =
             new BgpRouteEntry(bgpSession2,
                               Ip4Prefix.valueOf("20.0.0.0/8"),
@@ -726,6 +793,10 @@ public class BgpSessionManagerTest {
                               asPathShort,
                               BETTER_LOCAL_PREF);
         bgpRouteEntry.setMultiExitDisc(BETTER_MULTI_EXIT_DISC);
+        bgpRibIn2 = waitForBgpRibIn(bgpSession2, bgpRouteEntry);
+        assertThat(bgpRibIn2, hasSize(1));
+        bgpRoutes = waitForBgpRoutes(bgpRouteEntry);
+        assertThat(bgpRoutes, hasSize(2));
         assertThat(bgpRibIn2, hasBgpRouteEntry(bgpRouteEntry));
         assertThat(bgpRoutes, hasBgpRouteEntry(bgpRouteEntry));
 
@@ -748,11 +819,6 @@ public class BgpSessionManagerTest {
         //
         // Check that the routes have been received, processed and stored
         //
-        bgpRibIn1 = waitForBgpRibIn(bgpSession1, 1);
-        assertThat(bgpRibIn1, hasSize(1));
-        bgpRoutes = waitForBgpRoutes(1);
-        assertThat(bgpRoutes, hasSize(1));
-        //
         bgpRouteEntry =
             new BgpRouteEntry(bgpSession1,
                               Ip4Prefix.valueOf("20.0.0.0/8"),
@@ -761,6 +827,12 @@ public class BgpSessionManagerTest {
                               asPathShort,
                               BETTER_LOCAL_PREF);
         bgpRouteEntry.setMultiExitDisc(BETTER_MULTI_EXIT_DISC);
+        bgpRibIn1 = waitForBgpRibIn(bgpSession1, bgpRouteEntry);
+        assertThat(bgpRibIn1, hasSize(1));
+        bgpRoutes = waitForBgpRoutes(bgpRouteEntry);
+        assertThat(bgpRoutes, hasBgpRouteEntry(bgpRouteEntry));
+        bgpRoutes = waitForBgpRoutes(1);
+        assertThat(bgpRoutes, hasSize(1));
         assertThat(bgpRibIn1, hasBgpRouteEntry(bgpRouteEntry));
         assertThat(bgpRoutes, hasBgpRouteEntry(bgpRouteEntry));
 
@@ -772,4 +844,102 @@ public class BgpSessionManagerTest {
         bgpRoutes = waitForBgpRoutes(0);
         assertThat(bgpRoutes, hasSize(0));
     }
+    /**
+     * Tests that the best routes are selected again from the candidate
+     * routes of the remaining BGP peers after a BGP session is reset, with
+     * several route selection workers, and that the time it takes is
+     * reported.
+     */
+    @Test
+    public void testBgpSessionResetReselection()
+            throws InterruptedException, TestUtilsException {
+        ChannelBuffer message;
+        BgpRouteEntry bgpRouteEntry1;
+        BgpRouteEntry bgpRouteEntry2;
+        Collection<BgpRouteEntry> bgpRoutes;
+        Collection<Ip4Prefix> addedRoutes = new LinkedList<>();
+        Collection<Ip4Prefix> withdrawnRoutes = new LinkedList<>();
+
+        // Restart with several workers, so the routes are selected in
+        // parallel, and with metrics
+        MetricsManager metricsManager = new MetricsManager();
+        bgpSessionManager.stop();
+        startBgpSessionManager(new BgpSessionManager(dummyRouteListener, 4,
+                                                     metricsManager));
+        Timer sessionResetTimer = metricsManager.getTimers(MetricFilter.ALL)
+            .get("SdnIp.BgpRouteSelector.SessionResetConvergence");
+        assertThat(sessionResetTimer, is(notNullValue()));
+
+        // Initiate the connections
+        peer1.connect(connectToSocket);
+        peer2.connect(connectToSocket);
+
+        //
+        // Add the same routes to both peers, with a better LOCAL_PREF on
+        // Peer2
+        //
+        addedRoutes.add(Ip4Prefix.valueOf("20.0.0.0/8"));
+        addedRoutes.add(Ip4Prefix.valueOf("30.0.0.0/16"));
+        addedRoutes.add(Ip4Prefix.valueOf("40.0.0.0/24"));
+        message = peer1.peerChannelHandler.prepareBgpUpdate(
+                        NEXT_HOP1_ROUTER,
+                        DEFAULT_LOCAL_PREF,
+                        DEFAULT_MULTI_EXIT_DISC,
+                        asPathLong,
+                        addedRoutes,
+                        withdrawnRoutes);
+        peer1.peerChannelHandler.savedCtx.getChannel().write(message);
+        assertThat(waitForBgpRibIn(bgpSession1, 3), hasSize(3));
+        message = peer2.peerChannelHandler.prepareBgpUpdate(
+                        NEXT_HOP2_ROUTER,
+                        BETTER_LOCAL_PREF,
+                        DEFAULT_MULTI_EXIT_DISC,
+                        asPathLong,
+                        addedRoutes,
+                        withdrawnRoutes);
+        peer2.peerChannelHandler.savedCtx.getChannel().write(message);
+        assertThat(waitForBgpRibIn(bgpSession2, 3), hasSize(3));
+        for (Ip4Prefix prefix : addedRoutes) {
+            bgpRouteEntry2 =
+                new BgpRouteEntry(bgpSession2, prefix, NEXT_HOP2_ROUTER,
+                                  (byte) BgpConstants.Update.Origin.IGP,
+                                  asPathLong, BETTER_LOCAL_PREF);
+            bgpRouteEntry2.setMultiExitDisc(DEFAULT_MULTI_EXIT_DISC);
+            bgpRoutes = waitForBgpRoutes(bgpRouteEntry2);
+            assertThat(bgpRoutes, hasBgpRouteEntry(bgpRouteEntry2));
+        }
+        assertThat(sessionResetTimer.getCount(), is(0L));
+
+        //
+        // Reset the session with Peer2: the routes of Peer1 should be
+        // selected again
+        //
+        peer2.peerChannelHandler.closeChannel();
+        for (Ip4Prefix prefix : addedRoutes) {
+            bgpRouteEntry1 =
+                new BgpRouteEntry(bgpSession1, prefix, NEXT_HOP1_ROUTER,
+                                  (byte) BgpConstants.Update.Origin.IGP,
+                                  asPathLong, DEFAULT_LOCAL_PREF);
+            bgpRouteEntry1.setMultiExitDisc(DEFAULT_MULTI_EXIT_DISC);
+            bgpRoutes = waitForBgpRoutes(bgpRouteEntry1);
+            assertThat(bgpRoutes, hasBgpRouteEntry(bgpRouteEntry1));
+        }
+        bgpRoutes = waitForBgpRoutes(3);
+        assertThat(bgpRoutes, hasSize(3));
+
+        // The convergence time of the reset should be reported
+        final int maxChecks = 500;              // Max wait of 5 seconds
+        for (int i = 0; i < maxChecks; i++) {
+            if (sessionResetTimer.getCount() == 1) {
+                break;
+            }
+            Thread.sleep(10);
+        }
+        assertThat(sessionResetTimer.getCount(), is(1L));
+
+        // Close the remaining channel and test there are no routes
+        peer1.peerChannelHandler.closeChannel();
+        bgpRoutes = waitForBgpRoutes(0);
+        assertThat(bgpRoutes, hasSize(0));
+    }
 }
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.event;
+
+import com.google.common.collect.ImmutableList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Base implementation of an event accumulator which does not block and
+ * which schedules its check-points using a scheduled executor, possibly
+ * shared with other accumulators. It allows triggering based on event
+ * inter-arrival time threshold, maximum batch life threshold and maximum
+ * batch size.
+ * <p>
+ * Events are added to the current batch by claiming its slots with
+ * compare-and-set operations rather than under a lock, and check-points are
+ * scheduled only once per batch rather than on every event. Whichever
+ * thread detaches a batch from the accumulator, be it because the batch is
+ * full or because a check-point has expired, is responsible for having it
+ * processed. Batches filled up by {@link #add(Event)} are processed using
+ * the executor, so that adding events never entails processing them.
+ * </p>
+ */
+public abstract class AbstractScheduledEventAccumulator implements EventAccumulator {
+
+    // Number of event slots allocated at a time as a batch fills up
+    private static final int CHUNK_SIZE = 64;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final ScheduledExecutorService executor;
+    private final int maxEvents;
+    private final int maxBatchMillis;
+    private final int maxIdleMillis;
+
+    private final AtomicReference<Batch> current = new AtomicReference<>();
+
+    /**
+     * Creates an event accumulator capable of triggering on the specified
+     * thresholds.
+     *
+     * @param executor       executor to use for scheduling check-points and
+     *                       processing batches
+     * @param maxEvents      maximum number of events to accumulate before
+     *                       processing is triggered
+     * @param maxBatchMillis maximum number of millis allowed since the first
+     *                       event before processing is triggered
+     * @param maxIdleMillis  maximum number millis between events before
+     *                       processing is triggered
+     */
+    protected AbstractScheduledEventAccumulator(ScheduledExecutorService executor,
+                                                int maxEvents, int maxBatchMillis,
+                                                int maxIdleMillis) {
+        this.executor = checkNotNull(executor, "Executor cannot be null");
+
+        checkArgument(maxEvents > 1, "Maximum number of events must be > 1");
+        checkArgument(maxBatchMillis > 0, "Maximum millis must be positive");
+        checkArgument(maxIdleMillis > 0, "Maximum idle millis must be positive");
+
+        this.maxEvents = maxEvents;
+        this.maxBatchMillis = maxBatchMillis;
+        this.maxIdleMillis = maxIdleMillis;
+    }
+
+    @Override
+    public void add(Event event) {
+        checkNotNull(event, "Event cannot be null");
+        while (true) {
+            Batch batch = current.get();
+            if (batch == null) {
+                // Promote a new batch; if another thread beat us to it, just
+                // add to its batch instead.
+                Batch newBatch = new Batch();
+                if (current.compareAndSet(null, newBatch)) {
+                    schedule(newBatch);
+                }
+                continue;
+            }
+
+            int slot = batch.claimed.getAndIncrement();
+            if (slot < maxEvents) {
+                batch.store(slot, event);
+                batch.lastEventMillis = System.currentTimeMillis();
+                batch.filled.incrementAndGet();
+
+                // Did we hit the max event threshold?
+                if (slot == maxEvents - 1 && detach(batch)) {
+                    submit(batch);
+                }
+                return;
+            }
+
+            // The batch is full or has been sealed; make sure it does not
+            // linger as the current one and retry with the next batch.
+            if (detach(batch)) {
+                submit(batch);
+            }
+        }
+    }
+
+    // Schedules the max batch age and the idle check-points of a new batch.
+    private void schedule(Batch batch) {
+        try {
+            executor.schedule(() -> expire(batch), maxBatchMillis, MILLISECONDS);
+            executor.schedule(() -> idle(batch), maxIdleMillis, MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.warn("Unable to schedule batch check-points due to {}", e.getMessage());
+        }
+    }
+
+    // Submits the detached batch for processing using the executor.
+    private void submit(Batch batch) {
+        try {
+            executor.execute(() -> process(batch));
+        } catch (RejectedExecutionException e) {
+            log.warn("Unable to process batch due to {}", e.getMessage());
+        }
+    }
+
+    // Check-point triggering processing once the batch has aged enough.
+    private void expire(Batch batch) {
+        if (detach(batch)) {
+            process(batch);
+        }
+    }
+
+    // Check-point triggering processing if no events have been added to the
+    // batch for long enough; otherwise re-checks once they may have been.
+    private void idle(Batch batch) {
+        if (current.get() != batch) {
+            return;
+        }
+        long idleMillis = System.currentTimeMillis() - batch.lastEventMillis;
+        if (idleMillis >= maxIdleMillis) {
+            if (detach(batch)) {
+                process(batch);
+            }
+        } else {
+            try {
+                executor.schedule(() -> idle(batch),
+                                  maxIdleMillis - idleMillis, MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                log.warn("Unable to schedule idle check-point due to {}", e.getMessage());
+            }
+        }
+    }
+
+    // Demotes the specified batch if it is still the current one; only the
+    // caller for which this succeeds may process the batch.
+    private boolean detach(Batch batch) {
+        return current.compareAndSet(batch, null);
+    }
+
+    // Seals the detached batch, waits for the events in flight to land in
+    // their slots and processes all of them.
+    private void process(Batch batch) {
+        try {
+            processEvents(batch.seal());
+        } catch (Exception e) {
+            log.warn("Unable to process batch due to {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the backing executor.
+     *
+     * @return backing executor
+     */
+    public ScheduledExecutorService executor() {
+        return executor;
+    }
+
+    /**
+     * Returns the maximum number of events allowed to accumulate before
+     * processing is triggered.
+     *
+     * @return max number of events
+     */
+    public int maxEvents() {
+        return maxEvents;
+    }
+
+    /**
+     * Returns the maximum number of millis allowed to expire since the first
+     * event before processing is triggered.
+     *
+     * @return max number of millis a batch is allowed to last
+     */
+    public int maxBatchMillis() {
+        return maxBatchMillis;
+    }
+
+    /**
+     * Returns the maximum number of millis allowed to expire since the last
+     * event arrival before processing is triggered.
+     *
+     * @return max number of millis since the last event
+     */
+    public int maxIdleMillis() {
+        return maxIdleMillis;
+    }
+
+    // Batch of up to max events; slots are claimed by incrementing the
+    // claimed count and the filled count is incremented once the event has
+    // been stored in its slot. Slots are allocated in chunks, as they are
+    // first claimed, so that short-lived batches stay small.
+    private final class Batch {
+        private final AtomicReferenceArray<AtomicReferenceArray<Event>> chunks =
+                new AtomicReferenceArray<>((maxEvents + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        private final AtomicInteger claimed = new AtomicInteger();
+        private final AtomicInteger filled = new AtomicInteger();
+        private volatile long lastEventMillis = System.currentTimeMillis();
+
+        // Stores the event in the claimed slot, allocating its chunk if this
+        // is the first slot claimed in it.
+        private void store(int slot, Event event) {
+            int index = slot / CHUNK_SIZE;
+            AtomicReferenceArray<Event> chunk = chunks.get(index);
+            if (chunk == null) {
+                int size = Math.min(CHUNK_SIZE, maxEvents - index * CHUNK_SIZE);
+                chunks.compareAndSet(index, null, new AtomicReferenceArray<>(size));
+                chunk = chunks.get(index);
+            }
+            chunk.lazySet(slot % CHUNK_SIZE, event);
+        }
+
+        // Prevents any further slots from being claimed and returns the
+        // events stored in the claimed ones, in the order of their slots.
+        private List<Event> seal() {
+            int size = Math.min(claimed.getAndSet(maxEvents), maxEvents);
+            while (filled.get() < size) {
+                Thread.yield();
+            }
+            ImmutableList.Builder<Event> builder = ImmutableList.builder();
+            for (int i = 0; i < size; i++) {
+                builder.add(chunks.get(i / CHUNK_SIZE).get(i % CHUNK_SIZE));
+            }
+            return builder.build();
+        }
+    }
+
+}
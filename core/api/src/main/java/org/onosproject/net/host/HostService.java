@@ -137,6 +137,15 @@ public interface HostService {
      */
     Set<PortAddresses> getAddressBindingsForPort(ConnectPoint connectPoint);
 
+    /**
+     * Retrieves the addresses bound to the connection points which have an
+     * interface address in a subnet containing the given IP address.
+     *
+     * @param ip IP address to find the subnets for
+     * @return addresses bound to the ports in a subnet of the IP address
+     */
+    Set<PortAddresses> getAddressBindingsForSubnet(IpAddress ip);
+
     /**
      * Adds the specified host listener.
      *
@@ -154,4 +154,13 @@ public interface HostStore extends Store<HostEvent, HostStoreDelegate> {
      * @return address information for the connection point
      */
     Set<PortAddresses> getAddressBindingsForPort(ConnectPoint connectPoint);
+
+    /**
+     * Returns the address bindings which have an interface address in a
+     * subnet containing the given IP address.
+     *
+     * @param ip IP address to find the subnets for
+     * @return address information for the ports in a subnet of the address
+     */
+    Set<PortAddresses> getAddressBindingsForSubnet(IpAddress ip);
 }
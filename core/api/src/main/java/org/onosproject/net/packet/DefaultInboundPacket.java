@@ -17,6 +17,7 @@ package org.onosproject.net.packet;
 
 import org.onosproject.net.ConnectPoint;
 import org.onlab.packet.Ethernet;
+import org.onlab.packet.EthernetView;
 
 import java.nio.ByteBuffer;
 import java.util.Objects;
@@ -31,6 +32,7 @@ public final class DefaultInboundPacket implements InboundPacket {
     private final ConnectPoint receivedFrom;
     private final Ethernet parsed;
     private final ByteBuffer unparsed;
+    private final EthernetView view;
 
     /**
      * Creates an immutable inbound packet.
@@ -44,6 +46,37 @@ public final class DefaultInboundPacket implements InboundPacket {
         this.receivedFrom = receivedFrom;
         this.parsed = parsed;
         this.unparsed = unparsed;
+        this.view = view(unparsed);
+    }
+
+    /**
+     * Creates an immutable inbound packet, which is parsed only when its
+     * parsed form is first asked for.
+     *
+     * @param receivedFrom connection point where received
+     * @param unparsed     unparsed raw bytes
+     */
+    public DefaultInboundPacket(ConnectPoint receivedFrom, ByteBuffer unparsed) {
+        this(receivedFrom, null, unparsed);
+    }
+
+    // Returns a view over the raw bytes, without copying them if possible.
+    private static EthernetView view(ByteBuffer unparsed) {
+        if (unparsed == null) {
+            return null;
+        }
+        try {
+            if (unparsed.hasArray()) {
+                return EthernetView.wrap(unparsed.array(),
+                                         unparsed.arrayOffset() + unparsed.position(),
+                                         unparsed.remaining());
+            }
+            byte[] data = new byte[unparsed.remaining()];
+            unparsed.duplicate().get(data);
+            return EthernetView.wrap(data);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
     }
 
     @Override
@@ -53,7 +86,15 @@ public final class DefaultInboundPacket implements InboundPacket {
 
     @Override
     public Ethernet parsed() {
-        return parsed;
+        if (parsed != null || view == null) {
+            return parsed;
+        }
+        return view.parsed();
+    }
+
+    @Override
+    public EthernetView view() {
+        return view;
     }
 
     @Override
@@ -62,9 +103,11 @@ public final class DefaultInboundPacket implements InboundPacket {
         return unparsed;
     }
 
+    // The parsed frame is derived from the raw bytes, so it is left out of
+    // equality; this also keeps hashing from parsing lazily parsed packets.
     @Override
     public int hashCode() {
-        return Objects.hash(receivedFrom, parsed, unparsed);
+        return Objects.hash(receivedFrom, unparsed);
     }
 
     @Override
@@ -72,10 +115,9 @@ public final class DefaultInboundPacket implements InboundPacket {
         if (this == obj) {
             return true;
         }
-        if (obj instanceof InboundPacket) {
+        if (obj instanceof DefaultInboundPacket) {
             final DefaultInboundPacket other = (DefaultInboundPacket) obj;
             return Objects.equals(this.receivedFrom, other.receivedFrom) &&
-                    Objects.equals(this.parsed, other.parsed) &&
                     Objects.equals(this.unparsed, other.unparsed);
         }
         return false;
@@ -85,7 +127,7 @@ public final class DefaultInboundPacket implements InboundPacket {
     public String toString() {
         return toStringHelper(this)
                 .add("receivedFrom", receivedFrom)
-                .add("parsed", parsed)
+                .add("parsed", parsed())
                 .toString();
     }
 }
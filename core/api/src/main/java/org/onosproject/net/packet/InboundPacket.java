@@ -17,6 +17,7 @@ package org.onosproject.net.packet;
 
 import org.onosproject.net.ConnectPoint;
 import org.onlab.packet.Ethernet;
+import org.onlab.packet.EthernetView;
 
 import java.nio.ByteBuffer;
 
@@ -40,6 +41,15 @@ public interface InboundPacket {
      */
     Ethernet parsed();
 
+    /**
+     * Returns a flyweight view of the packet, which decodes the Ethernet
+     * header fields only as they are accessed and does not copy the payload.
+     *
+     * @return Ethernet frame view; null if the packet is too short to be an
+     * Ethernet frame
+     */
+    EthernetView view();
+
     /**
      * Unparsed packet data.
      *
@@ -89,6 +89,15 @@ public interface LinkResourceService {
     Iterable<ResourceRequest> getAvailableResources(Link link,
                                           LinkResourceAllocations allocations);
 
+    /**
+     * Returns lambdas available on every one of the given links, that is the
+     * lambdas which may be assigned to a path over those links.
+     *
+     * @param links links of the path
+     * @return lambdas available along the links
+     */
+    Iterable<Lambda> getAvailableLambdas(Iterable<Link> links);
+
     /**
      * Adds a listener for resource related events.
      *
@@ -15,6 +15,7 @@
  */
 package org.onosproject.net.resource;
 
+import java.util.BitSet;
 import java.util.Set;
 
 import org.onosproject.net.Link;
@@ -32,6 +33,22 @@ public interface LinkResourceStore {
      */
     Set<ResourceAllocation> getFreeResources(Link link);
 
+    /**
+     * Returns free lambdas for given link.
+     *
+     * @param link a target link
+     * @return bit set of the numbers of the free lambdas, which the caller
+     * may modify
+     */
+    BitSet getFreeLambdas(Link link);
+
+    /**
+     * Returns the number of links on which each lambda is allocated.
+     *
+     * @return number of links indexed by lambda number
+     */
+    int[] getLambdaUsage();
+
     /**
      * Allocates resources.
      *
@@ -18,6 +18,8 @@ package org.onosproject.net.topology;
 import org.onosproject.net.ElementId;
 import org.onosproject.net.Path;
 
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -48,4 +50,33 @@ public interface PathService {
      */
     Set<Path> getPaths(ElementId src, ElementId dst, LinkWeight weight);
 
+    /**
+     * Returns the loop-less paths between the specified source and
+     * destination network elements in order of ascending cost, computed
+     * using the supplied edge-weight entity. Paths are computed on demand,
+     * as the returned iterator is advanced, so callers needing only the
+     * first few alternative paths do not pay for the rest.
+     *
+     * @param src    source element
+     * @param dst    destination element
+     * @param weight optional edge-weight entity; if null, hop-count is used
+     * @return iterator over paths between the two elements
+     */
+    Iterator<Path> getKShortestPaths(ElementId src, ElementId dst,
+                                     LinkWeight weight);
+
+    /**
+     * Returns a pair of link-disjoint paths between the specified source and
+     * destination network elements with the least total cost, computed using
+     * the supplied edge-weight entity.
+     *
+     * @param src    source element
+     * @param dst    destination element
+     * @param weight optional edge-weight entity; if null, hop-count is used
+     * @return list with the cheaper, primary, path first followed by the
+     * backup path; just the primary path if there is no disjoint pair, or
+     * empty list if there are no paths at all
+     */
+    List<Path> getDisjointPaths(ElementId src, ElementId dst, LinkWeight weight);
+
 }
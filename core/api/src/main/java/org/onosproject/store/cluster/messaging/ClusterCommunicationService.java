@@ -17,6 +17,8 @@ package org.onosproject.store.cluster.messaging;
 
 import java.io.IOException;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.onosproject.cluster.NodeId;
 
@@ -75,6 +77,19 @@ public interface ClusterCommunicationService {
      */
     ListenableFuture<byte[]> sendAndReceive(ClusterMessage message, NodeId toNodeId) throws IOException;
 
+    /**
+     * Sends a message synchronously, waiting for the reply for at most the
+     * specified time.
+     * @param message message to send
+     * @param toNodeId recipient node identifier
+     * @param timeout maximum time to wait for the reply
+     * @param unit unit of the timeout
+     * @return reply future.
+     * @throws IOException when I/O exception of some sort has occurred
+     */
+    ListenableFuture<byte[]> sendAndReceive(ClusterMessage message, NodeId toNodeId,
+                                            long timeout, TimeUnit unit) throws IOException;
+
     /**
      * Adds a new subscriber for the specified message subject.
      *
@@ -83,6 +98,17 @@ public interface ClusterCommunicationService {
      */
     void addSubscriber(MessageSubject subject, ClusterMessageHandler subscriber);
 
+    /**
+     * Adds a new subscriber for the specified message subject, which handles
+     * the messages using the specified executor.
+     *
+     * @param subject    message subject
+     * @param subscriber message subscriber
+     * @param executor   executor to use for running the subscriber
+     */
+    void addSubscriber(MessageSubject subject, ClusterMessageHandler subscriber,
+                       ExecutorService executor);
+
     /**
      * Removes a subscriber for the specified message subject.
      *
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.event;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static org.junit.Assert.*;
+import static org.onlab.junit.TestTools.assertAfter;
+import static org.onlab.junit.TestTools.delay;
+import static org.onosproject.event.TestEvent.Type.FOO;
+
+/**
+ * Tests the operation of the scheduled accumulator.
+ */
+public class AbstractScheduledEventAccumulatorTest {
+
+    private final ScheduledExecutorService executor = newScheduledThreadPool(2);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void basics() throws Exception {
+        TestAccumulator accumulator = new TestAccumulator();
+        assertEquals("incorrect executor", executor, accumulator.executor());
+        assertEquals("incorrect max events", 5, accumulator.maxEvents());
+        assertEquals("incorrect max ms", 100, accumulator.maxBatchMillis());
+        assertEquals("incorrect idle ms", 50, accumulator.maxIdleMillis());
+    }
+
+    @Test
+    public void eventTrigger() {
+        TestAccumulator accumulator = new TestAccumulator();
+        accumulator.add(new TestEvent(FOO, "a"));
+        accumulator.add(new TestEvent(FOO, "b"));
+        accumulator.add(new TestEvent(FOO, "c"));
+        accumulator.add(new TestEvent(FOO, "d"));
+        assertTrue("should not have fired yet", accumulator.batch.isEmpty());
+        accumulator.add(new TestEvent(FOO, "e"));
+        assertAfter(500, () -> assertEquals("incorrect batch", "abcde", accumulator.batch));
+    }
+
+    @Test
+    public void idleTrigger() {
+        TestAccumulator accumulator = new TestAccumulator();
+        accumulator.add(new TestEvent(FOO, "a"));
+        assertTrue("should not have fired yet", accumulator.batch.isEmpty());
+        accumulator.add(new TestEvent(FOO, "b"));
+        delay(80);
+        assertFalse("should have fired", accumulator.batch.isEmpty());
+        assertEquals("incorrect batch", "ab", accumulator.batch);
+    }
+
+    @Test
+    public void concurrentAdds() throws Exception {
+        int threads = 4;
+        int eventsPerThread = 10000;
+        Set<Event> seen = ConcurrentHashMap.newKeySet();
+        AtomicInteger oversized = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(threads * eventsPerThread);
+
+        EventAccumulator accumulator =
+                new AbstractScheduledEventAccumulator(executor, 100, 50, 10) {
+                    @Override
+                    public void processEvents(List<Event> events) {
+                        if (events.size() > maxEvents()) {
+                            oversized.incrementAndGet();
+                        }
+                        for (Event event : events) {
+                            if (seen.add(event)) {
+                                done.countDown();
+                            }
+                        }
+                    }
+                };
+
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < eventsPerThread; i++) {
+                    accumulator.add(new TestEvent(FOO, "e"));
+                }
+            }).start();
+        }
+
+        assertTrue("all events should be processed", done.await(5, TimeUnit.SECONDS));
+        delay(50);
+        assertEquals("incorrect event count", threads * eventsPerThread, seen.size());
+        assertEquals("batches should not exceed max events", 0, oversized.get());
+    }
+
+    private class TestAccumulator extends AbstractScheduledEventAccumulator {
+
+        volatile String batch = "";
+
+        protected TestAccumulator() {
+            super(executor, 5, 100, 50);
+        }
+
+        @Override
+        public void processEvents(List<Event> events) {
+            String s = batch;
+            for (Event event : events) {
+                s += event.subject();
+            }
+            batch = s;
+        }
+    }
+}
@@ -99,4 +99,9 @@ public class HostServiceAdapter implements HostService {
         return null;
     }
 
+    @Override
+    public Set<PortAddresses> getAddressBindingsForSubnet(IpAddress ip) {
+        return null;
+    }
+
 }
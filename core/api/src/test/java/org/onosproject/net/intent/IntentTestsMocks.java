@@ -24,6 +24,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
@@ -43,6 +44,7 @@ import org.onosproject.net.flow.criteria.Criterion;
 import org.onosproject.net.flow.criteria.Criterion.Type;
 import org.onosproject.net.flow.instructions.Instruction;
 import org.onosproject.net.resource.BandwidthResourceRequest;
+import org.onosproject.net.resource.Lambda;
 import org.onosproject.net.resource.LambdaResourceRequest;
 import org.onosproject.net.resource.LinkResourceAllocations;
 import org.onosproject.net.resource.LinkResourceListener;
@@ -140,6 +142,18 @@ public class IntentTestsMocks {
             }
             return paths;
         }
+
+        @Override
+        public Iterator<Path> getKShortestPaths(ElementId src, ElementId dst,
+                                                LinkWeight weight) {
+            return getPaths(src, dst, weight).iterator();
+        }
+
+        @Override
+        public List<Path> getDisjointPaths(ElementId src, ElementId dst,
+                                           LinkWeight weight) {
+            return new ArrayList<>(getPaths(src, dst, weight));
+        }
     }
 
     public static class MockLinkResourceAllocations implements LinkResourceAllocations {
@@ -277,6 +291,15 @@ public class IntentTestsMocks {
             return null;
         }
 
+        @Override
+        public Iterable<Lambda> getAvailableLambdas(Iterable<Link> links) {
+            final List<Lambda> result = new LinkedList<>();
+            if (availableLambda > 0) {
+                result.add(Lambda.valueOf(availableLambda));
+            }
+            return result;
+        }
+
         @Override
         public void addListener(LinkResourceListener listener) {
 
@@ -78,4 +78,19 @@ public class DefaultInboundPacketTest {
         assertThat(packet1.parsed(), equalTo(eth));
         assertThat(packet1.unparsed(), notNullValue());
     }
+
+    /**
+     * Tests the lazily parsed packet created from the raw bytes only.
+     */
+    @Test
+    public void testLazyParsing() {
+        DefaultInboundPacket packet =
+                new DefaultInboundPacket(connectPoint("d1", 1), byteBuffer);
+        byte[] bytes = eth.serialize();
+        Ethernet expected = (Ethernet) new Ethernet().deserialize(bytes, 0, bytes.length);
+        assertThat(packet.view().getSourceMAC(), equalTo(MacAddress.BROADCAST));
+        assertThat(packet.parsed(), equalTo(expected));
+        assertThat(packet.parsed().getDestinationMAC(), equalTo(MacAddress.BROADCAST));
+        assertThat(packet, equalTo(packet1));
+    }
 }
@@ -15,94 +15,336 @@
  */
 package org.onosproject.event.impl;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsService;
+import org.onosproject.core.MetricsHelper;
 import org.onosproject.event.AbstractEvent;
 import org.onosproject.event.DefaultEventSinkRegistry;
 import org.onosproject.event.Event;
 import org.onosproject.event.EventDeliveryService;
 import org.onosproject.event.EventSink;
+import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 
+import java.util.Dictionary;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
-import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static com.google.common.base.Strings.isNullOrEmpty;
+import static java.util.concurrent.Executors.newFixedThreadPool;
 import static org.onlab.util.Tools.namedThreads;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
  * Simple implementation of an event dispatching service.
+ * <p>
+ * Events are dispatched by a configurable number of threads, each draining
+ * its own queue. Events are assigned to the queues by their subject, so
+ * that events pertaining to the same subject are always dispatched in the
+ * order in which they were posted.
+ * </p>
  */
 @Component(immediate = true)
 @Service
 public class CoreEventDispatcher extends DefaultEventSinkRegistry
-        implements EventDeliveryService {
+        implements EventDeliveryService, MetricsHelper {
+
+    private static final int DEFAULT_DISPATCH_THREADS = 1;
+    private static final long DEFAULT_SLOW_DISPATCH_MILLIS = 1000;
+
+    @Property(name = "dispatchThreads", intValue = DEFAULT_DISPATCH_THREADS,
+            label = "Number of threads dispatching events; events with the " +
+                    "same subject are always dispatched by the same thread")
+    private int dispatchThreads = DEFAULT_DISPATCH_THREADS;
+
+    @Property(name = "slowDispatchMillis", longValue = DEFAULT_SLOW_DISPATCH_MILLIS,
+            label = "Time in milliseconds after which processing of an " +
+                    "event by its sink is reported as slow")
+    private long slowDispatchMillis = DEFAULT_SLOW_DISPATCH_MILLIS;
 
     private final Logger log = getLogger(getClass());
 
-    private final ExecutorService executor =
-            newSingleThreadExecutor(namedThreads("event-dispatch-%d"));
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MetricsService metricsService;
 
     @SuppressWarnings("unchecked")
     private static final Event KILL_PILL = new AbstractEvent(null, 0) {
     };
 
-    private final BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+    // Events posted prior to activation wait in the queue of the only shard
+    private volatile Shard[] shards = new Shard[]{new Shard()};
+    private ExecutorService executor;
 
-    private volatile boolean stopped = false;
+    private final ConcurrentMap<Class, SinkMetrics> sinkMetrics =
+            new ConcurrentHashMap<>();
 
     @Override
     public void post(Event event) {
-        events.add(event);
+        metrics(event.getClass()).queued();
+        Shard shard = shard(shards, event);
+        shard.events.add(event);
+
+        // If the shard has been retired in the meantime, make sure that the
+        // event does not get stranded in its queue.
+        while (shard.retired && shard.events.remove(event)) {
+            shard = shard(shards, event);
+            shard.events.add(event);
+        }
     }
 
     @Activate
-    public void activate() {
-        stopped = false;
-        executor.execute(new DispatchLoop());
+    public void activate(ComponentContext context) {
+        sinkMetrics.clear();
+        modified(context);
+        synchronized (this) {
+            executor = start(shards);
+        }
         log.info("Started");
     }
 
     @Deactivate
     public void deactivate() {
-        stopped = true;
-        post(KILL_PILL);
+        synchronized (this) {
+            stop(shards, executor);
+            executor = null;
+        }
         log.info("Stopped");
     }
 
-    // Auxiliary event dispatching loop that feeds off the events queue.
-    private class DispatchLoop implements Runnable {
+    @Modified
+    public void modified(ComponentContext context) {
+        if (context == null) {
+            return;
+        }
+
+        Dictionary properties = context.getProperties();
+        int newDispatchThreads;
+        try {
+            String s = (String) properties.get("dispatchThreads");
+            newDispatchThreads = isNullOrEmpty(s) ? dispatchThreads : Integer.parseInt(s);
+        } catch (Exception e) {
+            newDispatchThreads = DEFAULT_DISPATCH_THREADS;
+        }
+
+        long newSlowDispatchMillis;
+        try {
+            String s = (String) properties.get("slowDispatchMillis");
+            newSlowDispatchMillis = isNullOrEmpty(s) ? slowDispatchMillis : Long.parseLong(s);
+        } catch (Exception e) {
+            newSlowDispatchMillis = DEFAULT_SLOW_DISPATCH_MILLIS;
+        }
+
+        if (newSlowDispatchMillis != slowDispatchMillis) {
+            slowDispatchMillis = newSlowDispatchMillis;
+            log.info("Reconfigured with slowDispatchMillis = {}", slowDispatchMillis);
+        }
+
+        if (newDispatchThreads != dispatchThreads && newDispatchThreads > 0) {
+            dispatchThreads = newDispatchThreads;
+            reshard(dispatchThreads);
+            log.info("Reconfigured with dispatchThreads = {}", dispatchThreads);
+        }
+    }
+
+    @Override
+    public MetricsService metricsService() {
+        return metricsService;
+    }
+
+    // Replaces the current shards with the given number of new ones. Old
+    // shards, if running, are stopped once they have drained their queues;
+    // until then, events may be dispatched out of order.
+    private synchronized void reshard(int count) {
+        Shard[] newShards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            newShards[i] = new Shard();
+        }
+
+        Shard[] oldShards = shards;
+        shards = newShards;
+        for (Shard shard : oldShards) {
+            shard.retired = true;
+        }
+
+        if (executor != null) {
+            ExecutorService oldExecutor = executor;
+            executor = start(newShards);
+            stop(oldShards, oldExecutor);
+        } else {
+            // Carry over any events posted prior to activation.
+            for (Shard shard : oldShards) {
+                shard.forward();
+            }
+        }
+    }
+
+    // Starts dispatch loops for the given shards using a new executor.
+    private ExecutorService start(Shard[] shards) {
+        ExecutorService executor =
+                newFixedThreadPool(shards.length, namedThreads("event-dispatch-%d"));
+        for (Shard shard : shards) {
+            executor.execute(shard);
+        }
+        return executor;
+    }
+
+    // Stops the dispatch loops of the given shards and their executor.
+    private void stop(Shard[] shards, ExecutorService executor) {
+        for (Shard shard : shards) {
+            shard.events.add(KILL_PILL);
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    // Returns the shard responsible for dispatching the specified event.
+    private Shard shard(Shard[] shards, Event event) {
+        if (shards.length == 1) {
+            return shards[0];
+        }
+        Object subject = event.subject();
+        int hash = subject == null ? 0 : subject.hashCode();
+        return shards[Math.floorMod(hash ^ (hash >>> 16), shards.length)];
+    }
+
+    // Returns the metrics of the sink for the specified event class.
+    private SinkMetrics metrics(Class eventClass) {
+        return sinkMetrics.computeIfAbsent(eventClass, this::createMetrics);
+    }
+
+    private SinkMetrics createMetrics(Class eventClass) {
+        String feature = eventClass.getSimpleName();
+        return new SinkMetrics(createCounter("EventDispatcher", feature, "queued"),
+                               createTimer("EventDispatcher", feature, "dispatchTime"),
+                               createCounter("EventDispatcher", feature, "slowDispatches"));
+    }
+
+    // Locates the sink for the event class and uses it to process the event,
+    // keeping tabs on how long it takes.
+    @SuppressWarnings("unchecked")
+    private void dispatch(Event event) {
+        SinkMetrics metrics = metrics(event.getClass());
+        metrics.dequeued();
+
+        EventSink sink = getSink(event.getClass());
+        if (sink == null) {
+            log.warn("No sink registered for event class {}", event.getClass());
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            sink.process(event);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            metrics.dispatched(elapsed);
+            if (elapsed > TimeUnit.MILLISECONDS.toNanos(slowDispatchMillis)) {
+                metrics.slow();
+                log.warn("Sink {} took {} ms to process event {}",
+                         sink.getClass().getName(),
+                         TimeUnit.NANOSECONDS.toMillis(elapsed), event);
+            }
+        }
+    }
+
+    // Queue of events along with the dispatch loop that feeds off of it.
+    private class Shard implements Runnable {
+        private final BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+        private volatile boolean retired = false;
+
         @Override
-        @SuppressWarnings("unchecked")
         public void run() {
             log.info("Dispatch loop initiated");
-            while (!stopped) {
+            while (true) {
                 try {
                     // Fetch the next event and if it is the kill-pill, bail
                     Event event = events.take();
                     if (event == KILL_PILL) {
+                        if (retired) {
+                            forward();
+                        }
                         break;
                     }
-
-                    // Locate the sink for the event class and use it to
-                    // process the event
-                    EventSink sink = getSink(event.getClass());
-                    if (sink != null) {
-                        sink.process(event);
-                    } else {
-                        log.warn("No sink registered for event class {}",
-                                 event.getClass());
-                    }
+                    dispatch(event);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
                 } catch (Exception e) {
                     log.warn("Error encountered while dispatching event:", e);
                 }
             }
             log.info("Dispatch loop terminated");
         }
+
+        // Moves any events left in the queue to the current shards; a
+        // kill-pill not yet taken by a terminating loop is left in place.
+        private void forward() {
+            boolean killed = false;
+            Event event;
+            while ((event = events.poll()) != null) {
+                if (event == KILL_PILL) {
+                    killed = true;
+                } else {
+                    shard(shards, event).events.add(event);
+                }
+            }
+            if (killed) {
+                events.add(KILL_PILL);
+            }
+        }
+    }
+
+    // Depth of the queues, dispatch times and count of slow dispatches for
+    // the sink of one event class; any of the metrics may be null.
+    private static final class SinkMetrics {
+        private final Counter queued;
+        private final Timer dispatchTime;
+        private final Counter slowDispatches;
+
+        private SinkMetrics(Counter queued, Timer dispatchTime,
+                            Counter slowDispatches) {
+            this.queued = queued;
+            this.dispatchTime = dispatchTime;
+            this.slowDispatches = slowDispatches;
+        }
+
+        private void queued() {
+            if (queued != null) {
+                queued.inc();
+            }
+        }
+
+        private void dequeued() {
+            if (queued != null) {
+                queued.dec();
+            }
+        }
+
+        private void dispatched(long nanos) {
+            if (dispatchTime != null) {
+                dispatchTime.update(nanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private void slow() {
+            if (slowDispatches != null) {
+                slowDispatches.inc();
+            }
+        }
     }
 
 }
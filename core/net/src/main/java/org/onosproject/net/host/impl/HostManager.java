@@ -211,6 +211,11 @@ public class HostManager
         return store.getAddressBindingsForPort(connectPoint);
     }
 
+    @Override
+    public Set<PortAddresses> getAddressBindingsForSubnet(IpAddress ip) {
+        return store.getAddressBindingsForSubnet(ip);
+    }
+
     // Personalized host provider service issued to the supplied provider.
     private class InternalHostProviderService
             extends AbstractProviderService<HostProvider>
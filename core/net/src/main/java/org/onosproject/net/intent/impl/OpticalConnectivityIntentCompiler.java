@@ -30,6 +30,7 @@ import org.onosproject.net.intent.IntentExtensionService;
 import org.onosproject.net.intent.OpticalConnectivityIntent;
 import org.onosproject.net.intent.OpticalPathIntent;
 import org.onosproject.net.resource.LinkResourceAllocations;
+import org.onosproject.net.resource.LinkResourceService;
 import org.onosproject.net.topology.LinkWeight;
 import org.onosproject.net.topology.Topology;
 import org.onosproject.net.topology.TopologyEdge;
@@ -50,6 +51,9 @@ public class OpticalConnectivityIntentCompiler implements IntentCompiler<Optical
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected TopologyService topologyService;
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected LinkResourceService resourceService;
+
     @Activate
     public void activate() {
         intentManager.registerCompiler(OpticalConnectivityIntent.class, this);
@@ -93,8 +97,16 @@ public class OpticalConnectivityIntentCompiler implements IntentCompiler<Optical
                                                     start + " to " + end);
         }
 
-        // TODO: let's be more intelligent about this eventually
-        return paths.iterator().next();
+        // Select a path on which the same lambda is free on every link, as
+        // the lambda is assigned using the lambda assignment policy of the
+        // resource service once the path intent is installed.
+        for (Path path : paths) {
+            if (resourceService.getAvailableLambdas(path.links()).iterator().hasNext()) {
+                return path;
+            }
+        }
+        throw new PathNotFoundException("No Optical path with an available lambda found from " +
+                                                start + " to " + end);
     }
 
 }
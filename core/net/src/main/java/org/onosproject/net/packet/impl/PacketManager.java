@@ -18,15 +18,20 @@ package org.onosproject.net.packet.impl;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.slf4j.LoggerFactory.getLogger;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import com.codahale.metrics.Timer;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsService;
+import org.onosproject.core.MetricsHelper;
 import org.onosproject.net.Device;
 import org.onosproject.net.device.DeviceService;
 import org.onosproject.net.packet.OutboundPacket;
@@ -50,7 +55,7 @@ import org.slf4j.Logger;
 @Service
 public class PacketManager
 extends AbstractProviderRegistry<PacketProvider, PacketProviderService>
-implements PacketService, PacketProviderRegistry {
+implements PacketService, PacketProviderRegistry, MetricsHelper {
 
     private final Logger log = getLogger(getClass());
 
@@ -62,7 +67,12 @@ implements PacketService, PacketProviderRegistry {
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     private PacketStore store;
 
-    private final Map<Integer, PacketProcessor> processors = new ConcurrentHashMap<>();
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MetricsService metricsService;
+
+    // Processors sorted by priority; the array is replaced, never modified,
+    // so that packets can be processed using it without locking
+    private volatile ProcessorEntry[] processors = new ProcessorEntry[0];
 
     @Activate
     public void activate() {
@@ -77,15 +87,36 @@ implements PacketService, PacketProviderRegistry {
     }
 
     @Override
-    public void addProcessor(PacketProcessor processor, int priority) {
+    public MetricsService metricsService() {
+        return metricsService;
+    }
+
+    @Override
+    public synchronized void addProcessor(PacketProcessor processor, int priority) {
         checkNotNull(processor, "Processor cannot be null");
-        processors.put(priority, processor);
+        Timer processTime = createTimer("PacketManager",
+                                        processor.getClass().getName(), "processTime");
+        List<ProcessorEntry> entries = new ArrayList<>(processors.length + 1);
+        for (ProcessorEntry entry : processors) {
+            if (entry.priority != priority) {
+                entries.add(entry);
+            }
+        }
+        entries.add(new ProcessorEntry(processor, priority, processTime));
+        entries.sort(Comparator.comparingInt(entry -> entry.priority));
+        processors = entries.toArray(new ProcessorEntry[entries.size()]);
     }
 
     @Override
-    public void removeProcessor(PacketProcessor processor) {
+    public synchronized void removeProcessor(PacketProcessor processor) {
         checkNotNull(processor, "Processor cannot be null");
-        processors.values().remove(processor);
+        List<ProcessorEntry> entries = new ArrayList<>(processors.length);
+        for (ProcessorEntry entry : processors) {
+            if (!entry.processor.equals(processor)) {
+                entries.add(entry);
+            }
+        }
+        processors = entries.toArray(new ProcessorEntry[entries.size()]);
     }
 
     @Override
@@ -125,13 +156,40 @@ implements PacketService, PacketProviderRegistry {
 
         @Override
         public void processPacket(PacketContext context) {
-            for (PacketProcessor processor : processors.values()) {
-                processor.process(context);
+            for (ProcessorEntry entry : processors) {
+                entry.process(context);
             }
         }
 
     }
 
+    // Packet processor along with its priority and the timer of the time it
+    // spends processing packets; the timer may be null.
+    private static final class ProcessorEntry {
+        private final PacketProcessor processor;
+        private final int priority;
+        private final Timer processTime;
+
+        private ProcessorEntry(PacketProcessor processor, int priority, Timer processTime) {
+            this.processor = processor;
+            this.priority = priority;
+            this.processTime = processTime;
+        }
+
+        private void process(PacketContext context) {
+            if (processTime == null) {
+                processor.process(context);
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                processor.process(context);
+            } finally {
+                processTime.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
     /**
      * Internal callback from the packet store.
      */
@@ -20,7 +20,6 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import java.nio.ByteBuffer;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -154,7 +153,8 @@ public class ProxyArpManager implements ProxyArpService {
             // address. Forward it over to the correct ports.
             Ip4Address source =
                 Ip4Address.valueOf(arp.getSenderProtocolAddress());
-            Set<PortAddresses> sourceAddresses = findPortsInSubnet(source);
+            Set<PortAddresses> sourceAddresses =
+                hostService.getAddressBindingsForSubnet(source);
             boolean matched = false;
             for (PortAddresses pa : sourceAddresses) {
                 for (InterfaceIpAddress ia : pa.ipAddresses()) {
@@ -228,24 +228,6 @@ public class ProxyArpManager implements ProxyArpService {
                 builder.build(), ByteBuffer.wrap(packet.serialize())));
     }
 
-    /**
-     * Finds ports with an address in the subnet of the target address.
-     *
-     * @param target the target address to find a matching port for
-     * @return a set of PortAddresses describing ports in the subnet
-     */
-    private Set<PortAddresses> findPortsInSubnet(Ip4Address target) {
-        Set<PortAddresses> result = new HashSet<PortAddresses>();
-        for (PortAddresses addresses : hostService.getAddressBindings()) {
-            for (InterfaceIpAddress ia : addresses.ipAddresses()) {
-                if (ia.subnetAddress().contains(target)) {
-                    result.add(addresses);
-                }
-            }
-        }
-        return result;
-    }
-
     /**
      * Returns whether the given port is an outside-facing port with an IP
      * address configured.
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.net.resource.impl;
+
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Policies for assigning one of the lambdas available along a path.
+ * Lambdas are represented by their numbers as bits of a bit set.
+ */
+enum LambdaAssignmentPolicy {
+
+    /**
+     * Assigns the lowest numbered available lambda.
+     */
+    FIRST_FIT {
+        @Override
+        int assign(BitSet available, int[] usage, Random random) {
+            return available.nextSetBit(0);
+        }
+    },
+
+    /**
+     * Assigns the available lambda which is in use on the most links,
+     * keeping the lambdas in use on few links free for other paths.
+     */
+    MOST_USED {
+        @Override
+        boolean needsUsage() {
+            return true;
+        }
+
+        @Override
+        int assign(BitSet available, int[] usage, Random random) {
+            int best = -1;
+            int bestUsage = -1;
+            for (int i = available.nextSetBit(0); i >= 0; i = available.nextSetBit(i + 1)) {
+                int used = i < usage.length ? usage[i] : 0;
+                if (used > bestUsage) {
+                    best = i;
+                    bestUsage = used;
+                }
+            }
+            return best;
+        }
+    },
+
+    /**
+     * Assigns one of the available lambdas at random.
+     */
+    RANDOM_FIT {
+        @Override
+        int assign(BitSet available, int[] usage, Random random) {
+            int count = available.cardinality();
+            if (count == 0) {
+                return -1;
+            }
+            int lambda = available.nextSetBit(0);
+            for (int skip = random.nextInt(count); skip > 0; skip--) {
+                lambda = available.nextSetBit(lambda + 1);
+            }
+            return lambda;
+        }
+    };
+
+    /**
+     * Indicates whether the policy relies on the number of links on which
+     * each lambda is in use.
+     *
+     * @return true if the usage of lambdas is needed
+     */
+    boolean needsUsage() {
+        return false;
+    }
+
+    /**
+     * Selects one of the available lambdas.
+     *
+     * @param available lambdas available along the whole path
+     * @param usage     number of links on which each lambda is in use,
+     *                  indexed by lambda; only needed if the policy
+     *                  {@link #needsUsage() needs it}
+     * @param random    source of randomness
+     * @return selected lambda; -1 if none is available
+     */
+    abstract int assign(BitSet available, int[] usage, Random random);
+}
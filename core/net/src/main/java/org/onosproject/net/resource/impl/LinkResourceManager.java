@@ -17,18 +17,25 @@ package org.onosproject.net.resource.impl;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Strings.isNullOrEmpty;
 import static org.slf4j.LoggerFactory.getLogger;
 
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
@@ -51,7 +58,7 @@ import org.onosproject.net.resource.LinkResourceStore;
 import org.onosproject.net.resource.LinkResourceStoreDelegate;
 import org.onosproject.net.resource.ResourceAllocation;
 import org.onosproject.net.resource.ResourceRequest;
-import org.onosproject.net.resource.ResourceType;
+import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 
 /**
@@ -63,18 +70,28 @@ public class LinkResourceManager implements LinkResourceService {
 
     private final Logger log = getLogger(getClass());
 
+    private static final String DEFAULT_LAMBDA_ASSIGNMENT = "FIRST_FIT";
+
     protected final AbstractListenerRegistry<LinkResourceEvent, LinkResourceListener>
             listenerRegistry = new AbstractListenerRegistry<>();
 
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
-    private LinkResourceStore store;
+    protected LinkResourceStore store;
 
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected EventDeliveryService eventDispatcher;
 
+    @Property(name = "lambdaAssignment", value = DEFAULT_LAMBDA_ASSIGNMENT,
+            label = "Policy for assigning lambdas: FIRST_FIT, MOST_USED or RANDOM_FIT")
+    private LambdaAssignmentPolicy lambdaAssignment =
+            LambdaAssignmentPolicy.valueOf(DEFAULT_LAMBDA_ASSIGNMENT);
+
+    private final Random random = new Random();
+
     @Activate
-    public void activate() {
+    public void activate(ComponentContext context) {
         eventDispatcher.addSink(LinkResourceEvent.class, listenerRegistry);
+        modified(context);
         log.info("Started");
     }
 
@@ -83,44 +100,76 @@ public class LinkResourceManager implements LinkResourceService {
         log.info("Stopped");
     }
 
+    @Modified
+    public void modified(ComponentContext context) {
+        if (context == null) {
+            return;
+        }
+
+        Dictionary properties = context.getProperties();
+        LambdaAssignmentPolicy newLambdaAssignment;
+        try {
+            String s = (String) properties.get("lambdaAssignment");
+            newLambdaAssignment = isNullOrEmpty(s) ? lambdaAssignment :
+                    LambdaAssignmentPolicy.valueOf(s.trim());
+        } catch (Exception e) {
+            newLambdaAssignment = LambdaAssignmentPolicy.valueOf(DEFAULT_LAMBDA_ASSIGNMENT);
+        }
+
+        if (newLambdaAssignment != lambdaAssignment) {
+            lambdaAssignment = newLambdaAssignment;
+            log.info("Reconfigured with lambdaAssignment = {}", lambdaAssignment);
+        }
+    }
+
     /**
      * Returns available lambdas on specified link.
      *
      * @param link the link
-     * @return available lambdas on specified link
+     * @return available lambdas on specified link, as set bits
      */
-    private Set<Lambda> getAvailableLambdas(Link link) {
+    private BitSet getAvailableLambdas(Link link) {
         checkNotNull(link);
-        Set<ResourceAllocation> resAllocs = store.getFreeResources(link);
-        if (resAllocs == null) {
-            return Collections.emptySet();
-        }
-        Set<Lambda> lambdas = new HashSet<>();
-        for (ResourceAllocation res : resAllocs) {
-            if (res.type() == ResourceType.LAMBDA) {
-                lambdas.add(((LambdaResourceAllocation) res).lambda());
-            }
-        }
-        return lambdas;
+        BitSet lambdas = store.getFreeLambdas(link);
+        return lambdas == null ? new BitSet() : lambdas;
     }
 
     /**
-     * Returns available lambdas on specified links.
+     * Returns lambdas available on every one of the specified links, so as
+     * to keep the same lambda along a path.
      *
      * @param links the links
-     * @return available lambdas on specified links
+     * @return available lambdas on specified links, as set bits
      */
-    private Iterable<Lambda> getAvailableLambdas(Iterable<Link> links) {
+    private BitSet getContinuousLambdas(Iterable<Link> links) {
         checkNotNull(links);
         Iterator<Link> i = links.iterator();
         checkArgument(i.hasNext());
-        Set<Lambda> lambdas = new HashSet<>(getAvailableLambdas(i.next()));
-        while (i.hasNext()) {
-            lambdas.retainAll(getAvailableLambdas(i.next()));
+        BitSet lambdas = getAvailableLambdas(i.next());
+        while (i.hasNext() && !lambdas.isEmpty()) {
+            lambdas.and(getAvailableLambdas(i.next()));
         }
         return lambdas;
     }
 
+    /**
+     * Assigns one of the lambdas available along the specified links,
+     * according to the lambda assignment policy.
+     *
+     * @param links the links
+     * @return assigned lambda; null if there is none available
+     */
+    private Lambda assignLambda(Iterable<Link> links) {
+        LambdaAssignmentPolicy policy = lambdaAssignment;
+        BitSet available = getContinuousLambdas(links);
+        if (available.isEmpty()) {
+            return null;
+        }
+        int[] usage = policy.needsUsage() ? store.getLambdaUsage() : null;
+        int lambda = policy.assign(available, usage, random);
+        return lambda < 0 ? null : Lambda.valueOf(lambda);
+    }
+
     @Override
     public LinkResourceAllocations requestResources(LinkResourceRequest req) {
         // TODO Concatenate multiple bandwidth requests.
@@ -135,10 +184,9 @@ public class LinkResourceManager implements LinkResourceService {
                 allocs.add(new BandwidthResourceAllocation(br.bandwidth()));
                 break;
             case LAMBDA:
-                Iterator<Lambda> lambdaIterator =
-                        getAvailableLambdas(req.links()).iterator();
-                if (lambdaIterator.hasNext()) {
-                    allocs.add(new LambdaResourceAllocation(lambdaIterator.next()));
+                Lambda lambda = assignLambda(req.links());
+                if (lambda != null) {
+                    allocs.add(new LambdaResourceAllocation(lambda));
                 } else {
                     log.info("Failed to allocate lambda resource.");
                     return null;
@@ -220,6 +268,16 @@ public class LinkResourceManager implements LinkResourceService {
         return result;
     }
 
+    @Override
+    public Iterable<Lambda> getAvailableLambdas(Iterable<Link> links) {
+        BitSet available = getContinuousLambdas(links);
+        List<Lambda> lambdas = new ArrayList<>(available.cardinality());
+        for (int i = available.nextSetBit(0); i >= 0; i = available.nextSetBit(i + 1)) {
+            lambdas.add(Lambda.valueOf(i));
+        }
+        return lambdas;
+    }
+
     @Override
     public void addListener(LinkResourceListener listener) {
         listenerRegistry.addListener(listener);
@@ -25,7 +25,7 @@ import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
-import org.onosproject.event.AbstractEventAccumulator;
+import org.onosproject.event.AbstractScheduledEventAccumulator;
 import org.onosproject.event.Event;
 import org.onosproject.event.EventAccumulator;
 import org.onosproject.net.device.DeviceEvent;
@@ -46,11 +46,12 @@ import org.slf4j.Logger;
 import java.util.Collections;
 import java.util.Dictionary;
 import java.util.List;
-import java.util.Timer;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
 
 import static com.google.common.base.Strings.isNullOrEmpty;
 import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
 import static org.onosproject.core.CoreService.CORE_PROVIDER_ID;
 import static org.onosproject.net.device.DeviceEvent.Type.*;
 import static org.onlab.util.Tools.namedThreads;
@@ -71,9 +72,9 @@ public class DefaultTopologyProvider extends AbstractProvider
     private static final int DEFAULT_MAX_IDLE_MS = 10;
     private static final int DEFAULT_MAX_BATCH_MS = 50;
 
-    // FIXME: Replace with a system-wide timer instance;
-    // TODO: Convert to use HashedWheelTimer or produce a variant of that; then decide which we want to adopt
-    private static final Timer TIMER = new Timer("topo-event-batching");
+    // FIXME: Replace with a system-wide scheduler instance
+    private static final ScheduledExecutorService SCHEDULER =
+            newSingleThreadScheduledExecutor(namedThreads("topo-event-batching"));
 
     @Property(name = "maxEvents", intValue = DEFAULT_MAX_EVENTS,
             label = "Maximum number of events to accumulate")
@@ -246,10 +247,10 @@ public class DefaultTopologyProvider extends AbstractProvider
 
     // Event accumulator for paced triggering of topology assembly.
     private class TopologyChangeAccumulator
-            extends AbstractEventAccumulator implements EventAccumulator {
+            extends AbstractScheduledEventAccumulator implements EventAccumulator {
 
         TopologyChangeAccumulator() {
-            super(TIMER, maxEvents, maxBatchMs, maxIdleMs);
+            super(SCHEDULER, maxEvents, maxBatchMs, maxIdleMs);
         }
 
         @Override
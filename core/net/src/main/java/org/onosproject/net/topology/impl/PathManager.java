@@ -15,7 +15,9 @@
  */
 package org.onosproject.net.topology.impl;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import org.apache.felix.scr.annotations.Activate;
@@ -24,6 +26,8 @@ import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.graph.LazyKShortestPathSearch;
+import org.onlab.graph.SuurballeGraphSearch;
 import org.onosproject.net.ConnectPoint;
 import org.onosproject.net.DefaultEdgeLink;
 import org.onosproject.net.DefaultPath;
@@ -38,16 +42,23 @@ import org.onosproject.net.Path;
 import org.onosproject.net.PortNumber;
 import org.onosproject.net.host.HostService;
 import org.onosproject.net.provider.ProviderId;
+import org.onosproject.net.topology.DefaultTopologyVertex;
 import org.onosproject.net.topology.LinkWeight;
 import org.onosproject.net.topology.PathService;
 import org.onosproject.net.topology.Topology;
+import org.onosproject.net.topology.TopologyEdge;
+import org.onosproject.net.topology.TopologyGraph;
 import org.onosproject.net.topology.TopologyService;
+import org.onosproject.net.topology.TopologyVertex;
 import org.slf4j.Logger;
 
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static org.onosproject.net.Link.State.ACTIVE;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
@@ -65,6 +76,13 @@ public class PathManager implements PathService {
 
     private static final EdgeLink NOT_HOST = new NotHost();
 
+    private static final LinkWeight HOP_COUNT = new HopCountLinkWeight();
+
+    private static final LazyKShortestPathSearch<TopologyVertex, TopologyEdge> K_SHORTEST =
+            new LazyKShortestPathSearch<>();
+    private static final SuurballeGraphSearch<TopologyVertex, TopologyEdge> SUURBALLE =
+            new SuurballeGraphSearch<>();
+
     private final Logger log = getLogger(getClass());
 
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
@@ -121,6 +139,87 @@ public class PathManager implements PathService {
         return edgeToEdgePaths(srcEdge, dstEdge, paths);
     }
 
+    @Override
+    public Iterator<Path> getKShortestPaths(ElementId src, ElementId dst,
+                                            LinkWeight weight) {
+        checkNotNull(src, ELEMENT_ID_NULL);
+        checkNotNull(dst, ELEMENT_ID_NULL);
+
+        EdgeLink srcEdge = getEdgeLink(src, true);
+        EdgeLink dstEdge = getEdgeLink(dst, false);
+        if (srcEdge == null || dstEdge == null) {
+            return Collections.emptyIterator();
+        }
+
+        DeviceId srcDevice = srcEdge != NOT_HOST ? srcEdge.dst().deviceId() : (DeviceId) src;
+        DeviceId dstDevice = dstEdge != NOT_HOST ? dstEdge.src().deviceId() : (DeviceId) dst;
+        if (srcDevice.equals(dstDevice)) {
+            return edgeToEdgePaths(srcEdge, dstEdge).iterator();
+        }
+
+        // Search the graph of the current topology lazily; only the paths
+        // which the caller actually consumes get computed.
+        TopologyGraph graph = topologyService.getGraph(topologyService.currentTopology());
+        TopologyVertex srcVertex = new DefaultTopologyVertex(srcDevice);
+        TopologyVertex dstVertex = new DefaultTopologyVertex(dstDevice);
+        if (!graph.getVertexes().contains(srcVertex) ||
+                !graph.getVertexes().contains(dstVertex)) {
+            return Collections.emptyIterator();
+        }
+
+        return Iterators.transform(
+                K_SHORTEST.search(graph, srcVertex, dstVertex, weight(weight)),
+                path -> edgeToEdgePath(srcEdge, dstEdge, networkPath(path)));
+    }
+
+    @Override
+    public List<Path> getDisjointPaths(ElementId src, ElementId dst,
+                                       LinkWeight weight) {
+        checkNotNull(src, ELEMENT_ID_NULL);
+        checkNotNull(dst, ELEMENT_ID_NULL);
+
+        EdgeLink srcEdge = getEdgeLink(src, true);
+        EdgeLink dstEdge = getEdgeLink(dst, false);
+        if (srcEdge == null || dstEdge == null) {
+            return ImmutableList.of();
+        }
+
+        DeviceId srcDevice = srcEdge != NOT_HOST ? srcEdge.dst().deviceId() : (DeviceId) src;
+        DeviceId dstDevice = dstEdge != NOT_HOST ? dstEdge.src().deviceId() : (DeviceId) dst;
+        if (srcDevice.equals(dstDevice)) {
+            return ImmutableList.of(edgeToEdgePath(srcEdge, dstEdge, null));
+        }
+
+        TopologyGraph graph = topologyService.getGraph(topologyService.currentTopology());
+        TopologyVertex srcVertex = new DefaultTopologyVertex(srcDevice);
+        TopologyVertex dstVertex = new DefaultTopologyVertex(dstDevice);
+        if (!graph.getVertexes().contains(srcVertex) ||
+                !graph.getVertexes().contains(dstVertex)) {
+            return ImmutableList.of();
+        }
+
+        ImmutableList.Builder<Path> builder = ImmutableList.builder();
+        for (org.onlab.graph.Path<TopologyVertex, TopologyEdge> path :
+                SUURBALLE.search(graph, srcVertex, dstVertex, weight(weight))) {
+            builder.add(edgeToEdgePath(srcEdge, dstEdge, networkPath(path)));
+        }
+        return builder.build();
+    }
+
+    // Returns the given link weight or the hop-count weight if none given.
+    private LinkWeight weight(LinkWeight weight) {
+        return weight != null ? weight : HOP_COUNT;
+    }
+
+    // Converts graph path to a network path with the same cost.
+    private Path networkPath(org.onlab.graph.Path<TopologyVertex, TopologyEdge> path) {
+        List<Link> links = Lists.newArrayListWithCapacity(path.edges().size());
+        for (TopologyEdge edge : path.edges()) {
+            links.add(edge.link());
+        }
+        return new DefaultPath(PID, links, path.cost());
+    }
+
     // Finds the host edge link if the element ID is a host id of an existing
     // host. Otherwise, if the host does not exist, it returns null and if
     // the element ID is not a host ID, returns NOT_HOST edge link.
@@ -155,7 +254,8 @@ public class PathManager implements PathService {
         return endToEndPaths;
     }
 
-    // Produces a direct edge-to-edge path.
+    // Produces a direct edge-to-edge path, which carries the cost of the
+    // infrastructure path, if one is given.
     private Path edgeToEdgePath(EdgeLink srcLink, EdgeLink dstLink, Path path) {
         List<Link> links = Lists.newArrayListWithCapacity(2);
         // Add source and destination edge links only if they are real and
@@ -169,7 +269,15 @@ public class PathManager implements PathService {
         if (dstLink != NOT_HOST) {
             links.add(dstLink);
         }
-        return new DefaultPath(PID, links, 2);
+        return new DefaultPath(PID, links, path != null ? path.cost() : 2);
+    }
+
+    // Link weight which counts hops over active links only.
+    private static class HopCountLinkWeight implements LinkWeight {
+        @Override
+        public double weight(TopologyEdge edge) {
+            return edge.link().state() == ACTIVE ? 1 : -1;
+        }
     }
 
     // Special value for edge link to represent that this is really not an
@@ -18,11 +18,17 @@ package org.onosproject.event.impl;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.onlab.osgi.ComponentContextAdapter;
 import org.onosproject.event.AbstractEvent;
 import org.onosproject.event.EventSink;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -39,7 +45,7 @@ public class CoreEventDispatcherTest {
 
     @Before
     public void setUp() {
-        dispatcher.activate();
+        dispatcher.activate(null);
         dispatcher.addSink(Prickle.class, prickleSink);
         dispatcher.addSink(Goo.class, gooSink);
     }
@@ -76,6 +82,52 @@ public class CoreEventDispatcherTest {
         validate(prickleSink);
     }
 
+    @Test
+    public void postSharded() throws Exception {
+        dispatcher.modified(context("4"));
+
+        int subjects = 16;
+        int perSubject = 50;
+        OrderSink orderSink = new OrderSink(subjects * perSubject);
+        dispatcher.addSink(Order.class, orderSink);
+        for (int i = 0; i < perSubject; i++) {
+            for (int s = 0; s < subjects; s++) {
+                dispatcher.post(new Order("s" + s, i));
+            }
+        }
+        orderSink.latch.await(1000, TimeUnit.MILLISECONDS);
+        dispatcher.removeSink(Order.class);
+
+        assertEquals("incorrect subject count", subjects, orderSink.sequences.size());
+        for (List<Integer> sequence : orderSink.sequences.values()) {
+            assertEquals("incorrect event count", perSubject, sequence.size());
+            for (int i = 0; i < perSubject; i++) {
+                assertEquals("events out of order", (Integer) i, sequence.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void postBeforeResharding() throws Exception {
+        dispatcher.deactivate();
+        prickleSink.latch = new CountDownLatch(1);
+        dispatcher.post(new Prickle("yo"));
+        dispatcher.activate(context("3"));
+        prickleSink.latch.await(100, TimeUnit.MILLISECONDS);
+        validate(prickleSink, "yo");
+    }
+
+    private static ComponentContextAdapter context(String dispatchThreads) {
+        return new ComponentContextAdapter() {
+            @Override
+            public Dictionary getProperties() {
+                Hashtable<String, String> props = new Hashtable<>();
+                props.put("dispatchThreads", dispatchThreads);
+                return props;
+            }
+        };
+    }
+
     private void validate(Sink sink, String... strings) {
         int i = 0;
         assertEquals("incorrect event count", strings.length, sink.subjects.size());
@@ -104,6 +156,33 @@ public class CoreEventDispatcherTest {
         }
     }
 
+    private static class Order extends AbstractEvent<Type, String> {
+        final int sequence;
+
+        protected Order(String subject, int sequence) {
+            super(Type.FOO, subject);
+            this.sequence = sequence;
+        }
+    }
+
+    private static class OrderSink implements EventSink<Order> {
+        final Map<String, List<Integer>> sequences =
+                Collections.synchronizedMap(new HashMap<>());
+        final CountDownLatch latch;
+
+        OrderSink(int count) {
+            latch = new CountDownLatch(count);
+        }
+
+        @Override
+        public void process(Order event) {
+            sequences.computeIfAbsent(event.subject(),
+                                      s -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(event.sequence);
+            latch.countDown();
+        }
+    }
+
     private static class Sink {
         final List<String> subjects = new ArrayList<>();
         CountDownLatch latch;
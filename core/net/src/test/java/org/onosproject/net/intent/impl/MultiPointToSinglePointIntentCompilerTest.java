@@ -33,6 +33,7 @@ import org.onosproject.net.topology.LinkWeight;
 import org.onosproject.net.topology.PathService;
 
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
@@ -86,6 +87,18 @@ public class MultiPointToSinglePointIntentCompilerTest extends AbstractIntentTes
         public Set<Path> getPaths(ElementId src, ElementId dst, LinkWeight weight) {
             return null;
         }
+
+        @Override
+        public Iterator<Path> getKShortestPaths(ElementId src, ElementId dst,
+                                                LinkWeight weight) {
+            return null;
+        }
+
+        @Override
+        public List<Path> getDisjointPaths(ElementId src, ElementId dst,
+                                           LinkWeight weight) {
+            return null;
+        }
     }
 
     /**
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.net.intent.impl;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.Link;
+import org.onosproject.net.Path;
+import org.onosproject.net.intent.AbstractIntentTest;
+import org.onosproject.net.intent.Intent;
+import org.onosproject.net.intent.IntentTestsMocks;
+import org.onosproject.net.intent.OpticalConnectivityIntent;
+import org.onosproject.net.intent.OpticalPathIntent;
+import org.onosproject.net.resource.Lambda;
+import org.onosproject.net.topology.LinkWeight;
+import org.onosproject.net.topology.Topology;
+import org.onosproject.net.topology.TopologyServiceAdapter;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+import static org.onosproject.net.NetTestTools.APP_ID;
+import static org.onosproject.net.NetTestTools.connectPoint;
+import static org.onosproject.net.NetTestTools.createPath;
+
+/**
+ * Unit tests for the optical connectivity intent compiler.
+ */
+public class OpticalConnectivityIntentCompilerTest extends AbstractIntentTest {
+
+    private static final Path SHORT_PATH = createPath("d1", "d2", "d4");
+    private static final Path LONG_PATH = createPath("d1", "d3", "d5", "d4");
+
+    /**
+     * Creates an optical connectivity intent from d1 to d4.
+     *
+     * @return optical connectivity intent
+     */
+    private OpticalConnectivityIntent makeIntent() {
+        return new OpticalConnectivityIntent(APP_ID, connectPoint("d1", 1),
+                                             connectPoint("d4", 1));
+    }
+
+    /**
+     * Creates a compiler finding the given paths, in order, and on which
+     * a lambda is available along the links of the given paths only.
+     *
+     * @param paths paths between the end points of the intent
+     * @param continuous paths with a lambda available along all of them
+     * @return optical connectivity intent compiler
+     */
+    private OpticalConnectivityIntentCompiler makeCompiler(Set<Path> paths,
+                                                           Path... continuous) {
+        OpticalConnectivityIntentCompiler compiler =
+                new OpticalConnectivityIntentCompiler();
+        compiler.topologyService = new TopologyServiceAdapter() {
+            @Override
+            public Set<Path> getPaths(Topology topology, DeviceId src,
+                                      DeviceId dst, LinkWeight weight) {
+                return paths;
+            }
+        };
+        compiler.resourceService = new IntentTestsMocks.MockResourceService() {
+            @Override
+            public Iterable<Lambda> getAvailableLambdas(Iterable<Link> links) {
+                for (Path path : continuous) {
+                    if (path.links().equals(links)) {
+                        return ImmutableList.of(Lambda.valueOf(1));
+                    }
+                }
+                return Collections.emptyList();
+            }
+        };
+        return compiler;
+    }
+
+    /**
+     * Tests that the first path is selected if a lambda is available
+     * along it.
+     */
+    @Test
+    public void firstPath() {
+        OpticalConnectivityIntentCompiler compiler =
+                makeCompiler(ImmutableSet.of(SHORT_PATH, LONG_PATH), SHORT_PATH, LONG_PATH);
+        List<Intent> result = compiler.compile(makeIntent(), null, null);
+        assertThat(result, hasSize(1));
+        assertThat(result.get(0), is(instanceOf(OpticalPathIntent.class)));
+        assertThat(((OpticalPathIntent) result.get(0)).path(), is(SHORT_PATH));
+    }
+
+    /**
+     * Tests that a path is skipped if no lambda is available along all of
+     * its links.
+     */
+    @Test
+    public void skipPathWithoutContinuousLambda() {
+        OpticalConnectivityIntentCompiler compiler =
+                makeCompiler(ImmutableSet.of(SHORT_PATH, LONG_PATH), LONG_PATH);
+        List<Intent> result = compiler.compile(makeIntent(), null, null);
+        assertThat(result, hasSize(1));
+        assertThat(((OpticalPathIntent) result.get(0)).path(), is(LONG_PATH));
+    }
+
+    /**
+     * Tests that compilation fails if no path has a lambda available along
+     * all of its links.
+     */
+    @Test
+    public void noPathWithContinuousLambda() {
+        OpticalConnectivityIntentCompiler compiler =
+                makeCompiler(ImmutableSet.of(SHORT_PATH, LONG_PATH));
+        try {
+            compiler.compile(makeIntent(), null, null);
+            fail("compilation should fail");
+        } catch (PathNotFoundException e) {
+            assertThat(e.getMessage().contains("lambda"), is(true));
+        }
+    }
+}
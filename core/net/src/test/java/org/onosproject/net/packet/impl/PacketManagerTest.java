@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.net.packet.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.onosproject.net.packet.OutboundPacket;
+import org.onosproject.net.packet.PacketContext;
+import org.onosproject.net.packet.PacketProcessor;
+import org.onosproject.net.packet.PacketProvider;
+import org.onosproject.net.packet.PacketProviderService;
+import org.onosproject.net.provider.AbstractProvider;
+import org.onosproject.net.provider.ProviderId;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test of the packet manager processor chain.
+ */
+public class PacketManagerTest {
+
+    private static final ProviderId PID = new ProviderId("of", "foo");
+
+    private PacketManager mgr;
+    private PacketProviderService providerService;
+
+    private final List<String> processed = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        mgr = new PacketManager();
+        providerService = mgr.register(new TestProvider());
+    }
+
+    @Test
+    public void priorityOrder() {
+        mgr.addProcessor(new TestProcessor("c"), 30);
+        mgr.addProcessor(new TestProcessor("a"), 10);
+        mgr.addProcessor(new TestProcessor("b"), 20);
+        providerService.processPacket(null);
+        assertEquals("incorrect processing order", "[a, b, c]", processed.toString());
+    }
+
+    @Test
+    public void removeProcessor() {
+        TestProcessor b = new TestProcessor("b");
+        mgr.addProcessor(new TestProcessor("a"), 10);
+        mgr.addProcessor(b, 20);
+        mgr.removeProcessor(b);
+        providerService.processPacket(null);
+        assertEquals("incorrect processors", "[a]", processed.toString());
+    }
+
+    @Test
+    public void replaceProcessor() {
+        mgr.addProcessor(new TestProcessor("a"), 10);
+        mgr.addProcessor(new TestProcessor("b"), 10);
+        providerService.processPacket(null);
+        assertEquals("processor should be replaced", "[b]", processed.toString());
+    }
+
+    private class TestProcessor implements PacketProcessor {
+        private final String name;
+
+        TestProcessor(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void process(PacketContext context) {
+            processed.add(name);
+        }
+    }
+
+    private class TestProvider extends AbstractProvider implements PacketProvider {
+        public TestProvider() {
+            super(PID);
+        }
+
+        @Override
+        public void emit(OutboundPacket packet) {
+        }
+    }
+}
@@ -18,6 +18,7 @@ package org.onosproject.net.proxyarp.impl;
 import static org.easymock.EasyMock.anyObject;
 import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.getCurrentArguments;
 import static org.easymock.EasyMock.replay;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
@@ -59,6 +60,7 @@ import org.onlab.packet.ARP;
 import org.onlab.packet.Ethernet;
 import org.onlab.packet.Ip4Address;
 import org.onlab.packet.Ip4Prefix;
+import org.onlab.packet.IpAddress;
 import org.onlab.packet.MacAddress;
 import org.onlab.packet.VlanId;
 
@@ -227,6 +229,9 @@ public class ProxyArpManagerTest {
         }
 
         expect(hostService.getAddressBindings()).andReturn(addresses).anyTimes();
+        expect(hostService.getAddressBindingsForSubnet(anyObject(IpAddress.class)))
+                .andAnswer(() -> inSubnet(addresses, (IpAddress) getCurrentArguments()[0]))
+                .anyTimes();
 
         for (int i = 1; i <= NUM_FLOOD_PORTS; i++) {
             ConnectPoint cp = new ConnectPoint(getDeviceId(i + NUM_ADDRESS_PORTS),
@@ -236,6 +241,18 @@ public class ProxyArpManagerTest {
         }
     }
 
+    private static Set<PortAddresses> inSubnet(Set<PortAddresses> addresses, IpAddress ip) {
+        Set<PortAddresses> result = Sets.newHashSet();
+        for (PortAddresses pa : addresses) {
+            for (InterfaceIpAddress ia : pa.ipAddresses()) {
+                if (ia.subnetAddress().contains(ip)) {
+                    result.add(pa);
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * Tests {@link ProxyArpManager#known(Ip4Address)} in the case where the
      * IP address is not known.
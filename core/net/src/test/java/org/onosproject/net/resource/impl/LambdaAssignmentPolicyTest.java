@@ -0,0 +1,68 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.net.resource.impl;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.onosproject.net.resource.impl.LambdaAssignmentPolicy.*;
+
+/**
+ * Tests of the lambda assignment policies.
+ */
+public class LambdaAssignmentPolicyTest {
+
+    private final Random random = new Random(0);
+
+    private static BitSet lambdas(int... lambdas) {
+        BitSet set = new BitSet();
+        for (int lambda : lambdas) {
+            set.set(lambda);
+        }
+        return set;
+    }
+
+    @Test
+    public void firstFit() {
+        assertEquals("incorrect lambda", 3, FIRST_FIT.assign(lambdas(7, 3, 5), null, random));
+        assertEquals("no lambda expected", -1, FIRST_FIT.assign(lambdas(), null, random));
+    }
+
+    @Test
+    public void mostUsed() {
+        int[] usage = {0, 4, 0, 1, 0, 6, 0, 6};
+        assertEquals("incorrect lambda", 5, MOST_USED.assign(lambdas(3, 5, 7), usage, random));
+        assertEquals("incorrect lambda", 3, MOST_USED.assign(lambdas(2, 3, 9), usage, random));
+        assertEquals("no lambda expected", -1, MOST_USED.assign(lambdas(), usage, random));
+    }
+
+    @Test
+    public void randomFit() {
+        BitSet available = lambdas(2, 4, 8);
+        BitSet assigned = new BitSet();
+        for (int i = 0; i < 100; i++) {
+            int lambda = RANDOM_FIT.assign(available, null, random);
+            assertTrue("unavailable lambda assigned", available.get(lambda));
+            assigned.set(lambda);
+        }
+        assertEquals("all lambdas should be assigned", available, assigned);
+        assertEquals("no lambda expected", -1, RANDOM_FIT.assign(lambdas(), null, random));
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.net.resource.impl;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.osgi.ComponentContextAdapter;
+import org.onosproject.net.Link;
+import org.onosproject.net.intent.IntentId;
+import org.onosproject.net.resource.DefaultLinkResourceRequest;
+import org.onosproject.net.resource.Lambda;
+import org.onosproject.net.resource.LambdaResourceAllocation;
+import org.onosproject.net.resource.LinkResourceAllocations;
+import org.onosproject.net.resource.LinkResourceEvent;
+import org.onosproject.net.resource.LinkResourceRequest;
+import org.onosproject.net.resource.LinkResourceStore;
+import org.onosproject.net.resource.ResourceAllocation;
+
+import com.google.common.collect.ImmutableList;
+
+import static org.junit.Assert.*;
+import static org.onosproject.net.NetTestTools.link;
+
+/**
+ * Tests of the lambda assignment of the link resource manager.
+ */
+public class LinkResourceManagerTest {
+
+    private static final Link L1 = link("d1", 1, "d2", 1);
+    private static final Link L2 = link("d2", 2, "d3", 1);
+    private static final Link L3 = link("d3", 2, "d4", 1);
+    private static final List<Link> PATH = ImmutableList.of(L1, L2, L3);
+
+    private LinkResourceManager manager;
+    private TestStore store;
+
+    @Before
+    public void setUp() {
+        store = new TestStore();
+        manager = new LinkResourceManager();
+        manager.store = store;
+    }
+
+    private static BitSet lambdas(int... lambdas) {
+        BitSet set = new BitSet();
+        for (int lambda : lambdas) {
+            set.set(lambda);
+        }
+        return set;
+    }
+
+    private static List<Lambda> lambdaList(int... lambdas) {
+        List<Lambda> list = new ArrayList<>();
+        for (int lambda : lambdas) {
+            list.add(Lambda.valueOf(lambda));
+        }
+        return list;
+    }
+
+    private LinkResourceAllocations requestLambda() {
+        LinkResourceRequest request =
+                DefaultLinkResourceRequest.builder(IntentId.valueOf(1), PATH)
+                        .addLambdaRequest()
+                        .build();
+        return manager.requestResources(request);
+    }
+
+    private static Lambda assignedLambda(LinkResourceAllocations allocations, Link link) {
+        for (ResourceAllocation res : allocations.getResourceAllocation(link)) {
+            if (res instanceof LambdaResourceAllocation) {
+                return ((LambdaResourceAllocation) res).lambda();
+            }
+        }
+        return null;
+    }
+
+    private static ComponentContextAdapter context(String lambdaAssignment) {
+        return new ComponentContextAdapter() {
+            @Override
+            public Dictionary getProperties() {
+                Hashtable<String, String> props = new Hashtable<>();
+                props.put("lambdaAssignment", lambdaAssignment);
+                return props;
+            }
+        };
+    }
+
+    @Test
+    public void continuousLambdas() {
+        store.free.put(L1, lambdas(1, 2, 3, 5));
+        store.free.put(L2, lambdas(2, 3, 5, 6));
+        store.free.put(L3, lambdas(3, 5, 7));
+        assertEquals("incorrect lambdas", lambdaList(3, 5),
+                     manager.getAvailableLambdas(PATH));
+        assertEquals("store lambdas should not be changed", lambdas(1, 2, 3, 5),
+                     store.free.get(L1));
+    }
+
+    @Test
+    public void noContinuousLambda() {
+        store.free.put(L1, lambdas(1, 2));
+        store.free.put(L2, lambdas(2, 3));
+        store.free.put(L3, lambdas(3, 4));
+        assertFalse("no lambdas expected",
+                    manager.getAvailableLambdas(PATH).iterator().hasNext());
+        assertNull("request should fail", requestLambda());
+        assertTrue("nothing should be allocated", store.allocated.isEmpty());
+    }
+
+    @Test
+    public void firstFit() {
+        store.free.put(L1, lambdas(2, 4, 6));
+        store.free.put(L2, lambdas(4, 6));
+        store.free.put(L3, lambdas(1, 4, 6));
+        store.usage = new int[]{0, 0, 0, 0, 1, 0, 3};
+
+        LinkResourceAllocations allocations = requestLambda();
+        assertNotNull("request should succeed", allocations);
+        for (Link link : PATH) {
+            assertEquals("incorrect lambda", Lambda.valueOf(4), assignedLambda(allocations, link));
+        }
+        assertEquals("allocations should be stored",
+                     ImmutableList.of(allocations), store.allocated);
+    }
+
+    @Test
+    public void mostUsed() {
+        manager.modified(context("MOST_USED"));
+        store.free.put(L1, lambdas(2, 4, 6));
+        store.free.put(L2, lambdas(4, 6));
+        store.free.put(L3, lambdas(1, 4, 6));
+        store.usage = new int[]{0, 5, 0, 0, 1, 0, 3};
+
+        LinkResourceAllocations allocations = requestLambda();
+        assertNotNull("request should succeed", allocations);
+        for (Link link : PATH) {
+            assertEquals("incorrect lambda", Lambda.valueOf(6), assignedLambda(allocations, link));
+        }
+    }
+
+    // Store holding the free lambdas of each link and the lambda usage,
+    // which records the allocations made
+    private static class TestStore implements LinkResourceStore {
+
+        private final Map<Link, BitSet> free = new HashMap<>();
+        private final List<LinkResourceAllocations> allocated = new ArrayList<>();
+        private int[] usage = new int[0];
+
+        @Override
+        public Set<ResourceAllocation> getFreeResources(Link link) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public BitSet getFreeLambdas(Link link) {
+            BitSet lambdas = free.get(link);
+            return lambdas == null ? new BitSet() : (BitSet) lambdas.clone();
+        }
+
+        @Override
+        public int[] getLambdaUsage() {
+            return usage.clone();
+        }
+
+        @Override
+        public void allocateResources(LinkResourceAllocations allocations) {
+            allocated.add(allocations);
+        }
+
+        @Override
+        public LinkResourceEvent releaseResources(LinkResourceAllocations allocations) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public LinkResourceAllocations getAllocations(IntentId intentId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Iterable<LinkResourceAllocations> getAllocations(Link link) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Iterable<LinkResourceAllocations> getAllocations() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -18,26 +18,36 @@ package org.onosproject.net.topology.impl;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.onlab.graph.AdjacencyListsGraph;
 import org.onosproject.net.DeviceId;
 import org.onosproject.net.ElementId;
 import org.onosproject.net.Host;
 import org.onosproject.net.HostId;
+import org.onosproject.net.Link;
 import org.onosproject.net.Path;
 import org.onosproject.net.host.HostService;
 import org.onosproject.net.host.HostServiceAdapter;
 import org.onosproject.net.provider.ProviderId;
+import org.onosproject.net.topology.DefaultTopologyEdge;
+import org.onosproject.net.topology.DefaultTopologyVertex;
 import org.onosproject.net.topology.LinkWeight;
 import org.onosproject.net.topology.PathService;
 import org.onosproject.net.topology.Topology;
+import org.onosproject.net.topology.TopologyEdge;
+import org.onosproject.net.topology.TopologyGraph;
 import org.onosproject.net.topology.TopologyService;
 import org.onosproject.net.topology.TopologyServiceAdapter;
+import org.onosproject.net.topology.TopologyVertex;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.onosproject.net.NetTestTools.*;
 
@@ -108,6 +118,20 @@ public class PathManagerTest {
         validatePaths(paths, 1, 4, src, dst);
     }
 
+    @Test
+    public void edgeToEdgeCost() {
+        HostId src = hid("12:34:56:78:90:ab/1");
+        HostId dst = hid("12:34:56:78:90:ef/1");
+        Path infra = createPath("srcEdge", "a", "b", "dstEdge");
+        fakeTopoMgr.paths.add(infra);
+        fakeHostMgr.hosts.put(src, host("12:34:56:78:90:ab/1", "srcEdge"));
+        fakeHostMgr.hosts.put(dst, host("12:34:56:78:90:ef/1", "dstEdge"));
+        Set<Path> paths = service.getPaths(src, dst);
+        validatePaths(paths, 1, 5, src, dst);
+        assertEquals("path should carry the infrastructure cost",
+                     infra.cost(), paths.iterator().next().cost(), 0.0);
+    }
+
     @Test
     public void edgeToEdgeDirect() {
         HostId src = hid("12:34:56:78:90:ab/1");
@@ -116,6 +140,7 @@ public class PathManagerTest {
         fakeHostMgr.hosts.put(dst, host("12:34:56:78:90:ef/1", "edge"));
         Set<Path> paths = service.getPaths(src, dst);
         validatePaths(paths, 1, 2, src, dst);
+        assertEquals("incorrect direct path cost", 2, paths.iterator().next().cost(), 0.0);
     }
 
     @Test
@@ -125,6 +150,68 @@ public class PathManagerTest {
         assertTrue("there should be no paths", paths.isEmpty());
     }
 
+    @Test
+    public void kShortestInfraToInfra() {
+        fakeTopoMgr.graph = diamond();
+        Iterator<Path> paths = service.getKShortestPaths(did("src"), did("dst"), null);
+        Path first = paths.next();
+        Path second = paths.next();
+        assertFalse("there should be no more paths", paths.hasNext());
+        assertEquals("incorrect first path", 2, first.links().size());
+        assertEquals("incorrect second path", 3, second.links().size());
+        assertTrue("paths out of order", first.cost() < second.cost());
+    }
+
+    @Test
+    public void kShortestEdgeToEdge() {
+        HostId src = hid("12:34:56:78:90:ab/1");
+        HostId dst = hid("12:34:56:78:90:ef/1");
+        fakeTopoMgr.graph = diamond();
+        fakeHostMgr.hosts.put(src, host("12:34:56:78:90:ab/1", "src"));
+        fakeHostMgr.hosts.put(dst, host("12:34:56:78:90:ef/1", "dst"));
+        Iterator<Path> paths = service.getKShortestPaths(src, dst, null);
+        Path path = paths.next();
+        assertEquals("incorrect length", 4, path.links().size());
+        assertEquals("incorrect source", src, path.src().elementId());
+        assertEquals("incorrect destination", dst, path.dst().elementId());
+    }
+
+    @Test
+    public void kShortestNoDevice() {
+        fakeTopoMgr.graph = diamond();
+        assertFalse("there should be no paths",
+                    service.getKShortestPaths(did("src"), did("none"), null).hasNext());
+    }
+
+    @Test
+    public void disjointInfraToInfra() {
+        fakeTopoMgr.graph = diamond();
+        List<Path> paths = service.getDisjointPaths(did("src"), did("dst"), null);
+        assertEquals("incorrect path count", 2, paths.size());
+        Set<Link> links = new HashSet<>(paths.get(0).links());
+        for (Link link : paths.get(1).links()) {
+            assertTrue("paths are not disjoint", links.add(link));
+        }
+    }
+
+    @Test
+    public void disjointEdgeToEdgeDirect() {
+        HostId src = hid("12:34:56:78:90:ab/1");
+        HostId dst = hid("12:34:56:78:90:ef/1");
+        fakeHostMgr.hosts.put(src, host("12:34:56:78:90:ab/1", "edge"));
+        fakeHostMgr.hosts.put(dst, host("12:34:56:78:90:ef/1", "edge"));
+        List<Path> paths = service.getDisjointPaths(src, dst, null);
+        assertEquals("incorrect path count", 1, paths.size());
+        assertEquals("incorrect length", 2, paths.get(0).links().size());
+    }
+
+    // Produces graph with paths src-a-dst and src-b-c-dst.
+    private FakeGraph diamond() {
+        return new FakeGraph(link("src", 1, "a", 1), link("a", 2, "dst", 1),
+                             link("src", 2, "b", 1), link("b", 2, "c", 1),
+                             link("c", 2, "dst", 2));
+    }
+
     // Makes sure the set of paths meets basic expectations.
     private void validatePaths(Set<Path> paths, int count, int length,
                                ElementId src, ElementId dst) {
@@ -139,6 +226,7 @@ public class PathManagerTest {
     // Fake entity to give out paths.
     private class FakeTopoMgr extends TopologyServiceAdapter implements TopologyService {
         Set<Path> paths = new HashSet<>();
+        TopologyGraph graph;
 
         @Override
         public Set<Path> getPaths(Topology topology, DeviceId src, DeviceId dst) {
@@ -149,6 +237,38 @@ public class PathManagerTest {
         public Set<Path> getPaths(Topology topology, DeviceId src, DeviceId dst, LinkWeight weight) {
             return paths;
         }
+
+        @Override
+        public TopologyGraph getGraph(Topology topology) {
+            return graph;
+        }
+    }
+
+    // Fake topology graph built from links.
+    private static class FakeGraph extends AdjacencyListsGraph<TopologyVertex, TopologyEdge>
+            implements TopologyGraph {
+        FakeGraph(Link... links) {
+            super(vertexes(links), edges(links));
+        }
+
+        private static Set<TopologyVertex> vertexes(Link... links) {
+            Set<TopologyVertex> vertexes = new HashSet<>();
+            for (Link link : links) {
+                vertexes.add(new DefaultTopologyVertex(link.src().deviceId()));
+                vertexes.add(new DefaultTopologyVertex(link.dst().deviceId()));
+            }
+            return vertexes;
+        }
+
+        private static Set<TopologyEdge> edges(Link... links) {
+            Set<TopologyEdge> edges = new HashSet<>();
+            for (Link link : links) {
+                edges.add(new DefaultTopologyEdge(new DefaultTopologyVertex(link.src().deviceId()),
+                                                  new DefaultTopologyVertex(link.dst().deviceId()),
+                                                  link));
+            }
+            return edges;
+        }
     }
 
     // Fake entity to give out hosts.
@@ -19,6 +19,8 @@ import static com.google.common.base.Preconditions.checkArgument;
 
 import java.io.IOException;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
@@ -26,6 +28,7 @@ import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsService;
 import org.onlab.netty.Endpoint;
 import org.onlab.netty.Message;
 import org.onlab.netty.MessageHandler;
@@ -55,9 +58,15 @@ public class ClusterCommunicationManager
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
+    // Time to wait for a reply when the caller does not specify one.
+    private static final long DEFAULT_RESPONSE_TIMEOUT_MILLIS = 10000;
+
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     private ClusterService clusterService;
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MetricsService metricsService;
+
     // TODO: This probably should not be a OSGi service.
     private MessagingService messagingService;
 
@@ -78,6 +87,7 @@ public class ClusterCommunicationManager
     public void activate() {
         ControllerNode localNode = clusterService.getLocalNode();
         NettyMessagingService netty = new NettyMessagingService(localNode.ip().toString(), localNode.tcpPort());
+        netty.setMetricsService(metricsService);
         // FIXME: workaround until it becomes a service.
         try {
             netty.activate();
@@ -158,12 +168,19 @@ public class ClusterCommunicationManager
 
     @Override
     public ListenableFuture<byte[]> sendAndReceive(ClusterMessage message, NodeId toNodeId) throws IOException {
+        return sendAndReceive(message, toNodeId,
+                              DEFAULT_RESPONSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public ListenableFuture<byte[]> sendAndReceive(ClusterMessage message, NodeId toNodeId,
+                                                   long timeout, TimeUnit unit) throws IOException {
         ControllerNode node = clusterService.getNode(toNodeId);
         checkArgument(node != null, "Unknown nodeId: %s", toNodeId);
         Endpoint nodeEp = new Endpoint(node.ip().toString(), node.tcpPort());
         try {
-            return messagingService.sendAndReceive(nodeEp, message.subject().value(), SERIALIZER.encode(message));
-
+            return messagingService.sendAndReceive(nodeEp, message.subject().value(),
+                                                   SERIALIZER.encode(message), timeout, unit);
         } catch (IOException e) {
             log.trace("Failed interaction with remote nodeId: " + toNodeId, e);
             throw e;
@@ -176,6 +193,15 @@ public class ClusterCommunicationManager
         messagingService.registerHandler(subject.value(), new InternalClusterMessageHandler(subscriber));
     }
 
+    @Override
+    public void addSubscriber(MessageSubject subject,
+                              ClusterMessageHandler subscriber,
+                              ExecutorService executor) {
+        messagingService.registerHandler(subject.value(),
+                                         new InternalClusterMessageHandler(subscriber),
+                                         executor);
+    }
+
     @Override
     public void removeSubscriber(MessageSubject subject) {
         messagingService.unregisterHandler(subject.value());
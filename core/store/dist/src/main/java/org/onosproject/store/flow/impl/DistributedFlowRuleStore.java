@@ -26,17 +26,27 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 import java.util.List;
 
 import org.apache.felix.scr.annotations.Activate;
@@ -45,8 +55,10 @@ import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsService;
 import org.onosproject.cluster.ClusterService;
 import org.onosproject.cluster.NodeId;
+import org.onosproject.core.MetricsHelper;
 import org.onosproject.net.Device;
 import org.onosproject.net.DeviceId;
 import org.onosproject.net.device.DeviceService;
@@ -82,20 +94,22 @@ import org.onosproject.store.serializers.impl.DistributedStoreSerializers;
 import org.onlab.util.KryoNamespace;
 import org.slf4j.Logger;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
-import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
-import com.google.common.collect.Multimap;
+import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Striped;
 import com.hazelcast.core.IMap;
 
 /**
@@ -105,16 +119,20 @@ import com.hazelcast.core.IMap;
 @Service
 public class DistributedFlowRuleStore
         extends AbstractHazelcastStore<FlowRuleBatchEvent, FlowRuleStoreDelegate>
-        implements FlowRuleStore {
+        implements FlowRuleStore, MetricsHelper {
 
     private final Logger log = getLogger(getClass());
 
+    private static final int FLOW_TABLE_LOCK_STRIPES = 256;
+
     // primary data:
-    //  read/write needs to be locked
-    private final ReentrantReadWriteLock flowEntriesLock = new ReentrantReadWriteLock();
-    // store entries as a pile of rules, no info about device tables
-    private final Multimap<DeviceId, StoredFlowEntry> flowEntries
-        = ArrayListMultimap.<DeviceId, StoredFlowEntry>create();
+    //  read/write of a device's entries needs to be locked using the
+    //  lock striped for the device, so that devices do not contend
+    private final Striped<ReadWriteLock> flowTableLocks =
+            Striped.readWriteLock(FLOW_TABLE_LOCK_STRIPES);
+    // store entries as a pile of rules per device, no info about device tables
+    private final ConcurrentMap<DeviceId, List<StoredFlowEntry>> flowEntries =
+            new ConcurrentHashMap<>();
 
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected ReplicaInfoService replicaInfoManager;
@@ -128,6 +146,9 @@ public class DistributedFlowRuleStore
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected DeviceService deviceService;
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MetricsService metricsService;
+
     private final AtomicInteger localBatchIdGen = new AtomicInteger();
 
     private int pendingFutureTimeoutMinutes = 5;
@@ -145,11 +166,37 @@ public class DistributedFlowRuleStore
     private final ExecutorService futureListeners =
             Executors.newCachedThreadPool(namedThreads("flowstore-peer-responders"));
 
-    private final ExecutorService backupExecutors =
-            Executors.newSingleThreadExecutor(namedThreads("async-backups"));
+    private final ScheduledExecutorService backupExecutors =
+            Executors.newSingleThreadScheduledExecutor(namedThreads("async-backups"));
+
+    private static final int MESSAGE_HANDLER_THREAD_POOL_SIZE = 8;
+    private static final int MESSAGE_HANDLER_QUEUE_SIZE = 1024;
+
+    // Handle requests from peers off of the messaging I/O threads; requests
+    // changing the flow tables are handled one at a time, in the order they
+    // were received. Once the queue of an executor is full, read requests
+    // are dropped and counted, whereas flow table updates hold off the I/O
+    // thread until there is room for them, so that they are never lost.
+    private ExecutorService messageHandlingExecutor;
+    private ExecutorService flowTableUpdateExecutor;
+    private Counter droppedMessages;
+    private Counter delayedMessages;
 
     private boolean syncBackup = false;
 
+    // Window over which changes to the flow tables are coalesced before
+    // being written to the backups
+    private static final long BACKUP_PERIOD_MILLIS = 50;
+
+    // Flows changed since the flow table of their device was last backed
+    // up; only changed while holding the write lock of the device
+    private final ConcurrentMap<DeviceId, PendingBackup> pendingBackups =
+            new ConcurrentHashMap<>();
+    private final AtomicBoolean backupScheduled = new AtomicBoolean();
+
+    private Timer backupLag;
+    private Counter pendingBackupFlows;
+
     protected static final StoreSerializer SERIALIZER = new KryoSerializer() {
         @Override
         protected void setupKryoPool() {
@@ -172,6 +219,11 @@ public class DistributedFlowRuleStore
         super.serializer = SERIALIZER;
         super.theInstance = storeService.getHazelcastInstance();
 
+        backupLag = createTimer("FlowRuleStore", "backup", "lag");
+        pendingBackupFlows = createCounter("FlowRuleStore", "backup", "pendingFlows");
+        droppedMessages = createCounter("FlowRuleStore", "messages", "dropped");
+        delayedMessages = createCounter("FlowRuleStore", "messages", "delayed");
+
         // Cache to create SMap on demand
         smaps = CacheBuilder.newBuilder()
                     .softValues()
@@ -179,7 +231,13 @@ public class DistributedFlowRuleStore
 
         final NodeId local = clusterService.getLocalNode().id();
 
-        clusterCommunicator.addSubscriber(APPLY_BATCH_FLOWS, new OnStoreBatch(local));
+        messageHandlingExecutor =
+                newMessageHandlingExecutor(MESSAGE_HANDLER_THREAD_POOL_SIZE,
+                                           "flowstore-message-handlers");
+        flowTableUpdateExecutor = newFlowTableUpdateExecutor("flowstore-update-handlers");
+
+        clusterCommunicator.addSubscriber(APPLY_BATCH_FLOWS, new OnStoreBatch(local),
+                                          flowTableUpdateExecutor);
 
         clusterCommunicator.addSubscriber(GET_FLOW_ENTRY, new ClusterMessageHandler() {
 
@@ -194,7 +252,7 @@ public class DistributedFlowRuleStore
                     log.error("Failed to respond back", e);
                 }
             }
-        });
+        }, messageHandlingExecutor);
 
         clusterCommunicator.addSubscriber(GET_DEVICE_FLOW_ENTRIES, new ClusterMessageHandler() {
 
@@ -209,7 +267,7 @@ public class DistributedFlowRuleStore
                     log.error("Failed to respond to peer's getFlowEntries request", e);
                 }
             }
-        });
+        }, messageHandlingExecutor);
 
         clusterCommunicator.addSubscriber(REMOVE_FLOW_ENTRY, new ClusterMessageHandler() {
 
@@ -224,7 +282,7 @@ public class DistributedFlowRuleStore
                     log.error("Failed to respond back", e);
                 }
             }
-        });
+        }, flowTableUpdateExecutor);
 
         replicaInfoEventListener = new InternalReplicaInfoEventListener();
 
@@ -239,10 +297,57 @@ public class DistributedFlowRuleStore
         clusterCommunicator.removeSubscriber(GET_DEVICE_FLOW_ENTRIES);
         clusterCommunicator.removeSubscriber(GET_FLOW_ENTRY);
         clusterCommunicator.removeSubscriber(APPLY_BATCH_FLOWS);
+        messageHandlingExecutor.shutdown();
+        flowTableUpdateExecutor.shutdown();
         replicaInfoManager.removeListener(replicaInfoEventListener);
         log.info("Stopped");
     }
 
+    // Creates an executor for handling requests from peers, which drops the
+    // requests it has no room for.
+    private ExecutorService newMessageHandlingExecutor(int threads, String name) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                                      new LinkedBlockingQueue<>(MESSAGE_HANDLER_QUEUE_SIZE),
+                                      namedThreads(name),
+                                      (task, executor) -> {
+                                          if (droppedMessages != null) {
+                                              droppedMessages.inc();
+                                          }
+                                          throw new RejectedExecutionException(
+                                                  "Queue of " + name + " is full");
+                                      });
+    }
+
+    // Creates a single threaded executor for handling flow table updates
+    // from peers, which makes the submitter wait for room in its queue
+    // rather than dropping the updates.
+    private ExecutorService newFlowTableUpdateExecutor(String name) {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                                      new LinkedBlockingQueue<>(MESSAGE_HANDLER_QUEUE_SIZE),
+                                      namedThreads(name),
+                                      (task, executor) -> {
+                                          if (executor.isShutdown()) {
+                                              throw new RejectedExecutionException(
+                                                      name + " is shut down");
+                                          }
+                                          if (delayedMessages != null) {
+                                              delayedMessages.inc();
+                                          }
+                                          try {
+                                              executor.getQueue().put(task);
+                                          } catch (InterruptedException e) {
+                                              Thread.currentThread().interrupt();
+                                              throw new RejectedExecutionException(
+                                                      "Interrupted waiting for " + name, e);
+                                          }
+                                      });
+    }
+
+    @Override
+    public MetricsService metricsService() {
+        return metricsService;
+    }
+
 
     // This is not a efficient operation on a distributed sharded
     // flow store. We need to revisit the need for this operation or at least
@@ -289,19 +394,35 @@ public class DistributedFlowRuleStore
     }
 
     private StoredFlowEntry getFlowEntryInternal(FlowRule rule) {
-        flowEntriesLock.readLock().lock();
+        Lock lock = flowTableLocks.get(rule.deviceId()).readLock();
+        lock.lock();
         try {
-            for (StoredFlowEntry f : flowEntries.get(rule.deviceId())) {
+            return findFlowEntry(rule);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Returns the stored entry equal to the given rule; the caller must hold
+    // the lock of the rule's device.
+    private StoredFlowEntry findFlowEntry(FlowRule rule) {
+        List<StoredFlowEntry> rules = flowEntries.get(rule.deviceId());
+        if (rules != null) {
+            for (StoredFlowEntry f : rules) {
                 if (f.equals(rule)) {
                     return f;
                 }
             }
-        } finally {
-            flowEntriesLock.readLock().unlock();
         }
         return null;
     }
 
+    // Returns the mutable list of entries of the given device, creating it
+    // if need be; the caller must hold the write lock of the device.
+    private List<StoredFlowEntry> flowTable(DeviceId deviceId) {
+        return flowEntries.computeIfAbsent(deviceId, id -> new ArrayList<>());
+    }
+
     @Override
     public Iterable<FlowEntry> getFlowEntries(DeviceId deviceId) {
 
@@ -334,7 +455,8 @@ public class DistributedFlowRuleStore
     }
 
     private Set<FlowEntry> getFlowEntriesInternal(DeviceId deviceId) {
-        flowEntriesLock.readLock().lock();
+        Lock lock = flowTableLocks.get(deviceId).readLock();
+        lock.lock();
         try {
             Collection<? extends FlowEntry> rules = flowEntries.get(deviceId);
             if (rules == null) {
@@ -342,7 +464,7 @@ public class DistributedFlowRuleStore
             }
             return ImmutableSet.copyOf(rules);
         } finally {
-            flowEntriesLock.readLock().unlock();
+            lock.unlock();
         }
     }
 
@@ -399,8 +521,18 @@ public class DistributedFlowRuleStore
         final List<FlowRuleBatchEntry> toAdd = new ArrayList<>();
         DeviceId did = null;
 
-
-        flowEntriesLock.writeLock().lock();
+        // lock the tables of all devices in the batch; striped locks are
+        // returned in a consistent order, which avoids dead-locks
+        Set<DeviceId> deviceIds = new HashSet<>();
+        for (FlowRuleBatchEntry batchEntry : operation.getOperations()) {
+            deviceIds.add(batchEntry.getTarget().deviceId());
+        }
+        List<Lock> locks = new ArrayList<>();
+        for (ReadWriteLock rwLock : flowTableLocks.bulkGet(deviceIds)) {
+            Lock lock = rwLock.writeLock();
+            lock.lock();
+            locks.add(lock);
+        }
         try {
             for (FlowRuleBatchEntry batchEntry : operation.getOperations()) {
                 FlowRule flowRule = batchEntry.getTarget();
@@ -409,7 +541,7 @@ public class DistributedFlowRuleStore
                     did = flowRule.deviceId();
                 }
                 if (op.equals(FlowRuleOperation.REMOVE)) {
-                    StoredFlowEntry entry = getFlowEntryInternal(flowRule);
+                    StoredFlowEntry entry = findFlowEntry(flowRule);
                     if (entry != null) {
                         entry.setState(FlowEntryState.PENDING_REMOVE);
                         toRemove.add(batchEntry);
@@ -417,7 +549,7 @@ public class DistributedFlowRuleStore
                 } else if (op.equals(FlowRuleOperation.ADD)) {
                     StoredFlowEntry flowEntry = new DefaultFlowEntry(flowRule);
                     DeviceId deviceId = flowRule.deviceId();
-                    Collection<StoredFlowEntry> ft = flowEntries.get(deviceId);
+                    Collection<StoredFlowEntry> ft = flowTable(deviceId);
 
                     // always add requested FlowRule
                     // Note: 2 equal FlowEntry may have different treatment
@@ -433,7 +565,9 @@ public class DistributedFlowRuleStore
             // create remote backup copies
             updateBackup(did, toAdd, toRemove);
         } finally {
-            flowEntriesLock.writeLock().unlock();
+            for (Lock lock : Lists.reverse(locks)) {
+                lock.unlock();
+            }
         }
 
         SettableFuture<CompletedBatchOperation> r = SettableFuture.create();
@@ -445,19 +579,33 @@ public class DistributedFlowRuleStore
         return r;
     }
 
+    // Records the flows of the given entries as changed, to be written to
+    // the backups along with other changes to the device's flow table; the
+    // caller must hold the write lock of the device.
     private void updateBackup(final DeviceId deviceId,
                               final List<FlowRuleBatchEntry> toAdd,
                               final List<FlowRuleBatchEntry> list) {
 
-        Future<?> submit = backupExecutors.submit(new UpdateBackup(deviceId, toAdd, list));
+        PendingBackup pending =
+                pendingBackups.computeIfAbsent(deviceId, id -> new PendingBackup());
+        int added = pending.add(toAdd) + pending.add(list);
+        if (pendingBackupFlows != null) {
+            pendingBackupFlows.inc(added);
+        }
 
         if (syncBackup) {
-            // wait for backup to complete
+            // take the snapshot while still holding the lock and wait for
+            // the backup to complete
+            pendingBackups.remove(deviceId);
+            BackupDelta delta = snapshot(deviceId, pending);
             try {
-                submit.get();
+                backupExecutors.submit(delta).get();
             } catch (InterruptedException | ExecutionException e) {
                 log.error("Failed to create backups", e);
             }
+        } else if (backupScheduled.compareAndSet(false, true)) {
+            backupExecutors.schedule(this::backupPending,
+                                     BACKUP_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
         }
     }
 
@@ -466,6 +614,60 @@ public class DistributedFlowRuleStore
         updateBackup(deviceId, toAdd, Collections.<FlowRuleBatchEntry>emptyList());
     }
 
+    // Writes the changes accumulated since the last run to the backups.
+    private void backupPending() {
+        backupScheduled.set(false);
+        for (DeviceId deviceId : pendingBackups.keySet()) {
+            BackupDelta delta;
+            Lock lock = flowTableLocks.get(deviceId).readLock();
+            lock.lock();
+            try {
+                PendingBackup pending = pendingBackups.remove(deviceId);
+                if (pending == null) {
+                    continue;
+                }
+                delta = snapshot(deviceId, pending);
+            } finally {
+                lock.unlock();
+            }
+            delta.run();
+        }
+    }
+
+    // Captures the current entries of the changed flows of the device; the
+    // caller must hold the lock of the device.
+    private BackupDelta snapshot(DeviceId deviceId, PendingBackup pending) {
+        List<StoredFlowEntry> rules = flowEntries.get(deviceId);
+        Map<FlowId, List<StoredFlowEntry>> entries = new HashMap<>();
+        for (FlowId flowId : pending.flowIds) {
+            entries.put(flowId, new ArrayList<>());
+        }
+        if (rules != null) {
+            for (StoredFlowEntry rule : rules) {
+                List<StoredFlowEntry> list = entries.get(rule.id());
+                // entries pending removal are no longer backed up
+                if (list != null && rule.state() != FlowEntryState.PENDING_REMOVE) {
+                    list.add(rule);
+                }
+            }
+        }
+
+        // If this node is no longer the master for the device, its
+        // entries are gone and there is nothing to write.
+        Map<FlowId, ImmutableList<StoredFlowEntry>> updates = new HashMap<>();
+        Set<FlowId> removals = new HashSet<>();
+        if (rules != null) {
+            for (Entry<FlowId, List<StoredFlowEntry>> e : entries.entrySet()) {
+                if (e.getValue().isEmpty()) {
+                    removals.add(e.getKey());
+                } else {
+                    updates.put(e.getKey(), ImmutableList.copyOf(e.getValue()));
+                }
+            }
+        }
+        return new BackupDelta(deviceId, pending, updates, removals);
+    }
+
     @Override
     public void deleteFlowRule(FlowRule rule) {
         storeBatch(new FlowRuleBatchOperation(Arrays.asList(new FlowRuleBatchEntry(FlowRuleOperation.REMOVE, rule))));
@@ -487,10 +689,11 @@ public class DistributedFlowRuleStore
     private FlowRuleEvent addOrUpdateFlowRuleInternal(FlowEntry rule) {
         final DeviceId did = rule.deviceId();
 
-        flowEntriesLock.writeLock().lock();
+        Lock lock = flowTableLocks.get(did).writeLock();
+        lock.lock();
         try {
             // check if this new rule is an update to an existing entry
-            StoredFlowEntry stored = getFlowEntryInternal(rule);
+            StoredFlowEntry stored = findFlowEntry(rule);
             if (stored != null) {
                 stored.setBytes(rule.bytes());
                 stored.setLife(rule.life());
@@ -507,9 +710,9 @@ public class DistributedFlowRuleStore
 
             // TODO: Confirm if this behavior is correct. See SimpleFlowRuleStore
             // TODO: also update backup if the behavior is correct.
-            flowEntries.put(did, new DefaultFlowEntry(rule));
+            flowTable(did).add(new DefaultFlowEntry(rule));
         } finally {
-            flowEntriesLock.writeLock().unlock();
+            lock.unlock();
         }
         return null;
 
@@ -551,10 +754,12 @@ public class DistributedFlowRuleStore
 
     private FlowRuleEvent removeFlowRuleInternal(FlowEntry rule) {
         final DeviceId deviceId = rule.deviceId();
-        flowEntriesLock.writeLock().lock();
+        Lock lock = flowTableLocks.get(deviceId).writeLock();
+        lock.lock();
         try {
             // This is where one could mark a rule as removed and still keep it in the store.
-            final boolean removed = flowEntries.remove(deviceId, rule);
+            List<StoredFlowEntry> rules = flowEntries.get(deviceId);
+            final boolean removed = rules != null && rules.remove(rule);
             FlowRuleBatchEntry entry =
                     new FlowRuleBatchEntry(FlowRuleOperation.REMOVE, rule);
             updateBackup(deviceId, Collections.<FlowRuleBatchEntry>emptyList(), Arrays.asList(entry));
@@ -564,7 +769,7 @@ public class DistributedFlowRuleStore
                 return null;
             }
         } finally {
-            flowEntriesLock.writeLock().unlock();
+            lock.unlock();
         }
     }
 
@@ -582,33 +787,36 @@ public class DistributedFlowRuleStore
 
     private void loadFromBackup(final DeviceId did) {
 
-        flowEntriesLock.writeLock().lock();
+        Lock lock = flowTableLocks.get(did).writeLock();
+        lock.lock();
         try {
             log.debug("Loading FlowRules for {} from backups", did);
             SMap<FlowId, ImmutableList<StoredFlowEntry>> backupFlowTable = smaps.get(did);
+            List<StoredFlowEntry> ft = flowTable(did);
             for (Entry<FlowId, ImmutableList<StoredFlowEntry>> e
                     : backupFlowTable.entrySet()) {
 
                 log.trace("loading {}", e.getValue());
                 for (StoredFlowEntry entry : e.getValue()) {
-                    flowEntries.remove(did, entry);
-                    flowEntries.put(did, entry);
+                    ft.remove(entry);
+                    ft.add(entry);
                 }
             }
         } catch (ExecutionException e) {
             log.error("Failed to load backup flowtable for {}", did, e);
         } finally {
-            flowEntriesLock.writeLock().unlock();
+            lock.unlock();
         }
     }
 
     private void removeFromPrimary(final DeviceId did) {
         Collection<StoredFlowEntry> removed = null;
-        flowEntriesLock.writeLock().lock();
+        Lock lock = flowTableLocks.get(did).writeLock();
+        lock.lock();
         try {
-            removed = flowEntries.removeAll(did);
+            removed = flowEntries.remove(did);
         } finally {
-            flowEntriesLock.writeLock().unlock();
+            lock.unlock();
         }
         log.trace("removedFromPrimary {}", removed);
     }
@@ -726,78 +934,64 @@ public class DistributedFlowRuleStore
         }
     }
 
-    // Task to update FlowEntries in backup HZ store
-    // TODO: Should be refactored to contain only one list and not
-    //      toAdd and toRemove
-    private final class UpdateBackup implements Runnable {
+    // Flows of a device changed since its flow table was last backed up
+    private static final class PendingBackup {
+        private final long since = System.currentTimeMillis();
+        private final Set<FlowId> flowIds = new HashSet<>();
+
+        // Adds the flows of the given entries and returns how many of them
+        // were not pending yet.
+        private int add(List<FlowRuleBatchEntry> entries) {
+            int added = 0;
+            for (FlowRuleBatchEntry entry : entries) {
+                if (flowIds.add(entry.getTarget().id())) {
+                    added++;
+                }
+            }
+            return added;
+        }
+    }
+
+    // Task to write the current entries of changed flows to the backup HZ
+    // store in bulk, and remove the flows which no longer have any entries
+    private final class BackupDelta implements Runnable {
 
         private final DeviceId deviceId;
-        private final List<FlowRuleBatchEntry> toAdd;
-        private final List<FlowRuleBatchEntry> toRemove;
+        private final PendingBackup pending;
+        private final Map<FlowId, ImmutableList<StoredFlowEntry>> updates;
+        private final Set<FlowId> removals;
 
-        public UpdateBackup(DeviceId deviceId,
-                             List<FlowRuleBatchEntry> toAdd,
-                             List<FlowRuleBatchEntry> list) {
+        private BackupDelta(DeviceId deviceId, PendingBackup pending,
+                            Map<FlowId, ImmutableList<StoredFlowEntry>> updates,
+                            Set<FlowId> removals) {
             this.deviceId = checkNotNull(deviceId);
-            this.toAdd = checkNotNull(toAdd);
-            this.toRemove = checkNotNull(list);
+            this.pending = checkNotNull(pending);
+            this.updates = checkNotNull(updates);
+            this.removals = checkNotNull(removals);
         }
 
         @Override
         public void run() {
             try {
-                log.trace("update backup {} +{} -{}", deviceId, toAdd, toRemove);
+                log.trace("update backup {} +{} -{}", deviceId, updates, removals);
                 final SMap<FlowId, ImmutableList<StoredFlowEntry>> backupFlowTable = smaps.get(deviceId);
-                // Following should be rewritten using async APIs
-                for (FlowRuleBatchEntry bEntry : toAdd) {
-                    final FlowRule entry = bEntry.getTarget();
-                    final FlowId id = entry.id();
-                    ImmutableList<StoredFlowEntry> original = backupFlowTable.get(id);
-                    List<StoredFlowEntry> list = new ArrayList<>();
-                    if (original != null) {
-                        list.addAll(original);
-                    }
-
-                    list.remove(bEntry.getTarget());
-                    list.add((StoredFlowEntry) entry);
-
-                    ImmutableList<StoredFlowEntry> newValue = ImmutableList.copyOf(list);
-                    boolean success;
-                    if (original == null) {
-                        success = (backupFlowTable.putIfAbsent(id, newValue) == null);
-                    } else {
-                        success = backupFlowTable.replace(id, original, newValue);
-                    }
-                    if (!success) {
-                        log.error("Updating backup failed.");
-                    }
+                if (!updates.isEmpty()) {
+                    backupFlowTable.putAll(updates);
                 }
-                for (FlowRuleBatchEntry bEntry : toRemove) {
-                    final FlowRule entry = bEntry.getTarget();
-                    final FlowId id = entry.id();
-                    ImmutableList<StoredFlowEntry> original = backupFlowTable.get(id);
-                    List<StoredFlowEntry> list = new ArrayList<>();
-                    if (original != null) {
-                        list.addAll(original);
-                    }
-
-                    list.remove(bEntry.getTarget());
-
-                    ImmutableList<StoredFlowEntry> newValue = ImmutableList.copyOf(list);
-                    boolean success;
-                    if (original == null) {
-                        success = (backupFlowTable.putIfAbsent(id, newValue) == null);
-                    } else {
-                        success = backupFlowTable.replace(id, original, newValue);
-                    }
-                    if (!success) {
-                        log.error("Updating backup failed.");
-                    }
+                for (FlowId id : removals) {
+                    backupFlowTable.delete(id);
                 }
             } catch (ExecutionException e) {
                 log.error("Failed to write to backups", e);
+            } finally {
+                if (pendingBackupFlows != null) {
+                    pendingBackupFlows.dec(pending.flowIds.size());
+                }
+                if (backupLag != null) {
+                    backupLag.update(System.currentTimeMillis() - pending.since,
+                                     TimeUnit.MILLISECONDS);
+                }
             }
-
         }
     }
 }
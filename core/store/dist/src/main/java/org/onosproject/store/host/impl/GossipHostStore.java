@@ -30,10 +30,12 @@ import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -63,6 +65,7 @@ import org.onosproject.net.host.HostDescription;
 import org.onosproject.net.host.HostEvent;
 import org.onosproject.net.host.HostStore;
 import org.onosproject.net.host.HostStoreDelegate;
+import org.onosproject.net.host.InterfaceIpAddress;
 import org.onosproject.net.host.PortAddresses;
 import org.onosproject.net.provider.ProviderId;
 import org.onosproject.store.AbstractStore;
@@ -77,6 +80,7 @@ import org.onosproject.store.serializers.impl.DistributedStoreSerializers;
 import org.onlab.packet.IpAddress;
 import org.onlab.packet.MacAddress;
 import org.onlab.packet.VlanId;
+import org.onlab.util.IpPrefixTrie;
 import org.onlab.util.KryoNamespace;
 import org.slf4j.Logger;
 
@@ -84,9 +88,9 @@ import com.google.common.collect.FluentIterable;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
 
 /**
  * Manages inventory of end-station hosts in distributed data store
@@ -108,13 +112,22 @@ public class GossipHostStore
 
     private final Map<HostId, Timestamped<Host>> removedHosts = new ConcurrentHashMap<>(hostsExpected, 0.75f, 16);
 
-    // Hosts tracked by their location
-    private final Multimap<ConnectPoint, Host> locations = HashMultimap.create();
+    // Hosts indexed by their location, device, MAC, VLAN and IP addresses;
+    // kept up to date as hosts are added, updated, moved and removed
+    private final ConcurrentMap<ConnectPoint, Set<HostId>> locations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<DeviceId, Set<HostId>> devices = new ConcurrentHashMap<>();
+    private final ConcurrentMap<MacAddress, Set<HostId>> macs = new ConcurrentHashMap<>();
+    private final ConcurrentMap<VlanId, Set<HostId>> vlans = new ConcurrentHashMap<>();
+    private final ConcurrentMap<IpAddress, Set<HostId>> ips = new ConcurrentHashMap<>();
 
     private final SetMultimap<ConnectPoint, PortAddresses> portAddresses =
             Multimaps.synchronizedSetMultimap(
                     HashMultimap.<ConnectPoint, PortAddresses>create());
 
+    // Address bindings indexed by the subnets of their interface addresses;
+    // updated along with the port addresses, while holding their lock
+    private final IpPrefixTrie<Set<PortAddresses>> subnets = new IpPrefixTrie<>();
+
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected HostClockService hostClockService;
 
@@ -184,6 +197,10 @@ public class GossipHostStore
         hosts.clear();
         removedHosts.clear();
         locations.clear();
+        devices.clear();
+        macs.clear();
+        vlans.clear();
+        ips.clear();
         portAddresses.clear();
 
         log.info("Stopped");
@@ -235,7 +252,7 @@ public class GossipHostStore
                     new Timestamped<>(descr.location(), timestamp),
                     ImmutableSet.copyOf(descr.ipAddress()));
             hosts.put(hostId, newhost);
-            locations.put(descr.location(), newhost);
+            index(newhost);
             return new HostEvent(HOST_ADDED, newhost);
         }
     }
@@ -245,7 +262,11 @@ public class GossipHostStore
                                  HostDescription descr, Timestamp timestamp) {
         HostEvent event;
         if (!host.location.isNewer(timestamp) && !host.location().equals(descr.location())) {
-            host.setLocation(new Timestamped<>(descr.location(), timestamp));
+            synchronized (this) {
+                unindex(host);
+                host.setLocation(new Timestamped<>(descr.location(), timestamp));
+                index(host);
+            }
             return new HostEvent(HOST_MOVED, host);
         }
 
@@ -265,8 +286,8 @@ public class GossipHostStore
         event = new HostEvent(HOST_UPDATED, updated);
         synchronized (this) {
             hosts.put(host.id(), updated);
-            locations.remove(host.location(), host);
-            locations.put(updated.location(), updated);
+            unindex(host);
+            index(updated);
         }
         return event;
     }
@@ -290,7 +311,7 @@ public class GossipHostStore
         synchronized (this) {
             Host host = hosts.remove(hostId);
             if (host != null) {
-                locations.remove((host.location()), host);
+                unindex(host);
                 removedHosts.put(hostId, new Timestamped<>(host, timestamp));
                 return new HostEvent(HOST_REMOVED, host);
             }
@@ -315,66 +336,106 @@ public class GossipHostStore
 
     @Override
     public Set<Host> getHosts(VlanId vlanId) {
-        Set<Host> vlanset = new HashSet<>();
-        for (Host h : hosts.values()) {
-            if (h.vlan().equals(vlanId)) {
-                vlanset.add(h);
-            }
-        }
-        return vlanset;
+        return lookup(vlans, vlanId);
     }
 
     @Override
     public Set<Host> getHosts(MacAddress mac) {
-        Set<Host> macset = new HashSet<>();
-        for (Host h : hosts.values()) {
-            if (h.mac().equals(mac)) {
-                macset.add(h);
-            }
-        }
-        return macset;
+        return lookup(macs, mac);
     }
 
     @Override
     public Set<Host> getHosts(IpAddress ip) {
-        Set<Host> ipset = new HashSet<>();
-        for (Host h : hosts.values()) {
-            if (h.ipAddresses().contains(ip)) {
-                ipset.add(h);
-            }
-        }
-        return ipset;
+        return lookup(ips, ip);
     }
 
     @Override
     public Set<Host> getConnectedHosts(ConnectPoint connectPoint) {
-        return ImmutableSet.copyOf(locations.get(connectPoint));
+        return lookup(locations, connectPoint);
     }
 
     @Override
     public Set<Host> getConnectedHosts(DeviceId deviceId) {
-        Set<Host> hostset = new HashSet<>();
-        for (ConnectPoint p : locations.keySet()) {
-            if (p.deviceId().equals(deviceId)) {
-                hostset.addAll(locations.get(p));
+        return lookup(devices, deviceId);
+    }
+
+    // Adds the host to the indexes; to be invoked while synchronized
+    private void index(Host host) {
+        index(locations, host.location(), host.id());
+        index(devices, host.location().deviceId(), host.id());
+        index(macs, host.mac(), host.id());
+        index(vlans, host.vlan(), host.id());
+        for (IpAddress ip : host.ipAddresses()) {
+            index(ips, ip, host.id());
+        }
+    }
+
+    // Removes the host from the indexes; to be invoked while synchronized
+    private void unindex(Host host) {
+        unindex(locations, host.location(), host.id());
+        unindex(devices, host.location().deviceId(), host.id());
+        unindex(macs, host.mac(), host.id());
+        unindex(vlans, host.vlan(), host.id());
+        for (IpAddress ip : host.ipAddresses()) {
+            unindex(ips, ip, host.id());
+        }
+    }
+
+    private static <K> void index(ConcurrentMap<K, Set<HostId>> index, K key, HostId hostId) {
+        index.compute(key, (k, ids) -> {
+            Set<HostId> updated = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+            updated.add(hostId);
+            return updated;
+        });
+    }
+
+    private static <K> void unindex(ConcurrentMap<K, Set<HostId>> index, K key, HostId hostId) {
+        index.computeIfPresent(key, (k, ids) -> {
+            ids.remove(hostId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private <K> Set<Host> lookup(ConcurrentMap<K, Set<HostId>> index, K key) {
+        Set<HostId> ids = index.get(key);
+        if (ids == null) {
+            return Collections.emptySet();
+        }
+        ImmutableSet.Builder<Host> found = ImmutableSet.builder();
+        for (HostId id : ids) {
+            Host host = hosts.get(id);
+            if (host != null) {
+                found.add(host);
             }
         }
-        return hostset;
+        return found.build();
     }
 
     @Override
     public void updateAddressBindings(PortAddresses addresses) {
-        portAddresses.put(addresses.connectPoint(), addresses);
+        synchronized (portAddresses) {
+            if (portAddresses.put(addresses.connectPoint(), addresses)) {
+                indexSubnets(addresses);
+            }
+        }
     }
 
     @Override
     public void removeAddressBindings(PortAddresses addresses) {
-        portAddresses.remove(addresses.connectPoint(), addresses);
+        synchronized (portAddresses) {
+            if (portAddresses.remove(addresses.connectPoint(), addresses)) {
+                unindexSubnets(addresses);
+            }
+        }
     }
 
     @Override
     public void clearAddressBindings(ConnectPoint connectPoint) {
-        portAddresses.removeAll(connectPoint);
+        synchronized (portAddresses) {
+            for (PortAddresses addresses : portAddresses.removeAll(connectPoint)) {
+                unindexSubnets(addresses);
+            }
+        }
     }
 
     @Override
@@ -397,6 +458,43 @@ public class GossipHostStore
         }
     }
 
+    @Override
+    public Set<PortAddresses> getAddressBindingsForSubnet(IpAddress ip) {
+        List<Set<PortAddresses>> bindings = subnets.getValuesCovering(ip);
+        if (bindings.size() == 1) {
+            return bindings.get(0);
+        }
+        ImmutableSet.Builder<PortAddresses> addresses = ImmutableSet.builder();
+        for (Set<PortAddresses> bound : bindings) {
+            addresses.addAll(bound);
+        }
+        return addresses.build();
+    }
+
+    private void indexSubnets(PortAddresses addresses) {
+        for (InterfaceIpAddress ia : addresses.ipAddresses()) {
+            Set<PortAddresses> bound = subnets.get(ia.subnetAddress());
+            subnets.put(ia.subnetAddress(), bound == null ? ImmutableSet.of(addresses) :
+                    ImmutableSet.<PortAddresses>builder().addAll(bound).add(addresses).build());
+        }
+    }
+
+    private void unindexSubnets(PortAddresses addresses) {
+        for (InterfaceIpAddress ia : addresses.ipAddresses()) {
+            Set<PortAddresses> bound = subnets.get(ia.subnetAddress());
+            if (bound == null) {
+                continue;
+            }
+            Set<PortAddresses> remaining =
+                    Sets.difference(bound, ImmutableSet.of(addresses)).immutableCopy();
+            if (remaining.isEmpty()) {
+                subnets.remove(ia.subnetAddress());
+            } else {
+                subnets.put(ia.subnetAddress(), remaining);
+            }
+        }
+    }
+
     // Auxiliary extension to allow location to mutate.
     private static final class StoredHost extends DefaultHost {
         private Timestamped<HostLocation> location;
@@ -16,12 +16,16 @@
 package org.onosproject.store.resource.impl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
@@ -33,6 +37,8 @@ import org.onosproject.net.AnnotationKeys;
 import org.onosproject.net.Link;
 import org.onosproject.net.LinkKey;
 import org.onosproject.net.intent.IntentId;
+import org.onosproject.net.link.LinkEvent;
+import org.onosproject.net.link.LinkListener;
 import org.onosproject.net.link.LinkService;
 import org.onosproject.net.resource.Bandwidth;
 import org.onosproject.net.resource.BandwidthResourceAllocation;
@@ -89,6 +95,10 @@ public class DistributedLinkResourceStore implements LinkResourceStore {
 
     private static final Bandwidth EMPTY_BW = Bandwidth.valueOf(0);
 
+    // Maximum age of an index entry before it is re-read from the database,
+    // bounding how long allocations made by other instances go unnoticed
+    private static final long INDEX_REFRESH_MILLIS = 1000;
+
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected DatabaseAdminService databaseAdminService;
 
@@ -105,6 +115,17 @@ public class DistributedLinkResourceStore implements LinkResourceStore {
 
     private StoreSerializer serializer;
 
+    // Local index of the allocations on each link, along with the resources
+    // they use; updated by the writes of this instance and purged of the
+    // links removed from the topology
+    private final ConcurrentMap<LinkKey, LinkAllocations> linkIndex =
+            new ConcurrentHashMap<>();
+
+    private final LinkListener linkListener = new InternalLinkListener();
+
+    // Number of indexed links on which each lambda is allocated; updated
+    // along with the index, while holding the store lock
+    private int[] lambdaUsage = new int[0];
 
     void createTable(String tableName) {
         boolean tableReady = false;
@@ -133,11 +154,15 @@ public class DistributedLinkResourceStore implements LinkResourceStore {
         createTable(LINK_RESOURCE_ALLOCATIONS);
         createTable(INTENT_ALLOCATIONS);
 
+        linkService.addListener(linkListener);
+
         log.info("Started");
     }
 
     @Deactivate
     public void deactivate() {
+        linkService.removeListener(linkListener);
+        clearIndex();
         log.info("Stopped");
     }
 
@@ -145,23 +170,18 @@ public class DistributedLinkResourceStore implements LinkResourceStore {
         if (type == ResourceType.BANDWIDTH) {
             return ImmutableSet.of(getBandwidthResourceCapacity(link));
         }
-        if (type == ResourceType.LAMBDA) {
-            return getLambdaResourceCapacity(link);
-        }
         return null;
     }
 
-    private Set<LambdaResourceAllocation> getLambdaResourceCapacity(Link link) {
-        Set<LambdaResourceAllocation> allocations = new HashSet<>();
+    private BitSet getLambdaResourceCapacity(Link link) {
+        BitSet lambdas = new BitSet();
         try {
             final int waves = Integer.parseInt(link.annotations().value(wavesAnnotation));
-            for (int i = 1; i <= waves; i++) {
-                allocations.add(new LambdaResourceAllocation(Lambda.valueOf(i)));
-            }
+            lambdas.set(1, waves + 1);
         } catch (NumberFormatException e) {
-            log.debug("No {} annotation on link %s", wavesAnnotation, link);
+            log.debug("No {} annotation on link {}", wavesAnnotation, link);
         }
-        return allocations;
+        return lambdas;
     }
 
     private BandwidthResourceAllocation getBandwidthResourceCapacity(Link link) {
@@ -200,7 +220,8 @@ public class DistributedLinkResourceStore implements LinkResourceStore {
 
     @Override
     public Set<ResourceAllocation> getFreeResources(Link link) {
-        Map<ResourceType, Set<? extends ResourceAllocation>> freeResources = getFreeResourcesEx(link);
+        Map<ResourceType, Set<? extends ResourceAllocation>> freeResources =
+                getFreeResourcesEx(link, linkAllocations(link));
         Set<ResourceAllocation> allFree = new HashSet<>();
         for (Set<? extends ResourceAllocation> r:freeResources.values()) {
             allFree.addAll(r);
@@ -208,13 +229,30 @@ public class DistributedLinkResourceStore implements LinkResourceStore {
         return allFree;
     }
 
-    private Map<ResourceType, Set<? extends ResourceAllocation>> getFreeResourcesEx(Link link) {
+    @Override
+    public BitSet getFreeLambdas(Link link) {
+        checkNotNull(link);
+        return getFreeLambdas(link, linkAllocations(link));
+    }
+
+    private BitSet getFreeLambdas(Link link, LinkAllocations allocated) {
+        BitSet free = getLambdaResourceCapacity(link);
+        free.andNot(allocated.lambdas);
+        return free;
+    }
+
+    @Override
+    public synchronized int[] getLambdaUsage() {
+        return lambdaUsage.clone();
+    }
+
+    private Map<ResourceType, Set<? extends ResourceAllocation>> getFreeResourcesEx(Link link,
+                                                                         LinkAllocations allocated) {
         // returns capacity - allocated
 
         checkNotNull(link);
         Map<ResourceType, Set<? extends ResourceAllocation>> free = new HashMap<>();
         final Map<ResourceType, Set<? extends ResourceAllocation>> caps = getResourceCapacity(link);
-        final Iterable<LinkResourceAllocations> allocations = getAllocations(link);
 
         for (ResourceType type : ResourceType.values()) {
             // there should be class/category of resources
@@ -227,18 +265,7 @@ public class DistributedLinkResourceStore implements LinkResourceStore {
                 }
 
                 BandwidthResourceAllocation cap = (BandwidthResourceAllocation) bw.iterator().next();
-                double freeBw = cap.bandwidth().toDouble();
-
-                // enumerate current allocations, subtracting resources
-                for (LinkResourceAllocations alloc : allocations) {
-                    Set<ResourceAllocation> types = alloc.getResourceAllocation(link);
-                    for (ResourceAllocation a : types) {
-                        if (a instanceof BandwidthResourceAllocation) {
-                            BandwidthResourceAllocation bwA = (BandwidthResourceAllocation) a;
-                            freeBw -= bwA.bandwidth().toDouble();
-                        }
-                    }
-                }
+                double freeBw = cap.bandwidth().toDouble() - allocated.bandwidth;
 
                 free.put(type, Sets.newHashSet(new BandwidthResourceAllocation(Bandwidth.valueOf(freeBw))));
                 break;
@@ -246,26 +273,14 @@ public class DistributedLinkResourceStore implements LinkResourceStore {
 
             case LAMBDA:
             {
-                Set<? extends ResourceAllocation> lmd = caps.get(type);
-                if (lmd == null || lmd.isEmpty()) {
+                BitSet lambdas = getFreeLambdas(link, allocated);
+                if (lambdas.isEmpty()) {
                     // nothing left
                     break;
                 }
                 Set<LambdaResourceAllocation> freeL = new HashSet<>();
-                for (ResourceAllocation r : lmd) {
-                    if (r instanceof LambdaResourceAllocation) {
-                        freeL.add((LambdaResourceAllocation) r);
-                    }
-                }
-
-                // enumerate current allocations, removing resources
-                for (LinkResourceAllocations alloc : allocations) {
-                    Set<ResourceAllocation> types = alloc.getResourceAllocation(link);
-                    for (ResourceAllocation a : types) {
-                        if (a instanceof LambdaResourceAllocation) {
-                            freeL.remove(a);
-                        }
-                    }
+                for (int i = lambdas.nextSetBit(0); i >= 0; i = lambdas.nextSetBit(i + 1)) {
+                    freeL.add(new LambdaResourceAllocation(Lambda.valueOf(i)));
                 }
 
                 free.put(type, freeL);
@@ -301,26 +316,43 @@ public class DistributedLinkResourceStore implements LinkResourceStore {
     public void allocateResources(LinkResourceAllocations allocations) {
         checkNotNull(allocations);
 
-        Builder tx = BatchWriteRequest.newBuilder();
+        // Allocations are checked against the local index; should it turn
+        // out to be stale, the check or the conditional write fails and the
+        // allocation is retried once with entries re-read from the database.
+        for (int attempt = 0;; attempt++) {
+            Builder tx = BatchWriteRequest.newBuilder();
+            Map<LinkKey, LinkAllocations> updates = new HashMap<>();
 
-        // TODO: Should IntentId -> Allocation be updated conditionally?
-        putIntentAllocations(tx, allocations.intendId(), allocations);
+            // TODO: Should IntentId -> Allocation be updated conditionally?
+            putIntentAllocations(tx, allocations.intendId(), allocations);
 
-        for (Link link : allocations.links()) {
-            allocateLinkResource(tx, link, allocations);
-        }
+            try {
+                for (Link link : allocations.links()) {
+                    allocateLinkResource(tx, link, allocations, updates);
+                }
+            } catch (IllegalStateException e) {
+                if (attempt > 0) {
+                    throw e;
+                }
+                invalidate(allocations.links());
+                continue;
+            }
 
-        BatchWriteRequest batch = tx.build();
-//        log.info("Intent: {}", databaseService.getAll(INTENT_ALLOCATIONS));
-//        log.info("Link: {}", databaseService.getAll(LINK_RESOURCE_ALLOCATIONS));
+            BatchWriteRequest batch = tx.build();
+            BatchWriteResult result = databaseService.batchWrite(batch);
+            if (result.isSuccessful()) {
+                index(updates);
+                return;
+            }
 
-        BatchWriteResult result = databaseService.batchWrite(batch);
-        if (!result.isSuccessful()) {
-            log.error("Allocation Failed.");
-            if (log.isDebugEnabled()) {
-                logFailureDetail(batch, result);
+            invalidate(allocations.links());
+            if (attempt > 0) {
+                log.error("Allocation Failed.");
+                if (log.isDebugEnabled()) {
+                    logFailureDetail(batch, result);
+                }
+                checkState(result.isSuccessful(), "Allocation failed");
             }
-            checkState(result.isSuccessful(), "Allocation failed");
         }
     }
 
@@ -366,23 +398,19 @@ public class DistributedLinkResourceStore implements LinkResourceStore {
     }
 
     private Builder allocateLinkResource(Builder builder, Link link,
-                                         LinkResourceAllocations allocations) {
+                                         LinkResourceAllocations allocations,
+                                         Map<LinkKey, LinkAllocations> updates) {
 
         // requested resources
         Set<ResourceAllocation> reqs = allocations.getResourceAllocation(link);
 
-        Map<ResourceType, Set<? extends ResourceAllocation>> available = getFreeResourcesEx(link);
+        final LinkAllocations before = linkAllocations(link);
+        BitSet freeLambdas = null;
         for (ResourceAllocation req : reqs) {
-            Set<? extends ResourceAllocation> avail = available.get(req.type());
             if (req instanceof BandwidthResourceAllocation) {
                 // check if allocation should be accepted
-                if (avail.isEmpty()) {
-                    checkState(!avail.isEmpty(),
-                               "There's no Bandwidth resource on %s?",
-                               link);
-                }
-                BandwidthResourceAllocation bw = (BandwidthResourceAllocation) avail.iterator().next();
-                double bwLeft = bw.bandwidth().toDouble();
+                double bwLeft = getBandwidthResourceCapacity(link).bandwidth().toDouble()
+                        - before.bandwidth;
                 bwLeft -= ((BandwidthResourceAllocation) req).bandwidth().toDouble();
                 if (bwLeft < 0) {
                     checkState(bwLeft >= 0,
@@ -390,32 +418,36 @@ public class DistributedLinkResourceStore implements LinkResourceStore {
                                link, bwLeft);
                 }
             } else if (req instanceof LambdaResourceAllocation) {
-
+                if (freeLambdas == null) {
+                    freeLambdas = getFreeLambdas(link, before);
+                }
                 // check if allocation should be accepted
-                if (!avail.contains(req)) {
+                int lambda = ((LambdaResourceAllocation) req).lambda().toInt();
+                if (!freeLambdas.get(lambda)) {
                     // requested lambda was not available
-                    checkState(avail.contains(req),
+                    checkState(freeLambdas.get(lambda),
                                "Allocating %s on %s failed",
                                req, link);
                 }
             }
         }
         // all requests allocatable => add allocation
-        final List<LinkResourceAllocations> before = getAllocations(link);
-        List<LinkResourceAllocations> after = new ArrayList<>(before.size());
-        after.addAll(before);
+        List<LinkResourceAllocations> after = new ArrayList<>(before.allocations.size() + 1);
+        after.addAll(before.allocations);
         after.add(allocations);
-        replaceLinkAllocations(builder, LinkKey.linkKey(link), before, after);
+        replaceLinkAllocations(builder, link, before, after, updates);
         return builder;
     }
 
-    private Builder replaceLinkAllocations(Builder builder, LinkKey linkKey,
-                                           List<LinkResourceAllocations> before,
-                                           List<LinkResourceAllocations> after) {
+    private Builder replaceLinkAllocations(Builder builder, Link link,
+                                           LinkAllocations before,
+                                           List<LinkResourceAllocations> after,
+                                           Map<LinkKey, LinkAllocations> updates) {
 
-        byte[] oldValue = encodeLinkAllocations(before);
+        final LinkKey linkKey = LinkKey.linkKey(link);
         byte[] newValue = encodeLinkAllocations(after);
-        builder.putIfValueMatches(LINK_RESOURCE_ALLOCATIONS, toLinkDbKey(linkKey), oldValue, newValue);
+        builder.putIfValueMatches(LINK_RESOURCE_ALLOCATIONS, toLinkDbKey(linkKey), before.value, newValue);
+        updates.put(linkKey, new LinkAllocations(link, after, newValue));
         return builder;
     }
 
@@ -430,29 +462,34 @@ public class DistributedLinkResourceStore implements LinkResourceStore {
         boolean success;
         do {
             Builder tx = BatchWriteRequest.newBuilder();
+            Map<LinkKey, LinkAllocations> updates = new HashMap<>();
 
             // TODO: Should IntentId -> Allocation be updated conditionally?
             tx.remove(INTENT_ALLOCATIONS, dbIntentId);
 
             for (Link link : links) {
                 final LinkKey linkId = LinkKey.linkKey(link);
-                final String dbLinkId = toLinkDbKey(linkId);
-                VersionedValue vv = databaseService.get(LINK_RESOURCE_ALLOCATIONS, dbLinkId);
-                if (vv == null || vv.value() == null) {
+                final LinkAllocations before = linkAllocations(link);
+                if (before.allocations.isEmpty()) {
                     // something is wrong, but it is already freed
                     log.warn("There was no resource left to release on {}", linkId);
                     continue;
                 }
-                List<LinkResourceAllocations> before = decodeLinkAllocations(vv.value());
-                List<LinkResourceAllocations> after = new ArrayList<>(before);
-                after.remove(allocations);
-                byte[] oldValue = encodeLinkAllocations(before);
-                byte[] newValue = encodeLinkAllocations(after);
-                tx.putIfValueMatches(LINK_RESOURCE_ALLOCATIONS, dbLinkId, oldValue, newValue);
+                // allocations read from the database are copies, so they
+                // are matched by intent
+                List<LinkResourceAllocations> after = new ArrayList<>(before.allocations);
+                after.removeIf(a -> intendId.equals(a.intendId()));
+                replaceLinkAllocations(tx, link, before, after, updates);
             }
 
             BatchWriteResult batchWrite = databaseService.batchWrite(tx.build());
             success = batchWrite.isSuccessful();
+            if (success) {
+                index(updates);
+            } else {
+                // re-read the allocations changed by another instance
+                invalidate(links);
+            }
         } while (!success);
 
         // Issue events to force recompilation of intents.
@@ -531,7 +568,17 @@ public class DistributedLinkResourceStore implements LinkResourceStore {
     @Override
     public List<LinkResourceAllocations> getAllocations(Link link) {
         checkNotNull(link);
+        return new ArrayList<>(linkAllocations(link).allocations);
+    }
+
+    // Returns the allocations on the link from the local index, reading them
+    // from the database if they are not indexed yet or have grown stale.
+    private LinkAllocations linkAllocations(Link link) {
         final LinkKey key = LinkKey.linkKey(link);
+        LinkAllocations indexed = linkIndex.get(key);
+        if (indexed != null && !indexed.isStale()) {
+            return indexed;
+        }
         final String dbKey = toLinkDbKey(key);
         VersionedValue vv = databaseService.get(LINK_RESOURCE_ALLOCATIONS, dbKey);
         if (vv == null) {
@@ -542,12 +589,48 @@ public class DistributedLinkResourceStore implements LinkResourceStore {
             vv = databaseService.get(LINK_RESOURCE_ALLOCATIONS, dbKey);
             if (vv == null) {
                 log.error("Failed to re-read allocation for {}", dbKey);
-                // note: cannot be Collections.emptyList();
-                return new ArrayList<>();
+                return new LinkAllocations(link, new ArrayList<>(), emptyList);
             }
         }
-        List<LinkResourceAllocations> allocations = decodeLinkAllocations(vv.value());
-        return allocations;
+        LinkAllocations loaded = new LinkAllocations(link, decodeLinkAllocations(vv.value()), vv.value());
+        index(key, loaded);
+        return loaded;
+    }
+
+    private void invalidate(Collection<Link> links) {
+        for (Link link : links) {
+            index(LinkKey.linkKey(link), null);
+        }
+    }
+
+    private synchronized void index(Map<LinkKey, LinkAllocations> updates) {
+        updates.forEach(this::index);
+    }
+
+    // Replaces the index entry of a link, or removes it if the new entry is
+    // null, updating the lambda usage accordingly.
+    private synchronized void index(LinkKey key, LinkAllocations entry) {
+        LinkAllocations old = entry == null ? linkIndex.remove(key) : linkIndex.put(key, entry);
+        if (old != null) {
+            countLambdas(old.lambdas, -1);
+        }
+        if (entry != null) {
+            countLambdas(entry.lambdas, 1);
+        }
+    }
+
+    private synchronized void clearIndex() {
+        linkIndex.clear();
+        lambdaUsage = new int[0];
+    }
+
+    private void countLambdas(BitSet lambdas, int delta) {
+        for (int i = lambdas.nextSetBit(0); i >= 0; i = lambdas.nextSetBit(i + 1)) {
+            if (i >= lambdaUsage.length) {
+                lambdaUsage = Arrays.copyOf(lambdaUsage, i + 1);
+            }
+            lambdaUsage[i] += delta;
+        }
     }
 
     @Override
@@ -568,4 +651,45 @@ public class DistributedLinkResourceStore implements LinkResourceStore {
             })
             .filter(notNull());
     }
+
+    // Drops the index entries of the links removed from the topology.
+    private class InternalLinkListener implements LinkListener {
+        @Override
+        public void event(LinkEvent event) {
+            if (event.type() == LinkEvent.Type.LINK_REMOVED) {
+                index(LinkKey.linkKey(event.subject()), null);
+            }
+        }
+    }
+
+    // Allocations on a link as last written to the database, along with the
+    // bandwidth and lambdas they use.
+    private static final class LinkAllocations {
+        private final List<LinkResourceAllocations> allocations;
+        private final byte[] value;
+        private final double bandwidth;
+        private final BitSet lambdas = new BitSet();
+        private final long loadedMillis = System.currentTimeMillis();
+
+        private LinkAllocations(Link link, List<LinkResourceAllocations> allocations,
+                                byte[] value) {
+            this.allocations = ImmutableList.copyOf(allocations);
+            this.value = value;
+            double bw = 0;
+            for (LinkResourceAllocations alloc : allocations) {
+                for (ResourceAllocation a : alloc.getResourceAllocation(link)) {
+                    if (a instanceof BandwidthResourceAllocation) {
+                        bw += ((BandwidthResourceAllocation) a).bandwidth().toDouble();
+                    } else if (a instanceof LambdaResourceAllocation) {
+                        lambdas.set(((LambdaResourceAllocation) a).lambda().toInt());
+                    }
+                }
+            }
+            this.bandwidth = bw;
+        }
+
+        private boolean isStale() {
+            return System.currentTimeMillis() - loadedMillis > INDEX_REFRESH_MILLIS;
+        }
+    }
 }
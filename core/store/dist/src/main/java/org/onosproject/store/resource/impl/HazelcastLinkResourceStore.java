@@ -16,6 +16,8 @@
 package org.onosproject.store.resource.impl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -87,6 +89,9 @@ public class HazelcastLinkResourceStore
     /** IntentId -> LinkResourceAllocations. */
     private static final String INTENT_ALLOCATIONS = "IntentAllocations";
 
+    /** Lambda number -> number of links on which it is allocated. */
+    private static final String LAMBDA_USAGE = "LambdaUsage";
+
 
     // TODO make this configurable
     // number of retries to attempt on allocation failure, due to
@@ -114,6 +119,9 @@ public class HazelcastLinkResourceStore
         MapConfig intentCfg = config.getMapConfig(INTENT_ALLOCATIONS);
         intentCfg.setAsyncBackupCount(MapConfig.MAX_BACKUP_COUNT - intentCfg.getBackupCount());
 
+        MapConfig usageCfg = config.getMapConfig(LAMBDA_USAGE);
+        usageCfg.setAsyncBackupCount(MapConfig.MAX_BACKUP_COUNT - usageCfg.getBackupCount());
+
         log.info("Started");
     }
 
@@ -132,27 +140,27 @@ public class HazelcastLinkResourceStore
         return new STxMap<>(raw, serializer);
     }
 
+    private STxMap<Integer, Integer> getLambdaUsage(TransactionContext tx) {
+        TransactionalMap<byte[], byte[]> raw = tx.getMap(LAMBDA_USAGE);
+        return new STxMap<>(raw, serializer);
+    }
+
     private Set<? extends ResourceAllocation> getResourceCapacity(ResourceType type, Link link) {
         if (type == ResourceType.BANDWIDTH) {
             return ImmutableSet.of(getBandwidthResourceCapacity(link));
         }
-        if (type == ResourceType.LAMBDA) {
-            return getLambdaResourceCapacity(link);
-        }
         return null;
     }
 
-    private Set<LambdaResourceAllocation> getLambdaResourceCapacity(Link link) {
-        Set<LambdaResourceAllocation> allocations = new HashSet<>();
+    private BitSet getLambdaResourceCapacity(Link link) {
+        BitSet lambdas = new BitSet();
         try {
             final int waves = Integer.parseInt(link.annotations().value(wavesAnnotation));
-            for (int i = 1; i <= waves; i++) {
-                allocations.add(new LambdaResourceAllocation(Lambda.valueOf(i)));
-            }
+            lambdas.set(1, waves + 1);
         } catch (NumberFormatException e) {
-            log.debug("No {} annotation on link %s", wavesAnnotation, link);
+            log.debug("No {} annotation on link {}", wavesAnnotation, link);
         }
-        return allocations;
+        return lambdas;
     }
 
     private BandwidthResourceAllocation getBandwidthResourceCapacity(Link link) {
@@ -209,6 +217,102 @@ public class HazelcastLinkResourceStore
 
     }
 
+    @Override
+    public BitSet getFreeLambdas(Link link) {
+        checkNotNull(link);
+        TransactionOptions opt = new TransactionOptions();
+        // read-only and will never be commited, thus does not need durability
+        opt.setTransactionType(TransactionType.LOCAL);
+        TransactionContext tx = theInstance.newTransactionContext(opt);
+        tx.beginTransaction();
+        try {
+            return getFreeLambdas(link, getAllocations(tx, link));
+        } finally {
+            tx.rollbackTransaction();
+        }
+    }
+
+    private BitSet getFreeLambdas(Link link, Iterable<LinkResourceAllocations> allocations) {
+        BitSet free = getLambdaResourceCapacity(link);
+        for (LinkResourceAllocations alloc : allocations) {
+            for (ResourceAllocation a : alloc.getResourceAllocation(link)) {
+                if (a instanceof LambdaResourceAllocation) {
+                    free.clear(((LambdaResourceAllocation) a).lambda().toInt());
+                }
+            }
+        }
+        return free;
+    }
+
+    private double getFreeBandwidth(Link link, Iterable<LinkResourceAllocations> allocations) {
+        double freeBw = getBandwidthResourceCapacity(link).bandwidth().toDouble();
+        for (LinkResourceAllocations alloc : allocations) {
+            for (ResourceAllocation a : alloc.getResourceAllocation(link)) {
+                if (a instanceof BandwidthResourceAllocation) {
+                    freeBw -= ((BandwidthResourceAllocation) a).bandwidth().toDouble();
+                }
+            }
+        }
+        return freeBw;
+    }
+
+    @Override
+    public int[] getLambdaUsage() {
+        TransactionOptions opt = new TransactionOptions();
+        // read-only and will never be commited, thus does not need durability
+        opt.setTransactionType(TransactionType.LOCAL);
+        TransactionContext tx = theInstance.newTransactionContext(opt);
+        tx.beginTransaction();
+        try {
+            STxMap<Integer, Integer> lambdaUsage = getLambdaUsage(tx);
+            int[] usage = new int[0];
+            for (Integer lambda : lambdaUsage.keySet()) {
+                Integer used = lambdaUsage.get(lambda);
+                if (used == null) {
+                    continue;
+                }
+                if (lambda >= usage.length) {
+                    usage = Arrays.copyOf(usage, lambda + 1);
+                }
+                usage[lambda] = used;
+            }
+            return usage;
+        } finally {
+            tx.rollbackTransaction();
+        }
+    }
+
+    // Adds the delta to the change in the number of links on which each of
+    // the lambdas allocated on the link is in use.
+    private void countLambdas(Map<Integer, Integer> usageDeltas, Link link,
+                              LinkResourceAllocations allocations, int delta) {
+        for (ResourceAllocation a : allocations.getResourceAllocation(link)) {
+            if (a instanceof LambdaResourceAllocation) {
+                usageDeltas.merge(((LambdaResourceAllocation) a).lambda().toInt(),
+                                  delta, Integer::sum);
+            }
+        }
+    }
+
+    // Applies the changes in lambda usage counted over a transaction; each
+    // lambda is updated once, as the transactional map does not return the
+    // values written earlier in the same transaction.
+    private void updateLambdaUsage(TransactionContext tx, Map<Integer, Integer> usageDeltas) {
+        if (usageDeltas.isEmpty()) {
+            return;
+        }
+        STxMap<Integer, Integer> lambdaUsage = getLambdaUsage(tx);
+        for (Map.Entry<Integer, Integer> delta : usageDeltas.entrySet()) {
+            Integer used = lambdaUsage.getForUpdate(delta.getKey());
+            int newUsed = (used == null ? 0 : used) + delta.getValue();
+            if (newUsed > 0) {
+                lambdaUsage.put(delta.getKey(), newUsed);
+            } else {
+                lambdaUsage.remove(delta.getKey());
+            }
+        }
+    }
+
     private Map<ResourceType, Set<? extends ResourceAllocation>> getFreeResourcesEx(TransactionContext tx, Link link) {
         // returns capacity - allocated
 
@@ -247,26 +351,14 @@ public class HazelcastLinkResourceStore
 
             case LAMBDA:
             {
-                Set<? extends ResourceAllocation> lmd = caps.get(type);
-                if (lmd == null || lmd.isEmpty()) {
+                BitSet lambdas = getFreeLambdas(link, allocations);
+                if (lambdas.isEmpty()) {
                     // nothing left
                     break;
                 }
                 Set<LambdaResourceAllocation> freeL = new HashSet<>();
-                for (ResourceAllocation r : lmd) {
-                    if (r instanceof LambdaResourceAllocation) {
-                        freeL.add((LambdaResourceAllocation) r);
-                    }
-                }
-
-                // enumerate current allocations, removing resources
-                for (LinkResourceAllocations alloc : allocations) {
-                    Set<ResourceAllocation> types = alloc.getResourceAllocation(link);
-                    for (ResourceAllocation a : types) {
-                        if (a instanceof LambdaResourceAllocation) {
-                            freeL.remove(a);
-                        }
-                    }
+                for (int i = lambdas.nextSetBit(0); i >= 0; i = lambdas.nextSetBit(i + 1)) {
+                    freeL.add(new LambdaResourceAllocation(Lambda.valueOf(i)));
                 }
 
                 free.put(type, freeL);
@@ -293,9 +385,12 @@ public class HazelcastLinkResourceStore
                 // should this be conditional write?
                 intentAllocs.put(allocations.intendId(), allocations);
 
+                Map<Integer, Integer> usageDeltas = new HashMap<>();
                 for (Link link : allocations.links()) {
                     allocateLinkResource(tx, link, allocations);
+                    countLambdas(usageDeltas, link, allocations, 1);
                 }
+                updateLambdaUsage(tx, usageDeltas);
 
                 tx.commitTransaction();
                 return;
@@ -318,18 +413,12 @@ public class HazelcastLinkResourceStore
         // requested resources
         Set<ResourceAllocation> reqs = allocations.getResourceAllocation(link);
 
-        Map<ResourceType, Set<? extends ResourceAllocation>> available = getFreeResourcesEx(tx, link);
+        Iterable<LinkResourceAllocations> allocated = getAllocations(tx, link);
+        BitSet freeLambdas = null;
         for (ResourceAllocation req : reqs) {
-            Set<? extends ResourceAllocation> avail = available.get(req.type());
             if (req instanceof BandwidthResourceAllocation) {
                 // check if allocation should be accepted
-                if (avail.isEmpty()) {
-                    checkState(!avail.isEmpty(),
-                               "There's no Bandwidth resource on %s?",
-                               link);
-                }
-                BandwidthResourceAllocation bw = (BandwidthResourceAllocation) avail.iterator().next();
-                double bwLeft = bw.bandwidth().toDouble();
+                double bwLeft = getFreeBandwidth(link, allocated);
                 bwLeft -= ((BandwidthResourceAllocation) req).bandwidth().toDouble();
                 if (bwLeft < 0) {
                     checkState(bwLeft >= 0,
@@ -337,11 +426,14 @@ public class HazelcastLinkResourceStore
                                link, bwLeft);
                 }
             } else if (req instanceof LambdaResourceAllocation) {
-
+                if (freeLambdas == null) {
+                    freeLambdas = getFreeLambdas(link, allocated);
+                }
                 // check if allocation should be accepted
-                if (!avail.contains(req)) {
+                int lambda = ((LambdaResourceAllocation) req).lambda().toInt();
+                if (!freeLambdas.get(lambda)) {
                     // requested lambda was not available
-                    checkState(avail.contains(req),
+                    checkState(freeLambdas.get(lambda),
                                "Allocating %s on %s failed",
                                req, link);
                 }
@@ -385,6 +477,7 @@ public class HazelcastLinkResourceStore
                 intentAllocs.remove(intendId);
 
                 STxMap<LinkKey, List<LinkResourceAllocations>> linkAllocs = getLinkAllocs(tx);
+                Map<Integer, Integer> usageDeltas = new HashMap<>();
 
                 for (Link link : links) {
                     final LinkKey linkId = LinkKey.linkKey(link);
@@ -395,10 +488,15 @@ public class HazelcastLinkResourceStore
                         log.warn("There was no resource left to release on {}", linkId);
                         continue;
                     }
+                    // allocations read from the map are copies, so they are
+                    // matched by intent
                     List<LinkResourceAllocations> after = new ArrayList<>(before);
-                    after.remove(allocations);
+                    if (after.removeIf(a -> intendId.equals(a.intendId()))) {
+                        countLambdas(usageDeltas, link, allocations, -1);
+                    }
                     linkAllocs.replace(linkId, before, after);
                 }
+                updateLambdaUsage(tx, usageDeltas);
 
                 tx.commitTransaction();
                 success = true;
@@ -16,15 +16,15 @@
 package org.onosproject.store.topology.impl;
 
 import com.google.common.base.Supplier;
-import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
 
-import org.onlab.graph.DijkstraGraphSearch;
+import org.onlab.graph.CompactDijkstraGraphSearch;
+import org.onlab.graph.CompactTarjanGraphSearch;
+import org.onlab.graph.DynamicDijkstraGraphSearch;
 import org.onlab.graph.GraphPathSearch;
 import org.onlab.graph.GraphPathSearch.Result;
-import org.onlab.graph.TarjanGraphSearch;
 import org.onlab.graph.TarjanGraphSearch.SCCResult;
 import org.onosproject.net.AbstractModel;
 import org.onosproject.net.ConnectPoint;
@@ -45,9 +45,14 @@ import org.onosproject.net.topology.TopologyGraph;
 import org.onosproject.net.topology.TopologyVertex;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.collect.ImmutableSetMultimap.Builder;
@@ -59,27 +64,52 @@ import static org.onosproject.net.Link.Type.INDIRECT;
 /**
  * Default implementation of the topology descriptor. This carries the
  * backing topology data.
+ * <p>
+ * A topology may be derived from its predecessor, in which case the shortest
+ * path search results, paths, clusters and broadcast sets computed for the
+ * predecessor are reused wherever the graph changes between the two do not
+ * invalidate them. Invalidated shortest path search results are repaired
+ * rather than searched anew.
+ * </p>
  */
 public class DefaultTopology extends AbstractModel implements Topology {
 
-    private static final DijkstraGraphSearch<TopologyVertex, TopologyEdge> DIJKSTRA =
-            new DijkstraGraphSearch<>();
-    private static final TarjanGraphSearch<TopologyVertex, TopologyEdge> TARJAN =
-            new TarjanGraphSearch<>();
+    private static final CompactDijkstraGraphSearch<TopologyVertex, TopologyEdge> DIJKSTRA =
+            new CompactDijkstraGraphSearch<>();
+    private static final DynamicDijkstraGraphSearch<TopologyVertex, TopologyEdge> DYNAMIC_DIJKSTRA =
+            new DynamicDijkstraGraphSearch<>();
+    private static final CompactTarjanGraphSearch<TopologyVertex, TopologyEdge> TARJAN =
+            new CompactTarjanGraphSearch<>();
+
+    // Number of sources below which searches are not split any further
+    private static final int MIN_SEARCH_TASK_SIZE = 8;
 
     private final long time;
     private final long computeCost;
-    private final TopologyGraph graph;
+    private final DefaultTopologyGraph graph;
+    private final PathSearchCounters counters;
+    private final ForkJoinPool searchPool;
+
+    private final Memo<SCCResult<TopologyVertex, TopologyEdge>> clusterResults;
+    private final Memo<ImmutableMap<DeviceId, Result<TopologyVertex, TopologyEdge>>> results;
+    private final Memo<ImmutableSetMultimap<PathKey, Path>> paths;
+
+    private final Memo<ImmutableMap<ClusterId, TopologyCluster>> clusters;
+    private final Memo<ImmutableSet<ConnectPoint>> infrastructurePoints;
+    private final Memo<ImmutableSetMultimap<ClusterId, ConnectPoint>> broadcastSets;
 
-    private final Supplier<SCCResult<TopologyVertex, TopologyEdge>> clusterResults;
-    private final Supplier<ImmutableMap<DeviceId, Result<TopologyVertex, TopologyEdge>>> results;
-    private final Supplier<ImmutableSetMultimap<PathKey, Path>> paths;
+    private final Memo<ClusterIndexes> clusterIndexes;
 
-    private final Supplier<ImmutableMap<ClusterId, TopologyCluster>> clusters;
-    private final Supplier<ImmutableSet<ConnectPoint>> infrastructurePoints;
-    private final Supplier<ImmutableSetMultimap<ClusterId, ConnectPoint>> broadcastSets;
+    // Graph changes since the previous topology and state computed for the
+    // previous topology which may be reused; consumed by the first search.
+    private GraphDelta delta;
+    private ImmutableMap<DeviceId, Result<TopologyVertex, TopologyEdge>> priorResults;
+    private ImmutableSetMultimap<PathKey, Path> priorPaths;
+    private ImmutableSetMultimap<ClusterId, ConnectPoint> priorBroadcastSets;
 
-    private final Supplier<ClusterIndexes> clusterIndexes;
+    // Sources whose search results had to be searched or repaired; null if
+    // all of them were searched anew
+    private volatile Set<DeviceId> searchedSources;
 
     /**
      * Creates a topology descriptor attributed to the specified provider.
@@ -88,24 +118,68 @@ public class DefaultTopology extends AbstractModel implements Topology {
      * @param description data describing the new topology
      */
     DefaultTopology(ProviderId providerId, GraphDescription description) {
+        this(providerId, description, null, 0, PathSearchCounters.NONE, null);
+    }
+
+    /**
+     * Creates a topology descriptor attributed to the specified provider and
+     * derived from the previous topology. If the graph differs from that of
+     * the previous topology by no more than the given number of vertexes and
+     * edges, any state already computed for the previous topology and not
+     * invalidated by the difference is reused; otherwise the topology is
+     * computed from scratch.
+     *
+     * @param providerId   identity of the provider
+     * @param description  data describing the new topology
+     * @param previous     previous topology; may be null
+     * @param maxDeltaSize maximum number of vertex and edge changes for
+     *                     which the previous state will be reused
+     * @param counters     counters of reused, searched and repaired shortest
+     *                     path search results
+     * @param searchPool   optional pool for searching shortest paths from
+     *                     multiple sources in parallel; if null, the
+     *                     searches are run sequentially
+     */
+    DefaultTopology(ProviderId providerId, GraphDescription description,
+                    DefaultTopology previous, int maxDeltaSize,
+                    PathSearchCounters counters, ForkJoinPool searchPool) {
         super(providerId);
         this.time = description.timestamp();
+        this.counters = counters;
+        this.searchPool = searchPool;
 
         // Build the graph
         this.graph = new DefaultTopologyGraph(description.vertexes(),
                                               description.edges());
 
+        // Reuse only state that was already computed for the previous
+        // topology so that we never hold on to the previous topology itself.
+        GraphDelta graphDelta = previous == null ? null :
+                new GraphDelta(previous.graph, graph);
+        if (graphDelta != null && graphDelta.size() <= maxDeltaSize &&
+                previous.results.peek() != null) {
+            this.delta = graphDelta;
+            this.priorResults = previous.results.peek();
+            this.priorPaths = previous.paths.peek();
+        }
 
-        this.results = Suppliers.memoize(() -> searchForShortestPaths());
-        this.paths = Suppliers.memoize(() -> buildPaths());
-
-        this.clusterResults = Suppliers.memoize(() -> searchForClusters());
-        this.clusters = Suppliers.memoize(() -> buildTopologyClusters());
-
-        this.clusterIndexes = Suppliers.memoize(() -> buildIndexes());
+        this.results = new Memo<>(() -> searchForShortestPaths());
+        this.paths = new Memo<>(() -> buildPaths());
+
+        if (graphDelta != null && !graphDelta.affectsClusters() &&
+                previous.clusterIndexes.peek() != null) {
+            this.clusterResults = Memo.of(previous.clusterResults.peek());
+            this.clusters = Memo.of(previous.clusters.peek());
+            this.clusterIndexes = Memo.of(previous.clusterIndexes.peek());
+            this.priorBroadcastSets = previous.broadcastSets.peek();
+        } else {
+            this.clusterResults = new Memo<>(() -> searchForClusters());
+            this.clusters = new Memo<>(() -> buildTopologyClusters());
+            this.clusterIndexes = new Memo<>(() -> buildIndexes());
+        }
 
-        this.broadcastSets = Suppliers.memoize(() -> buildBroadcastSets());
-        this.infrastructurePoints = Suppliers.memoize(() -> findInfrastructurePoints());
+        this.broadcastSets = new Memo<>(() -> buildBroadcastSets());
+        this.infrastructurePoints = new Memo<>(() -> findInfrastructurePoints());
         this.computeCost = Math.max(0, System.nanoTime() - time);
     }
 
@@ -294,22 +368,91 @@ public class DefaultTopology extends AbstractModel implements Topology {
 
 
     // Searches the graph for all shortest paths and returns the search results.
+    // Results of the previous topology are reused for any sources whose
+    // shortest paths are not affected by the graph delta and repaired for
+    // those that are.
+    // If a search pool is available, the sources are searched in parallel,
+    // each into its own slot, and the slots are assembled afterwards.
     private ImmutableMap<DeviceId, Result<TopologyVertex, TopologyEdge>> searchForShortestPaths() {
-        ImmutableMap.Builder<DeviceId, Result<TopologyVertex, TopologyEdge>> builder = ImmutableMap.builder();
+        SourceSearch search = new SourceSearch(0, graph.vertexCount());
+        boolean parallel = searchPool != null && search.size() > MIN_SEARCH_TASK_SIZE;
+        try {
+            if (parallel) {
+                searchPool.invoke(search);
+            } else {
+                search.compute();
+            }
+        } catch (RejectedExecutionException e) {
+            // Pool has been shut down due to re-configuration; do it here.
+            search.compute();
+        }
 
-        // Search graph paths for each source to all destinations.
-        LinkWeight weight = new HopCountLinkWeight(graph.getVertexes().size());
-        for (TopologyVertex src : graph.getVertexes()) {
-            builder.put(src.deviceId(), DIJKSTRA.search(graph, src, null, weight));
+        ImmutableMap.Builder<DeviceId, Result<TopologyVertex, TopologyEdge>> builder = ImmutableMap.builder();
+        Set<DeviceId> searched = new HashSet<>();
+        for (int i = 0; i < search.results.length; i++) {
+            DeviceId deviceId = graph.vertex(i).deviceId();
+            builder.put(deviceId, search.results[i]);
+            if (search.searched[i]) {
+                searched.add(deviceId);
+            }
         }
+
+        searchedSources = priorResults != null ? searched : null;
+        priorResults = null;
+        delta = null;
         return builder.build();
     }
 
+    // Searches, repairs or reuses the results for the source with the
+    // specified graph vertex index and returns true if it was not reused.
+    private boolean searchSource(int index, LinkWeight weight,
+                                 Result<TopologyVertex, TopologyEdge>[] results) {
+        TopologyVertex src = graph.vertex(index);
+        Result<TopologyVertex, TopologyEdge> result =
+                priorResults != null ? priorResults.get(src.deviceId()) : null;
+        if (result == null) {
+            results[index] = DIJKSTRA.search(graph, src, null, weight);
+            counters.miss();
+            return true;
+        } else if (delta.invalidates(result, weight)) {
+            results[index] = DYNAMIC_DIJKSTRA.repair(graph, result, delta.removedEdges,
+                                                     delta.addedEdges, weight);
+            counters.repair();
+            return true;
+        }
+        results[index] = result;
+        counters.hit();
+        return false;
+    }
+
+    // Indicates whether the search results for the given source were
+    // computed afresh rather than reused from the previous topology.
+    private boolean isSearched(DeviceId src) {
+        Set<DeviceId> searched = searchedSources;
+        return searched == null || searched.contains(src);
+    }
+
     // Builds network paths from the graph path search results
     private ImmutableSetMultimap<PathKey, Path> buildPaths() {
         Builder<PathKey, Path> builder = ImmutableSetMultimap.builder();
-        for (DeviceId deviceId : results.get().keySet()) {
-            Result<TopologyVertex, TopologyEdge> result = results.get().get(deviceId);
+        ImmutableMap<DeviceId, Result<TopologyVertex, TopologyEdge>> searchResults = results.get();
+
+        // Carry over paths from sources whose search results were reused.
+        ImmutableSetMultimap<PathKey, Path> prior = priorPaths;
+        priorPaths = null;
+        if (prior != null && searchedSources != null) {
+            for (Map.Entry<PathKey, Path> entry : prior.entries()) {
+                if (!isSearched(entry.getKey().src())) {
+                    builder.put(entry);
+                }
+            }
+        }
+
+        for (DeviceId deviceId : searchResults.keySet()) {
+            if (prior != null && !isSearched(deviceId)) {
+                continue;
+            }
+            Result<TopologyVertex, TopologyEdge> result = searchResults.get(deviceId);
             for (org.onlab.graph.Path<TopologyVertex, TopologyEdge> path : result.paths()) {
                 builder.put(new PathKey(path.src().deviceId(), path.dst().deviceId()),
                             networkPath(path));
@@ -337,8 +480,7 @@ public class DefaultTopology extends AbstractModel implements Topology {
     // Builds the topology clusters and returns the id-cluster bindings.
     private ImmutableMap<ClusterId, TopologyCluster> buildTopologyClusters() {
         ImmutableMap.Builder<ClusterId, TopologyCluster> clusterBuilder = ImmutableMap.builder();
-        SCCResult<TopologyVertex, TopologyEdge> result =
-                TARJAN.search(graph, new NoIndirectLinksWeight());
+        SCCResult<TopologyVertex, TopologyEdge> result = clusterResults.get();
 
         // Extract both vertexes and edges from the results; the lists form
         // pairs along the same index.
@@ -375,6 +517,21 @@ public class DefaultTopology extends AbstractModel implements Topology {
 
     // Processes a map of broadcast sets for each cluster.
     private ImmutableSetMultimap<ClusterId, ConnectPoint> buildBroadcastSets() {
+        // If clusters are unchanged and none of their roots had to be
+        // searched anew, the previous broadcast sets still hold.
+        ImmutableSetMultimap<ClusterId, ConnectPoint> prior = priorBroadcastSets;
+        priorBroadcastSets = null;
+        if (prior != null) {
+            results.get();
+            boolean reusable = true;
+            for (TopologyCluster cluster : clusters.get().values()) {
+                reusable &= !isSearched(cluster.root());
+            }
+            if (reusable) {
+                return prior;
+            }
+        }
+
         Builder<ClusterId, ConnectPoint> builder = ImmutableSetMultimap.builder();
         for (TopologyCluster cluster : clusters.get().values()) {
             addClusterBroadcastSet(cluster, builder);
@@ -476,6 +633,197 @@ public class DefaultTopology extends AbstractModel implements Topology {
         }
     }
 
+    // Task for searching shortest paths from a range of graph vertexes; the
+    // range is split in halves for parallel execution until small enough.
+    private final class SourceSearch extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final LinkWeight weight;
+        private final Result<TopologyVertex, TopologyEdge>[] results;
+        private final boolean[] searched;
+
+        @SuppressWarnings("unchecked")
+        SourceSearch(int from, int to) {
+            this(from, to, new HopCountLinkWeight(graph.vertexCount()),
+                 new Result[to - from], new boolean[to - from]);
+        }
+
+        private SourceSearch(int from, int to, LinkWeight weight,
+                             Result<TopologyVertex, TopologyEdge>[] results,
+                             boolean[] searched) {
+            this.from = from;
+            this.to = to;
+            this.weight = weight;
+            this.results = results;
+            this.searched = searched;
+        }
+
+        int size() {
+            return to - from;
+        }
+
+        @Override
+        protected void compute() {
+            if (size() > MIN_SEARCH_TASK_SIZE && inForkJoinPool()) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new SourceSearch(from, mid, weight, results, searched),
+                          new SourceSearch(mid, to, weight, results, searched));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                searched[i] = searchSource(i, weight, results);
+            }
+        }
+    }
+
+    // Set of vertex and edge differences between two topology graphs.
+    private static final class GraphDelta {
+        private final Set<TopologyVertex> removedVertexes = new HashSet<>();
+        private final Set<TopologyEdge> removedEdges = new HashSet<>();
+        private final Set<TopologyEdge> addedEdges = new HashSet<>();
+        private int addedVertexCount = 0;
+
+        GraphDelta(TopologyGraph oldGraph, TopologyGraph newGraph) {
+            Set<TopologyVertex> oldVertexes = oldGraph.getVertexes();
+            Set<TopologyVertex> newVertexes = newGraph.getVertexes();
+            for (TopologyVertex vertex : newVertexes) {
+                if (!oldVertexes.contains(vertex)) {
+                    addedVertexCount++;
+                }
+            }
+            for (TopologyVertex vertex : oldVertexes) {
+                if (!newVertexes.contains(vertex)) {
+                    removedVertexes.add(vertex);
+                }
+            }
+
+            // Indirect link cost depends on the number of vertexes, so
+            // those links change whenever the vertex count does.
+            boolean resized = oldVertexes.size() != newVertexes.size();
+
+            // Link equality ignores the link state and annotations, but any
+            // link update yields a new link instance, so treat replaced
+            // links as a removal of the old edge and addition of the new one.
+            Map<Link, TopologyEdge> oldEdges = new HashMap<>();
+            for (TopologyEdge edge : oldGraph.getEdges()) {
+                oldEdges.put(edge.link(), edge);
+            }
+            for (TopologyEdge edge : newGraph.getEdges()) {
+                TopologyEdge oldEdge = oldEdges.remove(edge.link());
+                if (oldEdge == null) {
+                    addedEdges.add(edge);
+                } else if (oldEdge.link() != edge.link() ||
+                        (resized && edge.link().type() == INDIRECT)) {
+                    removedEdges.add(oldEdge);
+                    addedEdges.add(edge);
+                }
+            }
+            removedEdges.addAll(oldEdges.values());
+        }
+
+        // Returns the total number of vertex and edge changes.
+        int size() {
+            return addedVertexCount + removedVertexes.size() +
+                    addedEdges.size() + removedEdges.size();
+        }
+
+        // Indicates whether the changes may alter the topology clusters.
+        boolean affectsClusters() {
+            if (addedVertexCount > 0 || !removedVertexes.isEmpty()) {
+                return true;
+            }
+            for (TopologyEdge edge : removedEdges) {
+                if (isClusterEdge(edge)) {
+                    return true;
+                }
+            }
+            for (TopologyEdge edge : addedEdges) {
+                if (isClusterEdge(edge)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean isClusterEdge(TopologyEdge edge) {
+            return edge.link().state() != INACTIVE && edge.link().type() != INDIRECT;
+        }
+
+        // Indicates whether the changes invalidate the given search result.
+        // This is the case if a removed vertex was reachable, if a removed
+        // edge was on any of the shortest paths or if an added edge offers
+        // a path at least as short as an existing one.
+        boolean invalidates(Result<TopologyVertex, TopologyEdge> result,
+                            LinkWeight weight) {
+            Map<TopologyVertex, Double> costs = result.costs();
+            for (TopologyVertex vertex : removedVertexes) {
+                if (costs.containsKey(vertex)) {
+                    return true;
+                }
+            }
+
+            Map<TopologyVertex, Set<TopologyEdge>> parents = result.parents();
+            for (TopologyEdge edge : removedEdges) {
+                Set<TopologyEdge> edges = parents.get(edge.dst());
+                if (edges != null && edges.contains(edge)) {
+                    return true;
+                }
+            }
+
+            for (TopologyEdge edge : addedEdges) {
+                Double srcCost = costs.get(edge.src());
+                double hopCost = weight.weight(edge);
+                if (srcCost == null || hopCost < 0) {
+                    continue;
+                }
+                Double dstCost = costs.get(edge.dst());
+                if (dstCost == null || srcCost + hopCost <= dstCost) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // Memoizing supplier which allows peeking at the value without forcing
+    // its computation.
+    private static final class Memo<T> implements Supplier<T> {
+        private Supplier<T> delegate;
+        private volatile T value;
+
+        Memo(Supplier<T> delegate) {
+            this.delegate = delegate;
+        }
+
+        // Creates a memo holding an already computed value.
+        static <T> Memo<T> of(T value) {
+            Memo<T> memo = new Memo<>(null);
+            memo.value = value;
+            return memo;
+        }
+
+        @Override
+        public T get() {
+            T v = value;
+            if (v == null) {
+                synchronized (this) {
+                    v = value;
+                    if (v == null) {
+                        v = delegate.get();
+                        value = v;
+                        delegate = null;
+                    }
+                }
+            }
+            return v;
+        }
+
+        // Returns the value if already computed; null otherwise.
+        T peek() {
+            return value;
+        }
+    }
+
     static final class ClusterIndexes {
         final ImmutableMap<DeviceId, TopologyCluster> clustersByDevice;
         final ImmutableSetMultimap<TopologyCluster, DeviceId> devicesByCluster;
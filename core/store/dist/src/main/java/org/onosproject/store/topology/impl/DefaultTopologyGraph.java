@@ -15,7 +15,7 @@
  */
 package org.onosproject.store.topology.impl;
 
-import org.onlab.graph.AdjacencyListsGraph;
+import org.onlab.graph.CompactGraph;
 import org.onosproject.net.topology.TopologyEdge;
 import org.onosproject.net.topology.TopologyGraph;
 import org.onosproject.net.topology.TopologyVertex;
@@ -24,10 +24,10 @@ import java.util.Set;
 
 /**
  * Default implementation of an immutable topology graph based on a generic
- * implementation of adjacency lists graph.
+ * implementation of compact, array-based adjacency lists graph.
  */
 public class DefaultTopologyGraph
-        extends AdjacencyListsGraph<TopologyVertex, TopologyEdge>
+        extends CompactGraph<TopologyVertex, TopologyEdge>
         implements TopologyGraph {
 
     /**
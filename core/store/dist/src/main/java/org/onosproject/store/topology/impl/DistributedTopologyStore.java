@@ -15,16 +15,25 @@
  */
 package org.onosproject.store.topology.impl;
 
+import static com.google.common.base.Strings.isNullOrEmpty;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import java.util.Collections;
+import java.util.Dictionary;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsService;
+import org.onosproject.core.MetricsHelper;
 import org.onosproject.event.Event;
 import org.onosproject.net.ConnectPoint;
 import org.onosproject.net.Device;
@@ -43,6 +52,7 @@ import org.onosproject.net.topology.TopologyGraph;
 import org.onosproject.net.topology.TopologyStore;
 import org.onosproject.net.topology.TopologyStoreDelegate;
 import org.onosproject.store.AbstractStore;
+import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 
 /**
@@ -56,10 +66,31 @@ import org.slf4j.Logger;
 @Service
 public class DistributedTopologyStore
 extends AbstractStore<TopologyEvent, TopologyStoreDelegate>
-implements TopologyStore {
+implements TopologyStore, MetricsHelper {
+
+    private static final int DEFAULT_MAX_DELTA_SIZE = 64;
+
+    @Property(name = "maxDeltaSize", intValue = DEFAULT_MAX_DELTA_SIZE,
+            label = "Maximum number of device and link changes for which " +
+                    "the previous topology computations are reused")
+    private int maxDeltaSize = DEFAULT_MAX_DELTA_SIZE;
+
+    private static final int DEFAULT_MAX_SEARCH_THREADS = 1;
+
+    @Property(name = "maxSearchThreads", intValue = DEFAULT_MAX_SEARCH_THREADS,
+            label = "Maximum number of threads used to compute shortest " +
+                    "paths from all devices; 1 computes them sequentially")
+    private int maxSearchThreads = DEFAULT_MAX_SEARCH_THREADS;
+
+    private volatile ForkJoinPool searchPool;
 
     private final Logger log = getLogger(getClass());
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MetricsService metricsService;
+
+    private PathSearchCounters pathSearchCounters = PathSearchCounters.NONE;
+
     private volatile DefaultTopology current =
             new DefaultTopology(ProviderId.NONE,
                     new DefaultGraphDescription(0L,
@@ -67,14 +98,67 @@ implements TopologyStore {
                             Collections.<Link>emptyList()));
 
     @Activate
-    public void activate() {
+    public void activate(ComponentContext context) {
+        pathSearchCounters =
+                new PathSearchCounters(createCounter("Topology", "shortestPaths", "hits"),
+                                       createCounter("Topology", "shortestPaths", "misses"),
+                                       createCounter("Topology", "shortestPaths", "repairs"));
+        modified(context);
         log.info("Started");
     }
 
     @Deactivate
     public void deactivate() {
+        setSearchPool(null);
         log.info("Stopped");
     }
+
+    @Modified
+    public void modified(ComponentContext context) {
+        if (context == null) {
+            return;
+        }
+
+        Dictionary properties = context.getProperties();
+        int newMaxDeltaSize;
+        try {
+            String s = (String) properties.get("maxDeltaSize");
+            newMaxDeltaSize = isNullOrEmpty(s) ? maxDeltaSize : Integer.parseInt(s);
+        } catch (Exception e) {
+            newMaxDeltaSize = DEFAULT_MAX_DELTA_SIZE;
+        }
+
+        int newMaxSearchThreads;
+        try {
+            String s = (String) properties.get("maxSearchThreads");
+            newMaxSearchThreads = isNullOrEmpty(s) ? maxSearchThreads : Integer.parseInt(s);
+        } catch (Exception e) {
+            newMaxSearchThreads = DEFAULT_MAX_SEARCH_THREADS;
+        }
+
+        if (newMaxDeltaSize != maxDeltaSize) {
+            maxDeltaSize = newMaxDeltaSize;
+            log.info("Reconfigured with maxDeltaSize = {}", maxDeltaSize);
+        }
+
+        if (newMaxSearchThreads != maxSearchThreads) {
+            maxSearchThreads = newMaxSearchThreads;
+            setSearchPool(maxSearchThreads > 1 ? new ForkJoinPool(maxSearchThreads) : null);
+            log.info("Reconfigured with maxSearchThreads = {}", maxSearchThreads);
+        }
+    }
+
+    // Replaces the pool used for parallel path searches, shutting down the
+    // old one; topologies still being computed with it fall back to
+    // searching sequentially.
+    private void setSearchPool(ForkJoinPool pool) {
+        ForkJoinPool old = searchPool;
+        searchPool = pool;
+        if (old != null) {
+            old.shutdown();
+        }
+    }
+
     @Override
     public Topology currentTopology() {
         return current;
@@ -142,9 +226,12 @@ implements TopologyStore {
             return null;
         }
 
-        // Have the default topology construct self from the description data.
+        // Have the default topology construct self from the description data,
+        // reusing whatever it can from the current topology.
         DefaultTopology newTopology =
-                new DefaultTopology(providerId, graphDescription);
+                new DefaultTopology(providerId, graphDescription,
+                                    current, maxDeltaSize, pathSearchCounters,
+                                    searchPool);
 
         // Promote the new topology to current and return a ready-to-send event.
         synchronized (this) {
@@ -154,6 +241,11 @@ implements TopologyStore {
         }
     }
 
+    @Override
+    public MetricsService metricsService() {
+        return metricsService;
+    }
+
     // Validates the specified topology and returns it as a default
     private DefaultTopology defaultTopology(Topology topology) {
         if (topology instanceof DefaultTopology) {
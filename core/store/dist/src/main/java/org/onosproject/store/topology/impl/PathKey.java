@@ -36,6 +36,15 @@ class PathKey {
         this.dst = dst;
     }
 
+    /**
+     * Returns the source device.
+     *
+     * @return source device
+     */
+    DeviceId src() {
+        return src;
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(src, dst);
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.topology.impl;
+
+import com.codahale.metrics.Counter;
+
+/**
+ * Counters tracking how the per-source shortest path search results are
+ * carried over from one topology to the next.
+ */
+final class PathSearchCounters {
+
+    /**
+     * Counters which track nothing.
+     */
+    static final PathSearchCounters NONE = new PathSearchCounters(null, null, null);
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter repairs;
+
+    /**
+     * Creates a set of path search counters; any of the counters may be null.
+     *
+     * @param hits    counter of results reused as-is
+     * @param misses  counter of results searched from scratch
+     * @param repairs counter of results repaired from prior ones
+     */
+    PathSearchCounters(Counter hits, Counter misses, Counter repairs) {
+        this.hits = hits;
+        this.misses = misses;
+        this.repairs = repairs;
+    }
+
+    /**
+     * Records that a prior search result was reused as-is.
+     */
+    void hit() {
+        increment(hits);
+    }
+
+    /**
+     * Records that a search was run from scratch.
+     */
+    void miss() {
+        increment(misses);
+    }
+
+    /**
+     * Records that a prior search result was repaired.
+     */
+    void repair() {
+        increment(repairs);
+    }
+
+    private static void increment(Counter counter) {
+        if (counter != null) {
+            counter.inc();
+        }
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.flow.impl;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+import static org.onosproject.store.flow.impl.FlowStoreMessageSubjects.*;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.easymock.Capture;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.metrics.MetricsManager;
+import org.onlab.packet.IpAddress;
+import org.onosproject.cluster.DefaultControllerNode;
+import org.onosproject.cluster.NodeId;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.flow.DefaultFlowRule;
+import org.onosproject.net.flow.DefaultTrafficSelector;
+import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.flow.FlowRule;
+import org.onosproject.store.cluster.StaticClusterService;
+import org.onosproject.store.cluster.messaging.ClusterCommunicationService;
+import org.onosproject.store.cluster.messaging.ClusterMessage;
+import org.onosproject.store.cluster.messaging.ClusterMessageHandler;
+import org.onosproject.store.cluster.messaging.MessageSubject;
+import org.onosproject.store.flow.ReplicaInfo;
+import org.onosproject.store.flow.ReplicaInfoEventListener;
+import org.onosproject.store.flow.ReplicaInfoService;
+import org.onosproject.store.hz.StoreService;
+import org.onosproject.store.hz.TestStoreManager;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricFilter;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+
+/**
+ * Test of the Hazelcast-based distributed FlowRuleStore implementation.
+ */
+public class DistributedFlowRuleStoreTest {
+
+    private static final NodeId N1 = new NodeId("node1");
+    private static final IpAddress IP = IpAddress.valueOf("127.0.0.1");
+    private static final DeviceId DID = DeviceId.deviceId("of:01");
+
+    // capacity of the queues of the message handling executors
+    private static final int QUEUE_SIZE = 1024;
+    // number of threads handling read requests
+    private static final int MESSAGE_HANDLER_THREADS = 8;
+
+    private DistributedFlowRuleStore store;
+    private TestClusterCommunicationService communicator;
+    private MetricsManager metrics;
+    private HazelcastInstance hazelcast;
+
+    @Before
+    public void setUp() {
+        communicator = new TestClusterCommunicationService();
+        metrics = new MetricsManager();
+        hazelcast = createMock(HazelcastInstance.class);
+
+        store = new TestDistributedFlowRuleStore(new TestStoreManager(hazelcast));
+        store.clusterCommunicator = communicator;
+        store.clusterService = new TestClusterService();
+        store.replicaInfoManager = new TestReplicaInfoService();
+        store.metricsService = metrics;
+        store.activate();
+    }
+
+    @After
+    public void tearDown() {
+        store.deactivate();
+    }
+
+    @Test
+    public void flowTableUpdatesHandledInOrder() throws InterruptedException {
+        ExecutorService executor = communicator.executors.get(APPLY_BATCH_FLOWS);
+        assertNotNull("batches should be handled using an executor", executor);
+        assertSame("updates should be handled using the same executor",
+                   executor, communicator.executors.get(REMOVE_FLOW_ENTRY));
+        assertNotSame("reads should not wait for updates",
+                      executor, communicator.executors.get(GET_FLOW_ENTRY));
+
+        List<Integer> handled = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(100);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            final int n = i;
+            expected.add(n);
+            executor.execute(() -> {
+                handled.add(n);
+                threads.add(Thread.currentThread());
+                done.countDown();
+            });
+        }
+        assertTrue("updates should be handled", done.await(5, TimeUnit.SECONDS));
+        assertEquals("updates handled out of order", expected, handled);
+        assertEquals("updates should be handled by one thread",
+                     1, threads.stream().distinct().count());
+        assertFalse("updates should not be handled by the caller",
+                    threads.contains(Thread.currentThread()));
+    }
+
+    @Test
+    public void fullQueueDropsReadRequests() throws InterruptedException {
+        ExecutorService executor = communicator.executors.get(GET_FLOW_ENTRY);
+        CountDownLatch release = new CountDownLatch(1);
+        fill(executor, MESSAGE_HANDLER_THREADS, release);
+
+        AtomicBoolean ran = new AtomicBoolean();
+        try {
+            executor.execute(() -> ran.set(true));
+            fail("request should be rejected");
+        } catch (RejectedExecutionException e) {
+            assertFalse("rejected request should not be run", ran.get());
+        } finally {
+            release.countDown();
+        }
+        assertEquals("dropped request should be counted", 1, counter("dropped").getCount());
+    }
+
+    @Test
+    public void fullQueueDelaysFlowTableUpdates() throws InterruptedException {
+        ExecutorService executor = communicator.executors.get(APPLY_BATCH_FLOWS);
+        CountDownLatch release = new CountDownLatch(1);
+        fill(executor, 1, release);
+
+        CountDownLatch ran = new CountDownLatch(1);
+        CountDownLatch submitted = new CountDownLatch(1);
+        Thread sender = new Thread(() -> {
+            executor.execute(ran::countDown);
+            submitted.countDown();
+        });
+        sender.start();
+        try {
+            assertFalse("update should wait for room in the queue",
+                        submitted.await(100, TimeUnit.MILLISECONDS));
+            assertEquals("delayed update should be counted", 1, counter("delayed").getCount());
+        } finally {
+            release.countDown();
+        }
+        assertTrue("update should be queued once there is room",
+                   submitted.await(5, TimeUnit.SECONDS));
+        assertTrue("delayed update should be handled", ran.await(5, TimeUnit.SECONDS));
+        assertEquals("update should not be dropped", 0, counter("dropped").getCount());
+        sender.join();
+    }
+
+    // Occupies all threads of the executor until released and fills up its
+    // queue.
+    private static void fill(ExecutorService executor, int threads,
+                             CountDownLatch release) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            executor.execute(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        assertTrue("blocking tasks should start", started.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < QUEUE_SIZE; i++) {
+            executor.execute(() -> { });
+        }
+    }
+
+    private Counter counter(String name) {
+        return metrics.getCounters(MetricFilter.ALL).get("FlowRuleStore.messages." + name);
+    }
+
+    @Test
+    public void backupsCoalescedPerDevice() throws Exception {
+        // Hold off the periodic backup, so that it finds all updates pending
+        AtomicBoolean backupScheduled = internal("backupScheduled");
+        backupScheduled.set(true);
+
+        @SuppressWarnings("unchecked")
+        IMap<byte[], byte[]> backupMap = createMock(IMap.class);
+        Capture<Map<byte[], byte[]>> written = new Capture<>();
+        backupMap.putAll(capture(written));
+        expectLastCall().once();
+        expect(hazelcast.<byte[], byte[]>getMap("flowtable_" + DID)).andReturn(backupMap).once();
+        replay(hazelcast, backupMap);
+
+        store.storeFlowRule(flowRule(1));
+        store.storeFlowRule(flowRule(2));
+        store.storeFlowRule(flowRule(3));
+        store.storeFlowRule(flowRule(1));
+
+        Method backupPending = DistributedFlowRuleStore.class.getDeclaredMethod("backupPending");
+        backupPending.setAccessible(true);
+        backupPending.invoke(store);
+        assertEquals("changed flows should be written at once", 3, written.getValue().size());
+
+        // nothing is left to write
+        backupPending.invoke(store);
+        verify(hazelcast, backupMap);
+    }
+
+    private static FlowRule flowRule(int n) {
+        return new DefaultFlowRule(DID, DefaultTrafficSelector.builder().build(),
+                                   DefaultTrafficTreatment.builder().build(),
+                                   n, n, 0, true);
+    }
+
+    // Returns the value of a private field of the store.
+    @SuppressWarnings("unchecked")
+    private <T> T internal(String name) throws ReflectiveOperationException {
+        Field field = DistributedFlowRuleStore.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return (T) field.get(store);
+    }
+
+    private static class TestDistributedFlowRuleStore extends DistributedFlowRuleStore {
+        TestDistributedFlowRuleStore(StoreService storeService) {
+            this.storeService = storeService;
+        }
+    }
+
+    private static class TestClusterService extends StaticClusterService {
+        TestClusterService() {
+            localNode = new DefaultControllerNode(N1, IP);
+            nodes.put(N1, localNode);
+        }
+    }
+
+    // Replica info service making the local node the master of all devices
+    private static class TestReplicaInfoService implements ReplicaInfoService {
+        @Override
+        public ReplicaInfo getReplicaInfoFor(DeviceId deviceId) {
+            return new ReplicaInfo(N1, Collections.<NodeId>emptyList());
+        }
+
+        @Override
+        public void addListener(ReplicaInfoEventListener listener) {
+        }
+
+        @Override
+        public void removeListener(ReplicaInfoEventListener listener) {
+        }
+    }
+
+    // Cluster communication service recording the subscribers and the
+    // executors they were registered with
+    private static class TestClusterCommunicationService
+            implements ClusterCommunicationService {
+
+        private final Map<MessageSubject, ClusterMessageHandler> subscribers = new HashMap<>();
+        private final Map<MessageSubject, ExecutorService> executors = new HashMap<>();
+
+        @Override
+        public boolean broadcast(ClusterMessage message) throws IOException {
+            return true;
+        }
+
+        @Override
+        public boolean broadcastIncludeSelf(ClusterMessage message) throws IOException {
+            return true;
+        }
+
+        @Override
+        public boolean unicast(ClusterMessage message, NodeId toNodeId) throws IOException {
+            return true;
+        }
+
+        @Override
+        public boolean multicast(ClusterMessage message, Set<NodeId> nodeIds) throws IOException {
+            return true;
+        }
+
+        @Override
+        public ListenableFuture<byte[]> sendAndReceive(ClusterMessage message, NodeId toNodeId)
+                throws IOException {
+            throw new IOException("Not connected to " + toNodeId);
+        }
+
+        @Override
+        public ListenableFuture<byte[]> sendAndReceive(ClusterMessage message, NodeId toNodeId,
+                                                       long timeout, TimeUnit unit)
+                throws IOException {
+            throw new IOException("Not connected to " + toNodeId);
+        }
+
+        @Override
+        public void addSubscriber(MessageSubject subject, ClusterMessageHandler subscriber) {
+            subscribers.put(subject, subscriber);
+        }
+
+        @Override
+        public void addSubscriber(MessageSubject subject, ClusterMessageHandler subscriber,
+                                  ExecutorService executor) {
+            subscribers.put(subject, subscriber);
+            executors.put(subject, executor);
+        }
+
+        @Override
+        public void removeSubscriber(MessageSubject subject) {
+            subscribers.remove(subject);
+            executors.remove(subject);
+        }
+    }
+}
@@ -0,0 +1,426 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.resource.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.onosproject.net.AnnotationKeys;
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.DefaultAnnotations;
+import org.onosproject.net.DefaultLink;
+import org.onosproject.net.Link;
+import org.onosproject.net.intent.IntentId;
+import org.onosproject.net.link.LinkEvent;
+import org.onosproject.net.link.LinkListener;
+import org.onosproject.net.link.LinkServiceAdapter;
+import org.onosproject.net.provider.ProviderId;
+import org.onosproject.net.resource.Bandwidth;
+import org.onosproject.net.resource.BandwidthResourceAllocation;
+import org.onosproject.net.resource.DefaultLinkResourceAllocations;
+import org.onosproject.net.resource.DefaultLinkResourceRequest;
+import org.onosproject.net.resource.Lambda;
+import org.onosproject.net.resource.LambdaResourceAllocation;
+import org.onosproject.net.resource.LinkResourceAllocations;
+import org.onosproject.net.resource.LinkResourceRequest;
+import org.onosproject.net.resource.ResourceAllocation;
+import org.onosproject.store.service.BatchReadRequest;
+import org.onosproject.store.service.BatchReadResult;
+import org.onosproject.store.service.BatchWriteRequest;
+import org.onosproject.store.service.BatchWriteResult;
+import org.onosproject.store.service.DatabaseAdminService;
+import org.onosproject.store.service.DatabaseService;
+import org.onosproject.store.service.VersionedValue;
+import org.onosproject.store.service.WriteRequest;
+import org.onosproject.store.service.WriteResult;
+import org.onosproject.store.service.WriteStatus;
+
+import com.google.common.collect.ImmutableSet;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+import static org.onosproject.net.DeviceId.deviceId;
+import static org.onosproject.net.Link.Type.DIRECT;
+import static org.onosproject.net.PortNumber.portNumber;
+
+/**
+ * Test of the database backed LinkResourceStore implementation, with two
+ * instances of the store sharing an in-memory database.
+ */
+public class DistributedLinkResourceStoreTest {
+
+    private static final String LINK_RESOURCE_ALLOCATIONS = "LinkResourceAllocations";
+    private static final String INTENT_ALLOCATIONS = "IntentAllocations";
+
+    private static final Link LINK1 = newLink("of:1", 1, "of:2", 2);
+    private static final Link LINK2 = newLink("of:2", 1, "of:3", 2);
+    private static final Link OPTICAL1 = newOpticalLink("of:1", 3, "of:2", 3);
+    private static final Link OPTICAL2 = newOpticalLink("of:2", 4, "of:3", 3);
+
+    private TestDatabaseService database;
+    private TestLinkService linkService;
+    private DistributedLinkResourceStore store;
+    private DistributedLinkResourceStore otherStore;
+
+    private static Link newLink(String dev1, int port1, String dev2, int port2) {
+        return new DefaultLink(new ProviderId("of", "foo"),
+                               new ConnectPoint(deviceId(dev1), portNumber(port1)),
+                               new ConnectPoint(deviceId(dev2), portNumber(port2)),
+                               DIRECT,
+                               DefaultAnnotations.builder()
+                                       .set(AnnotationKeys.BANDWIDTH, "1000")
+                                       .build());
+    }
+
+    private static Link newOpticalLink(String dev1, int port1, String dev2, int port2) {
+        return new DefaultLink(new ProviderId("of", "foo"),
+                               new ConnectPoint(deviceId(dev1), portNumber(port1)),
+                               new ConnectPoint(deviceId(dev2), portNumber(port2)),
+                               Link.Type.OPTICAL,
+                               DefaultAnnotations.builder()
+                                       .set(AnnotationKeys.OPTICAL_WAVES, "4")
+                                       .build());
+    }
+
+    @Before
+    public void setUp() {
+        database = new TestDatabaseService();
+        linkService = new TestLinkService();
+        store = newStore();
+        otherStore = newStore();
+    }
+
+    private DistributedLinkResourceStore newStore() {
+        DatabaseAdminService admin = createMock(DatabaseAdminService.class);
+        expect(admin.listTables())
+                .andReturn(ImmutableSet.of(LINK_RESOURCE_ALLOCATIONS, INTENT_ALLOCATIONS))
+                .anyTimes();
+        replay(admin);
+
+        DistributedLinkResourceStore newStore = new DistributedLinkResourceStore();
+        newStore.databaseAdminService = admin;
+        newStore.databaseService = database;
+        newStore.linkService = linkService;
+        newStore.activate();
+        return newStore;
+    }
+
+    private static LinkResourceAllocations allocations(long intentId, double bandwidth,
+                                                       Link... links) {
+        LinkResourceRequest request =
+                DefaultLinkResourceRequest.builder(IntentId.valueOf(intentId), Arrays.asList(links))
+                        .addBandwidthRequest(bandwidth)
+                        .build();
+        Map<Link, Set<ResourceAllocation>> allocations = new HashMap<>();
+        for (Link link : links) {
+            allocations.put(link, ImmutableSet.of(
+                    new BandwidthResourceAllocation(Bandwidth.valueOf(bandwidth))));
+        }
+        return new DefaultLinkResourceAllocations(request, allocations);
+    }
+
+    private static LinkResourceAllocations lambdaAllocations(long intentId, int lambda,
+                                                             Link... links) {
+        LinkResourceRequest request =
+                DefaultLinkResourceRequest.builder(IntentId.valueOf(intentId), Arrays.asList(links))
+                        .addLambdaRequest()
+                        .build();
+        Map<Link, Set<ResourceAllocation>> allocations = new HashMap<>();
+        for (Link link : links) {
+            allocations.put(link, ImmutableSet.of(
+                    new LambdaResourceAllocation(Lambda.valueOf(lambda))));
+        }
+        return new DefaultLinkResourceAllocations(request, allocations);
+    }
+
+    private static BitSet lambdas(int... lambdas) {
+        BitSet set = new BitSet();
+        for (int lambda : lambdas) {
+            set.set(lambda);
+        }
+        return set;
+    }
+
+    private static double freeBandwidth(DistributedLinkResourceStore store, Link link) {
+        for (ResourceAllocation free : store.getFreeResources(link)) {
+            if (free instanceof BandwidthResourceAllocation) {
+                return ((BandwidthResourceAllocation) free).bandwidth().toDouble();
+            }
+        }
+        return 0;
+    }
+
+    private static Set<IntentId> intents(DistributedLinkResourceStore store, Link link) {
+        Set<IntentId> intents = new HashSet<>();
+        for (LinkResourceAllocations allocations : store.getAllocations(link)) {
+            intents.add(allocations.intendId());
+        }
+        return intents;
+    }
+
+    @Test
+    public void allocate() {
+        store.allocateResources(allocations(1, 400, LINK1, LINK2));
+
+        assertEquals("incorrect free bandwidth", 600, freeBandwidth(store, LINK1), 0);
+        assertEquals("incorrect free bandwidth", 600, freeBandwidth(store, LINK2), 0);
+        assertEquals("incorrect allocations", ImmutableSet.of(IntentId.valueOf(1)),
+                     intents(store, LINK1));
+        assertNotNull("intent allocations should be stored",
+                      store.getAllocations(IntentId.valueOf(1)));
+
+        // the allocation is visible to other instances
+        assertEquals("incorrect free bandwidth", 600, freeBandwidth(otherStore, LINK2), 0);
+    }
+
+    @Test
+    public void release() {
+        LinkResourceAllocations allocations = allocations(1, 400, LINK1);
+        store.allocateResources(allocations);
+        store.releaseResources(allocations);
+
+        assertEquals("bandwidth should be free", 1000, freeBandwidth(store, LINK1), 0);
+        assertTrue("no allocations expected", store.getAllocations(LINK1).isEmpty());
+        assertNull("intent allocations should be removed",
+                   store.getAllocations(IntentId.valueOf(1)));
+        assertEquals("bandwidth should be free", 1000, freeBandwidth(otherStore, LINK1), 0);
+    }
+
+    @Test
+    public void lambdas() {
+        assertEquals("all lambdas should be free", lambdas(1, 2, 3, 4),
+                     store.getFreeLambdas(OPTICAL1));
+
+        LinkResourceAllocations allocations = lambdaAllocations(1, 2, OPTICAL1, OPTICAL2);
+        store.allocateResources(allocations);
+        assertEquals("incorrect free lambdas", lambdas(1, 3, 4), store.getFreeLambdas(OPTICAL1));
+        assertEquals("incorrect free lambdas", lambdas(1, 3, 4), store.getFreeLambdas(OPTICAL2));
+        assertEquals("incorrect lambda usage", 2, store.getLambdaUsage()[2]);
+
+        try {
+            store.allocateResources(lambdaAllocations(2, 2, OPTICAL2));
+            fail("allocation should fail");
+        } catch (IllegalStateException e) {
+            assertEquals("incorrect lambda usage", 2, store.getLambdaUsage()[2]);
+        }
+
+        store.releaseResources(allocations);
+        assertEquals("all lambdas should be free", lambdas(1, 2, 3, 4),
+                     store.getFreeLambdas(OPTICAL2));
+        assertEquals("lambda should not be in use", 0, store.getLambdaUsage()[2]);
+    }
+
+    @Test
+    public void removedLinkDropsIndexEntry() {
+        store.allocateResources(lambdaAllocations(1, 2, OPTICAL1, OPTICAL2));
+        assertEquals("incorrect lambda usage", 2, store.getLambdaUsage()[2]);
+
+        linkService.post(new LinkEvent(LinkEvent.Type.LINK_REMOVED, OPTICAL1));
+        assertEquals("removed link should not be counted", 1, store.getLambdaUsage()[2]);
+
+        linkService.post(new LinkEvent(LinkEvent.Type.LINK_UPDATED, OPTICAL2));
+        assertEquals("updated link should still be counted", 1, store.getLambdaUsage()[2]);
+    }
+
+    @Test
+    public void staleIndex() {
+        LinkResourceAllocations allocations = allocations(1, 1000, LINK1);
+        store.allocateResources(allocations);
+
+        // Released by another instance, this one still sees the link as full
+        otherStore.releaseResources(allocations);
+        assertEquals("index should be stale", 0, freeBandwidth(store, LINK1), 0);
+
+        store.allocateResources(allocations(2, 1000, LINK1));
+        assertEquals("incorrect allocations", ImmutableSet.of(IntentId.valueOf(2)),
+                     intents(store, LINK1));
+        assertEquals("incorrect free bandwidth", 0, freeBandwidth(store, LINK1), 0);
+    }
+
+    @Test
+    public void failedConditionalWrite() {
+        assertEquals("bandwidth should be free", 1000, freeBandwidth(store, LINK1), 0);
+
+        // Allocated by another instance, the write based on the index fails
+        otherStore.allocateResources(allocations(1, 400, LINK1));
+        store.allocateResources(allocations(2, 400, LINK1));
+
+        assertEquals("one write should have failed", 1, database.failedWrites);
+        assertEquals("incorrect allocations",
+                     ImmutableSet.of(IntentId.valueOf(1), IntentId.valueOf(2)),
+                     intents(store, LINK1));
+        assertEquals("incorrect free bandwidth", 200, freeBandwidth(store, LINK1), 0);
+    }
+
+    @Test
+    public void failedConditionalWriteOverbooking() {
+        assertEquals("bandwidth should be free", 1000, freeBandwidth(store, LINK1), 0);
+
+        otherStore.allocateResources(allocations(1, 800, LINK1));
+        try {
+            store.allocateResources(allocations(2, 400, LINK1));
+            fail("allocation should fail");
+        } catch (IllegalStateException e) {
+            assertEquals("incorrect allocations", ImmutableSet.of(IntentId.valueOf(1)),
+                         intents(store, LINK1));
+            assertNull("intent allocations should not be stored",
+                       store.getAllocations(IntentId.valueOf(2)));
+        }
+    }
+
+    // Link service delivering the posted events to the listeners of all
+    // store instances
+    private static final class TestLinkService extends LinkServiceAdapter {
+        private final List<LinkListener> listeners = new ArrayList<>();
+
+        @Override
+        public void addListener(LinkListener listener) {
+            listeners.add(listener);
+        }
+
+        @Override
+        public void removeListener(LinkListener listener) {
+            listeners.remove(listener);
+        }
+
+        private void post(LinkEvent event) {
+            listeners.forEach(listener -> listener.event(event));
+        }
+    }
+
+    // In-memory database, writing batches atomically
+    private static final class TestDatabaseService implements DatabaseService {
+
+        private final Map<String, Map<String, VersionedValue>> tables = new HashMap<>();
+        private long version;
+        private int failedWrites;
+
+        private Map<String, VersionedValue> table(String tableName) {
+            return tables.computeIfAbsent(tableName, name -> new HashMap<>());
+        }
+
+        @Override
+        public synchronized VersionedValue get(String tableName, String key) {
+            return table(tableName).get(key);
+        }
+
+        @Override
+        public synchronized Map<String, VersionedValue> getAll(String tableName) {
+            return new HashMap<>(table(tableName));
+        }
+
+        @Override
+        public synchronized VersionedValue put(String tableName, String key, byte[] value) {
+            return table(tableName).put(key, new VersionedValue(value, ++version));
+        }
+
+        @Override
+        public synchronized boolean putIfAbsent(String tableName, String key, byte[] value) {
+            if (table(tableName).containsKey(key)) {
+                return false;
+            }
+            put(tableName, key, value);
+            return true;
+        }
+
+        @Override
+        public boolean putIfVersionMatches(String tableName, String key, byte[] value,
+                                           long version) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean putIfValueMatches(String tableName, String key, byte[] oldValue,
+                                         byte[] newValue) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public synchronized VersionedValue remove(String tableName, String key) {
+            return table(tableName).remove(key);
+        }
+
+        @Override
+        public boolean removeIfVersionMatches(String tableName, String key, long version) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean removeIfValueMatches(String tableName, String key, byte[] value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public BatchReadResult batchRead(BatchReadRequest batchRequest) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public synchronized BatchWriteResult batchWrite(BatchWriteRequest batchRequest) {
+            boolean ok = true;
+            List<Boolean> satisfied = new ArrayList<>();
+            for (WriteRequest request : batchRequest.getAsList()) {
+                VersionedValue current = get(request.tableName(), request.key());
+                switch (request.type()) {
+                case PUT:
+                case REMOVE:
+                    satisfied.add(true);
+                    break;
+                case PUT_IF_ABSENT:
+                    satisfied.add(current == null);
+                    break;
+                case PUT_IF_VALUE:
+                    satisfied.add(current != null
+                            && Arrays.equals(current.value(), request.oldValue()));
+                    break;
+                default:
+                    throw new UnsupportedOperationException();
+                }
+                ok &= satisfied.get(satisfied.size() - 1);
+            }
+
+            List<WriteResult> results = new ArrayList<>();
+            for (int i = 0; i < batchRequest.batchSize(); i++) {
+                WriteRequest request = batchRequest.getAsList().get(i);
+                VersionedValue current = get(request.tableName(), request.key());
+                if (!ok) {
+                    results.add(new WriteResult(satisfied.get(i) ? WriteStatus.ABORTED
+                                                        : WriteStatus.PRECONDITION_VIOLATION,
+                                                current));
+                } else if (request.type() == WriteRequest.Type.REMOVE) {
+                    results.add(new WriteResult(WriteStatus.OK,
+                                                remove(request.tableName(), request.key())));
+                } else {
+                    results.add(new WriteResult(WriteStatus.OK,
+                                                put(request.tableName(), request.key(),
+                                                    request.newValue())));
+                }
+            }
+            if (!ok) {
+                failedWrites++;
+            }
+            return new BatchWriteResult(results);
+        }
+    }
+}
@@ -15,7 +15,11 @@
  */
 package org.onosproject.store.resource.impl;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.junit.After;
@@ -27,17 +31,23 @@ import org.onosproject.net.ConnectPoint;
 import org.onosproject.net.DefaultAnnotations;
 import org.onosproject.net.DefaultLink;
 import org.onosproject.net.Link;
+import org.onosproject.net.intent.IntentId;
 import org.onosproject.net.provider.ProviderId;
 import org.onosproject.net.resource.Bandwidth;
 import org.onosproject.net.resource.BandwidthResourceAllocation;
+import org.onosproject.net.resource.DefaultLinkResourceAllocations;
+import org.onosproject.net.resource.DefaultLinkResourceRequest;
+import org.onosproject.net.resource.Lambda;
 import org.onosproject.net.resource.LambdaResourceAllocation;
 import org.onosproject.net.resource.LinkResourceAllocations;
+import org.onosproject.net.resource.LinkResourceRequest;
 import org.onosproject.net.resource.LinkResourceStore;
 import org.onosproject.net.resource.ResourceAllocation;
 import org.onosproject.net.resource.ResourceType;
 import org.onosproject.store.hz.StoreService;
 import org.onosproject.store.hz.TestStoreManager;
 
+import com.google.common.collect.ImmutableSet;
 import com.hazelcast.config.Config;
 import com.hazelcast.core.Hazelcast;
 
@@ -183,6 +193,33 @@ public class HazelcastLinkResourceStoreTest {
         assertEquals(80, res.size());
     }
 
+    /**
+     * Tests the free lambdas and the lambda usage as lambdas are allocated
+     * and released.
+     */
+    @Test
+    public void testLambdaUsage() {
+        LinkResourceRequest request =
+                DefaultLinkResourceRequest.builder(IntentId.valueOf(1), Arrays.asList(link1, link2))
+                        .addLambdaRequest()
+                        .build();
+        Map<Link, Set<ResourceAllocation>> allocationsMap = new HashMap<>();
+        allocationsMap.put(link1, ImmutableSet.of(new LambdaResourceAllocation(Lambda.valueOf(5))));
+        allocationsMap.put(link2, ImmutableSet.of(new LambdaResourceAllocation(Lambda.valueOf(5))));
+        LinkResourceAllocations allocations =
+                new DefaultLinkResourceAllocations(request, allocationsMap);
+
+        store.allocateResources(allocations);
+        BitSet free = store.getFreeLambdas(link1);
+        assertEquals(79, free.cardinality());
+        assertFalse(free.get(5));
+        assertEquals(2, store.getLambdaUsage()[5]);
+
+        store.releaseResources(allocations);
+        assertEquals(80, store.getFreeLambdas(link1).cardinality());
+        assertEquals(0, store.getLambdaUsage().length);
+    }
+
     public static final class TestHazelcastLinkResourceStore
             extends HazelcastLinkResourceStore {
 
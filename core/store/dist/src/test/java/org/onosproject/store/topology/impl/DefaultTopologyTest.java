@@ -0,0 +1,224 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.topology.impl;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.packet.ChassisId;
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.DefaultDevice;
+import org.onosproject.net.DefaultLink;
+import org.onosproject.net.Device;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.Link;
+import org.onosproject.net.provider.ProviderId;
+import org.onosproject.net.topology.ClusterId;
+import org.onosproject.net.topology.DefaultGraphDescription;
+import org.onosproject.net.topology.TopologyCluster;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.onosproject.net.DeviceId.deviceId;
+import static org.onosproject.net.PortNumber.portNumber;
+
+/**
+ * Test of the default topology implementation, including derivation of
+ * topologies from their predecessors.
+ */
+public class DefaultTopologyTest {
+
+    private static final ProviderId PID = new ProviderId("of", "foo.bar");
+    private static final int MAX_DELTA = 64;
+    private static final int RING_SIZE = 24;
+
+    private static final Device D1 = device("1");
+    private static final Device D2 = device("2");
+    private static final Device D3 = device("3");
+    private static final Device D4 = device("4");
+    private static final Device D5 = device("5");
+
+    private static final Link L12 = link("1", 1, "2", 1);
+    private static final Link L21 = link("2", 1, "1", 1);
+    private static final Link L32 = link("3", 2, "2", 2);
+    private static final Link L23 = link("2", 2, "3", 2);
+    private static final Link L14 = link("1", 3, "4", 3);
+    private static final Link L41 = link("4", 3, "1", 3);
+    private static final Link L34 = link("3", 4, "4", 4);
+    private static final Link L43 = link("4", 4, "3", 4);
+    private static final Link L45 = link("4", 5, "5", 5);
+    private static final Link L54 = link("5", 5, "4", 5);
+
+    private static final Set<Device> DEVICES = ImmutableSet.of(D1, D2, D3, D4, D5);
+
+    private DefaultTopology dt;
+
+    @Before
+    public void setUp() {
+        dt = topology(null, DEVICES, L12, L21, L32, L23, L14, L41, L34, L43);
+        assertEquals("incorrect device count", 5, dt.deviceCount());
+        assertEquals("incorrect link count", 8, dt.linkCount());
+        assertEquals("incorrect cluster count", 2, dt.clusterCount());
+        assertEquals("incorrect broadcast set size", 6,
+                     dt.broadcastSetSize(ClusterId.clusterId(0)));
+    }
+
+    @Test
+    public void unchangedGraph() {
+        DefaultTopology derived =
+                topology(dt, DEVICES, L12, L21, L32, L23, L14, L41, L34, L43);
+        assertSameAsFresh(derived, DEVICES, L12, L21, L32, L23, L14, L41, L34, L43);
+    }
+
+    @Test
+    public void linksRemoved() {
+        DefaultTopology derived =
+                topology(dt, DEVICES, L12, L21, L32, L23, L34, L43);
+        assertSameAsFresh(derived, DEVICES, L12, L21, L32, L23, L34, L43);
+        assertEquals("incorrect path count", 1,
+                     derived.getPaths(D1.id(), D4.id()).size());
+    }
+
+    @Test
+    public void linksAdded() {
+        DefaultTopology derived =
+                topology(dt, DEVICES, L12, L21, L32, L23, L14, L41, L34, L43, L45, L54);
+        assertSameAsFresh(derived, DEVICES, L12, L21, L32, L23, L14, L41, L34, L43, L45, L54);
+        assertEquals("incorrect cluster count", 1, derived.clusterCount());
+        assertEquals("incorrect path count", 1,
+                     derived.getPaths(D1.id(), D5.id()).size());
+    }
+
+    @Test
+    public void deviceRemoved() {
+        Set<Device> devices = ImmutableSet.of(D1, D2, D3, D4);
+        DefaultTopology derived =
+                topology(dt, devices, L12, L21, L32, L23, L14, L41, L34, L43);
+        assertSameAsFresh(derived, devices, L12, L21, L32, L23, L14, L41, L34, L43);
+    }
+
+    @Test
+    public void deltaTooLarge() {
+        DefaultTopology derived =
+                new DefaultTopology(PID, description(DEVICES, L12, L21, L32, L23),
+                                    dt, 1, PathSearchCounters.NONE, null);
+        assertSameAsFresh(derived, DEVICES, L12, L21, L32, L23);
+    }
+
+    @Test
+    public void parallelSearch() {
+        // Bi-directional ring large enough to have its searches split
+        Set<Device> devices = new HashSet<>();
+        Link[] links = new Link[2 * RING_SIZE];
+        for (int i = 0; i < RING_SIZE; i++) {
+            String src = Integer.toString(i);
+            String dst = Integer.toString((i + 1) % RING_SIZE);
+            devices.add(device(src));
+            links[2 * i] = link(src, 1, dst, 2);
+            links[2 * i + 1] = link(dst, 2, src, 1);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            DefaultTopology parallel = topology(null, pool, devices, links);
+            assertSameAsFresh(parallel, devices, links);
+
+            Link[] fewerLinks = new Link[links.length - 2];
+            System.arraycopy(links, 2, fewerLinks, 0, fewerLinks.length);
+            DefaultTopology derived = topology(parallel, pool, devices, fewerLinks);
+            assertSameAsFresh(derived, devices, fewerLinks);
+
+            // Pool which is no longer accepting tasks should not matter
+            pool.shutdown();
+            derived = topology(parallel, pool, devices, fewerLinks);
+            assertSameAsFresh(derived, devices, fewerLinks);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Asserts that the derived topology matches one built from scratch.
+    private void assertSameAsFresh(DefaultTopology derived, Set<Device> devices,
+                                   Link... links) {
+        DefaultTopology fresh = topology(null, devices, links);
+        assertEquals("incorrect device count", fresh.deviceCount(), derived.deviceCount());
+        assertEquals("incorrect link count", fresh.linkCount(), derived.linkCount());
+        assertEquals("incorrect path count", fresh.pathCount(), derived.pathCount());
+        assertEquals("incorrect cluster count", fresh.clusterCount(), derived.clusterCount());
+
+        for (Device src : devices) {
+            for (Device dst : devices) {
+                assertEquals("incorrect paths", fresh.getPaths(src.id(), dst.id()),
+                             derived.getPaths(src.id(), dst.id()));
+            }
+            TopologyCluster cluster = fresh.getCluster(src.id());
+            assertEquals("incorrect cluster devices", fresh.getClusterDevices(cluster),
+                         derived.getClusterDevices(derived.getCluster(src.id())));
+            assertEquals("incorrect broadcast set size",
+                         fresh.broadcastSetSize(cluster.id()),
+                         derived.broadcastSetSize(derived.getCluster(src.id()).id()));
+        }
+    }
+
+    // Creates a topology and forces computation of all its state.
+    private static DefaultTopology topology(DefaultTopology previous,
+                                            Set<Device> devices, Link... links) {
+        return topology(previous, null, devices, links);
+    }
+
+    // Creates a topology using the given search pool and forces computation
+    // of all its state.
+    private static DefaultTopology topology(DefaultTopology previous,
+                                            ForkJoinPool pool,
+                                            Set<Device> devices, Link... links) {
+        DefaultTopology topology =
+                new DefaultTopology(PID, description(devices, links), previous,
+                                    MAX_DELTA, PathSearchCounters.NONE, pool);
+        topology.pathCount();
+        for (TopologyCluster cluster : topology.getClusters()) {
+            topology.broadcastSetSize(cluster.id());
+        }
+        return topology;
+    }
+
+    private static DefaultGraphDescription description(Set<Device> devices,
+                                                       Link... links) {
+        return new DefaultGraphDescription(System.nanoTime(), devices,
+                                           ImmutableSet.copyOf(links));
+    }
+
+    // Short-hand for creating a link.
+    private static Link link(String src, int sp, String dst, int dp) {
+        return new DefaultLink(PID, new ConnectPoint(did(src), portNumber(sp)),
+                               new ConnectPoint(did(dst), portNumber(dp)),
+                               Link.Type.DIRECT);
+    }
+
+    // Crates a new device with the specified id
+    private static Device device(String id) {
+        return new DefaultDevice(PID, did(id), Device.Type.SWITCH,
+                                 "mfg", "1.0", "1.1", "1234", new ChassisId());
+    }
+
+    // Short-hand for producing a device id from a string
+    private static DeviceId did(String id) {
+        return deviceId("of:" + id);
+    }
+
+}
@@ -15,6 +15,8 @@
  */
 package org.onosproject.store.trivial.impl;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -59,12 +61,14 @@ public class SimpleLinkResourceStore implements LinkResourceStore {
     private Map<IntentId, LinkResourceAllocations> linkResourceAllocationsMap;
     private Map<Link, Set<LinkResourceAllocations>> allocatedResources;
     private Map<Link, Set<ResourceAllocation>> freeResources;
+    private int[] lambdaUsage;
 
     @Activate
     public void activate() {
         linkResourceAllocationsMap = new HashMap<>();
         allocatedResources = new HashMap<>();
         freeResources = new HashMap<>();
+        lambdaUsage = new int[0];
 
         log.info("Started");
     }
@@ -150,6 +154,7 @@ public class SimpleLinkResourceStore implements LinkResourceStore {
                 break;
             case LAMBDA:
                 checkState(freeRes.remove(res));
+                updateLambdaUsage((LambdaResourceAllocation) res, 1);
                 break;
             default:
                 break;
@@ -183,6 +188,7 @@ public class SimpleLinkResourceStore implements LinkResourceStore {
                 break;
             case LAMBDA:
                 checkState(freeRes.add(res));
+                updateLambdaUsage((LambdaResourceAllocation) res, -1);
                 break;
             default:
                 break;
@@ -202,6 +208,36 @@ public class SimpleLinkResourceStore implements LinkResourceStore {
         return freeRes;
     }
 
+    /**
+     * Adds given delta to the number of links on which a lambda is in use.
+     *
+     * @param res the lambda allocation
+     * @param delta the number of links to add
+     */
+    private synchronized void updateLambdaUsage(LambdaResourceAllocation res, int delta) {
+        int lambda = res.lambda().toInt();
+        if (lambda >= lambdaUsage.length) {
+            lambdaUsage = Arrays.copyOf(lambdaUsage, lambda + 1);
+        }
+        lambdaUsage[lambda] += delta;
+    }
+
+    @Override
+    public synchronized BitSet getFreeLambdas(Link link) {
+        BitSet lambdas = new BitSet();
+        for (ResourceAllocation res : getFreeResources(link)) {
+            if (res.type() == ResourceType.LAMBDA) {
+                lambdas.set(((LambdaResourceAllocation) res).lambda().toInt());
+            }
+        }
+        return lambdas;
+    }
+
+    @Override
+    public synchronized int[] getLambdaUsage() {
+        return lambdaUsage.clone();
+    }
+
     @Override
     public synchronized void allocateResources(LinkResourceAllocations allocations) {
         checkNotNull(allocations);
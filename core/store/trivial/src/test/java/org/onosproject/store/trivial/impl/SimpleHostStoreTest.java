@@ -0,0 +1,169 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.trivial.impl;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.IpPrefix;
+import org.onlab.packet.MacAddress;
+import org.onlab.packet.VlanId;
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.Host;
+import org.onosproject.net.HostId;
+import org.onosproject.net.HostLocation;
+import org.onosproject.net.PortNumber;
+import org.onosproject.net.host.DefaultHostDescription;
+import org.onosproject.net.host.InterfaceIpAddress;
+import org.onosproject.net.host.PortAddresses;
+import org.onosproject.net.provider.ProviderId;
+
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.onosproject.net.DeviceId.deviceId;
+import static org.onosproject.net.host.HostEvent.Type.HOST_MOVED;
+
+/**
+ * Test of the simple HostStore implementation and its indexes.
+ */
+public class SimpleHostStoreTest {
+
+    private static final ProviderId PID = new ProviderId("of", "foo");
+    private static final DeviceId DID1 = deviceId("of:foo");
+    private static final DeviceId DID2 = deviceId("of:bar");
+
+    private static final MacAddress MAC1 = MacAddress.valueOf("00:00:00:00:00:01");
+    private static final MacAddress MAC2 = MacAddress.valueOf("00:00:00:00:00:02");
+    private static final VlanId VLAN1 = VlanId.vlanId((short) 10);
+    private static final VlanId VLAN2 = VlanId.vlanId((short) 20);
+    private static final IpAddress IP1 = IpAddress.valueOf("10.0.0.1");
+    private static final IpAddress IP2 = IpAddress.valueOf("10.0.0.2");
+
+    private static final HostLocation LOC1 =
+            new HostLocation(DID1, PortNumber.portNumber(1), 0);
+    private static final HostLocation LOC2 =
+            new HostLocation(DID2, PortNumber.portNumber(2), 0);
+
+    private SimpleHostStore store;
+
+    @Before
+    public void setUp() {
+        store = new SimpleHostStore();
+        store.activate();
+    }
+
+    private Host add(MacAddress mac, VlanId vlan, HostLocation location, IpAddress... ips) {
+        HostId id = HostId.hostId(mac, vlan);
+        store.createOrUpdateHost(PID, id, new DefaultHostDescription(
+                mac, vlan, location, ImmutableSet.copyOf(ips)));
+        return store.getHost(id);
+    }
+
+    private static Set<HostId> ids(Set<Host> hosts) {
+        ImmutableSet.Builder<HostId> ids = ImmutableSet.builder();
+        for (Host host : hosts) {
+            ids.add(host.id());
+        }
+        return ids.build();
+    }
+
+    @Test
+    public void lookups() {
+        Host h1 = add(MAC1, VLAN1, LOC1, IP1);
+        Host h2 = add(MAC2, VLAN1, LOC1, IP2);
+        Host h3 = add(MAC1, VLAN2, LOC2, IP1);
+
+        assertEquals("incorrect hosts by ip", ImmutableSet.of(h1.id(), h3.id()),
+                     ids(store.getHosts(IP1)));
+        assertEquals("incorrect hosts by mac", ImmutableSet.of(h1.id(), h3.id()),
+                     ids(store.getHosts(MAC1)));
+        assertEquals("incorrect hosts by vlan", ImmutableSet.of(h1.id(), h2.id()),
+                     ids(store.getHosts(VLAN1)));
+        assertEquals("incorrect hosts by device", ImmutableSet.of(h1.id(), h2.id()),
+                     ids(store.getConnectedHosts(DID1)));
+        assertEquals("incorrect hosts by location", ImmutableSet.of(h3.id()),
+                     ids(store.getConnectedHosts(new ConnectPoint(DID2, PortNumber.portNumber(2)))));
+        assertTrue("no hosts expected", store.getHosts(IpAddress.valueOf("10.0.0.3")).isEmpty());
+    }
+
+    @Test
+    public void moveAndUpdate() {
+        Host h1 = add(MAC1, VLAN1, LOC1, IP1);
+        HostId id = h1.id();
+
+        assertEquals("host should move", HOST_MOVED, store.createOrUpdateHost(
+                PID, id, new DefaultHostDescription(MAC1, VLAN1, LOC2, IP1)).type());
+        assertTrue("host should have left device", store.getConnectedHosts(DID1).isEmpty());
+        assertEquals("host should be on new device", ImmutableSet.of(id),
+                     ids(store.getConnectedHosts(DID2)));
+
+        add(MAC1, VLAN1, LOC2, IP2);
+        assertEquals("host should have both addresses", ImmutableSet.of(id),
+                     ids(store.getHosts(IP2)));
+        assertEquals("host should keep its address", ImmutableSet.of(id),
+                     ids(store.getHosts(IP1)));
+        assertEquals("updated host expected", store.getHost(id),
+                     store.getHosts(IP1).iterator().next());
+    }
+
+    @Test
+    public void remove() {
+        Host h1 = add(MAC1, VLAN1, LOC1, IP1);
+        store.removeHost(h1.id());
+        assertTrue("no hosts expected by ip", store.getHosts(IP1).isEmpty());
+        assertTrue("no hosts expected by mac", store.getHosts(MAC1).isEmpty());
+        assertTrue("no hosts expected by vlan", store.getHosts(VLAN1).isEmpty());
+        assertTrue("no hosts expected by device", store.getConnectedHosts(DID1).isEmpty());
+        assertTrue("no hosts expected by location", store.getConnectedHosts(LOC1).isEmpty());
+    }
+
+    private static PortAddresses binding(ConnectPoint cp, String... addresses) {
+        ImmutableSet.Builder<InterfaceIpAddress> ias = ImmutableSet.builder();
+        for (String address : addresses) {
+            ias.add(new InterfaceIpAddress(IpAddress.valueOf(address.split("/")[0]),
+                                           IpPrefix.valueOf(address)));
+        }
+        return new PortAddresses(cp, ias.build(), MAC1);
+    }
+
+    @Test
+    public void addressBindingsForSubnet() {
+        ConnectPoint cp1 = new ConnectPoint(DID1, PortNumber.portNumber(1));
+        ConnectPoint cp2 = new ConnectPoint(DID2, PortNumber.portNumber(1));
+        PortAddresses pa1 = binding(cp1, "10.0.1.1/24", "10.0.2.1/24");
+        PortAddresses pa2 = binding(cp2, "10.0.0.1/16");
+        store.updateAddressBindings(pa1);
+        store.updateAddressBindings(pa2);
+
+        assertEquals("incorrect bindings", ImmutableSet.of(pa1, pa2),
+                     store.getAddressBindingsForSubnet(IpAddress.valueOf("10.0.2.9")));
+        assertEquals("incorrect bindings", ImmutableSet.of(pa2),
+                     store.getAddressBindingsForSubnet(IpAddress.valueOf("10.0.3.9")));
+        assertTrue("no bindings expected",
+                   store.getAddressBindingsForSubnet(IpAddress.valueOf("10.1.0.1")).isEmpty());
+
+        store.removeAddressBindings(pa2);
+        assertEquals("incorrect bindings", ImmutableSet.of(pa1),
+                     store.getAddressBindingsForSubnet(IpAddress.valueOf("10.0.1.9")));
+        store.clearAddressBindings(cp1);
+        assertTrue("no bindings expected",
+                   store.getAddressBindingsForSubnet(IpAddress.valueOf("10.0.1.9")).isEmpty());
+    }
+}
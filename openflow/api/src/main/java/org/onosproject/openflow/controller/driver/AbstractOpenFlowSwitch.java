@@ -17,8 +17,12 @@
 package org.onosproject.openflow.controller.driver;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jboss.netty.channel.Channel;
@@ -47,8 +51,16 @@ public abstract class AbstractOpenFlowSwitch implements OpenFlowSwitchDriver {
 
     protected final Logger log = LoggerFactory.getLogger(getClass());
 
+    // Maximum number of queued messages written to the channel at once
+    private static final int MAX_WRITE_BATCH = 512;
+
     protected Channel channel;
 
+    // Messages waiting to be written to the channel, along with the flag
+    // held by whichever thread is currently writing them
+    private final Queue<OFMessage> outbound = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+
     private boolean connected;
     protected boolean startDriverHandshakeCalled = false;
     private final Dpid dpid;
@@ -93,17 +105,57 @@ public abstract class AbstractOpenFlowSwitch implements OpenFlowSwitchDriver {
     @Override
     public final void sendMsg(OFMessage m) {
         if (role == RoleState.MASTER) {
-            this.write(m);
+            outbound.add(m);
+            flush();
         }
     }
 
     @Override
     public final void sendMsg(List<OFMessage> msgs) {
         if (role == RoleState.MASTER) {
-            this.write(msgs);
+            outbound.addAll(msgs);
+            flush();
         }
     }
 
+    @Override
+    public final void resumeWrites() {
+        flush();
+    }
+
+    // Writes the queued messages to the channel in batches, unless another
+    // thread is already doing so, in which case it picks up our messages
+    // too. Writing stops while the channel is not writable and resumes once
+    // it becomes writable again. The queue and the channel are checked again
+    // after releasing the flag, so that messages queued or a channel made
+    // writable while another thread held it are not left behind.
+    private void flush() {
+        while (!outbound.isEmpty() && isWritable()
+                && flushing.compareAndSet(false, true)) {
+            try {
+                List<OFMessage> batch = new ArrayList<>(Math.min(outbound.size(), MAX_WRITE_BATCH));
+                while (batch.size() < MAX_WRITE_BATCH) {
+                    OFMessage m = outbound.poll();
+                    if (m == null) {
+                        break;
+                    }
+                    batch.add(m);
+                }
+                if (!batch.isEmpty()) {
+                    this.write(batch);
+                }
+            } finally {
+                flushing.set(false);
+            }
+        }
+    }
+
+    // Returns whether messages may be written to the channel.
+    private boolean isWritable() {
+        Channel ch = this.channel;
+        return ch == null || ch.isWritable();
+    }
+
     @Override
     public abstract void write(OFMessage msg);
 
@@ -189,6 +189,13 @@ public interface OpenFlowSwitchDriver extends OpenFlowSwitch {
     /**
      * Writes the message to the output stream
      * in a driver specific manner.
+     * <p>
+     * The message is written right away, ahead of any messages still queued
+     * by sendMsg. It is meant for the messages of the handshake and of the
+     * role negotiation, which are sent regardless of the role of the
+     * controller; callers must not mix it with sendMsg for messages whose
+     * relative order matters.
+     * </p>
      *
      * @param msg the message to write
      */
@@ -197,9 +204,19 @@ public interface OpenFlowSwitchDriver extends OpenFlowSwitch {
     /**
      * Writes to the OFMessage list to the output stream
      * in a driver specific manner.
+     * <p>
+     * As with {@link #write(OFMessage)}, the messages are written ahead of
+     * any messages still queued by sendMsg.
+     * </p>
      *
      * @param msgs the messages to be written
      */
     public void write(List<OFMessage> msgs);
 
+    /**
+     * Resumes writing the messages queued by sendMsg while the channel to
+     * the switch was not writable.
+     */
+    public void resumeWrites();
+
 }
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.openflow.controller.driver;
+
+import com.google.common.collect.ImmutableList;
+import org.jboss.netty.channel.Channel;
+import org.junit.Test;
+import org.onosproject.openflow.controller.Dpid;
+import org.onosproject.openflow.controller.RoleState;
+import org.projectfloodlight.openflow.protocol.OFFactories;
+import org.projectfloodlight.openflow.protocol.OFFactory;
+import org.projectfloodlight.openflow.protocol.OFMessage;
+import org.projectfloodlight.openflow.protocol.OFPortDesc;
+import org.projectfloodlight.openflow.protocol.OFVersion;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the queueing and batching of messages sent to a switch.
+ */
+public class AbstractOpenFlowSwitchTest {
+
+    private static final OFFactory FACTORY = OFFactories.getFactory(OFVersion.OF_13);
+
+    private static OFMessage message(long xid) {
+        return FACTORY.buildEchoRequest().setXid(xid).build();
+    }
+
+    @Test
+    public void singleBatch() {
+        TestSwitch sw = new TestSwitch();
+        sw.setRole(RoleState.MASTER);
+        List<OFMessage> msgs = ImmutableList.of(message(1), message(2), message(3));
+        sw.sendMsg(msgs);
+        assertEquals("incorrect number of batches", 1, sw.batches.size());
+        assertEquals("incorrect batch", msgs, sw.batches.get(0));
+    }
+
+    @Test
+    public void largeBatch() {
+        TestSwitch sw = new TestSwitch();
+        sw.setRole(RoleState.MASTER);
+        List<OFMessage> msgs = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            msgs.add(message(i));
+        }
+        sw.sendMsg(msgs);
+        assertEquals("incorrect number of batches", 2, sw.batches.size());
+        assertEquals("incorrect messages", msgs, sw.written());
+    }
+
+    @Test
+    public void notMaster() {
+        TestSwitch sw = new TestSwitch();
+        sw.sendMsg(message(1));
+        assertTrue("nothing should be written", sw.batches.isEmpty());
+    }
+
+    @Test
+    public void resumeWhileFlushing() {
+        AtomicBoolean writable = new AtomicBoolean(false);
+        AtomicReference<Runnable> onCheck = new AtomicReference<>();
+        TestSwitch sw = new TestSwitch();
+        sw.setRole(RoleState.MASTER);
+        sw.setChannel(channel(writable, onCheck));
+
+        sw.sendMsg(message(1));
+        assertTrue("nothing should be written", sw.batches.isEmpty());
+
+        // The channel becomes writable right after the sender found it was
+        // not; the queued messages must still be written.
+        onCheck.set(() -> {
+            writable.set(true);
+            sw.resumeWrites();
+        });
+        sw.sendMsg(message(2));
+        assertEquals("incorrect messages", ImmutableList.of(message(1), message(2)),
+                     sw.written());
+    }
+
+    @Test
+    public void concurrentSends() throws Exception {
+        int threads = 4;
+        int msgsPerThread = 50000;
+        TestSwitch sw = new TestSwitch();
+        sw.setRole(RoleState.MASTER);
+
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final long base = t * (long) msgsPerThread;
+            new Thread(() -> {
+                for (int i = 0; i < msgsPerThread; i++) {
+                    sw.sendMsg(message(base + i));
+                }
+                done.countDown();
+            }).start();
+        }
+        assertTrue("all messages should be sent", done.await(30, TimeUnit.SECONDS));
+
+        // Messages of each sender must be written in the order they were sent
+        List<OFMessage> written = sw.written();
+        assertEquals("incorrect message count", threads * msgsPerThread, written.size());
+        long[] last = new long[threads];
+        Arrays.fill(last, -1);
+        for (OFMessage m : written) {
+            int t = (int) (m.getXid() / msgsPerThread);
+            assertTrue("messages out of order", m.getXid() > last[t]);
+            last[t] = m.getXid();
+        }
+    }
+
+    // Channel whose writability is set by the test; the hook, if any, is run
+    // once when the writability is next checked, after it has been read.
+    private static Channel channel(AtomicBoolean writable,
+                                   AtomicReference<Runnable> onCheck) {
+        return (Channel) Proxy.newProxyInstance(
+                Channel.class.getClassLoader(), new Class<?>[]{Channel.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("isWritable")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    boolean result = writable.get();
+                    Runnable hook = onCheck.getAndSet(null);
+                    if (hook != null) {
+                        hook.run();
+                    }
+                    return result;
+                });
+    }
+
+    // Mock switch which records the batches of messages written to it.
+    private static class TestSwitch extends AbstractOpenFlowSwitch {
+
+        final List<List<OFMessage>> batches = Collections.synchronizedList(new ArrayList<>());
+
+        TestSwitch() {
+            super(new Dpid(1));
+        }
+
+        List<OFMessage> written() {
+            List<OFMessage> all = new ArrayList<>();
+            synchronized (batches) {
+                batches.forEach(all::addAll);
+            }
+            return all;
+        }
+
+        @Override
+        public void setRole(RoleState state) {
+            this.role = state;
+        }
+
+        @Override
+        public void write(OFMessage msg) {
+            write(Collections.singletonList(msg));
+        }
+
+        @Override
+        public void write(List<OFMessage> msgs) {
+            batches.add(ImmutableList.copyOf(msgs));
+        }
+
+        @Override
+        public Boolean supportNxRole() {
+            return false;
+        }
+
+        @Override
+        public void startDriverHandshake() {
+        }
+
+        @Override
+        public boolean isDriverHandshakeComplete() {
+            return true;
+        }
+
+        @Override
+        public void processDriverHandshakeMessage(OFMessage m) {
+        }
+
+        @Override
+        public List<OFPortDesc> getPorts() {
+            return Collections.emptyList();
+        }
+    }
+}
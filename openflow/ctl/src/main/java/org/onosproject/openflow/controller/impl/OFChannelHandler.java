@@ -1060,6 +1060,16 @@ class OFChannelHandler extends IdleStateAwareChannelHandler {
         }
     }
 
+    @Override
+    public void channelInterestChanged(ChannelHandlerContext ctx,
+            ChannelStateEvent e) throws Exception {
+        // Messages queued while the channel was not writable can now be sent
+        if (sw != null && e.getChannel().isWritable()) {
+            sw.resumeWrites();
+        }
+        super.channelInterestChanged(ctx, e);
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e)
             throws Exception {
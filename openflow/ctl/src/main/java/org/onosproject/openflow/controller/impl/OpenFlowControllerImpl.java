@@ -15,9 +15,11 @@
  */
 package org.onosproject.openflow.controller.impl;
 
+import static com.google.common.base.Strings.isNullOrEmpty;
 import static org.onlab.util.Tools.namedThreads;
 
 import java.util.Collection;
+import java.util.Dictionary;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -26,11 +28,19 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+import com.codahale.metrics.Counter;
 import com.google.common.collect.Lists;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
 import org.onosproject.openflow.controller.DefaultOpenFlowPacketContext;
 import org.onosproject.openflow.controller.Dpid;
 import org.onosproject.openflow.controller.OpenFlowController;
@@ -41,6 +51,7 @@ import org.onosproject.openflow.controller.OpenFlowSwitchListener;
 import org.onosproject.openflow.controller.PacketListener;
 import org.onosproject.openflow.controller.RoleState;
 import org.onosproject.openflow.controller.driver.OpenFlowAgent;
+import org.onosproject.openflow.controller.impl.PacketInPipeline.OverloadPolicy;
 import org.projectfloodlight.openflow.protocol.OFCircuitPortStatus;
 import org.projectfloodlight.openflow.protocol.OFExperimenter;
 import org.projectfloodlight.openflow.protocol.OFFactories;
@@ -53,6 +64,7 @@ import org.projectfloodlight.openflow.protocol.OFPortStatus;
 import org.projectfloodlight.openflow.protocol.OFStatsReply;
 import org.projectfloodlight.openflow.protocol.OFStatsReplyFlags;
 import org.projectfloodlight.openflow.protocol.OFStatsType;
+import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -67,6 +79,28 @@ public class OpenFlowControllerImpl implements OpenFlowController {
     private static final Logger log =
             LoggerFactory.getLogger(OpenFlowControllerImpl.class);
 
+    private static final int DEFAULT_PACKET_IN_WORKERS = 0;
+    private static final int DEFAULT_PACKET_IN_QUEUE_SIZE = 1024;
+    private static final String DEFAULT_PACKET_IN_OVERLOAD_POLICY = "DROP_NEWEST";
+    private static final long PACKET_IN_DROP_LOG_INTERVAL = 1000;
+
+    @Property(name = "packetInWorkers", intValue = DEFAULT_PACKET_IN_WORKERS,
+            label = "Number of threads processing packet-ins; 0 processes " +
+                    "them on the I/O thread on which they were received")
+    private int packetInWorkers = DEFAULT_PACKET_IN_WORKERS;
+
+    @Property(name = "packetInQueueSize", intValue = DEFAULT_PACKET_IN_QUEUE_SIZE,
+            label = "Maximum number of packet-ins queued per switch")
+    private int packetInQueueSize = DEFAULT_PACKET_IN_QUEUE_SIZE;
+
+    @Property(name = "packetInOverloadPolicy", value = DEFAULT_PACKET_IN_OVERLOAD_POLICY,
+            label = "Packet-in dropped once the queue of a switch is full; " +
+                    "DROP_NEWEST or DROP_OLDEST")
+    private String packetInOverloadPolicy = DEFAULT_PACKET_IN_OVERLOAD_POLICY;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MetricsService metricsService;
+
     private final ExecutorService executorMsgs =
         Executors.newFixedThreadPool(32,
                                      namedThreads("of-event-stats-%d"));
@@ -95,14 +129,95 @@ public class OpenFlowControllerImpl implements OpenFlowController {
 
     private final Controller ctrl = new Controller();
 
+    // Pipeline processing packet-ins; null if they are processed inline
+    private volatile PacketInPipeline packetInPipeline;
+    private Counter packetInsQueued;
+    private Counter packetInsDropped;
+
     @Activate
-    public void activate() {
+    public void activate(ComponentContext context) {
+        MetricsComponent component = metricsService.registerComponent("OpenFlowController");
+        MetricsFeature feature = component.registerFeature("packetIn");
+        packetInsQueued = metricsService.createCounter(component, feature, "queued");
+        packetInsDropped = metricsService.createCounter(component, feature, "dropped");
+        modified(context);
+        setupPacketInPipeline();
         ctrl.start(agent);
     }
 
     @Deactivate
     public void deactivate() {
         ctrl.stop();
+        PacketInPipeline pipeline = packetInPipeline;
+        packetInPipeline = null;
+        if (pipeline != null) {
+            pipeline.shutdown();
+        }
+    }
+
+    @Modified
+    public void modified(ComponentContext context) {
+        if (context == null) {
+            return;
+        }
+
+        Dictionary properties = context.getProperties();
+        int newWorkers;
+        try {
+            String s = (String) properties.get("packetInWorkers");
+            newWorkers = isNullOrEmpty(s) ? packetInWorkers : Integer.parseInt(s);
+        } catch (Exception e) {
+            newWorkers = DEFAULT_PACKET_IN_WORKERS;
+        }
+
+        int newQueueSize;
+        try {
+            String s = (String) properties.get("packetInQueueSize");
+            newQueueSize = isNullOrEmpty(s) ? packetInQueueSize : Integer.parseInt(s);
+        } catch (Exception e) {
+            newQueueSize = DEFAULT_PACKET_IN_QUEUE_SIZE;
+        }
+
+        String newPolicy;
+        try {
+            String s = (String) properties.get("packetInOverloadPolicy");
+            newPolicy = isNullOrEmpty(s) ? packetInOverloadPolicy :
+                    OverloadPolicy.valueOf(s.trim()).name();
+        } catch (Exception e) {
+            newPolicy = DEFAULT_PACKET_IN_OVERLOAD_POLICY;
+        }
+
+        if (newWorkers < 0 || newQueueSize <= 0) {
+            log.warn("Ignoring invalid packet-in pipeline configuration");
+            return;
+        }
+
+        if (newWorkers != packetInWorkers || newQueueSize != packetInQueueSize ||
+                !newPolicy.equals(packetInOverloadPolicy)) {
+            packetInWorkers = newWorkers;
+            packetInQueueSize = newQueueSize;
+            packetInOverloadPolicy = newPolicy;
+            if (packetInsQueued != null) {
+                setupPacketInPipeline();
+            }
+            log.info("Reconfigured with packetInWorkers = {}, packetInQueueSize = {}, " +
+                             "packetInOverloadPolicy = {}",
+                     packetInWorkers, packetInQueueSize, packetInOverloadPolicy);
+        }
+    }
+
+    // Replaces the packet-in pipeline with one using the current
+    // configuration. The old pipeline finishes processing the packet-ins
+    // queued to it; until then, packet-ins may be processed out of order.
+    private synchronized void setupPacketInPipeline() {
+        PacketInPipeline old = packetInPipeline;
+        packetInPipeline = packetInWorkers == 0 ? null :
+                new PacketInPipeline(packetInWorkers, packetInQueueSize,
+                                     OverloadPolicy.valueOf(packetInOverloadPolicy),
+                                     packetInsQueued, packetInsDropped);
+        if (old != null) {
+            old.shutdown();
+        }
     }
 
     @Override
@@ -187,11 +302,13 @@ public class OpenFlowControllerImpl implements OpenFlowController {
             }
             break;
         case PACKET_IN:
-            OpenFlowPacketContext pktCtx = DefaultOpenFlowPacketContext
-            .packetContextFromPacketIn(this.getSwitch(dpid),
-                    (OFPacketIn) msg);
-            for (PacketListener p : ofPacketListener.values()) {
-                p.handlePacket(pktCtx);
+            PacketInPipeline pipeline = packetInPipeline;
+            if (pipeline != null) {
+                if (!pipeline.submit(dpid, () -> processPacketIn(dpid, (OFPacketIn) msg))) {
+                    packetInDropped(dpid);
+                }
+            } else {
+                processPacketIn(dpid, (OFPacketIn) msg);
             }
             break;
         // TODO: Consider using separate threadpool for sensitive messages.
@@ -244,6 +361,30 @@ public class OpenFlowControllerImpl implements OpenFlowController {
         }
     }
 
+    // Reports a packet-in of the switch dropped by the overloaded pipeline;
+    // only one in every PACKET_IN_DROP_LOG_INTERVAL drops is logged.
+    private void packetInDropped(Dpid dpid) {
+        long drops = packetInsDropped.getCount();
+        if (drops % PACKET_IN_DROP_LOG_INTERVAL == 1) {
+            log.warn("Dropped packet-in from {} as its queue is full; " +
+                             "{} packet-ins dropped so far", dpid, drops);
+        }
+    }
+
+    // Hands the packet-in to the packet listeners, unless the switch has
+    // disconnected in the meantime.
+    private void processPacketIn(Dpid dpid, OFPacketIn packetIn) {
+        OpenFlowSwitch sw = this.getSwitch(dpid);
+        if (sw == null) {
+            return;
+        }
+        OpenFlowPacketContext pktCtx = DefaultOpenFlowPacketContext
+                .packetContextFromPacketIn(sw, packetIn);
+        for (PacketListener p : ofPacketListener.values()) {
+            p.handlePacket(pktCtx);
+        }
+    }
+
     private synchronized Collection<OFFlowStatsEntry> publishStats(Dpid dpid,
                                                                    OFStatsReply reply) {
         //TODO: Get rid of synchronized
@@ -397,6 +538,10 @@ public class OpenFlowControllerImpl implements OpenFlowController {
         @Override
         public void removeConnectedSwitch(Dpid dpid) {
             connectedSwitches.remove(dpid);
+            PacketInPipeline pipeline = packetInPipeline;
+            if (pipeline != null) {
+                pipeline.remove(dpid);
+            }
             OpenFlowSwitch sw = activeMasterSwitches.remove(dpid);
             if (sw == null) {
                 log.warn("sw was null for {}", dpid);
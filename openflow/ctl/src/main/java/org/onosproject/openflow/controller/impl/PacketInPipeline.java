@@ -0,0 +1,175 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.openflow.controller.impl;
+
+import com.codahale.metrics.Counter;
+import org.onosproject.openflow.controller.Dpid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.onlab.util.Tools.namedThreads;
+
+/**
+ * Pipeline which processes packet-ins using a pool of workers, while
+ * preserving the order in which the packet-ins of each switch arrived.
+ * <p>
+ * Each switch has its own bounded queue, which is drained by at most one
+ * worker at a time. Once the queue of a switch is full, its packet-ins are
+ * dropped according to the overload policy of the pipeline, so that a
+ * switch flooding the controller does not hold up the others.
+ * </p>
+ */
+final class PacketInPipeline {
+
+    /**
+     * Policy applied to packet-ins of a switch whose queue is full.
+     */
+    enum OverloadPolicy {
+        /** The arriving packet-in is dropped. */
+        DROP_NEWEST,
+        /** The oldest queued packet-in is dropped to make room. */
+        DROP_OLDEST
+    }
+
+    // Maximum number of packet-ins processed for a switch before its queue
+    // yields the worker to the queues of other switches
+    private static final int MAX_DRAIN = 64;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final ExecutorService workers;
+    private final int queueSize;
+    private final OverloadPolicy policy;
+    private final Counter queued;
+    private final Counter dropped;
+
+    private final ConcurrentMap<Dpid, SwitchQueue> queues = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a pipeline using the specified number of workers.
+     *
+     * @param workerCount number of worker threads
+     * @param queueSize   maximum number of packet-ins queued per switch
+     * @param policy      policy for packet-ins of switches with full queues
+     * @param queued      counter of packet-ins queued for processing
+     * @param dropped     counter of dropped packet-ins
+     */
+    PacketInPipeline(int workerCount, int queueSize, OverloadPolicy policy,
+                     Counter queued, Counter dropped) {
+        checkArgument(workerCount > 0, "Number of workers must be positive");
+        checkArgument(queueSize > 0, "Queue size must be positive");
+        this.policy = checkNotNull(policy, "Policy cannot be null");
+        this.queued = checkNotNull(queued, "Queued counter cannot be null");
+        this.dropped = checkNotNull(dropped, "Dropped counter cannot be null");
+        this.queueSize = queueSize;
+        this.workers = newFixedThreadPool(workerCount, namedThreads("of-packet-in-%d"));
+    }
+
+    /**
+     * Submits the processing of a packet-in from the specified switch.
+     *
+     * @param dpid switch from which the packet-in arrived
+     * @param task processing of the packet-in
+     * @return false if the packet-in, or an older one of the switch to make
+     * room for it, has been dropped
+     */
+    boolean submit(Dpid dpid, Runnable task) {
+        SwitchQueue queue = queues.computeIfAbsent(dpid, k -> new SwitchQueue());
+        boolean droppedOlder = false;
+        while (!queue.tasks.offer(task)) {
+            if (policy == OverloadPolicy.DROP_NEWEST) {
+                dropped.inc();
+                return false;
+            }
+            if (queue.tasks.poll() != null) {
+                queued.dec();
+                dropped.inc();
+                droppedOlder = true;
+            }
+        }
+        queued.inc();
+        queue.schedule();
+        return !droppedOlder;
+    }
+
+    /**
+     * Forgets the queue of the specified switch; packet-ins already queued
+     * are still processed.
+     *
+     * @param dpid switch identifier
+     */
+    void remove(Dpid dpid) {
+        queues.remove(dpid);
+    }
+
+    /**
+     * Stops the workers once they have processed the queued packet-ins.
+     */
+    void shutdown() {
+        workers.shutdown();
+    }
+
+    // Bounded queue of packet-ins of one switch, which schedules itself to
+    // be drained by a worker whenever it holds any.
+    private final class SwitchQueue implements Runnable {
+        private final BlockingQueue<Runnable> tasks = new ArrayBlockingQueue<>(queueSize);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    workers.execute(this);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                    log.warn("Unable to process packet-ins due to {}", e.getMessage());
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < MAX_DRAIN; i++) {
+                Runnable task = tasks.poll();
+                if (task == null) {
+                    break;
+                }
+                queued.dec();
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    log.warn("Error encountered while processing packet-in", e);
+                }
+            }
+            scheduled.set(false);
+
+            // Packet-ins may have arrived after the queue was last polled
+            if (!tasks.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
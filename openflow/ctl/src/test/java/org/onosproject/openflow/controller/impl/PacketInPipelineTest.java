@@ -0,0 +1,136 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.openflow.controller.impl;
+
+import com.codahale.metrics.Counter;
+import org.junit.After;
+import org.junit.Test;
+import org.onosproject.openflow.controller.Dpid;
+import org.onosproject.openflow.controller.impl.PacketInPipeline.OverloadPolicy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the packet-in pipeline.
+ */
+public class PacketInPipelineTest {
+
+    private static final Dpid DPID1 = new Dpid(1);
+    private static final Dpid DPID2 = new Dpid(2);
+
+    private final Counter queued = new Counter();
+    private final Counter dropped = new Counter();
+
+    private PacketInPipeline pipeline;
+
+    @After
+    public void tearDown() {
+        if (pipeline != null) {
+            pipeline.shutdown();
+        }
+    }
+
+    @Test
+    public void perSwitchOrder() throws Exception {
+        pipeline = new PacketInPipeline(4, 10000, OverloadPolicy.DROP_NEWEST, queued, dropped);
+        List<Integer> seen1 = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> seen2 = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(2000);
+        for (int i = 0; i < 1000; i++) {
+            final int n = i;
+            pipeline.submit(DPID1, () -> { seen1.add(n); done.countDown(); });
+            pipeline.submit(DPID2, () -> { seen2.add(n); done.countDown(); });
+        }
+        assertTrue("all packet-ins should be processed", done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("packet-ins out of order", i, (int) seen1.get(i));
+            assertEquals("packet-ins out of order", i, (int) seen2.get(i));
+        }
+        assertEquals("nothing should be dropped", 0, dropped.getCount());
+    }
+
+    @Test
+    public void dropNewest() throws Exception {
+        pipeline = new PacketInPipeline(1, 2, OverloadPolicy.DROP_NEWEST, queued, dropped);
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        pipeline.submit(DPID1, () -> { blocked.countDown(); await(release); });
+        assertTrue("worker should be busy", blocked.await(5, TimeUnit.SECONDS));
+
+        CountDownLatch done = new CountDownLatch(2);
+        List<Boolean> accepted = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final int n = i;
+            accepted.add(pipeline.submit(DPID1, () -> { seen.add(n); done.countDown(); }));
+        }
+        assertEquals("drops should be reported", Arrays.asList(true, true, false, false), accepted);
+        assertEquals("incorrect drop count", 2, dropped.getCount());
+        release.countDown();
+        assertTrue("queued packet-ins should be processed", done.await(5, TimeUnit.SECONDS));
+        assertEquals("incorrect packet-ins processed", Arrays.asList(0, 1), seen);
+    }
+
+    @Test
+    public void dropOldest() throws Exception {
+        pipeline = new PacketInPipeline(1, 2, OverloadPolicy.DROP_OLDEST, queued, dropped);
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        pipeline.submit(DPID1, () -> { blocked.countDown(); await(release); });
+        assertTrue("worker should be busy", blocked.await(5, TimeUnit.SECONDS));
+
+        CountDownLatch done = new CountDownLatch(2);
+        List<Boolean> accepted = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final int n = i;
+            accepted.add(pipeline.submit(DPID1, () -> { seen.add(n); done.countDown(); }));
+        }
+        assertEquals("drops should be reported", Arrays.asList(true, true, false, false), accepted);
+        assertEquals("incorrect drop count", 2, dropped.getCount());
+        release.countDown();
+        assertTrue("queued packet-ins should be processed", done.await(5, TimeUnit.SECONDS));
+        assertEquals("incorrect packet-ins processed", Arrays.asList(2, 3), seen);
+    }
+
+    @Test
+    public void slowSwitch() throws Exception {
+        pipeline = new PacketInPipeline(2, 100, OverloadPolicy.DROP_NEWEST, queued, dropped);
+        CountDownLatch release = new CountDownLatch(1);
+        pipeline.submit(DPID1, () -> await(release));
+
+        // Another switch must not be held up by the slow one
+        CountDownLatch done = new CountDownLatch(1);
+        pipeline.submit(DPID2, done::countDown);
+        assertTrue("packet-in should be processed", done.await(5, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -295,6 +295,10 @@ public class RoleManagerTest {
         public void write(List<OFMessage> msgs) {
         }
 
+        @Override
+        public void resumeWrites() {
+        }
+
         @Override
         public void returnRoleReply(RoleState requested, RoleState response) {
             failed = requested;
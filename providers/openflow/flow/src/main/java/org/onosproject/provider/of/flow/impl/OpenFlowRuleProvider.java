@@ -17,6 +17,7 @@ package org.onosproject.provider.of.flow.impl;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
@@ -196,10 +197,10 @@ public class OpenFlowRuleProvider extends AbstractProvider implements FlowRulePr
         final Set<Dpid> sws = Sets.newConcurrentHashSet();
         final Map<Long, FlowRuleBatchEntry> fmXids = new HashMap<>();
         /*
-         * Use identity hash map for reference equality as we could have equal
-         * flow mods for different switches.
+         * Flow mods are grouped by switch so that each switch is sent all of
+         * its flow mods at once, in the order of the batch.
          */
-        Map<OFFlowMod, OpenFlowSwitch> mods = Maps.newIdentityHashMap();
+        ListMultimap<OpenFlowSwitch, OFMessage> mods = ArrayListMultimap.create();
         for (FlowRuleBatchEntry fbe : batch.getOperations()) {
             FlowRule flowRule = fbe.getTarget();
             final Dpid dpid = Dpid.dpid(flowRule.deviceId().uri());
@@ -234,7 +235,7 @@ public class OpenFlowRuleProvider extends AbstractProvider implements FlowRulePr
                     log.error("Unsupported batch operation {}", fbe.getOperator());
             }
             if (mod != null) {
-                mods.put(mod, sw);
+                mods.put(sw, mod);
                 fmXids.put(flowModXid, fbe);
             } else {
                 log.error("Conversion of flowrule {} failed.", flowRule);
@@ -246,10 +247,8 @@ public class OpenFlowRuleProvider extends AbstractProvider implements FlowRulePr
         }
 
         pendingFutures.put(installation.xid(), installation);
-        for (Map.Entry<OFFlowMod, OpenFlowSwitch> entry : mods.entrySet()) {
-            OpenFlowSwitch sw = entry.getValue();
-            OFFlowMod mod = entry.getKey();
-            sw.sendMsg(mod);
+        for (OpenFlowSwitch sw : mods.keySet()) {
+            sw.sendMsg(mods.get(sw));
         }
         installation.verify();
         return installation;
@@ -188,6 +188,21 @@ public class OpenFlowPacketProviderTest {
 
     }
 
+    @Test
+    public void inboundAndOutboundDataNotShared() {
+        OFPacketIn pkt = sw.factory().buildPacketIn()
+                .setBufferId(OFBufferId.NO_BUFFER)
+                .setInPort(OFPort.NO_MASK)
+                .setReason(OFPacketInReason.NO_MATCH)
+                .setData(new byte[] {1, 2, 3, 4})
+                .build();
+
+        controller.processPacket(null, pkt);
+        registry.ctx.inPacket().unparsed().put(0, (byte) 9);
+        assertEquals("packet-out data changed along with packet-in data",
+                     1, registry.ctx.outPacket().data().get(0));
+    }
+
     private static OFPortDesc portDesc(int port) {
         OFPortDesc.Builder builder = OFFactoryVer10.INSTANCE.buildPortDesc();
         builder.setPortNo(OFPort.of(port));
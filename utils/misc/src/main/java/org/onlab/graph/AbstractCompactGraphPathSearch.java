@@ -0,0 +1,84 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+/**
+ * Basis for graph path search algorithm implementations which operate on
+ * the integer vertex and edge indexes of a {@link CompactGraph}. Graphs of
+ * other types are first copied into a compact graph.
+ *
+ * @param <V> vertex type
+ * @param <E> edge type
+ */
+public abstract class AbstractCompactGraphPathSearch<V extends Vertex, E extends Edge<V>>
+        extends AbstractGraphPathSearch<V, E> {
+
+    /**
+     * Cost of vertexes which have not been reached.
+     */
+    protected static final double UNREACHED = Double.MAX_VALUE;
+
+    /**
+     * Produces a search result from the given vertex costs, using as parents
+     * of each reached vertex all its ingress edges which lie on a shortest
+     * path, i.e. whose source cost plus weight is the same as the vertex
+     * cost.
+     *
+     * @param graph           compact graph that was searched
+     * @param src             search source
+     * @param dst             optional search destination
+     * @param costs           vertex costs; {@link #UNREACHED} if not reached
+     * @param weights         edge weights
+     * @param sources         optional mask of vertexes whose egress edges
+     *                        may serve as parents; if null all may
+     * @param targets         optional mask of vertexes which may be given
+     *                        parents; if null all may
+     * @param forbidNegatives true if edges with negative weights may not
+     *                        serve as parents
+     * @return search result
+     */
+    protected Result<V, E> result(CompactGraph<V, E> graph, V src, V dst,
+                                  double[] costs, double[] weights,
+                                  boolean[] sources, boolean[] targets,
+                                  boolean forbidNegatives) {
+        DefaultResult result = new DefaultResult(src, dst);
+        double threshold = samenessThreshold();
+        for (int v = 0; v < costs.length; v++) {
+            if (costs[v] == UNREACHED) {
+                continue;
+            }
+            V vertex = graph.vertex(v);
+            result.updateVertex(vertex, null, costs[v], false);
+            if (targets != null && !targets[v]) {
+                continue;
+            }
+            for (int i = graph.ingressStart(v), n = graph.ingressEnd(v); i < n; i++) {
+                int e = graph.ingressEdge(i);
+                int u = graph.edgeSrc(e);
+                if (costs[u] == UNREACHED || (sources != null && !sources[u]) ||
+                        (forbidNegatives && weights[e] < 0)) {
+                    continue;
+                }
+                if (Math.abs(costs[u] + weights[e] - costs[v]) <= threshold) {
+                    result.updateVertex(vertex, graph.edge(e), costs[v], false);
+                }
+            }
+        }
+        result.buildPaths();
+        return result;
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import java.util.Arrays;
+
+/**
+ * Bellman-Ford graph search algorithm for locating shortest-paths in
+ * directed graphs that may contain negative cycles, which operates on the
+ * integer indexes of a {@link CompactGraph}.
+ */
+public class CompactBellmanFordGraphSearch<V extends Vertex, E extends Edge<V>>
+        extends AbstractCompactGraphPathSearch<V, E> {
+
+    @Override
+    public Result<V, E> search(Graph<V, E> graph, V src, V dst,
+                               EdgeWeight<V, E> weight) {
+        checkArguments(graph, src, dst);
+
+        CompactGraph<V, E> cg = CompactGraph.copyOf(graph);
+        int n = cg.vertexCount();
+        int m = cg.edgeCount();
+        double[] weights = cg.weights(weight);
+
+        // The source vertex has cost 0, of course.
+        double[] costs = new double[n];
+        Arrays.fill(costs, UNREACHED);
+        costs[cg.index(src)] = 0.0;
+
+        // Relax all edges until no more edges can be relaxed, but at most
+        // one fewer times than there are vertexes.
+        boolean relaxed = true;
+        for (int i = 0; relaxed && i < n - 1; i++) {
+            relaxed = false;
+            for (int e = 0; e < m; e++) {
+                int u = cg.edgeSrc(e);
+                int v = cg.edgeDst(e);
+                if (costs[u] != UNREACHED && costs[u] + weights[e] < costs[v]) {
+                    costs[v] = costs[u] + weights[e];
+                    relaxed = true;
+                }
+            }
+        }
+
+        // Remove parents of any vertexes reached by traversing edges with
+        // negative weights.
+        boolean[] stable = new boolean[n];
+        Arrays.fill(stable, true);
+        for (int e = 0; relaxed && e < m; e++) {
+            int u = cg.edgeSrc(e);
+            int v = cg.edgeDst(e);
+            if (costs[u] != UNREACHED && costs[u] + weights[e] < costs[v]) {
+                stable[v] = false;
+            }
+        }
+
+        return result(cg, src, dst, costs, weights, null, stable, false);
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+/**
+ * Implementation of the BFS algorithm which operates on the integer indexes
+ * of a {@link CompactGraph}.
+ */
+public class CompactBreadthFirstSearch<V extends Vertex, E extends Edge<V>>
+        extends AbstractCompactGraphPathSearch<V, E> {
+
+    @Override
+    public Result<V, E> search(Graph<V, E> graph, V src, V dst,
+                               EdgeWeight<V, E> weight) {
+        checkArguments(graph, src, dst);
+
+        CompactGraph<V, E> cg = CompactGraph.copyOf(graph);
+        int s = cg.index(src);
+        int t = dst == null ? -1 : cg.index(dst);
+        double[] weights = cg.weights(weight);
+
+        // Vertexes are visited in the order they are queued, i.e. one
+        // frontier after another.
+        int n = cg.vertexCount();
+        double[] costs = new double[n];
+        int[] parents = new int[n];
+        boolean[] visited = new boolean[n];
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+
+        visited[s] = true;
+        queue[tail++] = s;
+        boolean reachedEnd = false;
+        while (!reachedEnd && head < tail) {
+            int vertex = queue[head++];
+
+            // Visit all egress edges of the current vertex.
+            for (int i = cg.egressStart(vertex), end = cg.egressEnd(vertex); i < end; i++) {
+                int e = cg.egressEdge(i);
+                int next = cg.edgeDst(e);
+                if (!visited[next]) {
+                    visited[next] = true;
+                    costs[next] = costs[vertex] + weights[e];
+                    parents[next] = e;
+                    // If we have reached our intended destination, bail.
+                    if (next == t) {
+                        reachedEnd = true;
+                        break;
+                    }
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+        // Finally, build the paths on the search result and return.
+        DefaultResult result = new DefaultResult(src, dst);
+        result.updateVertex(src, null, 0.0, true);
+        for (int v = 0; v < n; v++) {
+            if (visited[v] && v != s) {
+                result.updateVertex(cg.vertex(v), cg.edge(parents[v]), costs[v], true);
+            }
+        }
+        result.buildPaths();
+        return result;
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import java.util.Arrays;
+
+/**
+ * Dijkstra shortest-path graph search algorithm capable of finding not just
+ * one, but all shortest paths between the source and destinations, which
+ * operates on the integer indexes of a {@link CompactGraph}.
+ */
+public class CompactDijkstraGraphSearch<V extends Vertex, E extends Edge<V>>
+        extends AbstractCompactGraphPathSearch<V, E> {
+
+    @Override
+    public Result<V, E> search(Graph<V, E> graph, V src, V dst,
+                               EdgeWeight<V, E> weight) {
+        checkArguments(graph, src, dst);
+
+        CompactGraph<V, E> cg = CompactGraph.copyOf(graph);
+        int s = cg.index(src);
+        int t = dst == null ? -1 : cg.index(dst);
+        double[] weights = cg.weights(weight);
+
+        // Cost to reach the source vertex is 0 of course.
+        double[] costs = new double[cg.vertexCount()];
+        Arrays.fill(costs, UNREACHED);
+        costs[s] = 0.0;
+
+        // Progressively settle each nearest vertex until we reach the
+        // desired destination, if one was given, or until we reach all
+        // possible destinations.
+        boolean[] settled = new boolean[costs.length];
+        IndexedHeap queue = new IndexedHeap(costs.length);
+        queue.offer(s, 0.0);
+        while (!queue.isEmpty()) {
+            int nearest = queue.extractMin();
+            settled[nearest] = true;
+            if (nearest == t) {
+                break;
+            }
+
+            // Relax all egress edges of the nearest vertex.
+            double cost = costs[nearest];
+            for (int i = cg.egressStart(nearest), n = cg.egressEnd(nearest); i < n; i++) {
+                int e = cg.egressEdge(i);
+                if (weights[e] < 0) {
+                    continue;
+                }
+                int v = cg.edgeDst(e);
+                double newCost = cost + weights[e];
+                if (newCost < costs[v] && !settled[v]) {
+                    costs[v] = newCost;
+                    queue.offer(v, newCost);
+                }
+            }
+        }
+
+        return result(cg, src, dst, costs, weights, settled, null, true);
+    }
+
+}
@@ -0,0 +1,363 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Objects;
+import java.util.Set;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable graph implemented using compressed sparse row adjacency arrays.
+ * <p>
+ * Vertexes and edges are assigned dense integer indexes, in the iteration
+ * order of the vertex and edge sets, and the adjacency of each vertex is
+ * stored as a contiguous run of edge indexes in primitive arrays. This
+ * allows graph searches to operate on integer indexes and primitive arrays
+ * rather than on hashed vertex and edge objects; see
+ * {@link CompactDijkstraGraphSearch}, {@link CompactBreadthFirstSearch},
+ * {@link CompactBellmanFordGraphSearch} and {@link CompactTarjanGraphSearch}.
+ * </p>
+ * <p>
+ * Egress and ingress edges of a vertex are iterated as follows:
+ * </p>
+ * <pre>
+ *     for (int i = graph.egressStart(v), n = graph.egressEnd(v); i &lt; n; i++) {
+ *         int e = graph.egressEdge(i);
+ *         int next = graph.edgeDst(e);
+ *         ...
+ *     }
+ * </pre>
+ *
+ * @param <V> vertex type
+ * @param <E> edge type
+ */
+public class CompactGraph<V extends Vertex, E extends Edge<V>>
+        implements Graph<V, E> {
+
+    private final ImmutableSet<V> vertexes;
+    private final ImmutableSet<E> edges;
+    private final ImmutableList<V> vertexList;
+    private final ImmutableList<E> edgeList;
+    private final ImmutableMap<V, Integer> indexes;
+
+    private final int[] edgeSrc;
+    private final int[] edgeDst;
+    private final int[] egressOffsets;
+    private final int[] egressEdges;
+    private final int[] ingressOffsets;
+    private final int[] ingressEdges;
+
+    // Lazily materialized per-vertex edge sets for the object-based API
+    private final Object[] egressSets;
+    private final Object[] ingressSets;
+
+    /**
+     * Creates a graph comprising of the specified vertexes and edges.
+     *
+     * @param vertexes set of graph vertexes
+     * @param edges    set of graph edges
+     */
+    public CompactGraph(Set<V> vertexes, Set<E> edges) {
+        checkNotNull(vertexes, "Vertex set cannot be null");
+        checkNotNull(edges, "Edge set cannot be null");
+
+        // Make sure that all edge end-points are added as vertexes
+        ImmutableSet.Builder<V> actualVertexes = ImmutableSet.builder();
+        actualVertexes.addAll(vertexes);
+        for (E edge : edges) {
+            actualVertexes.add(edge.src());
+            actualVertexes.add(edge.dst());
+        }
+
+        this.vertexes = actualVertexes.build();
+        this.edges = ImmutableSet.copyOf(edges);
+        this.vertexList = this.vertexes.asList();
+        this.edgeList = this.edges.asList();
+
+        ImmutableMap.Builder<V, Integer> indexBuilder = ImmutableMap.builder();
+        for (int i = 0; i < vertexList.size(); i++) {
+            indexBuilder.put(vertexList.get(i), i);
+        }
+        this.indexes = indexBuilder.build();
+
+        int n = vertexList.size();
+        int m = edgeList.size();
+        edgeSrc = new int[m];
+        edgeDst = new int[m];
+        egressOffsets = new int[n + 1];
+        ingressOffsets = new int[n + 1];
+
+        // Count the degrees of each vertex first...
+        for (int e = 0; e < m; e++) {
+            E edge = edgeList.get(e);
+            edgeSrc[e] = indexes.get(edge.src());
+            edgeDst[e] = indexes.get(edge.dst());
+            egressOffsets[edgeSrc[e] + 1]++;
+            ingressOffsets[edgeDst[e] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            egressOffsets[v + 1] += egressOffsets[v];
+            ingressOffsets[v + 1] += ingressOffsets[v];
+        }
+
+        // ...and then fill in the edge runs in edge order.
+        egressEdges = new int[m];
+        ingressEdges = new int[m];
+        int[] egressFill = new int[n];
+        int[] ingressFill = new int[n];
+        for (int e = 0; e < m; e++) {
+            int s = edgeSrc[e];
+            int d = edgeDst[e];
+            egressEdges[egressOffsets[s] + egressFill[s]++] = e;
+            ingressEdges[ingressOffsets[d] + ingressFill[d]++] = e;
+        }
+
+        egressSets = new Object[n];
+        ingressSets = new Object[n];
+    }
+
+    /**
+     * Returns a compact graph equivalent to the given graph. If the graph is
+     * already compact, it is returned as-is.
+     *
+     * @param graph graph to be copied
+     * @param <V>   vertex type
+     * @param <E>   edge type
+     * @return compact graph
+     */
+    public static <V extends Vertex, E extends Edge<V>> CompactGraph<V, E> copyOf(Graph<V, E> graph) {
+        checkNotNull(graph, "Graph cannot be null");
+        if (graph instanceof CompactGraph) {
+            return (CompactGraph<V, E>) graph;
+        }
+        return new CompactGraph<>(graph.getVertexes(), graph.getEdges());
+    }
+
+    /**
+     * Returns the number of vertexes in the graph.
+     *
+     * @return vertex count
+     */
+    public int vertexCount() {
+        return vertexList.size();
+    }
+
+    /**
+     * Returns the number of edges in the graph.
+     *
+     * @return edge count
+     */
+    public int edgeCount() {
+        return edgeList.size();
+    }
+
+    /**
+     * Returns the index of the specified vertex.
+     *
+     * @param vertex vertex
+     * @return vertex index; -1 if the vertex is not part of the graph
+     */
+    public int index(V vertex) {
+        Integer index = vertex == null ? null : indexes.get(vertex);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Returns the vertex with the specified index.
+     *
+     * @param index vertex index
+     * @return vertex
+     */
+    public V vertex(int index) {
+        return vertexList.get(index);
+    }
+
+    /**
+     * Returns the edge with the specified index.
+     *
+     * @param index edge index
+     * @return edge
+     */
+    public E edge(int index) {
+        return edgeList.get(index);
+    }
+
+    /**
+     * Returns the index of the source vertex of the specified edge.
+     *
+     * @param edge edge index
+     * @return source vertex index
+     */
+    public int edgeSrc(int edge) {
+        return edgeSrc[edge];
+    }
+
+    /**
+     * Returns the index of the destination vertex of the specified edge.
+     *
+     * @param edge edge index
+     * @return destination vertex index
+     */
+    public int edgeDst(int edge) {
+        return edgeDst[edge];
+    }
+
+    /**
+     * Returns the start of the egress edge run of the specified vertex.
+     *
+     * @param vertex vertex index
+     * @return inclusive start position for use with {@link #egressEdge(int)}
+     */
+    public int egressStart(int vertex) {
+        return egressOffsets[vertex];
+    }
+
+    /**
+     * Returns the end of the egress edge run of the specified vertex.
+     *
+     * @param vertex vertex index
+     * @return exclusive end position for use with {@link #egressEdge(int)}
+     */
+    public int egressEnd(int vertex) {
+        return egressOffsets[vertex + 1];
+    }
+
+    /**
+     * Returns the index of the egress edge at the specified position.
+     *
+     * @param position position within an egress edge run
+     * @return edge index
+     */
+    public int egressEdge(int position) {
+        return egressEdges[position];
+    }
+
+    /**
+     * Returns the start of the ingress edge run of the specified vertex.
+     *
+     * @param vertex vertex index
+     * @return inclusive start position for use with {@link #ingressEdge(int)}
+     */
+    public int ingressStart(int vertex) {
+        return ingressOffsets[vertex];
+    }
+
+    /**
+     * Returns the end of the ingress edge run of the specified vertex.
+     *
+     * @param vertex vertex index
+     * @return exclusive end position for use with {@link #ingressEdge(int)}
+     */
+    public int ingressEnd(int vertex) {
+        return ingressOffsets[vertex + 1];
+    }
+
+    /**
+     * Returns the index of the ingress edge at the specified position.
+     *
+     * @param position position within an ingress edge run
+     * @return edge index
+     */
+    public int ingressEdge(int position) {
+        return ingressEdges[position];
+    }
+
+    /**
+     * Evaluates the given edge weight function for all edges.
+     *
+     * @param weight optional edge weight; if null weight of each edge
+     *               will be assumed to be 1.0
+     * @return array of edge weights indexed by edge index
+     */
+    public double[] weights(EdgeWeight<V, E> weight) {
+        double[] weights = new double[edgeList.size()];
+        for (int e = 0; e < weights.length; e++) {
+            weights[e] = weight == null ? 1.0 : weight.weight(edgeList.get(e));
+        }
+        return weights;
+    }
+
+    @Override
+    public Set<V> getVertexes() {
+        return vertexes;
+    }
+
+    @Override
+    public Set<E> getEdges() {
+        return edges;
+    }
+
+    @Override
+    public Set<E> getEdgesFrom(V src) {
+        int v = index(src);
+        return v < 0 ? ImmutableSet.of() : edgeSet(egressSets, egressOffsets, egressEdges, v);
+    }
+
+    @Override
+    public Set<E> getEdgesTo(V dst) {
+        int v = index(dst);
+        return v < 0 ? ImmutableSet.of() : edgeSet(ingressSets, ingressOffsets, ingressEdges, v);
+    }
+
+    // Returns the cached set of edges in the given run, creating it if needed.
+    // Racing threads may each create the set, but they all create equal ones.
+    @SuppressWarnings("unchecked")
+    private Set<E> edgeSet(Object[] sets, int[] offsets, int[] runs, int v) {
+        Set<E> set = (Set<E>) sets[v];
+        if (set == null) {
+            ImmutableSet.Builder<E> builder = ImmutableSet.builder();
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                builder.add(edgeList.get(runs[i]));
+            }
+            set = builder.build();
+            sets[v] = set;
+        }
+        return set;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof CompactGraph) {
+            CompactGraph that = (CompactGraph) obj;
+            return this.getClass() == that.getClass() &&
+                    Objects.equals(this.vertexes, that.vertexes) &&
+                    Objects.equals(this.edges, that.edges);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(vertexes, edges);
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("vertexes", vertexes)
+                .add("edges", edges)
+                .toString();
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.onlab.graph.TarjanGraphSearch.SCCResult;
+
+/**
+ * Tarjan algorithm for searching a graph and producing results describing
+ * the graph SCC (strongly-connected components), which operates on the
+ * integer indexes of a {@link CompactGraph}. Unlike
+ * {@link TarjanGraphSearch}, this implementation does not use recursion
+ * and is therefore not limited by the thread stack depth.
+ */
+public class CompactTarjanGraphSearch<V extends Vertex, E extends Edge<V>>
+        implements GraphSearch<V, E> {
+
+    private static final int UNVISITED = -1;
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation produces results augmented with information on
+     * SCCs within the graph.
+     * </p>
+     * <p>
+     * To prevent traversal of an edge, the {@link EdgeWeight#weight} should
+     * return a negative value as an edge weight.
+     * </p>
+     */
+    @Override
+    public SCCResult<V, E> search(Graph<V, E> graph, EdgeWeight<V, E> weight) {
+        CompactGraph<V, E> cg = CompactGraph.copyOf(graph);
+        double[] weights = weight == null ? null : cg.weights(weight);
+        SCCResult<V, E> result = new SCCResult<>(graph);
+
+        int n = cg.vertexCount();
+        int[] index = new int[n];
+        int[] lowLink = new int[n];
+        int[] cluster = new int[n];
+        Arrays.fill(index, UNVISITED);
+        Arrays.fill(cluster, UNVISITED);
+
+        // Stack of visited vertexes not yet assigned to a cluster
+        int[] visited = new int[n];
+        int visitedCount = 0;
+
+        // Explicit call stack of vertexes being scanned, with the position
+        // of the next egress edge to scan for each vertex
+        int[] scanning = new int[n];
+        int[] nextEdge = new int[n];
+        int depth = 0;
+
+        int counter = 0;
+        int clusterCount = 0;
+        for (int root = 0; root < n; root++) {
+            if (index[root] != UNVISITED) {
+                continue;
+            }
+
+            index[root] = counter;
+            lowLink[root] = counter++;
+            visited[visitedCount++] = root;
+            nextEdge[root] = cg.egressStart(root);
+            scanning[depth++] = root;
+
+            while (depth > 0) {
+                int vertex = scanning[depth - 1];
+                if (nextEdge[vertex] < cg.egressEnd(vertex)) {
+                    int e = cg.egressEdge(nextEdge[vertex]++);
+
+                    // If edge weight is negative, skip it.
+                    if (weights != null && weights[e] < 0) {
+                        continue;
+                    }
+
+                    int next = cg.edgeDst(e);
+                    if (index[next] == UNVISITED) {
+                        // Next vertex has not been visited yet, so do this now.
+                        index[next] = counter;
+                        lowLink[next] = counter++;
+                        visited[visitedCount++] = next;
+                        nextEdge[next] = cg.egressStart(next);
+                        scanning[depth++] = next;
+
+                    } else if (cluster[next] == UNVISITED) {
+                        // Next vertex has been visited, which means it is in
+                        // the same cluster as the current vertex.
+                        lowLink[vertex] = Math.min(lowLink[vertex], index[next]);
+                    }
+                    continue;
+                }
+
+                // All egress edges have been scanned, so finish the vertex.
+                depth--;
+                if (lowLink[vertex] == index[vertex]) {
+                    Set<V> vertexes = new HashSet<>();
+                    int first = visitedCount;
+                    do {
+                        first--;
+                        cluster[visited[first]] = clusterCount;
+                        vertexes.add(cg.vertex(visited[first]));
+                    } while (visited[first] != vertex);
+
+                    result.addCluster(vertexes,
+                                      clusterEdges(cg, visited, first,
+                                                   visitedCount, cluster,
+                                                   clusterCount));
+                    visitedCount = first;
+                    clusterCount++;
+                }
+                if (depth > 0) {
+                    int parent = scanning[depth - 1];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[vertex]);
+                }
+            }
+        }
+        return result.build();
+    }
+
+    // Finds all edges linking the vertexes of the given cluster.
+    private Set<E> clusterEdges(CompactGraph<V, E> cg, int[] visited,
+                                int first, int last, int[] cluster, int id) {
+        Set<E> edges = new HashSet<>();
+        for (int j = first; j < last; j++) {
+            int vertex = visited[j];
+            for (int i = cg.egressStart(vertex), n = cg.egressEnd(vertex); i < n; i++) {
+                int e = cg.egressEdge(i);
+                if (cluster[cg.edgeDst(e)] == id) {
+                    edges.add(cg.edge(e));
+                }
+            }
+        }
+        return edges;
+    }
+
+}
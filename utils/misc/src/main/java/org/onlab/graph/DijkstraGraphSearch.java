@@ -16,8 +16,9 @@
 package org.onlab.graph;
 
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.Set;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Dijkstra shortest-path graph search algorithm capable of finding not just
@@ -43,29 +44,37 @@ public class DijkstraGraphSearch<V extends Vertex, E extends Edge<V>>
             return result;
         }
 
-        // Use the min priority queue to progressively find each nearest
-        // vertex until we reach the desired destination, if one was given,
-        // or until we reach all possible destinations.
-        Heap<V> minQueue = createMinQueue(graph.getVertexes(),
-                                          new PathCostComparator(result));
+        // Use the indexed min priority queue to progressively find each
+        // nearest vertex until we reach the desired destination, if one was
+        // given, or until we reach all possible destinations. Only vertexes
+        // which have been reached are queued and their costs are decreased
+        // in place as shorter paths to them are found.
+        List<V> vertexes = new ArrayList<>(graph.getVertexes());
+        Map<V, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < vertexes.size(); i++) {
+            indexes.put(vertexes.get(i), i);
+        }
+
+        IndexedHeap minQueue = new IndexedHeap(vertexes.size());
+        minQueue.offer(indexes.get(src), 0.0);
         while (!minQueue.isEmpty()) {
             // Get the nearest vertex
-            V nearest = minQueue.extractExtreme();
+            V nearest = vertexes.get(minQueue.extractMin());
             if (nearest.equals(dst)) {
                 break;
             }
 
-            // Find its cost and use it to determine if the vertex is reachable.
+            // Relax all its egress edges, re-prioritizing any vertexes whose
+            // cost decreased as a result.
             double cost = result.cost(nearest);
-            if (cost < Double.MAX_VALUE) {
-                // If the vertex is reachable, relax all its egress edges.
-                for (E e : graph.getEdgesFrom(nearest)) {
-                    result.relaxEdge(e, cost, weight, true);
+            for (E e : graph.getEdgesFrom(nearest)) {
+                if (result.relaxEdge(e, cost, weight, true)) {
+                    Integer index = indexes.get(e.dst());
+                    if (index != null) {
+                        minQueue.offer(index, result.cost(e.dst()));
+                    }
                 }
             }
-
-            // Re-prioritize the min queue.
-            minQueue.heapify();
         }
 
         // Now construct a set of paths from the results.
@@ -73,25 +82,4 @@ public class DijkstraGraphSearch<V extends Vertex, E extends Edge<V>>
         return result;
     }
 
-    // Compares path weights using their accrued costs; used for sorting the
-    // min priority queue.
-    private final class PathCostComparator implements Comparator<V> {
-        private final DefaultResult result;
-
-        private PathCostComparator(DefaultResult result) {
-            this.result = result;
-        }
-
-        @Override
-        public int compare(V v1, V v2) {
-            double delta = result.cost(v2) - result.cost(v1);
-            return delta < 0 ? -1 : (delta > 0 ? 1 : 0);
-        }
-    }
-
-    // Creates a min priority queue from the specified vertexes and comparator.
-    private Heap<V> createMinQueue(Set<V> vertexes, Comparator<V> comparator) {
-        return new Heap<>(new ArrayList<>(vertexes), comparator);
-    }
-
 }
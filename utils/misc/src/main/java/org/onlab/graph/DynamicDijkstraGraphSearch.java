@@ -0,0 +1,225 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Dijkstra shortest-path graph search algorithm which, in addition to the
+ * full single-source search, is capable of repairing results of a prior
+ * search after edges have been removed from or added to the graph.
+ * <p>
+ * The repair follows the Ramalingam-Reps dynamic shortest path approach:
+ * only vertexes whose shortest paths ran through a removed edge, or which
+ * can be reached more cheaply via an added edge, are re-evaluated; the
+ * rest of the prior results is carried over as-is. The prior results are
+ * never modified.
+ * </p>
+ */
+public class DynamicDijkstraGraphSearch<V extends Vertex, E extends Edge<V>>
+        extends DijkstraGraphSearch<V, E> {
+
+    /**
+     * Repairs the results of a prior search from the same source to all
+     * destinations so that they reflect the given graph, which is assumed to
+     * differ from the previously searched graph by the specified edges only.
+     * Edges whose weight has changed should be given as both removed and
+     * added.
+     *
+     * @param graph        graph to be searched
+     * @param prior        prior search result; its source must still be
+     *                     part of the graph
+     * @param removedEdges edges removed from the previously searched graph
+     * @param addedEdges   edges added to the previously searched graph
+     * @param weight       optional edge-weight; if null cost of each edge
+     *                     will be assumed to be 1.0
+     * @return repaired search results
+     */
+    public Result<V, E> repair(Graph<V, E> graph, Result<V, E> prior,
+                               Set<E> removedEdges, Set<E> addedEdges,
+                               EdgeWeight<V, E> weight) {
+        checkNotNull(prior, "Prior result cannot be null");
+        checkArgument(prior.dst() == null, "Prior result must be for all destinations");
+        checkNotNull(removedEdges, "Removed edges cannot be null");
+        checkNotNull(addedEdges, "Added edges cannot be null");
+        checkArguments(graph, prior.src(), null);
+
+        V src = prior.src();
+        DefaultResult result = new DefaultResult(src, null);
+
+        // Start off with a copy of the prior costs and parent edges, less
+        // any removed edges or vertexes.
+        Set<V> vertexes = graph.getVertexes();
+        for (Map.Entry<V, Double> entry : prior.costs().entrySet()) {
+            if (vertexes.contains(entry.getKey())) {
+                result.costs.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (Map.Entry<V, Set<E>> entry : prior.parents().entrySet()) {
+            if (vertexes.contains(entry.getKey())) {
+                Set<E> edges = new HashSet<>(entry.getValue());
+                edges.removeAll(removedEdges);
+                result.parents.put(entry.getKey(), edges);
+            }
+        }
+
+        Set<V> affected = findAffectedVertexes(graph, result, removedEdges);
+        PriorityQueue<VertexCost<V>> decreased = new PriorityQueue<>();
+        searchAffectedVertexes(graph, result, affected, weight, decreased);
+
+        // Seed the decreased vertexes with those reached via added edges
+        // and propagate all the cost decreases.
+        for (E edge : addedEdges) {
+            if (result.hasCost(edge.src()) && vertexes.contains(edge.dst()) &&
+                    result.relaxEdge(edge, result.cost(edge.src()), weight, true)) {
+                decreased.add(new VertexCost<>(edge.dst(), result.cost(edge.dst())));
+            }
+        }
+        propagate(graph, result, decreased, weight, null);
+
+        // Shed any vertexes which are no longer reachable.
+        Iterator<Set<E>> it = result.parents.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().isEmpty()) {
+                it.remove();
+            }
+        }
+
+        result.buildPaths();
+        return result;
+    }
+
+    // Finds all vertexes whose shortest paths all relied on the removed
+    // edges; strips them of their costs and their parent edges and strips
+    // all their children of parent edges which lead from them.
+    private Set<V> findAffectedVertexes(Graph<V, E> graph, DefaultResult result,
+                                        Set<E> removedEdges) {
+        Set<V> affected = new HashSet<>();
+        Queue<V> orphans = new ArrayDeque<>();
+        for (E edge : removedEdges) {
+            V v = edge.dst();
+            if (isOrphan(result, v, affected) && affected.add(v)) {
+                orphans.add(v);
+            }
+        }
+
+        while (!orphans.isEmpty()) {
+            V orphan = orphans.remove();
+            result.costs.remove(orphan);
+            result.removeVertex(orphan);
+            for (E edge : graph.getEdgesFrom(orphan)) {
+                Set<E> edges = result.parents.get(edge.dst());
+                if (edges != null && edges.remove(edge) &&
+                        isOrphan(result, edge.dst(), affected) &&
+                        affected.add(edge.dst())) {
+                    orphans.add(edge.dst());
+                }
+            }
+        }
+        return affected;
+    }
+
+    // Indicates whether the given reachable vertex lost all its parents.
+    private boolean isOrphan(DefaultResult result, V v, Set<V> affected) {
+        Set<E> edges = result.parents.get(v);
+        return edges != null && edges.isEmpty() && !affected.contains(v);
+    }
+
+    // Re-computes the costs of the affected vertexes using the costs of
+    // the unaffected vertexes as the starting point. Any unaffected vertexes
+    // whose cost decreases as a result are added to the given queue.
+    private void searchAffectedVertexes(Graph<V, E> graph, DefaultResult result,
+                                        Set<V> affected, EdgeWeight<V, E> weight,
+                                        PriorityQueue<VertexCost<V>> decreased) {
+        PriorityQueue<VertexCost<V>> queue = new PriorityQueue<>();
+        for (V v : affected) {
+            for (E edge : graph.getEdgesTo(v)) {
+                V u = edge.src();
+                if (!affected.contains(u) && result.hasCost(u)) {
+                    result.relaxEdge(edge, result.cost(u), weight, true);
+                }
+            }
+            if (result.hasCost(v)) {
+                queue.add(new VertexCost<>(v, result.cost(v)));
+            }
+        }
+        propagate(graph, result, queue, weight, affected);
+
+        // Edges leading from the affected to the unaffected vertexes may now
+        // tie with, or even improve upon, the existing shortest paths.
+        for (V v : affected) {
+            if (!result.hasCost(v)) {
+                continue;
+            }
+            for (E edge : graph.getEdgesFrom(v)) {
+                V w = edge.dst();
+                if (!affected.contains(w) &&
+                        result.relaxEdge(edge, result.cost(v), weight, true)) {
+                    decreased.add(new VertexCost<>(w, result.cost(w)));
+                }
+            }
+        }
+    }
+
+    // Settles the queued vertexes in order of their cost, relaxing their
+    // egress edges and queueing any vertexes whose cost decreased. If a
+    // scope is given, only vertexes within it are relaxed.
+    private void propagate(Graph<V, E> graph, DefaultResult result,
+                           PriorityQueue<VertexCost<V>> queue,
+                           EdgeWeight<V, E> weight, Set<V> scope) {
+        while (!queue.isEmpty()) {
+            VertexCost<V> nearest = queue.remove();
+            double cost = result.cost(nearest.vertex);
+            if (nearest.cost > cost) {
+                // Stale entry; vertex was since queued with a lower cost.
+                continue;
+            }
+            for (E edge : graph.getEdgesFrom(nearest.vertex)) {
+                V v = edge.dst();
+                if ((scope == null || scope.contains(v)) &&
+                        result.relaxEdge(edge, cost, weight, true)) {
+                    queue.add(new VertexCost<>(v, result.cost(v)));
+                }
+            }
+        }
+    }
+
+    // Vertex paired with its cost at the time it was queued.
+    private static final class VertexCost<V> implements Comparable<VertexCost<V>> {
+        private final V vertex;
+        private final double cost;
+
+        private VertexCost(V vertex, double cost) {
+            this.vertex = vertex;
+            this.cost = cost;
+        }
+
+        @Override
+        public int compareTo(VertexCost<V> other) {
+            return Double.compare(cost, other.cost);
+        }
+    }
+
+}
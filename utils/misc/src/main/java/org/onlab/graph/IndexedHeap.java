@@ -0,0 +1,233 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import java.util.Arrays;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Indexed d-ary min-heap of integer items, ordered by their priorities.
+ * <p>
+ * Items are integers in the range from 0 up to, but excluding, the heap
+ * capacity, such as vertex indexes. Unlike {@link Heap}, each item may be on
+ * the heap at most once and its position is tracked, which allows the
+ * priority of an item already on the heap to be decreased in place in
+ * logarithmic time rather than re-heapifying or queueing duplicates.
+ * </p>
+ * <p>
+ * This class is not thread-safe and care must be taken to prevent concurrent
+ * modifications.
+ * </p>
+ */
+public class IndexedHeap {
+
+    /**
+     * Default number of children of each heap node.
+     */
+    public static final int DEFAULT_ARITY = 4;
+
+    private static final int ABSENT = -1;
+
+    private final int arity;
+    private final int[] items;
+    private final int[] positions;
+    private final double[] priorities;
+    private int size = 0;
+
+    /**
+     * Creates a new empty heap with the default arity.
+     *
+     * @param capacity number of distinct items the heap can hold
+     */
+    public IndexedHeap(int capacity) {
+        this(capacity, DEFAULT_ARITY);
+    }
+
+    /**
+     * Creates a new empty heap.
+     *
+     * @param capacity number of distinct items the heap can hold
+     * @param arity    number of children of each heap node; at least 2
+     */
+    public IndexedHeap(int capacity, int arity) {
+        checkArgument(capacity >= 0, "Capacity cannot be negative");
+        checkArgument(arity >= 2, "Arity must be at least 2");
+        this.arity = arity;
+        this.items = new int[capacity];
+        this.positions = new int[capacity];
+        this.priorities = new double[capacity];
+        Arrays.fill(positions, ABSENT);
+    }
+
+    /**
+     * Returns the current size of the heap.
+     *
+     * @return number of items in the heap
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if there are no items in the heap.
+     *
+     * @return true if heap is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns true if the specified item is in the heap.
+     *
+     * @param item item index
+     * @return true if the item is in the heap
+     */
+    public boolean contains(int item) {
+        checkElementIndex(item, positions.length);
+        return positions[item] != ABSENT;
+    }
+
+    /**
+     * Returns the priority of the specified item.
+     *
+     * @param item item index
+     * @return item priority
+     * @throws IllegalStateException if the item is not in the heap
+     */
+    public double priority(int item) {
+        checkState(contains(item), "Item is not in the heap");
+        return priorities[item];
+    }
+
+    /**
+     * Adds the item to the heap with the specified priority or, if the item
+     * is already in the heap with a greater priority, decreases its priority.
+     *
+     * @param item     item index
+     * @param priority item priority
+     * @return true if the item was added or its priority was decreased
+     */
+    public boolean offer(int item, double priority) {
+        int position;
+        if (contains(item)) {
+            if (priority >= priorities[item]) {
+                return false;
+            }
+            position = positions[item];
+        } else {
+            position = size++;
+        }
+        priorities[item] = priority;
+        siftUp(item, position);
+        return true;
+    }
+
+    /**
+     * Returns the item with the lowest priority without removing it.
+     *
+     * @return item index
+     * @throws IllegalStateException if the heap is empty
+     */
+    public int min() {
+        checkState(size > 0, "Heap is empty");
+        return items[0];
+    }
+
+    /**
+     * Removes and returns the item with the lowest priority.
+     *
+     * @return item index
+     * @throws IllegalStateException if the heap is empty
+     */
+    public int extractMin() {
+        int min = min();
+        positions[min] = ABSENT;
+        if (--size > 0) {
+            siftDown(items[size], 0);
+        }
+        return min;
+    }
+
+    /**
+     * Removes all items from the heap.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[items[i]] = ABSENT;
+        }
+        size = 0;
+    }
+
+    // Moves the item up from the given position until its parent has no
+    // greater priority.
+    private void siftUp(int item, int position) {
+        double priority = priorities[item];
+        while (position > 0) {
+            int parent = (position - 1) / arity;
+            int parentItem = items[parent];
+            if (priorities[parentItem] <= priority) {
+                break;
+            }
+            place(parentItem, position);
+            position = parent;
+        }
+        place(item, position);
+    }
+
+    // Moves the item down from the given position until none of its
+    // children has a lower priority.
+    private void siftDown(int item, int position) {
+        double priority = priorities[item];
+        while (true) {
+            int first = position * arity + 1;
+            if (first >= size) {
+                break;
+            }
+            int child = first;
+            for (int c = first + 1, n = Math.min(first + arity, size); c < n; c++) {
+                if (priorities[items[c]] < priorities[items[child]]) {
+                    child = c;
+                }
+            }
+            if (priority <= priorities[items[child]]) {
+                break;
+            }
+            place(items[child], position);
+            position = child;
+        }
+        place(item, position);
+    }
+
+    // Stores the item at the given heap position.
+    private void place(int item, int position) {
+        items[position] = item;
+        positions[item] = position;
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("arity", arity)
+                .add("items", Arrays.toString(Arrays.copyOf(items, size)))
+                .toString();
+    }
+
+}
@@ -39,6 +39,7 @@ public class KshortestPathSearch<V extends Vertex, E extends Edge<V>> {
     private V sink;
     private int numK = 0;
     private EdgeWeight<V, E> weight =  null;
+    private final DijkstraGraphSearch<V, E> dijkstra = new DijkstraGraphSearch<>();
     // private PriorityQueue<List<E>> pathCandidates = new PriorityQueue<List<E>>();
 
     // Initialize the graph.
@@ -136,14 +137,13 @@ public class KshortestPathSearch<V extends Vertex, E extends Edge<V>> {
 
     private List<E> searchShortestPath(Graph<V, E> graph, V src, V dst) {
         // Determine the shortest path from the source to the destination by using the Dijkstra algorithm.
-        DijkstraGraphSearch dijkstraAlg = new DijkstraGraphSearch();
-        Set<Path> paths =  dijkstraAlg.search(graph, src, dst, weight).paths();
-        Iterator<Path> itr = paths.iterator();
+        Set<Path<V, E>> paths = dijkstra.search(graph, src, dst, weight).paths();
+        Iterator<Path<V, E>> itr = paths.iterator();
         if (!itr.hasNext()) {
             return null;
         }
         // return the first shortest path only.
-        return (List<E>) itr.next().edges();
+        return itr.next().edges();
     }
 
     private void convertGraph() {
@@ -0,0 +1,384 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * K-shortest-path graph search algorithm which enumerates loop-less paths
+ * between the source and destination lazily, in order of ascending cost.
+ * <p>
+ * This is Yen's algorithm, with the deviations from each path computed only
+ * once the next path is requested. Rather than searching copies of the
+ * graph with edges and vertexes removed, the excluded edges and vertexes
+ * are masked out of the {@link CompactGraph} arrays. The shortest-path tree
+ * towards the destination is computed once and reused by all deviation
+ * searches: its paths are taken as-is whenever they avoid the masked
+ * elements, and its costs otherwise direct the search as an A* heuristic.
+ * </p>
+ * <p>
+ * Edges with negative weight are not traversed.
+ * </p>
+ *
+ * @param <V> vertex type
+ * @param <E> edge type
+ */
+public class LazyKShortestPathSearch<V extends Vertex, E extends Edge<V>> {
+
+    private static final double UNREACHED = Double.MAX_VALUE;
+
+    /**
+     * Returns an iterator over the loop-less paths between the specified
+     * source and destination in order of ascending cost. Paths are searched
+     * for only as the iterator is advanced.
+     *
+     * @param graph  graph to be searched
+     * @param src    source vertex
+     * @param dst    destination vertex
+     * @param weight optional edge-weight; if null cost of each edge will be
+     *               assumed to be 1.0
+     * @return iterator over the paths
+     */
+    public Iterator<Path<V, E>> search(Graph<V, E> graph, V src, V dst,
+                                       EdgeWeight<V, E> weight) {
+        checkNotNull(graph, "Graph cannot be null");
+        checkNotNull(src, "Source cannot be null");
+        checkNotNull(dst, "Destination cannot be null");
+        Set<V> vertices = graph.getVertexes();
+        checkArgument(vertices.contains(src), "Source not in the graph");
+        checkArgument(vertices.contains(dst), "Destination not in graph");
+        if (src.equals(dst)) {
+            return Collections.emptyIterator();
+        }
+        return new PathIterator(CompactGraph.copyOf(graph), src, dst, weight);
+    }
+
+    // Candidate path given as the sequence of its edge indexes.
+    private static final class Candidate implements Comparable<Candidate> {
+        private final int[] edges;
+        private final double cost;
+        private final long sequence;
+
+        private Candidate(int[] edges, double cost, long sequence) {
+            this.edges = edges;
+            this.cost = cost;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            int c = Double.compare(cost, other.cost);
+            if (c == 0) {
+                c = Integer.compare(edges.length, other.edges.length);
+            }
+            return c != 0 ? c : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    // Wrapper giving edge index sequences value semantics.
+    private static final class EdgeSequence {
+        private final int[] edges;
+
+        private EdgeSequence(int[] edges) {
+            this.edges = edges;
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(edges);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof EdgeSequence &&
+                    Arrays.equals(edges, ((EdgeSequence) obj).edges);
+        }
+    }
+
+    // Iterator which searches for the next path whenever asked for one.
+    private final class PathIterator implements Iterator<Path<V, E>> {
+        private final CompactGraph<V, E> graph;
+        private final int src;
+        private final int dst;
+        private final double[] weights;
+
+        // Shortest-path tree towards the destination
+        private double[] toDst;
+        private int[] treeEdges;
+
+        private final List<int[]> results = new ArrayList<>();
+        private final PriorityQueue<Candidate> candidates = new PriorityQueue<>();
+        private final Set<EdgeSequence> known = new HashSet<>();
+        private long sequence = 0;
+
+        // Per-deviation search state; entries are valid only if stamped with
+        // the current search generation, which spares clearing the arrays.
+        private int generation = 0;
+        private final int[] excludedEdges;
+        private final int[] excludedVertexes;
+        private final int[] reached;
+        private final double[] costs;
+        private final int[] parentEdges;
+        private final IndexedHeap queue;
+
+        private boolean started = false;
+        private boolean exhausted = false;
+        private Path<V, E> next;
+
+        private PathIterator(CompactGraph<V, E> graph, V src, V dst,
+                             EdgeWeight<V, E> weight) {
+            this.graph = graph;
+            this.src = graph.index(src);
+            this.dst = graph.index(dst);
+            this.weights = graph.weights(weight);
+
+            int n = graph.vertexCount();
+            excludedEdges = new int[graph.edgeCount()];
+            excludedVertexes = new int[n];
+            reached = new int[n];
+            costs = new double[n];
+            parentEdges = new int[n];
+            queue = new IndexedHeap(n);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = searchNext();
+            }
+            return next != null;
+        }
+
+        @Override
+        public Path<V, E> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more paths");
+            }
+            Path<V, E> path = next;
+            next = null;
+            return path;
+        }
+
+        // Finds the deviations from the last found path and yields the
+        // cheapest of all candidates found so far.
+        private Path<V, E> searchNext() {
+            if (exhausted) {
+                return null;
+            } else if (!started) {
+                started = true;
+                generation++;
+                searchTree();
+                if (toDst[src] != UNREACHED) {
+                    offer(treePath(src, null), toDst[src]);
+                }
+            } else if (!results.isEmpty()) {
+                searchDeviations(results.get(results.size() - 1));
+            }
+
+            Candidate candidate = candidates.poll();
+            if (candidate == null) {
+                exhausted = true;
+                return null;
+            }
+            results.add(candidate.edges);
+
+            ImmutableList.Builder<E> edges = ImmutableList.builder();
+            for (int e : candidate.edges) {
+                edges.add(graph.edge(e));
+            }
+            return new DefaultPath<>(edges.build(), candidate.cost);
+        }
+
+        // Computes the shortest-path tree towards the destination by
+        // searching backwards along the ingress edges.
+        private void searchTree() {
+            int n = graph.vertexCount();
+            toDst = new double[n];
+            treeEdges = new int[n];
+            Arrays.fill(toDst, UNREACHED);
+            Arrays.fill(treeEdges, -1);
+
+            toDst[dst] = 0.0;
+            queue.offer(dst, 0.0);
+            while (!queue.isEmpty()) {
+                int v = queue.extractMin();
+                for (int i = graph.ingressStart(v), m = graph.ingressEnd(v); i < m; i++) {
+                    int e = graph.ingressEdge(i);
+                    if (weights[e] < 0) {
+                        continue;
+                    }
+                    int u = graph.edgeSrc(e);
+                    double cost = toDst[v] + weights[e];
+                    if (cost < toDst[u]) {
+                        toDst[u] = cost;
+                        treeEdges[u] = e;
+                        queue.offer(u, cost);
+                    }
+                }
+            }
+        }
+
+        // Returns the tree path from the given vertex to the destination
+        // appended to the given root, or null if it crosses excluded
+        // elements of the current generation.
+        private int[] treePath(int v, int[] root) {
+            int rootLength = root == null ? 0 : root.length;
+            int[] path = new int[rootLength + graph.vertexCount()];
+            if (root != null) {
+                System.arraycopy(root, 0, path, 0, rootLength);
+            }
+            int length = rootLength;
+            while (v != dst) {
+                int e = treeEdges[v];
+                v = graph.edgeDst(e);
+                if (excludedEdges[e] == generation || excludedVertexes[v] == generation) {
+                    return null;
+                }
+                path[length++] = e;
+            }
+            return Arrays.copyOf(path, length);
+        }
+
+        // Searches for the deviations from the given path at each of its
+        // vertexes and adds them to the candidates.
+        private void searchDeviations(int[] path) {
+            double rootCost = 0.0;
+            int spur = src;
+            for (int i = 0; i < path.length; i++) {
+                generation++;
+
+                // Exclude the next edges of all found paths sharing this root
+                // as well as the root vertexes.
+                for (int[] result : results) {
+                    if (result.length > i && sharesRoot(result, path, i)) {
+                        excludedEdges[result[i]] = generation;
+                    }
+                }
+                excludedVertexes[src] = generation;
+                for (int k = 0; k < i; k++) {
+                    excludedVertexes[graph.edgeDst(path[k])] = generation;
+                }
+                excludedVertexes[spur] = 0;
+
+                int[] root = Arrays.copyOf(path, i);
+                int[] candidate = treePath(spur, root);
+                if (candidate != null) {
+                    offer(candidate, rootCost + toDst[spur]);
+                } else {
+                    double cost = searchDeviation(spur);
+                    if (cost != UNREACHED) {
+                        offer(deviationPath(root), rootCost + cost);
+                    }
+                }
+
+                rootCost += weights[path[i]];
+                spur = graph.edgeDst(path[i]);
+            }
+        }
+
+        // Indicates whether the two paths share the first given edges.
+        private boolean sharesRoot(int[] path1, int[] path2, int length) {
+            for (int k = 0; k < length; k++) {
+                if (path1[k] != path2[k]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Searches for the shortest path from the spur vertex to the
+        // destination avoiding the excluded elements, using the costs of
+        // the shortest-path tree as the heuristic, and returns its cost.
+        private double searchDeviation(int spur) {
+            queue.clear();
+            reach(spur, 0.0, -1);
+            while (!queue.isEmpty()) {
+                int u = queue.extractMin();
+                if (u == dst) {
+                    return costs[u];
+                }
+                for (int i = graph.egressStart(u), n = graph.egressEnd(u); i < n; i++) {
+                    int e = graph.egressEdge(i);
+                    int v = graph.edgeDst(e);
+                    // Vertexes which cannot reach the destination in the
+                    // whole graph cannot reach it in the masked one either.
+                    if (weights[e] < 0 || excludedEdges[e] == generation ||
+                            excludedVertexes[v] == generation || toDst[v] == UNREACHED) {
+                        continue;
+                    }
+                    double cost = costs[u] + weights[e];
+                    if (reached[v] != generation || cost < costs[v]) {
+                        reach(v, cost, e);
+                    }
+                }
+            }
+            return UNREACHED;
+        }
+
+        // Records the cost and parent edge of the vertex and queues it.
+        // Vertexes are never queued again once extracted, as the heuristic
+        // is consistent.
+        private void reach(int v, double cost, int parentEdge) {
+            boolean first = reached[v] != generation;
+            if (first || queue.contains(v)) {
+                reached[v] = generation;
+                costs[v] = cost;
+                parentEdges[v] = parentEdge;
+                queue.offer(v, cost + toDst[v]);
+            }
+        }
+
+        // Returns the path found by the last deviation search appended to
+        // the given root.
+        private int[] deviationPath(int[] root) {
+            int length = 0;
+            int v = dst;
+            while (parentEdges[v] >= 0) {
+                length++;
+                v = graph.edgeSrc(parentEdges[v]);
+            }
+            int[] path = Arrays.copyOf(root, root.length + length);
+            int k = path.length;
+            v = dst;
+            while (parentEdges[v] >= 0) {
+                path[--k] = parentEdges[v];
+                v = graph.edgeSrc(parentEdges[v]);
+            }
+            return path;
+        }
+
+        // Adds the path to the candidates, unless it is already known.
+        private void offer(int[] path, double cost) {
+            if (known.add(new EdgeSequence(path))) {
+                candidates.add(new Candidate(path, cost, sequence++));
+            }
+        }
+    }
+
+}
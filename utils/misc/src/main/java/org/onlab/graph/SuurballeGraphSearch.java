@@ -0,0 +1,208 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Suurballe's graph search algorithm for finding a pair of edge-disjoint
+ * paths between the source and destination with the least total cost.
+ * <p>
+ * The shortest path is found first. The graph is then re-weighted using
+ * the shortest path costs so that no weight is negative, the edges of the
+ * shortest path are reversed and the shortest path is searched for once
+ * more. Edges traversed in both directions by the two paths cancel each
+ * other out and the remaining edges form the disjoint pair.
+ * </p>
+ * <p>
+ * Edges with negative weight are not traversed.
+ * </p>
+ *
+ * @param <V> vertex type
+ * @param <E> edge type
+ */
+public class SuurballeGraphSearch<V extends Vertex, E extends Edge<V>> {
+
+    private static final double UNREACHED = Double.MAX_VALUE;
+
+    // Parent arc of the vertices which have not been reached or of the source
+    private static final int NO_ARC = -1;
+
+    /**
+     * Searches the graph for a pair of edge-disjoint paths between the
+     * specified source and destination.
+     *
+     * @param graph  graph to be searched
+     * @param src    source vertex
+     * @param dst    destination vertex
+     * @param weight optional edge-weight; if null cost of each edge will be
+     *               assumed to be 1.0
+     * @return list with the cheaper path of the pair first; just the
+     * shortest path if there is no disjoint pair or empty list if the
+     * destination cannot be reached
+     */
+    public List<Path<V, E>> search(Graph<V, E> graph, V src, V dst,
+                                   EdgeWeight<V, E> weight) {
+        checkNotNull(graph, "Graph cannot be null");
+        checkNotNull(src, "Source cannot be null");
+        checkNotNull(dst, "Destination cannot be null");
+        Set<V> vertices = graph.getVertexes();
+        checkArgument(vertices.contains(src), "Source not in the graph");
+        checkArgument(vertices.contains(dst), "Destination not in graph");
+        if (src.equals(dst)) {
+            return ImmutableList.of();
+        }
+
+        CompactGraph<V, E> cg = CompactGraph.copyOf(graph);
+        double[] weights = cg.weights(weight);
+        int s = cg.index(src);
+        int t = cg.index(dst);
+        int n = cg.vertexCount();
+
+        // Find the shortest path first.
+        double[] costs = new double[n];
+        int[] parents = new int[n];
+        search(cg, s, weights, costs, parents, null, null);
+        if (costs[t] == UNREACHED) {
+            return ImmutableList.of();
+        }
+        boolean[] onShortest = new boolean[cg.edgeCount()];
+        int v = t;
+        while (v != s) {
+            onShortest[parents[v]] = true;
+            v = cg.edgeSrc(parents[v]);
+        }
+
+        // Search again using the weights reduced by the shortest path costs,
+        // with the edges of the shortest path reversed.
+        double[] residualCosts = new double[n];
+        int[] residualParents = new int[n];
+        search(cg, s, weights, residualCosts, residualParents, costs, onShortest);
+        if (residualCosts[t] == UNREACHED) {
+            return ImmutableList.of(path(cg, weights, s, t, onShortest));
+        }
+
+        // Combine both paths, cancelling out the reversed edges.
+        boolean[] used = onShortest.clone();
+        v = t;
+        while (v != s) {
+            int arc = residualParents[v];
+            if (arc >= 0) {
+                used[arc] = true;
+                v = cg.edgeSrc(arc);
+            } else {
+                int e = reverse(arc);
+                used[e] = false;
+                v = cg.edgeDst(e);
+            }
+        }
+
+        Path<V, E> first = path(cg, weights, s, t, used);
+        Path<V, E> second = path(cg, weights, s, t, used);
+        return first.cost() <= second.cost() ?
+                ImmutableList.of(first, second) : ImmutableList.of(second, first);
+    }
+
+    // Searches the shortest paths from the source, recording the vertex
+    // costs and parent arcs. If the costs of a prior search are given, the
+    // edge weights are reduced by them and the marked edges are traversed
+    // in reverse, at no cost, instead; reverse arcs are recorded as encoded
+    // by reverse(int).
+    private void search(CompactGraph<V, E> cg, int s, double[] weights,
+                        double[] costs, int[] parents,
+                        double[] priorCosts, boolean[] reversed) {
+        Arrays.fill(costs, UNREACHED);
+        Arrays.fill(parents, NO_ARC);
+        costs[s] = 0.0;
+
+        IndexedHeap queue = new IndexedHeap(costs.length);
+        queue.offer(s, 0.0);
+        while (!queue.isEmpty()) {
+            int u = queue.extractMin();
+            for (int i = cg.egressStart(u), n = cg.egressEnd(u); i < n; i++) {
+                int e = cg.egressEdge(i);
+                if (weights[e] < 0 || (reversed != null && reversed[e])) {
+                    continue;
+                }
+                int v = cg.edgeDst(e);
+                double weight = weights[e];
+                if (priorCosts != null) {
+                    weight = Math.max(0.0, weight + priorCosts[u] - priorCosts[v]);
+                }
+                relax(queue, costs, parents, u, v, weight, e);
+            }
+            if (reversed != null) {
+                for (int i = cg.ingressStart(u), n = cg.ingressEnd(u); i < n; i++) {
+                    int e = cg.ingressEdge(i);
+                    if (reversed[e]) {
+                        relax(queue, costs, parents, u, cg.edgeSrc(e), 0.0, reverse(e));
+                    }
+                }
+            }
+        }
+    }
+
+    // Maps an edge index to the arc traversing the edge in reverse and back;
+    // reverse arcs are negative, but never equal to NO_ARC.
+    private static int reverse(int arc) {
+        return -arc - 2;
+    }
+
+    // Lowers the cost of reaching the vertex if the given arc yields a
+    // cheaper path to it.
+    private void relax(IndexedHeap queue, double[] costs, int[] parents,
+                       int u, int v, double weight, int arc) {
+        double cost = costs[u] + weight;
+        if (cost < costs[v]) {
+            costs[v] = cost;
+            parents[v] = arc;
+            queue.offer(v, cost);
+        }
+    }
+
+    // Follows the marked edges from the source to the destination, clearing
+    // the marks of the edges it follows, and returns the resulting path.
+    private Path<V, E> path(CompactGraph<V, E> cg, double[] weights,
+                            int s, int t, boolean[] marked) {
+        Deque<E> edges = new ArrayDeque<>();
+        double cost = 0.0;
+        int v = s;
+        while (v != t) {
+            int next = -1;
+            for (int i = cg.egressStart(v), n = cg.egressEnd(v); i < n && next < 0; i++) {
+                int e = cg.egressEdge(i);
+                if (marked[e]) {
+                    next = e;
+                }
+            }
+            marked[next] = false;
+            edges.add(cg.edge(next));
+            cost += weights[next];
+            v = cg.edgeDst(next);
+        }
+        return new DefaultPath<>(ImmutableList.copyOf(edges), cost);
+    }
+
+}
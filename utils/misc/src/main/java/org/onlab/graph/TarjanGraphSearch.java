@@ -110,7 +110,7 @@ public class TarjanGraphSearch<V extends Vertex, E extends Edge<V>>
         private final Map<V, VertexData<V>> vertexData = new HashMap<>();
         private final List<VertexData<V>> visited = new ArrayList<>();
 
-        private SCCResult(Graph<V, E> graph) {
+        SCCResult(Graph<V, E> graph) {
             this.graph = graph;
         }
 
@@ -167,6 +167,12 @@ public class TarjanGraphSearch<V extends Vertex, E extends Edge<V>>
             clusterEdges.add(findClusterEdges(vertexes));
         }
 
+        // Adds a new cluster comprising the specified vertexes and edges
+        void addCluster(Set<V> vertexes, Set<E> edges) {
+            clusterVertexes.add(Collections.unmodifiableSet(vertexes));
+            clusterEdges.add(Collections.unmodifiableSet(edges));
+        }
+
         private Set<V> findClusterVertices(VertexData data) {
             VertexData<V> nextVertexData;
             Set<V> vertexes = new HashSet<>();
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.packet;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Flyweight view of an Ethernet frame held in a byte array.
+ * <p>
+ * Unlike {@link Ethernet#deserialize(byte[], int, int)}, creating a view
+ * neither copies the frame nor decodes any of it; header fields are decoded
+ * from the underlying array when first accessed and the payload is exposed
+ * as a read-only buffer over the same array. The full {@link Ethernet}
+ * object model is only built if asked for. The underlying array must not be
+ * modified while the view is in use.
+ * </p>
+ */
+public final class EthernetView {
+
+    private static final int MAC_LENGTH = MacAddress.MAC_ADDRESS_LENGTH;
+    private static final int ETHER_TYPE_OFFSET = 2 * MAC_LENGTH;
+    private static final int HEADER_LENGTH = ETHER_TYPE_OFFSET + 2;
+    private static final int VLAN_TAG_LENGTH = 4;
+    private static final short TYPE_VLAN = (short) 0x8100;
+
+    private final byte[] data;
+    private final int offset;
+    private final int length;
+
+    // Decoded on first access
+    private MacAddress destinationMAC;
+    private MacAddress sourceMAC;
+    private volatile Ethernet ethernet;
+
+    private EthernetView(byte[] data, int offset, int length) {
+        this.data = data;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Returns a view of the Ethernet frame held in the given array.
+     *
+     * @param data frame bytes
+     * @return frame view
+     * @throws IllegalArgumentException if the array is too short to hold
+     *                                  an Ethernet header
+     */
+    public static EthernetView wrap(byte[] data) {
+        checkNotNull(data, "Data cannot be null");
+        return wrap(data, 0, data.length);
+    }
+
+    /**
+     * Returns a view of the Ethernet frame held in the given segment of
+     * the array.
+     *
+     * @param data   array holding the frame
+     * @param offset offset of the frame in the array
+     * @param length length of the frame
+     * @return frame view
+     * @throws IllegalArgumentException if the segment is out of bounds or
+     *                                  too short to hold an Ethernet header
+     */
+    public static EthernetView wrap(byte[] data, int offset, int length) {
+        checkNotNull(data, "Data cannot be null");
+        checkArgument(offset >= 0 && length >= 0 && offset + length <= data.length,
+                      "Frame out of bounds");
+        checkArgument(length >= HEADER_LENGTH, "Frame too short");
+        EthernetView view = new EthernetView(data, offset, length);
+        checkArgument(!view.isVlanTagged() || length >= HEADER_LENGTH + VLAN_TAG_LENGTH,
+                      "Frame too short");
+        return view;
+    }
+
+    /**
+     * Returns the destination MAC address.
+     *
+     * @return destination MAC address
+     */
+    public MacAddress getDestinationMAC() {
+        if (destinationMAC == null) {
+            destinationMAC = MacAddress.valueOf(
+                    Arrays.copyOfRange(data, offset, offset + MAC_LENGTH));
+        }
+        return destinationMAC;
+    }
+
+    /**
+     * Returns the source MAC address.
+     *
+     * @return source MAC address
+     */
+    public MacAddress getSourceMAC() {
+        if (sourceMAC == null) {
+            sourceMAC = MacAddress.valueOf(
+                    Arrays.copyOfRange(data, offset + MAC_LENGTH, offset + 2 * MAC_LENGTH));
+        }
+        return sourceMAC;
+    }
+
+    /**
+     * Indicates whether the frame is sent to the broadcast address.
+     *
+     * @return true if the frame is broadcast
+     */
+    public boolean isBroadcast() {
+        for (int i = offset; i < offset + MAC_LENGTH; i++) {
+            if (data[i] != -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Indicates whether the frame is sent to a multicast address other than
+     * the broadcast address.
+     *
+     * @return true if the frame is multicast
+     */
+    public boolean isMulticast() {
+        return (data[offset] & 0x01) != 0 && !isBroadcast();
+    }
+
+    /**
+     * Indicates whether the frame carries an 802.1Q VLAN tag.
+     *
+     * @return true if the frame is VLAN tagged
+     */
+    public boolean isVlanTagged() {
+        return getShort(offset + ETHER_TYPE_OFFSET) == TYPE_VLAN;
+    }
+
+    /**
+     * Returns the VLAN identifier.
+     *
+     * @return VLAN identifier; {@link Ethernet#VLAN_UNTAGGED} if the frame
+     * is not tagged
+     */
+    public short getVlanID() {
+        if (!isVlanTagged()) {
+            return Ethernet.VLAN_UNTAGGED;
+        }
+        return (short) (getShort(offset + HEADER_LENGTH) & 0x0fff);
+    }
+
+    /**
+     * Returns the VLAN priority code.
+     *
+     * @return priority code; 0 if the frame is not tagged
+     */
+    public byte getPriorityCode() {
+        if (!isVlanTagged()) {
+            return 0;
+        }
+        return (byte) (getShort(offset + HEADER_LENGTH) >> 13 & 0x07);
+    }
+
+    /**
+     * Returns the ether type of the payload.
+     *
+     * @return ether type
+     */
+    public short getEtherType() {
+        return getShort(offset + payloadOffset() - 2);
+    }
+
+    /**
+     * Returns the offset of the payload relative to the start of the frame.
+     *
+     * @return payload offset
+     */
+    public int payloadOffset() {
+        return isVlanTagged() ? HEADER_LENGTH + VLAN_TAG_LENGTH : HEADER_LENGTH;
+    }
+
+    /**
+     * Returns the length of the payload.
+     *
+     * @return payload length
+     */
+    public int payloadLength() {
+        return length - payloadOffset();
+    }
+
+    /**
+     * Returns a read-only buffer over the payload, sharing the underlying
+     * array rather than copying it.
+     *
+     * @return payload buffer, positioned at the start of the payload
+     */
+    public ByteBuffer payload() {
+        return ByteBuffer.wrap(data, offset + payloadOffset(), payloadLength())
+                .slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the frame decoded into the Ethernet object model; the frame
+     * is decoded on the first invocation only.
+     *
+     * @return decoded Ethernet frame
+     */
+    public Ethernet parsed() {
+        Ethernet eth = ethernet;
+        if (eth == null) {
+            synchronized (this) {
+                eth = ethernet;
+                if (eth == null) {
+                    eth = new Ethernet();
+                    eth.deserialize(data, offset, length);
+                    ethernet = eth;
+                }
+            }
+        }
+        return eth;
+    }
+
+    private short getShort(int index) {
+        return (short) ((data[index] & 0xff) << 8 | data[index + 1] & 0xff);
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("src", getSourceMAC())
+                .add("dst", getDestinationMAC())
+                .add("etherType", String.format("0x%04x", getEtherType()))
+                .add("vlan", getVlanID())
+                .add("length", length)
+                .toString();
+    }
+}
@@ -0,0 +1,418 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.util;
+
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.IpPrefix;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Path-compressed binary trie mapping IPv4 and IPv6 prefixes to values,
+ * keyed on the raw bits of the prefixes.
+ * <p>
+ * Besides exact lookups, the trie answers longest prefix match queries and
+ * finds the prefixes covering, or covered by, a given prefix in time
+ * proportional to the prefix length rather than to the number of prefixes.
+ * </p>
+ * <p>
+ * Any number of readers may use the trie concurrently with a writer;
+ * writes are serialized. Readers never block and see each prefix either
+ * before or after a concurrent write of it.
+ * </p>
+ *
+ * @param <V> type of the values
+ */
+public final class IpPrefixTrie<V> {
+
+    private volatile Node<V> ip4Root;
+    private volatile Node<V> ip6Root;
+    private volatile int size;
+
+    /**
+     * Returns the number of prefixes in the trie.
+     *
+     * @return number of prefixes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Indicates whether the trie holds no prefixes.
+     *
+     * @return true if the trie is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value of the given prefix.
+     *
+     * @param prefix IP prefix
+     * @return value of the prefix; null if the prefix is not in the trie
+     */
+    public V get(IpPrefix prefix) {
+        checkNotNull(prefix, "Prefix cannot be null");
+        byte[] key = prefix.address().toOctets();
+        int length = prefix.prefixLength();
+        Node<V> node = root(prefix.version());
+        while (node != null && node.length <= length && matches(key, node.key, node.length)) {
+            if (node.length == length) {
+                return node.value;
+            }
+            node = node.child(bit(key, node.length));
+        }
+        return null;
+    }
+
+    /**
+     * Returns the value of the longest prefix containing the given address.
+     *
+     * @param address IP address
+     * @return value of the longest matching prefix; null if no prefix in
+     * the trie contains the address
+     */
+    public V longestPrefixMatch(IpAddress address) {
+        checkNotNull(address, "Address cannot be null");
+        byte[] key = address.toOctets();
+        int length = key.length * Byte.SIZE;
+        V best = null;
+        Node<V> node = root(address.version());
+        while (node != null && node.length <= length && matches(key, node.key, node.length)) {
+            V value = node.value;
+            if (value != null) {
+                best = value;
+            }
+            if (node.length == length) {
+                break;
+            }
+            node = node.child(bit(key, node.length));
+        }
+        return best;
+    }
+
+    /**
+     * Returns the values of the prefixes containing the given prefix,
+     * including the prefix itself, from the shortest prefix to the longest.
+     *
+     * @param prefix IP prefix
+     * @return values of the covering prefixes
+     */
+    public List<V> getValuesCovering(IpPrefix prefix) {
+        checkNotNull(prefix, "Prefix cannot be null");
+        return covering(prefix.version(), prefix.address().toOctets(),
+                        prefix.prefixLength());
+    }
+
+    /**
+     * Returns the values of the prefixes containing the given address,
+     * from the shortest prefix to the longest.
+     *
+     * @param address IP address
+     * @return values of the covering prefixes
+     */
+    public List<V> getValuesCovering(IpAddress address) {
+        checkNotNull(address, "Address cannot be null");
+        byte[] key = address.toOctets();
+        return covering(address.version(), key, key.length * Byte.SIZE);
+    }
+
+    private List<V> covering(IpAddress.Version version, byte[] key, int length) {
+        List<V> values = new ArrayList<>();
+        Node<V> node = root(version);
+        while (node != null && node.length <= length && matches(key, node.key, node.length)) {
+            V value = node.value;
+            if (value != null) {
+                values.add(value);
+            }
+            if (node.length == length) {
+                break;
+            }
+            node = node.child(bit(key, node.length));
+        }
+        return values;
+    }
+
+    /**
+     * Returns the values of the prefixes contained in the given prefix,
+     * including the prefix itself.
+     *
+     * @param prefix IP prefix
+     * @return values of the covered prefixes
+     */
+    public List<V> getValuesCoveredBy(IpPrefix prefix) {
+        checkNotNull(prefix, "Prefix cannot be null");
+        byte[] key = prefix.address().toOctets();
+        int length = prefix.prefixLength();
+        List<V> values = new ArrayList<>();
+        Node<V> node = root(prefix.version());
+        while (node != null) {
+            if (node.length >= length) {
+                if (matches(node.key, key, length)) {
+                    collect(node, values);
+                }
+                break;
+            }
+            if (!matches(key, node.key, node.length)) {
+                break;
+            }
+            node = node.child(bit(key, node.length));
+        }
+        return values;
+    }
+
+    /**
+     * Returns the values of all prefixes in the trie.
+     *
+     * @return values of all prefixes
+     */
+    public List<V> values() {
+        List<V> values = new ArrayList<>(size);
+        collect(ip4Root, values);
+        collect(ip6Root, values);
+        return values;
+    }
+
+    /**
+     * Associates the given value with the prefix.
+     *
+     * @param prefix IP prefix
+     * @param value  value of the prefix
+     * @return previous value of the prefix; null if there was none
+     */
+    public synchronized V put(IpPrefix prefix, V value) {
+        checkNotNull(prefix, "Prefix cannot be null");
+        checkNotNull(value, "Value cannot be null");
+        IpAddress.Version version = prefix.version();
+        byte[] key = prefix.address().toOctets();
+        int length = prefix.prefixLength();
+
+        Node<V> parent = null;
+        Node<V> node = root(version);
+        while (node != null) {
+            int common = commonLength(key, length, node.key, node.length);
+            if (common < node.length) {
+                // The prefix branches off above the node, or is its ancestor
+                Node<V> added;
+                if (common == length) {
+                    added = new Node<>(key, length, value);
+                    added.setChild(bit(node.key, length), node);
+                } else {
+                    added = new Node<>(mask(key, common), common, null);
+                    added.setChild(bit(key, common), new Node<>(key, length, value));
+                    added.setChild(bit(node.key, common), node);
+                }
+                link(version, parent, node, added);
+                size++;
+                return null;
+            }
+            if (node.length == length) {
+                V previous = node.value;
+                node.value = value;
+                if (previous == null) {
+                    size++;
+                }
+                return previous;
+            }
+            parent = node;
+            node = node.child(bit(key, node.length));
+        }
+        Node<V> added = new Node<>(key, length, value);
+        if (parent == null) {
+            link(version, null, null, added);
+        } else {
+            parent.setChild(bit(key, parent.length), added);
+        }
+        size++;
+        return null;
+    }
+
+    /**
+     * Removes the prefix from the trie.
+     *
+     * @param prefix IP prefix
+     * @return value of the removed prefix; null if it was not in the trie
+     */
+    public synchronized V remove(IpPrefix prefix) {
+        checkNotNull(prefix, "Prefix cannot be null");
+        IpAddress.Version version = prefix.version();
+        byte[] key = prefix.address().toOctets();
+        int length = prefix.prefixLength();
+
+        Node<V> grandparent = null;
+        Node<V> parent = null;
+        Node<V> node = root(version);
+        while (node != null && node.length < length && matches(key, node.key, node.length)) {
+            grandparent = parent;
+            parent = node;
+            node = node.child(bit(key, node.length));
+        }
+        if (node == null || node.length != length || node.value == null ||
+                !matches(key, node.key, length)) {
+            return null;
+        }
+
+        V previous = node.value;
+        node.value = null;
+        size--;
+
+        // Prune the node, and its parent if left as a needless branch
+        if (node.left != null && node.right != null) {
+            return previous;
+        }
+        Node<V> child = node.left != null ? node.left : node.right;
+        link(version, parent, node, child);
+        if (child == null && parent != null && parent.value == null) {
+            Node<V> sibling = parent.left != null ? parent.left : parent.right;
+            link(version, grandparent, parent, sibling);
+        }
+        return previous;
+    }
+
+    /**
+     * Removes all prefixes from the trie.
+     */
+    public synchronized void clear() {
+        ip4Root = null;
+        ip6Root = null;
+        size = 0;
+    }
+
+    private Node<V> root(IpAddress.Version version) {
+        return version == IpAddress.Version.INET ? ip4Root : ip6Root;
+    }
+
+    // Replaces the given child of the parent, or the root if there is no
+    // parent
+    private void link(IpAddress.Version version, Node<V> parent,
+                      Node<V> previous, Node<V> node) {
+        if (parent == null) {
+            if (version == IpAddress.Version.INET) {
+                ip4Root = node;
+            } else {
+                ip6Root = node;
+            }
+        } else if (parent.left == previous) {
+            parent.left = node;
+        } else {
+            parent.right = node;
+        }
+    }
+
+    private static <V> void collect(Node<V> root, List<V> values) {
+        if (root == null) {
+            return;
+        }
+        Deque<Node<V>> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node<V> node = stack.pop();
+            V value = node.value;
+            if (value != null) {
+                values.add(value);
+            }
+            Node<V> right = node.right;
+            if (right != null) {
+                stack.push(right);
+            }
+            Node<V> left = node.left;
+            if (left != null) {
+                stack.push(left);
+            }
+        }
+    }
+
+    private static int bit(byte[] key, int index) {
+        return (key[index >>> 3] >>> (7 - (index & 7))) & 1;
+    }
+
+    // Indicates whether the first bits of the key are those of the prefix
+    private static boolean matches(byte[] key, byte[] prefix, int length) {
+        int bytes = length >>> 3;
+        for (int i = 0; i < bytes; i++) {
+            if (key[i] != prefix[i]) {
+                return false;
+            }
+        }
+        int bits = length & 7;
+        if (bits == 0) {
+            return true;
+        }
+        int mask = (0xff00 >>> bits) & 0xff;
+        return ((key[bytes] ^ prefix[bytes]) & mask) == 0;
+    }
+
+    // Returns the number of leading bits the two prefixes have in common
+    private static int commonLength(byte[] a, int aLength, byte[] b, int bLength) {
+        int max = Math.min(aLength, bLength);
+        int common = 0;
+        for (int i = 0; common < max; i++) {
+            int diff = (a[i] ^ b[i]) & 0xff;
+            if (diff != 0) {
+                common += Integer.numberOfLeadingZeros(diff) - 24;
+                break;
+            }
+            common += Byte.SIZE;
+        }
+        return Math.min(common, max);
+    }
+
+    private static byte[] mask(byte[] key, int length) {
+        byte[] masked = new byte[key.length];
+        int bytes = length >>> 3;
+        System.arraycopy(key, 0, masked, 0, bytes);
+        int bits = length & 7;
+        if (bits != 0) {
+            masked[bytes] = (byte) (key[bytes] & (0xff00 >>> bits));
+        }
+        return masked;
+    }
+
+    // Node of the trie; the value of branching nodes added by the trie
+    // itself is null.
+    private static final class Node<V> {
+        private final byte[] key;
+        private final int length;
+        private volatile V value;
+        private volatile Node<V> left;
+        private volatile Node<V> right;
+
+        private Node(byte[] key, int length, V value) {
+            this.key = key;
+            this.length = length;
+            this.value = value;
+        }
+
+        private Node<V> child(int bit) {
+            return bit == 0 ? left : right;
+        }
+
+        private void setChild(int bit, Node<V> child) {
+            if (bit == 0) {
+                left = child;
+            } else {
+                right = child;
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.testing.EqualsTester;
+import org.junit.Test;
+
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests of the compact graph implementation.
+ */
+public class CompactGraphTest extends GraphTest {
+
+    private final Set<TestEdge> edges =
+            ImmutableSet.of(new TestEdge(A, B, 1), new TestEdge(B, C, 1),
+                            new TestEdge(C, D, 1), new TestEdge(D, A, 1),
+                            new TestEdge(B, D, 1));
+
+    @Test
+    public void equality() {
+        Set<TestVertex> vertexes = ImmutableSet.of(A, B, C, D, E, F);
+        Set<TestVertex> vertexes2 = ImmutableSet.of(A, B, C, D, E, F, G);
+
+        CompactGraph<TestVertex, TestEdge> graph = new CompactGraph<>(vertexes, edges);
+        CompactGraph<TestVertex, TestEdge> same = new CompactGraph<>(vertexes, edges);
+        CompactGraph<TestVertex, TestEdge> different = new CompactGraph<>(vertexes2, edges);
+
+        new EqualsTester()
+                .addEqualityGroup(graph, same)
+                .addEqualityGroup(different)
+                .testEquals();
+    }
+
+    @Test
+    public void basics() {
+        Set<TestVertex> vertexes = ImmutableSet.of(A, B, C, D, E, F);
+        CompactGraph<TestVertex, TestEdge> graph = new CompactGraph<>(vertexes, edges);
+        assertEquals("incorrect vertex count", 6, graph.getVertexes().size());
+        assertEquals("incorrect edge count", 5, graph.getEdges().size());
+
+        assertEquals("incorrect egress edge count", 1, graph.getEdgesFrom(A).size());
+        assertEquals("incorrect ingress edge count", 1, graph.getEdgesTo(A).size());
+        assertEquals("incorrect ingress edge count", 1, graph.getEdgesTo(C).size());
+        assertEquals("incorrect egress edge count", 2, graph.getEdgesFrom(B).size());
+        assertEquals("incorrect ingress edge count", 2, graph.getEdgesTo(D).size());
+        assertEquals("incorrect egress edge count", 0, graph.getEdgesFrom(Z).size());
+    }
+
+    @Test
+    public void indexes() {
+        CompactGraph<TestVertex, TestEdge> graph =
+                new CompactGraph<>(ImmutableSet.of(A, B, C, D, E), edges);
+        assertEquals("incorrect vertex count", 5, graph.vertexCount());
+        assertEquals("incorrect edge count", 5, graph.edgeCount());
+        assertEquals("incorrect index", -1, graph.index(Z));
+
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            TestVertex vertex = graph.vertex(v);
+            assertEquals("incorrect index", v, graph.index(vertex));
+            assertEquals("incorrect egress count", graph.getEdgesFrom(vertex).size(),
+                         graph.egressEnd(v) - graph.egressStart(v));
+            assertEquals("incorrect ingress count", graph.getEdgesTo(vertex).size(),
+                         graph.ingressEnd(v) - graph.ingressStart(v));
+            for (int i = graph.egressStart(v); i < graph.egressEnd(v); i++) {
+                int e = graph.egressEdge(i);
+                assertEquals("incorrect edge source", v, graph.edgeSrc(e));
+                assertEquals("incorrect edge", vertex, graph.edge(e).src());
+            }
+            for (int i = graph.ingressStart(v); i < graph.ingressEnd(v); i++) {
+                assertEquals("incorrect edge destination", v,
+                             graph.edgeDst(graph.ingressEdge(i)));
+            }
+        }
+    }
+
+    @Test
+    public void weights() {
+        CompactGraph<TestVertex, TestEdge> graph =
+                new CompactGraph<>(vertexes(), edges());
+        double[] weights = graph.weights(weight);
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            assertEquals("incorrect weight", graph.edge(e).weight(), weights[e], 0.01);
+        }
+        assertEquals("incorrect default weight", 1.0, graph.weights(null)[0], 0.01);
+    }
+
+    @Test
+    public void copyOf() {
+        CompactGraph<TestVertex, TestEdge> graph =
+                CompactGraph.copyOf(new AdjacencyListsGraph<>(vertexes(), edges()));
+        assertEquals("incorrect vertexes", vertexes(), graph.getVertexes());
+        assertEquals("incorrect edges", edges(), graph.getEdges());
+        assertSame("graph should not be copied", graph, CompactGraph.copyOf(graph));
+    }
+
+}
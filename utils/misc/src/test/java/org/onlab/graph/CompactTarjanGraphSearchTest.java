@@ -0,0 +1,31 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import static org.onlab.graph.TarjanGraphSearch.SCCResult;
+
+/**
+ * Test of the compact graph variant of the Tarjan algorithm.
+ */
+public class CompactTarjanGraphSearchTest extends TarjanGraphSearchTest {
+
+    @Override
+    protected SCCResult<TestVertex, TestEdge> search(Graph<TestVertex, TestEdge> graph,
+                                                     EdgeWeight<TestVertex, TestEdge> weight) {
+        return new CompactTarjanGraphSearch<TestVertex, TestEdge>().search(graph, weight);
+    }
+
+}
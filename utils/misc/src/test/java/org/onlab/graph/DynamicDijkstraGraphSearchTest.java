@@ -0,0 +1,122 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static com.google.common.collect.ImmutableSet.of;
+import static org.junit.Assert.assertEquals;
+import static org.onlab.graph.GraphPathSearch.Result;
+
+/**
+ * Test of the dynamic Dijkstra algorithm.
+ */
+public class DynamicDijkstraGraphSearchTest extends DijkstraGraphSearchTest {
+
+    @Override
+    protected DynamicDijkstraGraphSearch<TestVertex, TestEdge> graphSearch() {
+        return new DynamicDijkstraGraphSearch<>();
+    }
+
+    @Test
+    public void noChanges() {
+        executeRepair(vertexes(), edges(), of(), of());
+    }
+
+    @Test
+    public void shortestPathEdgeRemoved() {
+        executeRepair(vertexes(), edges(), of(new TestEdge(A, B, 1)), of());
+    }
+
+    @Test
+    public void tiedPathEdgeRemoved() {
+        executeRepair(vertexes(), edges(), of(new TestEdge(E, F, 1)), of());
+    }
+
+    @Test
+    public void unusedEdgeRemoved() {
+        executeRepair(vertexes(), edges(), of(new TestEdge(D, H, 5)), of());
+    }
+
+    @Test
+    public void shortcutAdded() {
+        executeRepair(vertexes(), edges(), of(), of(new TestEdge(A, G, 1)));
+    }
+
+    @Test
+    public void tieAdded() {
+        executeRepair(vertexes(), edges(), of(), of(new TestEdge(A, E, 3)));
+    }
+
+    @Test
+    public void weightChanged() {
+        executeRepair(vertexes(), edges(), of(new TestEdge(B, C, 1)),
+                      of(new TestEdge(B, C, 4)));
+    }
+
+    @Test
+    public void vertexDisconnected() {
+        executeRepair(vertexes(), edges(),
+                      of(new TestEdge(F, G, 1), new TestEdge(E, F, 1)), of());
+    }
+
+    @Test
+    public void vertexReconnected() {
+        Set<TestEdge> edges = new HashSet<>(edges());
+        edges.remove(new TestEdge(F, G, 1));
+        Set<TestVertex> vertexes = new HashSet<>(vertexes());
+        vertexes.add(Z);
+        executeRepair(vertexes, edges, of(),
+                      of(new TestEdge(F, G, 1), new TestEdge(G, Z, 1)));
+    }
+
+    @Test
+    public void removedAndAdded() {
+        executeRepair(vertexes(), edges(),
+                      of(new TestEdge(A, B, 1), new TestEdge(C, E, 1)),
+                      of(new TestEdge(A, D, 2), new TestEdge(H, G, 1)));
+    }
+
+    // Searches the original graph, repairs the result for the modified graph
+    // and validates it against a fresh search of the modified graph.
+    private void executeRepair(Set<TestVertex> vertexes, Set<TestEdge> edges,
+                               Set<TestEdge> removed, Set<TestEdge> added) {
+        DynamicDijkstraGraphSearch<TestVertex, TestEdge> search = graphSearch();
+        graph = new AdjacencyListsGraph<>(vertexes, edges);
+        Result<TestVertex, TestEdge> prior = search.search(graph, A, null, weight);
+
+        Set<TestEdge> newEdges = new HashSet<>(edges);
+        newEdges.removeAll(removed);
+        newEdges.addAll(added);
+        Set<TestVertex> newVertexes = new HashSet<>(vertexes);
+        for (TestEdge edge : added) {
+            newVertexes.add(edge.dst());
+        }
+        graph = new AdjacencyListsGraph<>(newVertexes, newEdges);
+
+        Result<TestVertex, TestEdge> expected = search.search(graph, A, null, weight);
+        Result<TestVertex, TestEdge> repaired =
+                search.repair(graph, prior, removed, added, weight);
+        printPaths(repaired.paths());
+        assertEquals("incorrect costs", expected.costs(), repaired.costs());
+        assertEquals("incorrect parents", expected.parents(), repaired.parents());
+        assertEquals("incorrect paths", expected.paths(), repaired.paths());
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Indexed heap data structure tests.
+ */
+public class IndexedHeapTest {
+
+    private static final double[] PRIORITIES = {6, 4, 5, 9, 8, 3, 2, 1, 7, 0};
+
+    private IndexedHeap heap(int arity) {
+        IndexedHeap h = new IndexedHeap(PRIORITIES.length, arity);
+        for (int i = 0; i < PRIORITIES.length; i++) {
+            assertTrue("item should be added", h.offer(i, PRIORITIES[i]));
+        }
+        return h;
+    }
+
+    @Test
+    public void empty() {
+        IndexedHeap h = new IndexedHeap(10);
+        assertTrue("should be empty", h.isEmpty());
+        assertEquals("incorrect size", 0, h.size());
+        assertFalse("should not contain item", h.contains(3));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void extractFromEmpty() {
+        new IndexedHeap(10).extractMin();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void itemOutOfRange() {
+        new IndexedHeap(10).offer(10, 1.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void badArity() {
+        new IndexedHeap(10, 1);
+    }
+
+    @Test
+    public void minQueue() {
+        for (int arity = 2; arity <= 5; arity++) {
+            IndexedHeap h = heap(arity);
+            assertEquals("incorrect size", 10, h.size());
+            assertEquals("incorrect min", 9, h.min());
+            assertEquals("incorrect priority", 6.0, h.priority(0), 0.0);
+
+            double last = -1.0;
+            while (!h.isEmpty()) {
+                int item = h.min();
+                double priority = h.priority(item);
+                assertEquals("incorrect item", item, h.extractMin());
+                assertFalse("should no longer contain item", h.contains(item));
+                assertTrue("items out of order", last <= priority);
+                last = priority;
+            }
+        }
+    }
+
+    @Test
+    public void decreasePriority() {
+        IndexedHeap h = heap(IndexedHeap.DEFAULT_ARITY);
+        assertFalse("priority should not increase", h.offer(3, 10.0));
+        assertEquals("incorrect priority", 9.0, h.priority(3), 0.0);
+        assertTrue("priority should decrease", h.offer(3, -1.0));
+        assertEquals("incorrect size", 10, h.size());
+        assertEquals("incorrect min", 3, h.extractMin());
+        assertEquals("incorrect min", 9, h.extractMin());
+    }
+
+    @Test
+    public void clear() {
+        IndexedHeap h = heap(IndexedHeap.DEFAULT_ARITY);
+        h.clear();
+        assertTrue("should be empty", h.isEmpty());
+        assertFalse("should not contain item", h.contains(9));
+        assertTrue("item should be added", h.offer(9, 1.0));
+        assertEquals("incorrect min", 9, h.extractMin());
+    }
+
+    @Test
+    public void randomized() {
+        Random random = new Random(42);
+        int n = 200;
+        IndexedHeap h = new IndexedHeap(n, 3);
+        double[] priorities = new double[n];
+        for (int i = 0; i < 1000; i++) {
+            int item = random.nextInt(n);
+            double priority = random.nextInt(1000);
+            boolean expected = !h.contains(item) || priority < priorities[item];
+            assertEquals("incorrect offer outcome", expected, h.offer(item, priority));
+            if (expected) {
+                priorities[item] = priority;
+            }
+        }
+
+        double last = Double.NEGATIVE_INFINITY;
+        while (!h.isEmpty()) {
+            int item = h.extractMin();
+            assertTrue("items out of order", last <= priorities[item]);
+            last = priorities[item];
+        }
+    }
+
+}
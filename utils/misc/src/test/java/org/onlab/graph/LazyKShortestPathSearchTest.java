@@ -0,0 +1,150 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static com.google.common.collect.ImmutableSet.of;
+import static org.junit.Assert.*;
+
+/**
+ * Test of the lazy K-shortest-path search algorithm.
+ */
+public class LazyKShortestPathSearchTest extends GraphTest {
+
+    private final LazyKShortestPathSearch<TestVertex, TestEdge> search =
+            new LazyKShortestPathSearch<>();
+
+    @Test
+    public void allPaths() {
+        graph = new AdjacencyListsGraph<>(vertexes(), edges());
+        executeSearch(A, H);
+        executeSearch(A, G);
+        executeSearch(B, D);
+    }
+
+    @Test
+    public void bidirectionalRing() {
+        Set<TestEdge> edges = new HashSet<>();
+        TestVertex[] ring = {A, B, C, D, E, F, G, H};
+        for (int i = 0; i < ring.length; i++) {
+            TestVertex next = ring[(i + 1) % ring.length];
+            edges.add(new TestEdge(ring[i], next, 1));
+            edges.add(new TestEdge(next, ring[i], 2));
+        }
+        edges.add(new TestEdge(A, E, 3));
+        edges.add(new TestEdge(E, A, 3));
+        graph = new AdjacencyListsGraph<>(vertexes(), edges);
+        executeSearch(A, E);
+        executeSearch(C, G);
+    }
+
+    @Test
+    public void noPath() {
+        graph = new AdjacencyListsGraph<>(of(A, B, C, D),
+                                          of(new TestEdge(A, B, 1),
+                                             new TestEdge(C, D, 1)));
+        assertFalse("there should be no paths",
+                    search.search(graph, A, D, weight).hasNext());
+    }
+
+    @Test
+    public void sameSourceAndDestination() {
+        graph = new AdjacencyListsGraph<>(vertexes(), edges());
+        assertFalse("there should be no paths",
+                    search.search(graph, A, A, weight).hasNext());
+    }
+
+    @Test
+    public void negativeWeightsIgnored() {
+        graph = new AdjacencyListsGraph<>(of(A, B, C),
+                                          of(new TestEdge(A, B, 1),
+                                             new TestEdge(B, C, 1),
+                                             new TestEdge(A, C, -1)));
+        Iterator<Path<TestVertex, TestEdge>> it = search.search(graph, A, C, weight);
+        assertEquals("incorrect path cost", 2.0, it.next().cost(), 0.0);
+        assertFalse("there should be no more paths", it.hasNext());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void exhausted() {
+        graph = new AdjacencyListsGraph<>(of(A, B), of(new TestEdge(A, B, 1)));
+        Iterator<Path<TestVertex, TestEdge>> it = search.search(graph, A, B, weight);
+        it.next();
+        assertFalse("there should be no more paths", it.hasNext());
+        it.next();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noSuchDestination() {
+        graph = new AdjacencyListsGraph<>(vertexes(), edges());
+        search.search(graph, A, Z, weight);
+    }
+
+    // Enumerates all paths and validates them against all the loop-less
+    // paths between the source and destination, found exhaustively.
+    private void executeSearch(TestVertex src, TestVertex dst) {
+        List<List<TestEdge>> expected = new ArrayList<>();
+        enumerate(src, dst, new ArrayList<>(), new HashSet<>(of(src)), expected);
+
+        Set<List<TestEdge>> found = new HashSet<>();
+        double lastCost = 0.0;
+        Iterator<Path<TestVertex, TestEdge>> it = search.search(graph, src, dst, weight);
+        while (it.hasNext()) {
+            Path<TestVertex, TestEdge> path = it.next();
+            assertEquals("incorrect source", src, path.src());
+            assertEquals("incorrect destination", dst, path.dst());
+            assertEquals("incorrect cost", cost(path.edges()), path.cost(), 0.0);
+            assertTrue("paths out of order", lastCost <= path.cost());
+            assertTrue("duplicate path", found.add(path.edges()));
+            lastCost = path.cost();
+        }
+        assertEquals("incorrect paths", new HashSet<>(expected), found);
+    }
+
+    // Recursively finds all loop-less paths from the vertex to destination.
+    private void enumerate(TestVertex v, TestVertex dst, List<TestEdge> path,
+                           Set<TestVertex> visited, List<List<TestEdge>> paths) {
+        if (v.equals(dst)) {
+            paths.add(new ArrayList<>(path));
+            return;
+        }
+        for (TestEdge edge : graph.getEdgesFrom(v)) {
+            if (visited.add(edge.dst())) {
+                path.add(edge);
+                enumerate(edge.dst(), dst, path, visited, paths);
+                path.remove(path.size() - 1);
+                visited.remove(edge.dst());
+            }
+        }
+    }
+
+    private double cost(List<TestEdge> edges) {
+        double cost = 0.0;
+        for (TestEdge edge : edges) {
+            cost += edge.weight();
+        }
+        return cost;
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.google.common.collect.ImmutableList.copyOf;
+import static com.google.common.collect.ImmutableSet.of;
+import static org.junit.Assert.*;
+
+/**
+ * Test of the Suurballe disjoint path pair search algorithm.
+ */
+public class SuurballeGraphSearchTest extends GraphTest {
+
+    private final SuurballeGraphSearch<TestVertex, TestEdge> search =
+            new SuurballeGraphSearch<>();
+
+    @Test
+    public void trap() {
+        // Shortest path A-B-C-D blocks both of the disjoint paths.
+        graph = new AdjacencyListsGraph<>(of(A, B, C, D),
+                                          of(new TestEdge(A, B, 1),
+                                             new TestEdge(B, C, 1),
+                                             new TestEdge(C, D, 1),
+                                             new TestEdge(A, C, 2),
+                                             new TestEdge(B, D, 2)));
+        List<Path<TestVertex, TestEdge>> paths = executeSearch(A, D, 2);
+        assertEquals("incorrect first path",
+                     copyOf(of(new TestEdge(A, B, 1), new TestEdge(B, D, 2))),
+                     paths.get(0).edges());
+        assertEquals("incorrect second path",
+                     copyOf(of(new TestEdge(A, C, 2), new TestEdge(C, D, 1))),
+                     paths.get(1).edges());
+    }
+
+    @Test
+    public void defaultGraph() {
+        graph = new AdjacencyListsGraph<>(vertexes(), edges());
+        List<Path<TestVertex, TestEdge>> paths = executeSearch(A, H, 2);
+        assertEquals("incorrect total cost", 14.0,
+                     paths.get(0).cost() + paths.get(1).cost(), 0.0);
+    }
+
+    @Test
+    public void noDisjointPair() {
+        graph = new AdjacencyListsGraph<>(of(A, B, C),
+                                          of(new TestEdge(A, B, 1),
+                                             new TestEdge(B, C, 1)));
+        executeSearch(A, C, 1);
+    }
+
+    @Test
+    public void noPath() {
+        graph = new AdjacencyListsGraph<>(of(A, B, C),
+                                          of(new TestEdge(A, B, 1),
+                                             new TestEdge(C, B, 1)));
+        executeSearch(A, C, 0);
+        executeSearch(A, A, 0);
+    }
+
+    // Searches for the disjoint paths and validates the basics.
+    private List<Path<TestVertex, TestEdge>> executeSearch(TestVertex src,
+                                                           TestVertex dst,
+                                                           int count) {
+        List<Path<TestVertex, TestEdge>> paths = search.search(graph, src, dst, weight);
+        printPaths(new HashSet<>(paths));
+        assertEquals("incorrect path count", count, paths.size());
+
+        Set<TestEdge> edges = new HashSet<>();
+        double lastCost = 0.0;
+        for (Path<TestVertex, TestEdge> path : paths) {
+            assertEquals("incorrect source", src, path.src());
+            assertEquals("incorrect destination", dst, path.dst());
+            assertTrue("paths out of order", lastCost <= path.cost());
+            lastCost = path.cost();
+            for (TestEdge edge : path.edges()) {
+                assertTrue("paths are not disjoint", edges.add(edge));
+            }
+        }
+        return paths;
+    }
+
+}
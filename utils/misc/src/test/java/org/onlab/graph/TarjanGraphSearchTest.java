@@ -26,6 +26,18 @@ import static org.onlab.graph.TarjanGraphSearch.SCCResult;
  */
 public class TarjanGraphSearchTest extends GraphTest {
 
+    /**
+     * Searches the given graph using the test-specific search.
+     *
+     * @param graph  graph to search
+     * @param weight optional edge weight
+     * @return search result
+     */
+    protected SCCResult<TestVertex, TestEdge> search(Graph<TestVertex, TestEdge> graph,
+                                                     EdgeWeight<TestVertex, TestEdge> weight) {
+        return new TarjanGraphSearch<TestVertex, TestEdge>().search(graph, weight);
+    }
+
     private void validate(SCCResult<TestVertex, TestEdge> result, int cc) {
         System.out.println("Cluster count: " + result.clusterVertexes().size());
         System.out.println("Clusters: " + result.clusterVertexes());
@@ -41,8 +53,7 @@ public class TarjanGraphSearchTest extends GraphTest {
     @Test
     public void basic() {
         graph = new AdjacencyListsGraph<>(vertexes(), edges());
-        TarjanGraphSearch<TestVertex, TestEdge> gs = new TarjanGraphSearch<>();
-        SCCResult<TestVertex, TestEdge> result = gs.search(graph, null);
+        SCCResult<TestVertex, TestEdge> result = search(graph, null);
         validate(result, 6);
     }
 
@@ -58,8 +69,7 @@ public class TarjanGraphSearchTest extends GraphTest {
                                              new TestEdge(G, H, 1),
                                              new TestEdge(H, A, 1)));
 
-        TarjanGraphSearch<TestVertex, TestEdge> gs = new TarjanGraphSearch<>();
-        SCCResult<TestVertex, TestEdge> result = gs.search(graph, null);
+        SCCResult<TestVertex, TestEdge> result = search(graph, null);
         validate(result, 1);
         validate(result, 0, 8, 8);
     }
@@ -75,8 +85,7 @@ public class TarjanGraphSearchTest extends GraphTest {
                                              new TestEdge(F, G, 1),
                                              new TestEdge(G, H, 1),
                                              new TestEdge(H, E, 1)));
-        TarjanGraphSearch<TestVertex, TestEdge> gs = new TarjanGraphSearch<>();
-        SCCResult<TestVertex, TestEdge> result = gs.search(graph, null);
+        SCCResult<TestVertex, TestEdge> result = search(graph, null);
         validate(result, 2);
         validate(result, 0, 4, 4);
         validate(result, 1, 4, 4);
@@ -94,8 +103,7 @@ public class TarjanGraphSearchTest extends GraphTest {
                                              new TestEdge(G, H, 1),
                                              new TestEdge(H, E, 1),
                                              new TestEdge(B, E, 1)));
-        TarjanGraphSearch<TestVertex, TestEdge> gs = new TarjanGraphSearch<>();
-        SCCResult<TestVertex, TestEdge> result = gs.search(graph, null);
+        SCCResult<TestVertex, TestEdge> result = search(graph, null);
         validate(result, 2);
         validate(result, 0, 4, 4);
         validate(result, 1, 4, 4);
@@ -115,8 +123,7 @@ public class TarjanGraphSearchTest extends GraphTest {
                                              new TestEdge(B, E, -1),
                                              new TestEdge(E, B, -1)));
 
-        TarjanGraphSearch<TestVertex, TestEdge> gs = new TarjanGraphSearch<>();
-        SCCResult<TestVertex, TestEdge> result = gs.search(graph, weight);
+        SCCResult<TestVertex, TestEdge> result = search(graph, weight);
         validate(result, 2);
         validate(result, 0, 4, 4);
         validate(result, 1, 4, 4);
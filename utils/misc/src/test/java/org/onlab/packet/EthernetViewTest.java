@@ -0,0 +1,113 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.packet;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the flyweight Ethernet frame view.
+ */
+public class EthernetViewTest {
+
+    private static final MacAddress SRC = MacAddress.valueOf("00:00:00:00:00:01");
+    private static final MacAddress DST = MacAddress.valueOf("00:00:00:00:00:02");
+
+    // Local experimental ether type, so that the payload is left unparsed
+    private static final short TYPE = (short) 0x88b5;
+
+    private Ethernet frame(short vlan) {
+        Ethernet eth = new Ethernet();
+        eth.setSourceMACAddress(SRC)
+                .setDestinationMACAddress(DST)
+                .setEtherType(TYPE)
+                .setVlanID(vlan)
+                .setPayload(new Data(new byte[]{1, 2, 3, 4}));
+        return eth;
+    }
+
+    @Test
+    public void untagged() {
+        byte[] data = frame(Ethernet.VLAN_UNTAGGED).serialize();
+        EthernetView view = EthernetView.wrap(data);
+        assertEquals("incorrect src", SRC, view.getSourceMAC());
+        assertEquals("incorrect dst", DST, view.getDestinationMAC());
+        assertEquals("incorrect ether type", TYPE, view.getEtherType());
+        assertFalse("should not be tagged", view.isVlanTagged());
+        assertEquals("incorrect vlan", Ethernet.VLAN_UNTAGGED, view.getVlanID());
+        assertEquals("incorrect payload offset", 14, view.payloadOffset());
+        assertEquals("incorrect payload length", 4, view.payloadLength());
+        assertFalse("should not be broadcast", view.isBroadcast());
+        assertFalse("should not be multicast", view.isMulticast());
+    }
+
+    @Test
+    public void tagged() {
+        byte[] data = frame((short) 42).serialize();
+        EthernetView view = EthernetView.wrap(data);
+        assertTrue("should be tagged", view.isVlanTagged());
+        assertEquals("incorrect vlan", 42, view.getVlanID());
+        assertEquals("incorrect ether type", TYPE, view.getEtherType());
+        assertEquals("incorrect payload offset", 18, view.payloadOffset());
+    }
+
+    @Test
+    public void payloadNotCopied() {
+        byte[] data = frame(Ethernet.VLAN_UNTAGGED).serialize();
+        ByteBuffer payload = EthernetView.wrap(data).payload();
+        assertTrue("payload should be read-only", payload.isReadOnly());
+        assertEquals("incorrect payload size", 4, payload.remaining());
+        data[14] = 9;
+        assertEquals("payload should share the frame bytes", 9, payload.get(0));
+    }
+
+    @Test
+    public void parsed() {
+        byte[] data = frame((short) 42).serialize();
+        EthernetView view = EthernetView.wrap(data);
+        Ethernet expected = new Ethernet();
+        expected.deserialize(data, 0, data.length);
+        assertEquals("incorrect parsed frame", expected, view.parsed());
+        assertSame("frame should be parsed once", view.parsed(), view.parsed());
+    }
+
+    @Test
+    public void broadcast() {
+        Ethernet eth = frame(Ethernet.VLAN_UNTAGGED);
+        eth.setDestinationMACAddress(MacAddress.BROADCAST);
+        EthernetView view = EthernetView.wrap(eth.serialize());
+        assertTrue("should be broadcast", view.isBroadcast());
+        assertFalse("broadcast is not multicast", view.isMulticast());
+    }
+
+    @Test
+    public void offset() {
+        byte[] frame = frame(Ethernet.VLAN_UNTAGGED).serialize();
+        byte[] data = new byte[frame.length + 10];
+        System.arraycopy(frame, 0, data, 5, frame.length);
+        EthernetView view = EthernetView.wrap(data, 5, frame.length);
+        assertEquals("incorrect src", SRC, view.getSourceMAC());
+        assertEquals("incorrect payload length", 4, view.payloadLength());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooShort() {
+        EthernetView.wrap(new byte[10]);
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.util;
+
+import org.junit.Test;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.IpPrefix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the IP prefix trie.
+ */
+public class IpPrefixTrieTest {
+
+    private final IpPrefixTrie<String> trie = new IpPrefixTrie<>();
+
+    private void put(String prefix) {
+        trie.put(IpPrefix.valueOf(prefix), prefix);
+    }
+
+    private String lpm(String address) {
+        return trie.longestPrefixMatch(IpAddress.valueOf(address));
+    }
+
+    private static List<String> sorted(List<String> values) {
+        List<String> copy = new ArrayList<>(values);
+        Collections.sort(copy);
+        return copy;
+    }
+
+    @Test
+    public void longestPrefixMatch() {
+        put("0.0.0.0/0");
+        put("10.0.0.0/8");
+        put("10.1.0.0/16");
+        put("10.1.2.0/24");
+        put("10.128.0.0/9");
+        assertEquals("incorrect match", "10.1.2.0/24", lpm("10.1.2.3"));
+        assertEquals("incorrect match", "10.1.0.0/16", lpm("10.1.3.3"));
+        assertEquals("incorrect match", "10.128.0.0/9", lpm("10.200.0.1"));
+        assertEquals("incorrect match", "10.0.0.0/8", lpm("10.2.0.1"));
+        assertEquals("incorrect match", "0.0.0.0/0", lpm("192.168.0.1"));
+        assertNull("no IPv6 match expected", lpm("::1"));
+    }
+
+    @Test
+    public void exactLookups() {
+        put("10.1.0.0/16");
+        put("10.2.0.0/16");
+        assertEquals("incorrect size", 2, trie.size());
+        assertEquals("incorrect value", "10.2.0.0/16", trie.get(IpPrefix.valueOf("10.2.0.0/16")));
+        assertNull("branch prefix should not be found", trie.get(IpPrefix.valueOf("10.0.0.0/14")));
+        assertNull("missing prefix should not be found", trie.get(IpPrefix.valueOf("10.1.0.0/24")));
+        assertEquals("previous value expected", "10.1.0.0/16",
+                     trie.put(IpPrefix.valueOf("10.1.0.0/16"), "x"));
+        assertEquals("incorrect size", 2, trie.size());
+    }
+
+    @Test
+    public void coveringAndCovered() {
+        put("10.0.0.0/8");
+        put("10.1.0.0/16");
+        put("10.1.2.0/24");
+        put("10.2.0.0/16");
+        put("11.0.0.0/8");
+        assertEquals("incorrect covering prefixes",
+                     Arrays.asList("10.0.0.0/8", "10.1.0.0/16"),
+                     trie.getValuesCovering(IpPrefix.valueOf("10.1.0.0/16")));
+        assertEquals("incorrect covering prefixes",
+                     Arrays.asList("10.0.0.0/8", "10.1.0.0/16", "10.1.2.0/24"),
+                     trie.getValuesCovering(IpAddress.valueOf("10.1.2.9")));
+        assertEquals("incorrect covered prefixes",
+                     Arrays.asList("10.0.0.0/8", "10.1.0.0/16", "10.1.2.0/24", "10.2.0.0/16"),
+                     sorted(trie.getValuesCoveredBy(IpPrefix.valueOf("10.0.0.0/8"))));
+        assertEquals("incorrect covered prefixes",
+                     Arrays.asList("10.1.0.0/16", "10.1.2.0/24", "10.2.0.0/16"),
+                     sorted(trie.getValuesCoveredBy(IpPrefix.valueOf("10.0.0.0/14"))));
+        assertEquals("incorrect covered prefixes", Arrays.asList("10.1.2.0/24"),
+                     trie.getValuesCoveredBy(IpPrefix.valueOf("10.1.2.0/23")));
+    }
+
+    @Test
+    public void ip6() {
+        put("2001:db8::/32");
+        put("2001:db8:1::/48");
+        put("10.0.0.0/8");
+        assertEquals("incorrect match", "2001:db8:1::/48", lpm("2001:db8:1::1"));
+        assertEquals("incorrect match", "2001:db8::/32", lpm("2001:db8:2::1"));
+        assertNull("no match expected", lpm("2001:db9::1"));
+        assertEquals("incorrect size", 3, trie.size());
+    }
+
+    @Test
+    public void remove() {
+        put("10.0.0.0/8");
+        put("10.1.0.0/16");
+        put("10.2.0.0/16");
+        assertNull("missing prefix removed", trie.remove(IpPrefix.valueOf("10.0.0.0/14")));
+        assertEquals("incorrect removed value", "10.1.0.0/16",
+                     trie.remove(IpPrefix.valueOf("10.1.0.0/16")));
+        assertEquals("incorrect match", "10.0.0.0/8", lpm("10.1.0.1"));
+        assertEquals("incorrect removed value", "10.0.0.0/8",
+                     trie.remove(IpPrefix.valueOf("10.0.0.0/8")));
+        assertNull("no match expected", lpm("10.1.0.1"));
+        assertEquals("incorrect match", "10.2.0.0/16", lpm("10.2.0.1"));
+        assertEquals("incorrect size", 1, trie.size());
+        assertEquals("incorrect values", Arrays.asList("10.2.0.0/16"), trie.values());
+    }
+
+    @Test
+    public void randomized() {
+        Random random = new Random(0);
+        Map<IpPrefix, String> expected = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            IpPrefix prefix = IpPrefix.valueOf(random.nextInt(), 8 + random.nextInt(25));
+            if (random.nextInt(4) == 0) {
+                assertEquals("incorrect removed value", expected.remove(prefix),
+                             trie.remove(prefix));
+            } else {
+                expected.put(prefix, prefix.toString());
+                trie.put(prefix, prefix.toString());
+            }
+        }
+        assertEquals("incorrect size", expected.size(), trie.size());
+        for (int i = 0; i < 2000; i++) {
+            IpAddress address = IpAddress.valueOf(random.nextInt());
+            String best = null;
+            int bestLength = -1;
+            for (IpPrefix prefix : expected.keySet()) {
+                if (prefix.contains(address) && prefix.prefixLength() > bestLength) {
+                    best = prefix.toString();
+                    bestLength = prefix.prefixLength();
+                }
+            }
+            assertEquals("incorrect match for " + address, best,
+                         trie.longestPrefixMatch(address));
+        }
+        List<String> values = new ArrayList<>(expected.values());
+        assertEquals("incorrect values", sorted(values), sorted(trie.values()));
+    }
+}
@@ -17,6 +17,8 @@ package org.onlab.netty;
 
 import java.io.IOException;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
 /**
  * Internal message representation with additional attributes
  * for supporting, synchronous request/reply behavior.
@@ -38,7 +40,7 @@ public final class InternalMessage implements Message {
         this.id = id;
         this.sender = sender;
         this.type = type;
-        this.payload = payload;
+        this.payload = checkNotNull(payload, "Payload cannot be null");
     }
 
     public long id() {
@@ -100,7 +102,7 @@ public final class InternalMessage implements Message {
             return this;
         }
         public Builder withPayload(byte[] payload) {
-            message.payload = payload;
+            message.payload = checkNotNull(payload, "Payload cannot be null");
             return this;
         }
 
@@ -20,6 +20,7 @@ import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ReplayingDecoder;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
 
@@ -28,6 +29,10 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Decoder for inbound messages.
+ * <p>
+ * Message fields are read directly from the inbound buffer and the payload
+ * is copied from it only once, into the array handed to message handlers.
+ * </p>
  */
 public class MessageDecoder extends ReplayingDecoder<DecoderState> {
 
@@ -35,8 +40,6 @@ public class MessageDecoder extends ReplayingDecoder<DecoderState> {
 
     private final NettyMessagingService messagingService;
 
-    private static final KryoSerializer SERIALIZER = new KryoSerializer();
-
     private int contentLength;
 
     public MessageDecoder(NettyMessagingService messagingService) {
@@ -68,7 +71,21 @@ public class MessageDecoder extends ReplayingDecoder<DecoderState> {
             checkState(serializerVersion == MessageEncoder.SERIALIZER_VERSION, "Unexpected serializer version");
             checkpoint(DecoderState.READ_CONTENT);
         case READ_CONTENT:
-            InternalMessage message = SERIALIZER.decode(buffer.readBytes(contentLength).nioBuffer());
+            // Replays until the whole content has arrived; the slice shares
+            // the inbound buffer and is only used while decoding.
+            ByteBuf content = buffer.readSlice(contentLength);
+            long id = content.readLong();
+            String host = readString(content);
+            int port = content.readInt();
+            String type = readString(content);
+            int payloadLength = content.readInt();
+            checkState(payloadLength >= 0 && payloadLength <= content.readableBytes(),
+                       "Message has wrong payload length");
+            byte[] payload = new byte[payloadLength];
+            content.readBytes(payload);
+            checkState(!content.isReadable(), "Message has wrong content length");
+
+            InternalMessage message = new InternalMessage(id, new Endpoint(host, port), type, payload);
             message.setMessagingService(messagingService);
             out.add(message);
             checkpoint(DecoderState.READ_HEADER_VERSION);
@@ -78,6 +95,14 @@ public class MessageDecoder extends ReplayingDecoder<DecoderState> {
         }
     }
 
+    // Reads a length-prefixed UTF-8 string.
+    private static String readString(ByteBuf buffer) {
+        int length = buffer.readInt();
+        String string = buffer.toString(buffer.readerIndex(), length, StandardCharsets.UTF_8);
+        buffer.skipBytes(length);
+        return string;
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext context, Throwable cause) {
         log.error("Exception inside channel handling pipeline.", cause);
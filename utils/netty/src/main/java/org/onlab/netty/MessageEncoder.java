@@ -17,53 +17,77 @@ package org.onlab.netty;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.handler.codec.MessageToMessageEncoder;
 
 /**
  * Encode InternalMessage out into a byte buffer.
+ * <p>
+ * Header and message fields are written directly into a pooled buffer and
+ * the payload is appended to it as a composite component, without being
+ * copied.
+ * </p>
  */
 @Sharable
-public class MessageEncoder extends MessageToByteEncoder<InternalMessage> {
+public class MessageEncoder extends MessageToMessageEncoder<InternalMessage> {
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     // onosiscool in ascii
     static final byte[] PREAMBLE = "onosiscool".getBytes(StandardCharsets.US_ASCII);
-    public static final int HEADER_VERSION = 1;
+    public static final int HEADER_VERSION = 2;
     public static final int SERIALIZER_VERSION = 1;
 
-
-    private static final KryoSerializer SERIALIZER = new KryoSerializer();
+    // version, preamble, content length and serializer version
+    static final int HEADER_LENGTH = 4 + PREAMBLE.length + 4 + 4;
 
     @Override
     protected void encode(
             ChannelHandlerContext context,
             InternalMessage message,
-            ByteBuf out) throws Exception {
+            List<Object> out) throws Exception {
+
+        byte[] host = message.sender().host().getBytes(StandardCharsets.UTF_8);
+        byte[] type = message.type().getBytes(StandardCharsets.UTF_8);
+        byte[] payload = message.payload();
+
+        // id, sender host and port, type and payload length
+        int fieldsLength = 8 + 4 + host.length + 4 + 4 + type.length + 4;
+        int contentLength = fieldsLength + payload.length;
+
+        ByteBuf header = context.alloc().ioBuffer(HEADER_LENGTH + fieldsLength);
 
         // write version
-        out.writeInt(HEADER_VERSION);
+        header.writeInt(HEADER_VERSION);
 
         // write preamble
-        out.writeBytes(PREAMBLE);
-
-        byte[] payload = SERIALIZER.encode(message);
+        header.writeBytes(PREAMBLE);
 
-        // write payload length
-        out.writeInt(payload.length);
+        // write content length
+        header.writeInt(contentLength);
 
         // write payloadSerializer version
-        out.writeInt(SERIALIZER_VERSION);
-
-        // write payload.
-        out.writeBytes(payload);
+        header.writeInt(SERIALIZER_VERSION);
+
+        // write message fields
+        header.writeLong(message.id());
+        header.writeInt(host.length);
+        header.writeBytes(host);
+        header.writeInt(message.sender().port());
+        header.writeInt(type.length);
+        header.writeBytes(type);
+        header.writeInt(payload.length);
+
+        // append payload without copying it
+        out.add(Unpooled.wrappedBuffer(header, Unpooled.wrappedBuffer(payload)));
     }
 
     @Override
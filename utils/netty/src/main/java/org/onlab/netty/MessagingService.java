@@ -16,6 +16,8 @@
 package org.onlab.netty;
 
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.util.concurrent.ListenableFuture;
 
@@ -43,6 +45,20 @@ public interface MessagingService {
      */
     public ListenableFuture<byte[]> sendAndReceive(Endpoint ep, String type, byte[] payload) throws IOException;
 
+    /**
+     * Sends a message synchronously and waits for a response for at most
+     * the specified time, after which the future fails with a timeout.
+     * @param ep end point to send the message to.
+     * @param type type of message.
+     * @param payload message payload.
+     * @param timeout maximum time to wait for the response.
+     * @param unit unit of the timeout.
+     * @return a response future
+     * @throws IOException when I/O exception of some sort has occurred
+     */
+    public ListenableFuture<byte[]> sendAndReceive(Endpoint ep, String type, byte[] payload,
+                                                   long timeout, TimeUnit unit) throws IOException;
+
     /**
      * Registers a new message handler for message type.
      * @param type message type.
@@ -50,6 +66,16 @@ public interface MessagingService {
      */
     public void registerHandler(String type, MessageHandler handler);
 
+    /**
+     * Registers a new message handler for message type, which handles the
+     * messages using the specified executor rather than the I/O thread on
+     * which they were received.
+     * @param type message type.
+     * @param handler message handler
+     * @param executor executor to use for running the handler
+     */
+    public void registerHandler(String type, MessageHandler handler, ExecutorService executor);
+
     /**
      * Unregister current handler, if one exists for message type.
      * @param type message type
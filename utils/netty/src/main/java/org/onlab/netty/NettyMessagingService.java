@@ -15,6 +15,10 @@
  */
 package org.onlab.netty;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.onlab.util.Tools.namedThreads;
+
 import io.netty.bootstrap.Bootstrap;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.PooledByteBufAllocator;
@@ -32,52 +36,83 @@ import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.channel.epoll.EpollServerSocketChannel;
 import io.netty.channel.epoll.EpollSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.AttributeKey;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
 
 import java.io.IOException;
 import java.net.UnknownHostException;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.pool.KeyedPoolableObjectFactory;
 import org.apache.commons.pool.impl.GenericKeyedObjectPool;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.RemovalListener;
-import com.google.common.cache.RemovalNotification;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Timer;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 
 /**
  * A Netty based implementation of MessagingService.
+ * <p>
+ * Outbound messages are queued per peer and written to the peer's channel
+ * in batches, with a single flush per batch. Once the channel has reached
+ * its write buffer high water mark, messages are held in the queue until it
+ * becomes writable again; if the queue grows too large in the meantime,
+ * sending is refused with an {@link IOException}.
+ * </p>
  */
 public class NettyMessagingService implements MessagingService {
 
+    // Maximum number of messages written to a channel before it is flushed
+    private static final int MAX_BATCH_SIZE = 64;
+
+    // Maximum number of payload bytes queued to a peer whose channel is not
+    // writable, before sending to it is refused
+    private static final long MAX_QUEUED_BYTES = 8 * 1024 * 1024;
+
+    private static final AttributeKey<OutboundQueue> OUTBOUND_QUEUE =
+            AttributeKey.valueOf("outboundQueue");
+
+    // Time to wait for a reply unless specified otherwise by the caller
+    private static final long DEFAULT_RESPONSE_TIMEOUT_MILLIS = 10000;
+
+    // Duration of a tick of the timer wheel used to time out the requests
+    private static final long TIMEOUT_TICK_MILLIS = 10;
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private final Endpoint localEp;
-    private final ConcurrentMap<String, MessageHandler> handlers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, InboundHandler> handlers = new ConcurrentHashMap<>();
     private final AtomicLong messageIdGenerator = new AtomicLong(0);
-    private final Cache<Long, SettableFuture<byte[]>> responseFutures = CacheBuilder.newBuilder()
-            .maximumSize(100000)
-            .expireAfterWrite(10, TimeUnit.SECONDS)
-            .removalListener(new RemovalListener<Long, SettableFuture<byte[]>>() {
-                @Override
-                public void onRemoval(RemovalNotification<Long, SettableFuture<byte[]>> entry) {
-                    entry.getValue().setException(new TimeoutException("Timedout waiting for reply"));
-                }
-            })
-            .build();
+    private final ConcurrentMap<Long, PendingResponse> responseFutures = new ConcurrentHashMap<>();
+    private final HashedWheelTimer responseTimer =
+            new HashedWheelTimer(namedThreads("netty-messaging-timeout"),
+                                 TIMEOUT_TICK_MILLIS, TimeUnit.MILLISECONDS);
+    private final ConcurrentMap<String, RpcMetrics> rpcMetrics = new ConcurrentHashMap<>();
     private final GenericKeyedObjectPool<Endpoint, Channel> channels
             = new GenericKeyedObjectPool<Endpoint, Channel>(new OnosCommunicationChannelFactory());
+    private final ConcurrentMap<Endpoint, OutboundQueue> outboundQueues = new ConcurrentHashMap<>();
+
+    private volatile MetricsService metricsService;
 
     private EventLoopGroup serverGroup;
     private EventLoopGroup clientGroup;
@@ -126,6 +161,8 @@ public class NettyMessagingService implements MessagingService {
     }
 
     public void deactivate() throws Exception {
+        responseTimer.stop();
+        outboundQueues.clear();
         channels.close();
         serverGroup.shutdownGracefully();
         clientGroup.shutdownGracefully();
@@ -139,6 +176,16 @@ public class NettyMessagingService implements MessagingService {
         return localEp;
     }
 
+    /**
+     * Sets the metrics service with which the per-peer outbound queue
+     * metrics are registered; peers already sent to are not affected.
+     *
+     * @param metricsService metrics service; null for none
+     */
+    public void setMetricsService(MetricsService metricsService) {
+        this.metricsService = metricsService;
+    }
+
     @Override
     public void sendAsync(Endpoint ep, String type, byte[] payload) throws IOException {
         InternalMessage message = new InternalMessage.Builder(this)
@@ -151,28 +198,25 @@ public class NettyMessagingService implements MessagingService {
     }
 
     protected void sendAsync(Endpoint ep, InternalMessage message) throws IOException {
-        Channel channel = null;
-        try {
-            try {
-                channel = channels.borrowObject(ep);
-                channel.eventLoop().execute(new WriteTask(channel, message));
-            } finally {
-                channels.returnObject(ep, channel);
-            }
-        } catch (IOException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new IOException(e);
-        }
-
+        outboundQueues.computeIfAbsent(ep, OutboundQueue::new).enqueue(message);
     }
 
     @Override
     public ListenableFuture<byte[]> sendAndReceive(Endpoint ep, String type, byte[] payload)
             throws IOException {
-        SettableFuture<byte[]> futureResponse = SettableFuture.create();
-        Long messageId = messageIdGenerator.incrementAndGet();
-        responseFutures.put(messageId, futureResponse);
+        return sendAndReceive(ep, type, payload,
+                              DEFAULT_RESPONSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public ListenableFuture<byte[]> sendAndReceive(Endpoint ep, String type, byte[] payload,
+                                                   long timeout, TimeUnit unit)
+            throws IOException {
+        checkArgument(timeout > 0, "Timeout must be positive");
+        long messageId = messageIdGenerator.incrementAndGet();
+        PendingResponse response = new PendingResponse(rpcMetrics(type));
+        responseFutures.put(messageId, response);
+        response.timeout = responseTimer.newTimeout(t -> timedOut(messageId), timeout, unit);
         InternalMessage message = new InternalMessage.Builder(this)
             .withId(messageId)
             .withSender(localEp)
@@ -182,15 +226,54 @@ public class NettyMessagingService implements MessagingService {
         try {
             sendAsync(ep, message);
         } catch (Exception e) {
-            responseFutures.invalidate(messageId);
+            if (responseFutures.remove(messageId, response)) {
+                response.timeout.cancel();
+            }
             throw e;
         }
-        return futureResponse;
+        return response.future;
+    }
+
+    // Fails the request with the specified id, unless it has been replied to.
+    private void timedOut(long messageId) {
+        PendingResponse response = responseFutures.remove(messageId);
+        if (response != null) {
+            response.metrics.timeouts.inc();
+            response.future.setException(new TimeoutException("Timedout waiting for reply"));
+        }
+    }
+
+    // Completes the request with the specified id using the reply payload.
+    private boolean replied(long messageId, byte[] payload) {
+        PendingResponse response = responseFutures.remove(messageId);
+        if (response == null) {
+            return false;
+        }
+        // The timeout may not be set yet if the reply beat the sender to it
+        Timeout timeout = response.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        response.metrics.latency.update(System.nanoTime() - response.startNanos,
+                                        TimeUnit.NANOSECONDS);
+        response.future.set(payload);
+        return true;
+    }
+
+    // Returns the metrics of requests of the specified type.
+    private RpcMetrics rpcMetrics(String type) {
+        return rpcMetrics.computeIfAbsent(type, RpcMetrics::new);
     }
 
     @Override
     public void registerHandler(String type, MessageHandler handler) {
-        handlers.putIfAbsent(type, handler);
+        handlers.putIfAbsent(type, new InboundHandler(type, handler, null));
+    }
+
+    @Override
+    public void registerHandler(String type, MessageHandler handler, ExecutorService executor) {
+        checkNotNull(executor, "Executor cannot be null");
+        handlers.putIfAbsent(type, new InboundHandler(type, handler, executor));
     }
 
     @Override
@@ -198,7 +281,7 @@ public class NettyMessagingService implements MessagingService {
         handlers.remove(type);
     }
 
-    private MessageHandler getMessageHandler(String type) {
+    private InboundHandler getMessageHandler(String type) {
         return handlers.get(type);
     }
 
@@ -209,7 +292,7 @@ public class NettyMessagingService implements MessagingService {
         b.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
         b.group(serverGroup, clientGroup)
             .channel(serverChannelClass)
-            .childHandler(new OnosCommunicationChannelInitializer())
+            .childHandler(channelInitializer())
             .option(ChannelOption.SO_BACKLOG, 128)
             .childOption(ChannelOption.SO_KEEPALIVE, true);
 
@@ -217,6 +300,18 @@ public class NettyMessagingService implements MessagingService {
         b.bind(localEp.port()).sync();
     }
 
+    // Returns the initializer of the pipeline of channels to and from peers.
+    ChannelInitializer<Channel> channelInitializer() {
+        return new OnosCommunicationChannelInitializer();
+    }
+
+    // Returns an open channel to the given peer, taken from the pool.
+    Channel openChannel(Endpoint ep) throws Exception {
+        Channel ch = channels.borrowObject(ep);
+        channels.returnObject(ep, ch);
+        return ch;
+    }
+
     private class OnosCommunicationChannelFactory
         implements KeyedPoolableObjectFactory<Endpoint, Channel> {
 
@@ -241,7 +336,7 @@ public class NettyMessagingService implements MessagingService {
             // http://normanmaurer.me/presentations/2014-facebook-eng-netty/slides.html#37.0
             bootstrap.channel(clientChannelClass);
             bootstrap.option(ChannelOption.SO_KEEPALIVE, true);
-            bootstrap.handler(new OnosCommunicationChannelInitializer());
+            bootstrap.handler(channelInitializer());
             // Start the client.
             ChannelFuture f = bootstrap.connect(ep.host(), ep.port()).sync();
             return f.channel();
@@ -258,13 +353,13 @@ public class NettyMessagingService implements MessagingService {
         }
     }
 
-    private class OnosCommunicationChannelInitializer extends ChannelInitializer<SocketChannel> {
+    private class OnosCommunicationChannelInitializer extends ChannelInitializer<Channel> {
 
         private final ChannelHandler dispatcher = new InboundMessageDispatcher();
         private final ChannelHandler encoder = new MessageEncoder();
 
         @Override
-        protected void initChannel(SocketChannel channel) throws Exception {
+        protected void initChannel(Channel channel) throws Exception {
             channel.pipeline()
                 .addLast("encoder", encoder)
                 .addLast("decoder", new MessageDecoder(NettyMessagingService.this))
@@ -272,19 +367,206 @@ public class NettyMessagingService implements MessagingService {
         }
     }
 
-    private static class WriteTask implements Runnable {
+    // Future of a request awaiting its reply, along with the timeout set on
+    // the timer wheel to fail it.
+    private static final class PendingResponse {
+        private final SettableFuture<byte[]> future = SettableFuture.create();
+        private final long startNanos = System.nanoTime();
+        private final RpcMetrics metrics;
+        private volatile Timeout timeout;
 
-        private final InternalMessage message;
-        private final Channel channel;
+        private PendingResponse(RpcMetrics metrics) {
+            this.metrics = metrics;
+        }
+    }
 
-        public WriteTask(Channel channel, InternalMessage message) {
-            this.channel = channel;
-            this.message = message;
+    // Round-trip latency and count of timed out requests of one type.
+    private final class RpcMetrics {
+        private final Timer latency;
+        private final Counter timeouts;
+
+        private RpcMetrics(String type) {
+            MetricsService metrics = metricsService;
+            if (metrics != null) {
+                MetricsComponent component = metrics.registerComponent("NettyMessaging");
+                MetricsFeature feature = component.registerFeature(type);
+                latency = metrics.createTimer(component, feature, "rpcLatency");
+                timeouts = metrics.createCounter(component, feature, "rpcTimeouts");
+            } else {
+                latency = new Timer();
+                timeouts = new Counter();
+            }
+        }
+    }
+
+    // Handler of inbound messages of one type, run either directly on the
+    // I/O thread or using its executor, along with its metrics.
+    private final class InboundHandler {
+
+        private final String type;
+        private final MessageHandler handler;
+        private final ExecutorService executor;
+
+        private final Counter queued;
+        private final Timer latency;
+
+        private InboundHandler(String type, MessageHandler handler, ExecutorService executor) {
+            this.type = type;
+            this.handler = checkNotNull(handler, "Handler cannot be null");
+            this.executor = executor;
+            MetricsService metrics = metricsService;
+            if (metrics != null) {
+                MetricsComponent component = metrics.registerComponent("NettyMessaging");
+                MetricsFeature feature = component.registerFeature(type);
+                queued = metrics.createCounter(component, feature, "queued");
+                latency = metrics.createTimer(component, feature, "handlerLatency");
+            } else {
+                queued = new Counter();
+                latency = new Timer();
+            }
+        }
+
+        // Handles the message, using the executor if there is one.
+        private void dispatch(InternalMessage message) throws IOException {
+            if (executor == null) {
+                handle(message);
+                return;
+            }
+            queued.inc();
+            try {
+                executor.execute(() -> {
+                    queued.dec();
+                    try {
+                        handle(message);
+                    } catch (Exception e) {
+                        log.warn("Failed to handle message of type {}", type, e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                queued.dec();
+                log.warn("Unable to handle message of type {} due to {}", type, e.getMessage());
+            }
+        }
+
+        private void handle(InternalMessage message) throws IOException {
+            final Timer.Context context = latency.time();
+            try {
+                handler.handle(message);
+            } finally {
+                context.stop();
+            }
+        }
+    }
+
+    // Queue of messages to be sent to a peer, drained by the event loop of
+    // the peer's channel.
+    private final class OutboundQueue implements Runnable {
+
+        private final Endpoint ep;
+        private final Queue<InternalMessage> messages = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicLong pendingBytes = new AtomicLong();
+        private volatile Channel channel;
+
+        private final Counter queuedBytes;
+        private final Histogram flushSizes;
+        private final Counter rejected;
+
+        private OutboundQueue(Endpoint ep) {
+            this.ep = ep;
+            MetricsService metrics = metricsService;
+            if (metrics != null) {
+                MetricsComponent component = metrics.registerComponent("NettyMessaging");
+                MetricsFeature feature = component.registerFeature(ep.host() + ":" + ep.port());
+                queuedBytes = metrics.createCounter(component, feature, "queuedBytes");
+                flushSizes = metrics.createHistogram(component, feature, "flushSize");
+                rejected = metrics.createCounter(component, feature, "rejected");
+            } else {
+                queuedBytes = new Counter();
+                flushSizes = new Histogram(new ExponentiallyDecayingReservoir());
+                rejected = new Counter();
+            }
+        }
+
+        // Queues the message and makes sure the queue is being drained.
+        private void enqueue(InternalMessage message) throws IOException {
+            Channel ch = channel();
+            int size = message.payload().length;
+            if (!ch.isWritable() && pendingBytes.get() >= MAX_QUEUED_BYTES) {
+                rejected.inc();
+                throw new IOException("Too many bytes queued for " + ep);
+            }
+            pendingBytes.addAndGet(size);
+            queuedBytes.inc(size);
+            messages.add(message);
+            schedule(ch);
+        }
+
+        // Returns an active channel to the peer, obtaining a new one if the
+        // current one has been closed.
+        private Channel channel() throws IOException {
+            Channel ch = channel;
+            if (ch != null && ch.isActive()) {
+                return ch;
+            }
+            synchronized (this) {
+                ch = channel;
+                if (ch == null || !ch.isActive()) {
+                    try {
+                        ch = openChannel(ep);
+                    } catch (IOException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new IOException(e);
+                    }
+                    ch.attr(OUTBOUND_QUEUE).set(this);
+                    channel = ch;
+                }
+                return ch;
+            }
+        }
+
+        // Schedules draining of the queue, unless already scheduled.
+        private void schedule(Channel ch) {
+            if (scheduled.compareAndSet(false, true)) {
+                ch.eventLoop().execute(this);
+            }
+        }
+
+        // Resumes draining of the queue once the channel is writable again.
+        private void resume() {
+            Channel ch = channel;
+            if (ch != null && !messages.isEmpty()) {
+                schedule(ch);
+            }
         }
 
         @Override
         public void run() {
-            channel.writeAndFlush(message).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+            Channel ch = channel;
+            int written = 0;
+            while (written < MAX_BATCH_SIZE && ch.isWritable()) {
+                InternalMessage message = messages.poll();
+                if (message == null) {
+                    break;
+                }
+                ch.write(message).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+                int size = message.payload().length;
+                pendingBytes.addAndGet(-size);
+                queuedBytes.dec(size);
+                written++;
+            }
+            if (written > 0) {
+                ch.flush();
+                flushSizes.update(written);
+            }
+
+            // Messages may have been queued since the queue was found empty;
+            // if the channel is not writable, draining resumes once it is.
+            scheduled.set(false);
+            if (!messages.isEmpty() && ch.isWritable()) {
+                schedule(ch);
+            }
         }
     }
 
@@ -295,29 +577,30 @@ public class NettyMessagingService implements MessagingService {
         protected void channelRead0(ChannelHandlerContext ctx, InternalMessage message) throws Exception {
             String type = message.type();
             if (type.equals(InternalMessage.REPLY_MESSAGE_TYPE)) {
-                try {
-                    SettableFuture<byte[]> futureResponse =
-                        NettyMessagingService.this.responseFutures.getIfPresent(message.id());
-                    if (futureResponse != null) {
-                        futureResponse.set(message.payload());
-                    } else {
-                        log.warn("Received a reply for message id:[{}]. "
-                                + " from {}. But was unable to locate the"
-                                + " request handle", message.id(), message.sender());
-                    }
-                } finally {
-                    NettyMessagingService.this.responseFutures.invalidate(message.id());
+                if (!NettyMessagingService.this.replied(message.id(), message.payload())) {
+                    log.warn("Received a reply for message id:[{}]. "
+                            + " from {}. But was unable to locate the"
+                            + " request handle", message.id(), message.sender());
                 }
                 return;
             }
-            MessageHandler handler = NettyMessagingService.this.getMessageHandler(type);
+            InboundHandler handler = NettyMessagingService.this.getMessageHandler(type);
             if (handler != null) {
-                handler.handle(message);
+                handler.dispatch(message);
             } else {
                 log.debug("No handler registered for {}", type);
             }
         }
 
+        @Override
+        public void channelWritabilityChanged(ChannelHandlerContext context) throws Exception {
+            OutboundQueue queue = context.channel().attr(OUTBOUND_QUEUE).get();
+            if (queue != null && context.channel().isWritable()) {
+                queue.resume();
+            }
+            super.channelWritabilityChanged(context);
+        }
+
         @Override
         public void exceptionCaught(ChannelHandlerContext context, Throwable cause) {
             log.error("Exception inside channel handling pipeline.", cause);
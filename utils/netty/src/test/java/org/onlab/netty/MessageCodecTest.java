@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the message encoder and decoder.
+ */
+public class MessageCodecTest {
+
+    private static final Endpoint SENDER = new Endpoint("10.0.0.1", 9876);
+
+    private ByteBuf encode(InternalMessage message) {
+        EmbeddedChannel channel = new EmbeddedChannel(new MessageEncoder());
+        assertTrue("message should be encoded", channel.writeOutbound(message));
+        return (ByteBuf) channel.readOutbound();
+    }
+
+    private void validate(InternalMessage expected, InternalMessage actual) {
+        assertNotNull("message should be decoded", actual);
+        assertEquals("incorrect id", expected.id(), actual.id());
+        assertEquals("incorrect sender", expected.sender(), actual.sender());
+        assertEquals("incorrect type", expected.type(), actual.type());
+        assertArrayEquals("incorrect payload", expected.payload(), actual.payload());
+    }
+
+    @Test
+    public void roundTrip() {
+        InternalMessage message =
+                new InternalMessage(42L, SENDER, "test", RandomUtils.nextBytes(100));
+        ByteBuf encoded = encode(message);
+
+        EmbeddedChannel channel = new EmbeddedChannel(new MessageDecoder(null));
+        assertTrue("message should be decoded", channel.writeInbound(encoded));
+        validate(message, (InternalMessage) channel.readInbound());
+        assertNull("no more messages expected", channel.readInbound());
+    }
+
+    @Test
+    public void fragmented() {
+        InternalMessage message =
+                new InternalMessage(7L, SENDER, "fragmented", RandomUtils.nextBytes(100000));
+        InternalMessage empty = new InternalMessage(8L, SENDER, "empty", new byte[0]);
+        ByteBuf first = encode(message);
+        ByteBuf second = encode(empty);
+
+        // Feed both messages in small fragments straddling their boundary.
+        EmbeddedChannel channel = new EmbeddedChannel(new MessageDecoder(null));
+        for (ByteBuf encoded : new ByteBuf[]{first, second}) {
+            while (encoded.isReadable()) {
+                int length = Math.min(encoded.readableBytes(), 1499);
+                channel.writeInbound(encoded.readSlice(length).retain());
+            }
+            encoded.release();
+        }
+        validate(message, (InternalMessage) channel.readInbound());
+        validate(empty, (InternalMessage) channel.readInbound());
+        assertNull("no more messages expected", channel.readInbound());
+    }
+
+    @Test
+    public void corruptPayloadLength() {
+        byte[] payload = RandomUtils.nextBytes(100);
+        ByteBuf encoded = encode(new InternalMessage(9L, SENDER, "corrupt", payload));
+        encoded.setInt(encoded.writerIndex() - payload.length - 4, Integer.MAX_VALUE);
+
+        EmbeddedChannel channel = new EmbeddedChannel(new MessageDecoder(null));
+        channel.writeInbound(encoded);
+        assertNull("corrupt message should not be decoded", channel.readInbound());
+        assertFalse("channel should be closed", channel.isOpen());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void nullPayload() {
+        new InternalMessage.Builder(null).withPayload(null);
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the outbound message queues and pending requests of the Netty
+ * messaging service, using an embedded channel in place of a connection
+ * to the peer.
+ */
+public class NettyMessagingServiceTest {
+
+    private static final Endpoint PEER = new Endpoint("10.0.0.2", 9876);
+    private static final int MAX_BATCH_SIZE = 64;
+    private static final int MAX_QUEUED_BYTES = 8 * 1024 * 1024;
+
+    private NettyMessagingService service;
+    private EmbeddedChannel channel;
+    private int flushes;
+
+    @Before
+    public void setUp() {
+        service = new NettyMessagingService("10.0.0.1", 9876) {
+            @Override
+            Channel openChannel(Endpoint ep) {
+                assertEquals("incorrect peer", PEER, ep);
+                return channel;
+            }
+        };
+        channel = new EmbeddedChannel(new FlushCounter(), service.channelInitializer());
+        channel.config().setWriteBufferLowWaterMark(64);
+        channel.config().setWriteBufferHighWaterMark(128);
+    }
+
+    // Counts the flushes reaching the channel.
+    private class FlushCounter extends ChannelOutboundHandlerAdapter {
+        @Override
+        public void flush(ChannelHandlerContext context) throws Exception {
+            flushes++;
+            super.flush(context);
+        }
+    }
+
+    // Fills the write buffer of the channel, without flushing it.
+    private void block() {
+        channel.write(Unpooled.wrappedBuffer(new byte[256]));
+        assertFalse("channel should not be writable", channel.isWritable());
+    }
+
+    // Drains the write buffer of the channel, discarding the blocking write.
+    private void unblock() {
+        channel.flush();
+        assertTrue("channel should be writable", channel.isWritable());
+        ((ByteBuf) channel.readOutbound()).release();
+    }
+
+    // Decodes the messages written to the channel.
+    private List<InternalMessage> written() {
+        EmbeddedChannel decoder = new EmbeddedChannel(new MessageDecoder(null));
+        Object buf = channel.readOutbound();
+        while (buf != null) {
+            decoder.writeInbound(buf);
+            buf = channel.readOutbound();
+        }
+        List<InternalMessage> messages = new ArrayList<>();
+        Object message = decoder.readInbound();
+        while (message != null) {
+            messages.add((InternalMessage) message);
+            message = decoder.readInbound();
+        }
+        return messages;
+    }
+
+    private void send(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            service.sendAsync(PEER, "test", new byte[]{(byte) i});
+        }
+    }
+
+    @Test
+    public void batchFlush() throws IOException {
+        channel.config().setWriteBufferHighWaterMark(64 * 1024);
+        send(MAX_BATCH_SIZE + 36);
+        assertTrue("nothing should be written yet", written().isEmpty());
+
+        channel.runPendingTasks();
+        List<InternalMessage> messages = written();
+        assertEquals("incorrect message count", MAX_BATCH_SIZE + 36, messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            assertArrayEquals("messages out of order",
+                              new byte[]{(byte) i}, messages.get(i).payload());
+        }
+        assertEquals("one flush per batch expected", 2, flushes);
+    }
+
+    @Test
+    public void resumeWhenWritable() throws IOException {
+        block();
+        send(3);
+        channel.runPendingTasks();
+        assertTrue("nothing should be written yet", written().isEmpty());
+
+        // Draining the write buffer makes the channel writable again.
+        unblock();
+        channel.runPendingTasks();
+        assertEquals("queued messages should be written", 3, written().size());
+    }
+
+    @Test
+    public void rejectWhenTooManyBytesQueued() throws IOException {
+        block();
+        service.sendAsync(PEER, "test", new byte[MAX_QUEUED_BYTES]);
+        try {
+            send(1);
+            fail("sending should be refused");
+        } catch (IOException e) {
+            assertTrue("incorrect message", e.getMessage().contains(PEER.toString()));
+        }
+
+        // Once the queue drains, sending is accepted again.
+        unblock();
+        channel.runPendingTasks();
+        assertEquals("queued message should be written", 1, written().size());
+        send(1);
+        channel.runPendingTasks();
+        assertEquals("message should be written", 1, written().size());
+    }
+
+    @Test
+    public void replyCompletesRequest() throws Exception {
+        byte[] payload = {1, 2, 3};
+        ListenableFuture<byte[]> response =
+                service.sendAndReceive(PEER, "echo", payload, 10, TimeUnit.SECONDS);
+        channel.runPendingTasks();
+        List<InternalMessage> requests = written();
+        assertEquals("request should be written", 1, requests.size());
+        assertFalse("request should be pending", response.isDone());
+
+        InternalMessage reply = new InternalMessage(requests.get(0).id(), PEER,
+                                                    InternalMessage.REPLY_MESSAGE_TYPE,
+                                                    payload);
+        EmbeddedChannel encoder = new EmbeddedChannel(new MessageEncoder());
+        encoder.writeOutbound(reply);
+        channel.writeInbound(encoder.readOutbound());
+        assertTrue("request should be replied to", response.isDone());
+        assertArrayEquals("incorrect reply", payload, response.get());
+    }
+
+    @Test
+    public void requestTimesOut() throws Exception {
+        ListenableFuture<byte[]> response =
+                service.sendAndReceive(PEER, "silent", new byte[]{1}, 10, TimeUnit.MILLISECONDS);
+        channel.runPendingTasks();
+        assertEquals("request should be written", 1, written().size());
+        try {
+            response.get(10, TimeUnit.SECONDS);
+            fail("request should have timed out");
+        } catch (ExecutionException e) {
+            assertTrue("incorrect cause", e.getCause() instanceof TimeoutException);
+        }
+    }
+}
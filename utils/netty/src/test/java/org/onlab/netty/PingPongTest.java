@@ -15,8 +15,10 @@
  */
 package org.onlab.netty;
 
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.commons.lang3.RandomUtils;
 
@@ -47,4 +49,28 @@ public class PingPongTest {
             ponger.deactivate();
         }
     }
+
+    @Ignore("Turning off fragile test")
+    @Test
+    public void testTimeout() throws Exception {
+        NettyMessagingService pinger = new NettyMessagingService(8087);
+        NettyMessagingService ponger = new NettyMessagingService(9088);
+        try {
+            pinger.activate();
+            ponger.activate();
+            ponger.registerHandler("silent", message -> { });
+            Future<byte[]> responseFuture =
+                    pinger.sendAndReceive(new Endpoint("localhost", 9088), "silent",
+                                          RandomUtils.nextBytes(100), 100, TimeUnit.MILLISECONDS);
+            try {
+                responseFuture.get(10000, TimeUnit.MILLISECONDS);
+                fail("request should have timed out");
+            } catch (ExecutionException e) {
+                assertTrue("incorrect cause", e.getCause() instanceof TimeoutException);
+            }
+        } finally {
+            pinger.deactivate();
+            ponger.deactivate();
+        }
+    }
 }